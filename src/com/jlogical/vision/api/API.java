@@ -4,6 +4,8 @@ import com.jlogical.vision.api.elements.CustomCBlock;
 import com.jlogical.vision.api.elements.CustomCommand;
 import com.jlogical.vision.api.elements.CustomHat;
 import com.jlogical.vision.api.elements.CustomReporter;
+import com.jlogical.vision.api.elements.Effect;
+import com.jlogical.vision.api.elements.VariableScope;
 import com.jlogical.vision.api.runnables.CBlockRunnable;
 import com.jlogical.vision.api.runnables.CommandRunnable;
 import com.jlogical.vision.api.runnables.ReporterRunnable;
@@ -68,6 +70,20 @@ public abstract class API {
         return command;
     }
 
+    /**
+     * Adds a new CustomCommand to this API whose first input is the name of a Variable.
+     *
+     * @param core the core of the Command.
+     * @param scope how the command uses the Variable named by its first input.
+     * @param runnable the action that runs when the command is called.
+     * @return the CustomCommand that was created.
+     */
+    protected CustomCommand addCommand(String core, VariableScope scope, CommandRunnable runnable){
+        CustomCommand command = addCommand(core, runnable);
+        command.setVariableScope(scope);
+        return command;
+    }
+
     /**
      * Adds a new CustomHat to this API.
      * @param core the core of the Hat.
@@ -91,6 +107,42 @@ public abstract class API {
         return reporter;
     }
 
+    /**
+     * Adds a new CustomReporter to this API.
+     * @param core the core of the Reporter.
+     * @param effect what running the reporter can do besides giving its value.
+     * @param runnable the action that runs when the reporter is called.
+     * @return the CustomReporter that was created.
+     */
+    protected CustomReporter addReporter(String core, Effect effect, ReporterRunnable runnable){
+        return addReporter(core, runnable).setEffect(effect);
+    }
+
+    /**
+     * Adds a new CustomReporter to this API whose first input is the name of a Variable.
+     * @param core the core of the Reporter.
+     * @param scope how the reporter uses the Variable named by its first input.
+     * @param runnable the action that runs when the reporter is called.
+     * @return the CustomReporter that was created.
+     */
+    protected CustomReporter addReporter(String core, VariableScope scope, ReporterRunnable runnable){
+        CustomReporter reporter = addReporter(core, runnable);
+        reporter.setVariableScope(scope);
+        return reporter;
+    }
+
+    /**
+     * Adds a new CustomReporter to this API whose first input is the name of a Variable.
+     * @param core the core of the Reporter.
+     * @param scope how the reporter uses the Variable named by its first input.
+     * @param effect what running the reporter can do besides giving its value.
+     * @param runnable the action that runs when the reporter is called.
+     * @return the CustomReporter that was created.
+     */
+    protected CustomReporter addReporter(String core, VariableScope scope, Effect effect, ReporterRunnable runnable){
+        return addReporter(core, scope, runnable).setEffect(effect);
+    }
+
     /**
      * Adds a CustomCBlock to this API.
      * @param core the core of the CBlock.
@@ -104,6 +156,20 @@ public abstract class API {
         return cblock;
     }
 
+    /**
+     * Adds a CustomCBlock to this API whose first input is the name of a Variable.
+     * @param core the core of the CBlock.
+     * @param scope how the cblock uses the Variable named by its first input.
+     * @param runnable the action that runs when the cblock is run.
+     * @param chains the cores of the CBlocks that chain onto this one.
+     * @return the CustomCBlock that was created.
+     */
+    protected CustomCBlock addCBlock(String core, VariableScope scope, CBlockRunnable runnable, String... chains){
+        CustomCBlock cblock = addCBlock(core, runnable, chains);
+        cblock.setVariableScope(scope);
+        return cblock;
+    }
+
     public Project getProject() {
         return project;
     }
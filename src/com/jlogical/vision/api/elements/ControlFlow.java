@@ -0,0 +1,53 @@
+package com.jlogical.vision.api.elements;
+
+/**
+ * The kinds of control flow a CustomCBlock or CustomCommand can have. Used to lower CBlocks to jumps when running a Script with {@link com.jlogical.vision.compiler.script.Engine#FLAT},
+ * and by the Optimizer to know which Commands can never run.
+ */
+public enum ControlFlow {
+
+    /**
+     * Runs its Commands if its first input is true. Otherwise runs its chain. Ex: "if []"
+     */
+    IF,
+
+    /**
+     * Always runs its Commands. Ex: "else"
+     */
+    ELSE,
+
+    /**
+     * Runs its Commands the number of times in its first input. Ex: "repeat []"
+     */
+    REPEAT,
+
+    /**
+     * Runs its Commands while its first input is true. Ex: "while []"
+     */
+    WHILE,
+
+    /**
+     * Runs its Commands until its first input is true. Ex: "repeat until []"
+     */
+    UNTIL,
+
+    /**
+     * Runs its Commands until it is stopped. Ex: "forever"
+     */
+    FOREVER,
+
+    /**
+     * Runs its Commands with a loop Variable named by its first input counting up to its second input. Ex: "for every [] up to []"
+     */
+    FOR_EVERY,
+
+    /**
+     * Stops the Hat, so no Commands after it run. Ex: "return []"
+     */
+    RETURN,
+
+    /**
+     * Stops the CBlock holding it, so no Commands after it in the CBlock run. Ex: "stop loop"
+     */
+    STOP_LOOP
+}
@@ -15,6 +15,11 @@ public class CustomCommand extends CustomElement{
      */
     private CommandRunnable runnable;
 
+    /**
+     * The kind of control flow of the Command. Null if its runnable has to be run to know how it flows.
+     */
+    private ControlFlow controlFlow;
+
     /**
      * Creates a new CustomElement with a given core and api.
      */
@@ -26,4 +31,12 @@ public class CustomCommand extends CustomElement{
     public CommandRunnable getRunnable() {
         return runnable;
     }
+
+    public ControlFlow getControlFlow() {
+        return controlFlow;
+    }
+
+    public void setControlFlow(ControlFlow controlFlow) {
+        this.controlFlow = controlFlow;
+    }
 }
@@ -24,6 +24,11 @@ public abstract class CustomElement {
      */
     private String core;
 
+    /**
+     * How the element uses the Variable named by its first input. Null if the first input does not name a Variable.
+     */
+    private VariableScope variableScope;
+
     /**
      * Creates a new CustomElement with a given core and api.
      */
@@ -32,7 +37,19 @@ public abstract class CustomElement {
         this.api = api;
     }
 
+    public API getApi() {
+        return api;
+    }
+
     public String getCore() {
         return core;
     }
+
+    public VariableScope getVariableScope() {
+        return variableScope;
+    }
+
+    public void setVariableScope(VariableScope variableScope) {
+        this.variableScope = variableScope;
+    }
 }
@@ -12,15 +12,56 @@ public class CustomReporter extends CustomElement {
      */
     private ReporterRunnable runnable;
 
+    /**
+     * The built in operation of the Reporter. Null if its runnable has to be run to get its value.
+     */
+    private Operator operator;
+
+    /**
+     * What running the Reporter can do besides giving its value. Reporters have side effects unless their API says otherwise.
+     */
+    private Effect effect;
+
     /**
      * Creates a new CustomReporter with a given core and api.
      */
     public CustomReporter(String core, ReporterRunnable runnable, API api) {
         super(core, api);
         this.runnable = runnable;
+        this.effect = Effect.SIDE_EFFECTS;
     }
 
     public ReporterRunnable getRunnable() {
         return runnable;
     }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public void setOperator(Operator operator) {
+        this.operator = operator;
+    }
+
+    public Effect getEffect() {
+        return effect;
+    }
+
+    /**
+     * Sets what running the Reporter can do besides giving its value.
+     *
+     * @param effect the Effect of the Reporter.
+     * @return this CustomReporter.
+     */
+    public CustomReporter setEffect(Effect effect) {
+        this.effect = effect != null ? effect : Effect.SIDE_EFFECTS;
+        return this;
+    }
+
+    /**
+     * @return whether the Reporter always gives the same value for the same inputs and does nothing else, so it can be run while compiling.
+     */
+    public boolean isPure() {
+        return effect == Effect.PURE;
+    }
 }
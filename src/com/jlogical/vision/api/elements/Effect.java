@@ -0,0 +1,23 @@
+package com.jlogical.vision.api.elements;
+
+/**
+ * What running a CustomReporter can do besides giving its value. Used by the Optimizer to know which Reporters it can run while compiling,
+ * run once for Values that are used more than once, or move out of loops.
+ */
+public enum Effect {
+
+    /**
+     * Always gives the same value for the same inputs and does nothing else. Can be run while compiling. Ex: "sqrt of []"
+     */
+    PURE,
+
+    /**
+     * Does nothing else, but its value depends on Variables, lists or objects that Commands can change. Ex: "value of []"
+     */
+    READS_STATE,
+
+    /**
+     * Changes something, interacts with the user, makes a new object or gives a different value each time it is run. Ex: "ask []"
+     */
+    SIDE_EFFECTS
+}
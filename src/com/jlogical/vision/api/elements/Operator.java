@@ -0,0 +1,47 @@
+package com.jlogical.vision.api.elements;
+
+/**
+ * The built in operations a CustomReporter can be. Used to compile Reporters to direct arithmetic and logic instead of running their runnables.
+ * Each operation gives the same results as the runnable of the CustomReporter it is set on.
+ */
+public enum Operator {
+    ADD(2, true),
+    SUBTRACT(2, true),
+    MULTIPLY(2, true),
+    DIVIDE(2, true),
+    POWER(2, true),
+    MODULO(2, true),
+    NEGATE(1, true),
+    EQUAL(2, false),
+    NOT_EQUAL(2, false),
+    LESS(2, false),
+    GREATER(2, false),
+    LESS_EQUAL(2, false),
+    GREATER_EQUAL(2, false),
+    AND(2, false),
+    OR(2, false),
+    NOT(1, false);
+
+    /**
+     * The number of inputs the operation takes.
+     */
+    private int operandCount;
+
+    /**
+     * Whether the operation gives a number. Otherwise it gives a boolean.
+     */
+    private boolean arithmetic;
+
+    Operator(int operandCount, boolean arithmetic) {
+        this.operandCount = operandCount;
+        this.arithmetic = arithmetic;
+    }
+
+    public int getOperandCount() {
+        return operandCount;
+    }
+
+    public boolean isArithmetic() {
+        return arithmetic;
+    }
+}
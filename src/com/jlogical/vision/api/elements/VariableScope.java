@@ -0,0 +1,27 @@
+package com.jlogical.vision.api.elements;
+
+/**
+ * How a CustomElement uses the Variable named by its first input. Used by the compiler to resolve Variables to slots.
+ */
+public enum VariableScope {
+
+    /**
+     * Finds the Variable in any scope. If it cannot be found, a new local Variable is created. Ex: "set [] to []"
+     */
+    LOCAL,
+
+    /**
+     * Finds the Variable in any scope. Ex: "change [] by []"
+     */
+    ANY,
+
+    /**
+     * Finds or creates a global Variable. Ex: "set global [] to []"
+     */
+    GLOBAL,
+
+    /**
+     * Creates a Variable that only exists inside the CBlock while it is running. Ex: "for every [] up to []"
+     */
+    LOOP
+}
@@ -1,6 +1,8 @@
 package com.jlogical.vision.api.runnables;
 
 import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.Variable;
 import com.jlogical.vision.compiler.script.elements.CBlock;
 import com.jlogical.vision.compiler.script.elements.Hat;
 import com.jlogical.vision.compiler.values.Value;
@@ -13,8 +15,8 @@ public class CBlockParameters extends CommandParameters<CBlock> {
     /**
      * Creates a Parameters with a given List of Values.
      */
-    public CBlockParameters(CBlock cblock, ArrayList<Value> values, Hat hat, CodeRange range, CBlock cblockHolder) {
-        super(cblock, values, hat, range, cblockHolder);
+    public CBlockParameters(CBlock cblock, ArrayList<Value> values, Hat hat, CodeRange range, CBlock cblockHolder, Frame frame) {
+        super(cblock, values, hat, range, cblockHolder, frame);
     }
 
     /**
@@ -22,14 +24,44 @@ public class CBlockParameters extends CommandParameters<CBlock> {
      * @throws VisionException if there is an exception in the Commands the CBlock is running.
      */
     public void runLoop() throws VisionException {
-        getCBlock().runLoop();
+        getCBlock().runLoop(getFrame());
     }
 
     /**
      * @return whether the cblock should stop or not.
      */
     public boolean shouldStop() {
-        return !getCBlock().isRunning();
+        return !getFrame().isRunning(getCBlock());
+    }
+
+    /**
+     * Runs the CBlock chained at the end of this CBlock. Does nothing if there is none.
+     * @throws VisionException if there is an exception in the chained CBlock.
+     */
+    public void runChain() throws VisionException {
+        if (getChain() != null) {
+            getChain().run(getFrame());
+        }
+    }
+
+    /**
+     * Creates the loop Variable named by the first input. Commands inside the CBlock can find it until {@link #removeLoopVariable()} is called.
+     * @param value the value of the Variable.
+     * @return the Variable that was created.
+     * @throws VisionException if there is no first input.
+     */
+    public Variable declareLoopVariable(Object value) throws VisionException {
+        CBlock cblock = getCBlock();
+        Variable variable = new Variable(cblock.getLoopName() != null ? cblock.getLoopName() : str(0), value);
+        getFrame().set(cblock.getLoopSlot(), variable);
+        return variable;
+    }
+
+    /**
+     * Removes the loop Variable of the CBlock.
+     */
+    public void removeLoopVariable() {
+        getFrame().set(getCBlock().getLoopSlot(), null);
     }
 
     public CBlock getCBlock(){
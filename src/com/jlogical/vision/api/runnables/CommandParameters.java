@@ -1,5 +1,6 @@
 package com.jlogical.vision.api.runnables;
 
+import com.jlogical.vision.compiler.script.Frame;
 import com.jlogical.vision.compiler.script.elements.CBlock;
 import com.jlogical.vision.compiler.script.elements.Command;
 import com.jlogical.vision.compiler.script.elements.Hat;
@@ -21,8 +22,8 @@ public class CommandParameters<T extends Command> extends Parameters<T>{
     /**
      * Creates a Parameters with a given List of Values.
      */
-    public CommandParameters(T command, ArrayList<Value> values, Hat hatHolder, CodeRange range, CBlock cblockHolder) {
-        super(command, values, hatHolder, cblockHolder, range);
+    public CommandParameters(T command, ArrayList<Value> values, Hat hatHolder, CodeRange range, CBlock cblockHolder, Frame frame) {
+        super(command, values, hatHolder, cblockHolder, range, frame);
         this.cblockHolder = cblockHolder;
     }
 
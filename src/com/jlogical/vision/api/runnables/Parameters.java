@@ -3,11 +3,15 @@ package com.jlogical.vision.api.runnables;
 
 import com.jlogical.vision.api.system.objects.CustomObject;
 import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.ExecutionContext;
+import com.jlogical.vision.compiler.script.Frame;
 import com.jlogical.vision.compiler.script.Script;
+import com.jlogical.vision.compiler.script.Variable;
 import com.jlogical.vision.compiler.script.elements.CBlock;
 import com.jlogical.vision.compiler.script.elements.CompiledElement;
 import com.jlogical.vision.compiler.script.elements.Hat;
 import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.compiler.values.VariableValue;
 import com.jlogical.vision.project.CodeRange;
 
 import java.util.ArrayList;
@@ -40,13 +44,19 @@ public abstract class Parameters<T extends CompiledElement> {
 
     /**
      * The range that this Parameter is covering. Used for exception throwing.
+     * Null until it is needed if it was not given, then looked up from the element.
      */
     private CodeRange range;
 
     /**
-     * Creates a Parameters with a given List of Values.
+     * The Frame of the Hat running the element.
      */
-    public Parameters(T element, ArrayList<Value> values, Hat hat, CBlock cBlock, CodeRange range) {
+    private Frame frame;
+
+    /**
+     * Creates a Parameters with a given List of Values. If the range is null, it is looked up from the element the first time it is needed.
+     */
+    public Parameters(T element, ArrayList<Value> values, Hat hat, CBlock cBlock, CodeRange range, Frame frame) {
         if (element == null) {
             throw new IllegalArgumentException("Element cannot be null!");
         }
@@ -55,6 +65,7 @@ public abstract class Parameters<T extends CompiledElement> {
         this.hatHolder = hat;
         this.cblockHolder = cBlock;
         this.range = range;
+        this.frame = frame;
     }
 
     /**
@@ -64,7 +75,18 @@ public abstract class Parameters<T extends CompiledElement> {
      * @throws VisionException always.
      */
     public void err(String message) throws VisionException {
-        throw new VisionException(message, range);
+        throw new VisionException(message, getRange());
+    }
+
+    /**
+     * Returns the given VisionException at the range of this Parameters if it was thrown without a range.
+     * Lets values be converted without looking up the range unless they fail.
+     *
+     * @param e the VisionException.
+     * @return the VisionException to throw.
+     */
+    private VisionException located(VisionException e) {
+        return e.getRange() == null ? e.at(getRange()) : e;
     }
 
 
@@ -76,19 +98,19 @@ public abstract class Parameters<T extends CompiledElement> {
     public void hatReturn(Object returnValue) {
         CBlock cBlock = cblockHolder;
         while (cBlock != null) {
-            cBlock.stop();
+            frame.setRunning(cBlock, false);
             cBlock = cBlock.getCBlockHolder();
         }
 
-        hatHolder.setOutput(returnValue);
-        hatHolder.stop();
+        frame.setOutput(returnValue);
+        frame.stop();
     }
 
     /**
      * Stops the most enclosed loop.
      */
     public void stopLoop() {
-        cblockHolder.stop();
+        frame.setRunning(cblockHolder, false);
     }
 
     /**
@@ -99,17 +121,48 @@ public abstract class Parameters<T extends CompiledElement> {
      * @throws VisionException if the index is negative or too big.
      */
     public Object get(int index) throws VisionException {
+        return normalize(value(index).getValue(frame));
+    }
+
+    /**
+     * Returns the Value at the given index in the values List.
+     *
+     * @param index the index of the Value.
+     * @return the Value.
+     * @throws VisionException if the index is negative or too big.
+     */
+    private Value value(int index) throws VisionException {
         if (index < 0) {
-            throw new VisionException("Index cannot be null!", range);
+            throw new VisionException("Index cannot be null!", getRange());
         }
         if (index >= values.size()) {
-            throw new VisionException("Index cannot be out of range of values!", range);
+            throw new VisionException("Index cannot be out of range of values!", getRange());
         }
         Value value = values.get(index);
         if (value == null) {
-            throw new VisionException("A Value cannot be null!", range);
+            throw new VisionException("A Value cannot be null!", getRange());
         }
-        Object o = value.getValue();
+        return value;
+    }
+
+    /**
+     * Returns whether the Value at the given index is always a number, so {@link #num} can get it without boxing.
+     *
+     * @param index the index of the Value.
+     * @return true if it is always a number.
+     * @throws VisionException if the index is negative or too big.
+     */
+    public boolean isNumeric(int index) throws VisionException {
+        return value(index).isNumeric();
+    }
+
+    /**
+     * Converts a Double that holds an integer into an Integer. Other values are returned as they are.
+     *
+     * @param o the value to convert.
+     * @return the normalized value.
+     */
+    public static Object normalize(Object o) {
         if (o instanceof Double) {
             Double d = (Double) o;
             if (d == (int) d.doubleValue())
@@ -136,6 +189,16 @@ public abstract class Parameters<T extends CompiledElement> {
      * @return the String value of the given input.
      */
     public String toString(Object value) {
+        return toText(value);
+    }
+
+    /**
+     * Returns the given value as a String.
+     *
+     * @param value the value to convert.
+     * @return the String value of the given input.
+     */
+    public static String toText(Object value) {
         return value == null ? "nothing" : value.toString();
     }
 
@@ -147,7 +210,11 @@ public abstract class Parameters<T extends CompiledElement> {
      * @throws VisionException if the index is negative, too big, or cannot be converted to an integer.
      */
     public int numInt(int index) throws VisionException {
-        return toInt(get(index));
+        try {
+            return value(index).getInt(frame, null);
+        } catch (VisionException e) {
+            throw located(e);
+        }
     }
 
     /**
@@ -158,6 +225,22 @@ public abstract class Parameters<T extends CompiledElement> {
      * @throws VisionException if the value cannot be converted to an int.
      */
     public int toInt(Object val) throws VisionException {
+        try {
+            return toInt(val, null);
+        } catch (VisionException e) {
+            throw located(e);
+        }
+    }
+
+    /**
+     * Returns the given value as an int.
+     *
+     * @param val   the value to convert.
+     * @param range the range to throw the exception at.
+     * @return the int value of the given input.
+     * @throws VisionException if the value cannot be converted to an int.
+     */
+    public static int toInt(Object val, CodeRange range) throws VisionException {
         if (val instanceof Integer) {
             return (int) val;
         } else if (val instanceof Double) {
@@ -180,7 +263,11 @@ public abstract class Parameters<T extends CompiledElement> {
      * @throws VisionException if the index is negative, too big, or cannot be converted to a number.
      */
     public double num(int index) throws VisionException {
-        return toNum(get(index));
+        try {
+            return value(index).getDouble(frame, null);
+        } catch (VisionException e) {
+            throw located(e);
+        }
     }
 
     /**
@@ -191,6 +278,22 @@ public abstract class Parameters<T extends CompiledElement> {
      * @throws VisionException if the value cannot be converted to an double.
      */
     public double toNum(Object val) throws VisionException {
+        try {
+            return toNum(val, null);
+        } catch (VisionException e) {
+            throw located(e);
+        }
+    }
+
+    /**
+     * Returns the given value as a double.
+     *
+     * @param val   the value to convert.
+     * @param range the range to throw the exception at.
+     * @return the double value of the given input.
+     * @throws VisionException if the value cannot be converted to an double.
+     */
+    public static double toNum(Object val, CodeRange range) throws VisionException {
         if (val instanceof Integer) {
             return (double) ((int) val);
         } else if (val instanceof Double) {
@@ -224,6 +327,22 @@ public abstract class Parameters<T extends CompiledElement> {
      * @throws VisionException if the value cannot be converted to an boolean.
      */
     public boolean toBoolean(Object val) throws VisionException {
+        try {
+            return toBoolean(val, null);
+        } catch (VisionException e) {
+            throw located(e);
+        }
+    }
+
+    /**
+     * Returns the given value as a boolean.
+     *
+     * @param val   the value to convert.
+     * @param range the range to throw the exception at.
+     * @return the boolean value of the given input.
+     * @throws VisionException if the value cannot be converted to an boolean.
+     */
+    public static boolean toBoolean(Object val, CodeRange range) throws VisionException {
         if (val instanceof Boolean) {
             return (boolean) val;
         } else if (val instanceof Integer || val instanceof Double) {
@@ -259,7 +378,7 @@ public abstract class Parameters<T extends CompiledElement> {
      */
     public List toList(Object val) throws VisionException {
         if (val instanceof List) return (List) val;
-        throw new VisionException("Cannot convert '" + val + "' to a list!", range);
+        throw new VisionException("Cannot convert '" + val + "' to a list!", getRange());
     }
 
     /**
@@ -282,11 +401,85 @@ public abstract class Parameters<T extends CompiledElement> {
      */
     public CustomObject toCustomObject(Object val) throws VisionException {
         if (val instanceof CustomObject) return (CustomObject) val;
-        throw new VisionException("Cannot convert '" + val + "' to a custom object!", range);
+        throw new VisionException("Cannot convert '" + val + "' to a custom object!", getRange());
+    }
+
+    /**
+     * Returns the name of the Variable in the first input.
+     *
+     * @return the name.
+     * @throws VisionException if there is no first input.
+     */
+    public String variableName() throws VisionException {
+        VariableValue reference = element.getVariableReference();
+        return reference != null ? reference.getVariableName() : str(0);
+    }
+
+    /**
+     * Finds the Variable named by the first input. Looks at the local Variables first, then the global Variables.
+     * Uses the slot the Variable was resolved to when compiling if there is one.
+     *
+     * @return the Variable. Null if not found.
+     * @throws VisionException if there is no first input.
+     */
+    public Variable findVariable() throws VisionException {
+        VariableValue reference = element.getVariableReference();
+        if (reference != null) {
+            return reference.getVariable(frame);
+        }
+        return Variable.findVariable(str(0), cblockHolder, frame);
     }
 
+    /**
+     * Finds the global Variable named by the first input.
+     *
+     * @return the Variable. Null if not found.
+     * @throws VisionException if there is no first input.
+     */
+    public Variable findGlobalVariable() throws VisionException {
+        VariableValue reference = element.getVariableReference();
+        if (reference != null) {
+            return reference.getGlobalVariable(frame);
+        }
+        return Variable.findGlobalVariable(str(0), getContext());
+    }
+
+    /**
+     * Creates a local Variable in the Hat named by the first input.
+     *
+     * @param value the value of the Variable.
+     * @return the Variable that was created.
+     * @throws VisionException if there is no first input.
+     */
+    public Variable declareVariable(Object value) throws VisionException {
+        return frame.declare(variableName(), value);
+    }
+
+    /**
+     * Creates a global Variable named by the first input.
+     *
+     * @param value the value of the Variable.
+     * @return the Variable that was created.
+     * @throws VisionException if there is no first input.
+     */
+    public Variable declareGlobalVariable(Object value) throws VisionException {
+        return Variable.declareGlobalVariable(variableName(), value, getContext());
+    }
+
+    /**
+     * @return the ExecutionContext of the run, which holds the global Variables and output.
+     */
+    public ExecutionContext getContext() {
+        return frame.getContext();
+    }
+
+    /**
+     * @return a Script over the Program and ExecutionContext of the run. A new one is made each call, but it shares the global Variables and output of the run.
+     * @deprecated a Program can now be run in many ExecutionContexts at once, so there is no single Script to return. Use {@link #getContext()} instead.
+     */
+    @Deprecated
     public Script getScript() {
-        return hatHolder.getScript();
+        return new Script(getContext());
     }
 
     public ArrayList<Value> getValues() {
@@ -298,9 +491,16 @@ public abstract class Parameters<T extends CompiledElement> {
     }
 
     public CodeRange getRange() {
+        if (range == null) {
+            range = element.getRange();
+        }
         return range;
     }
 
+    public Frame getFrame() {
+        return frame;
+    }
+
     public T getElement() {
         return element;
     }
@@ -1,5 +1,6 @@
 package com.jlogical.vision.api.runnables;
 
+import com.jlogical.vision.compiler.script.Frame;
 import com.jlogical.vision.compiler.script.elements.CBlock;
 import com.jlogical.vision.compiler.script.elements.Command;
 import com.jlogical.vision.compiler.script.elements.Hat;
@@ -19,8 +20,8 @@ public class ReporterParameters extends Parameters<Reporter> {
     /**
      * Creates a Parameters with a given List of Values.
      */
-    public ReporterParameters(Reporter reporter, ArrayList<Value> values, Command commandHolder, CodeRange range) {
-        super(reporter, values, commandHolder.getHatHolder(), commandHolder.getCBlockHolder(), range);
+    public ReporterParameters(Reporter reporter, ArrayList<Value> values, Command commandHolder, CodeRange range, Frame frame) {
+        super(reporter, values, commandHolder.getHatHolder(), commandHolder.getCBlockHolder(), range, frame);
         this.commandHolder = commandHolder;
     }
 
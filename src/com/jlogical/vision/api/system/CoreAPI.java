@@ -1,6 +1,10 @@
 package com.jlogical.vision.api.system;
 
 import com.jlogical.vision.api.API;
+import com.jlogical.vision.api.elements.ControlFlow;
+import com.jlogical.vision.api.elements.Effect;
+import com.jlogical.vision.api.elements.Operator;
+import com.jlogical.vision.api.elements.VariableScope;
 import com.jlogical.vision.api.runnables.CBlockParameters;
 import com.jlogical.vision.compiler.exceptions.VisionException;
 import com.jlogical.vision.compiler.script.Variable;
@@ -40,20 +44,16 @@ public class CoreAPI extends API {
 
         //Commands
         addCommand("print []", p -> {
-            String output = p.str(0);
-            System.out.println(output);
-            p.getScript().appendOutputLog(output);
+            p.getContext().getOutputSink().writeLine(p.str(0));
         });
 
         // Reporters
-        addReporter("ask []", p -> {
-            String output = p.str(0);
-            System.out.print(output);
-            p.getScript().appendOutputLog(output);
+        addReporter("ask []", Effect.SIDE_EFFECTS, p -> {
+            p.getContext().getOutputSink().writePrompt(p.str(0));
 
             Scanner scanner = new Scanner(System.in);
             String input = scanner.nextLine();
-            p.getScript().appendOutputLog(input);
+            p.getContext().getOutputSink().writeInput(input);
 
             return input;
         });
@@ -67,56 +67,55 @@ public class CoreAPI extends API {
         addCBlock("if []", p -> {
             if (p.bool(0)) {
                 p.runLoop();
-            } else if (p.getChain() != null) {
-                p.getChain().run();
+            } else {
+                p.runChain();
             }
-        }, "else if []", "else");
+        }, "else if []", "else").setControlFlow(ControlFlow.IF);
         addCBlock("else if []", p -> {
             if (p.bool(0)) {
                 p.runLoop();
-            } else if (p.getChain() != null) {
-                p.getChain().run();
+            } else {
+                p.runChain();
             }
-        }, "else if []", "else");
-        addCBlock("else", p -> p.runLoop());
+        }, "else if []", "else").setControlFlow(ControlFlow.IF);
+        addCBlock("else", p -> p.runLoop()).setControlFlow(ControlFlow.ELSE);
         addCBlock("repeat []", p -> {
             for (int i = 0; i < p.numInt(0); i++) {
                 if(p.shouldStop()) return;
                 p.runLoop();
             }
-        });
-        addCBlock("for every [] up to []", p -> {
-            Variable variable = new Variable(p.str(0), 0);
-            p.getCBlock().getVariables().add(variable);
+        }).setControlFlow(ControlFlow.REPEAT);
+        addCBlock("for every [] up to []", VariableScope.LOOP, p -> {
+            Variable variable = p.declareLoopVariable(0);
             for (int i = 1; i <= p.numInt(1); i++) {
-                if(p.shouldStop()) return;
-                variable.setValue(i);
+                if(p.shouldStop()) break;
+                variable.setNum(i);
                 p.runLoop();
             }
-            p.getCBlock().getVariables().remove(variable);
-        });
+            p.removeLoopVariable();
+        }).setControlFlow(ControlFlow.FOR_EVERY);
         addCBlock("while []", p -> {
             while (p.bool(0)) {
                 if(p.shouldStop()) return;
                 p.runLoop();
             }
-        });
+        }).setControlFlow(ControlFlow.WHILE);
         addCBlock("forever", p->{
             while(true){
                 if(p.shouldStop()) return;
                 p.runLoop();
             }
-        });
+        }).setControlFlow(ControlFlow.FOREVER);
         addCBlock("repeat until []", p -> {
             while (!p.bool(0)) {
                 if(p.shouldStop()) return;
                 p.runLoop();
             }
-        });
+        }).setControlFlow(ControlFlow.UNTIL);
 
-        addCommand("return []", p -> p.hatReturn(p.get(0)));
-        addCommand("return", p-> p.hatReturn(null));
-        addCommand("stop loop", p-> p.stopLoop());
+        addCommand("return []", p -> p.hatReturn(p.get(0))).setControlFlow(ControlFlow.RETURN);
+        addCommand("return", p-> p.hatReturn(null)).setControlFlow(ControlFlow.RETURN);
+        addCommand("stop loop", p-> p.stopLoop()).setControlFlow(ControlFlow.STOP_LOOP);
 
     }
 
@@ -126,55 +125,53 @@ public class CoreAPI extends API {
     private void variableCommands() {
 
         //Commands
-        addCommand("set [] to []", p -> {
-            String name = p.str(0);
-            Variable variable = Variable.findVariable(name, p.getCBblockHolder(), p.getHatHolder());
+        addCommand("set [] to []", VariableScope.LOCAL, p -> {
+            Variable variable = p.findVariable();
             if (variable == null) {
-                p.getHatHolder().getVariables().add(new Variable(name, p.get(1)));
+                p.declareVariable(p.get(1));
+            } else if (p.isNumeric(1)) {
+                variable.setNum(p.num(1));
             } else {
                 variable.setValue(p.get(1));
             }
         });
-        addCommand("change [] by []", p -> {
-            String name = p.str(0);
-            Variable variable = Variable.findVariable(name, p.getCBblockHolder(), p.getHatHolder());
+        addCommand("change [] by []", VariableScope.ANY, p -> {
+            Variable variable = p.findVariable();
             if (variable == null) {
-                p.err("Cannot find variable named '" + name + "'");
+                p.err("Cannot find variable named '" + p.variableName() + "'");
             }
-            variable.setValue(p.toNum(variable.getValue()) + p.num(1));
+            variable.add(p.num(1), p.getRange());
         });
-        addCommand("set global [] to []", p -> {
-            String name = p.str(0);
-            Variable variable = Variable.findGlobalVariable(name, p.getScript());
+        addCommand("set global [] to []", VariableScope.GLOBAL, p -> {
+            Variable variable = p.findGlobalVariable();
             if (variable == null) {
-                p.getScript().getVariables().add(new Variable(name, p.get(1)));
+                p.declareGlobalVariable(p.get(1));
+            } else if (p.isNumeric(1)) {
+                variable.setNum(p.num(1));
             } else {
                 variable.setValue(p.get(1));
             }
         });
-        addCommand("change global [] by []", p -> {
-            String name = p.str(0);
-            Variable variable = Variable.findGlobalVariable(name, p.getScript());
+        addCommand("change global [] by []", VariableScope.GLOBAL, p -> {
+            Variable variable = p.findGlobalVariable();
             if (variable == null) {
-                p.err("Cannot find global variable named '" + name + "'");
+                p.err("Cannot find global variable named '" + p.variableName() + "'");
             }
-            variable.setValue(p.toNum(variable.getValue()) + p.num(1));
+            variable.add(p.num(1), p.getRange());
         });
 
         //Reporters
-        addReporter("value of []", p -> {
-            String name = p.str(0);
-            Variable variable = Variable.findVariable(name, p.getCBlockHolder(), p.getHatHolder());
+        addReporter("value of []", VariableScope.ANY, Effect.READS_STATE, p -> {
+            Variable variable = p.findVariable();
             if (variable == null) {
-                p.err("Cannot find variable '" + name + "'");
+                p.err("Cannot find variable '" + p.variableName() + "'");
             }
             return variable.getValue();
         });
-        addReporter("value of global []", p -> {
-            String name = p.str(0);
-            Variable variable = Variable.findGlobalVariable(name, p.getScript());
+        addReporter("value of global []", VariableScope.GLOBAL, Effect.READS_STATE, p -> {
+            Variable variable = p.findGlobalVariable();
             if (variable == null) {
-                p.err("Cannot find global variable '" + name + "'");
+                p.err("Cannot find global variable '" + p.variableName() + "'");
             }
             return variable.getValue();
         });
@@ -184,18 +181,18 @@ public class CoreAPI extends API {
      * Adds the reporters related to math and logic.
      */
     private void mathLogicCommands() {
-        addReporter("[] + []", p -> p.num(0) + p.num(1));
-        addReporter("[] - []", p -> p.num(0) - p.num(1));
-        addReporter("[] * []", p -> p.num(0) * p.num(1));
-        addReporter("[] / []", p -> p.num(0) / p.num(1));
-        addReporter("[] ^ []", p -> Math.pow(p.num(0), p.num(1)));
-        addReporter("-[]", p -> -p.num(0));
-        addReporter("[] mod []", p -> p.num(0) % p.num(1));
-        addReporter("[] % []", p -> p.num(0) % p.num(1));
-        addReporter("abs of []", p -> Math.abs(p.num(0)));
-        addReporter("sqrt of []", p -> Math.sqrt(p.num(0)));
-        addReporter("[] root of []", p -> Math.pow(p.num(1), 1 / p.num(0)));
-        addReporter("random from [] to []", p -> {
+        addReporter("[] + []", Effect.PURE, p -> p.num(0) + p.num(1)).setOperator(Operator.ADD);
+        addReporter("[] - []", Effect.PURE, p -> p.num(0) - p.num(1)).setOperator(Operator.SUBTRACT);
+        addReporter("[] * []", Effect.PURE, p -> p.num(0) * p.num(1)).setOperator(Operator.MULTIPLY);
+        addReporter("[] / []", Effect.PURE, p -> p.num(0) / p.num(1)).setOperator(Operator.DIVIDE);
+        addReporter("[] ^ []", Effect.PURE, p -> Math.pow(p.num(0), p.num(1))).setOperator(Operator.POWER);
+        addReporter("-[]", Effect.PURE, p -> -p.num(0)).setOperator(Operator.NEGATE);
+        addReporter("[] mod []", Effect.PURE, p -> p.num(0) % p.num(1)).setOperator(Operator.MODULO);
+        addReporter("[] % []", Effect.PURE, p -> p.num(0) % p.num(1)).setOperator(Operator.MODULO);
+        addReporter("abs of []", Effect.PURE, p -> Math.abs(p.num(0)));
+        addReporter("sqrt of []", Effect.PURE, p -> Math.sqrt(p.num(0)));
+        addReporter("[] root of []", Effect.PURE, p -> Math.pow(p.num(1), 1 / p.num(0)));
+        addReporter("random from [] to []", Effect.SIDE_EFFECTS, p -> {
             // If both numbers are integers, random inclusive of integers.
             if(p.num(0) == p.numInt(0) && p.num(1) == p.numInt(1)){
                 Random random = new Random();
@@ -209,56 +206,56 @@ public class CoreAPI extends API {
             }
 
         });
-        addReporter("round []", p -> Math.round(p.num(0)));
-        addReporter("floor []", p -> Math.floor(p.num(0)));
-        addReporter("ceiling []", p -> Math.ceil(p.num(0)));
-        addReporter("pi", p -> Math.PI);
-        addReporter("e", p -> Math.E);
-        addReporter("sin of []", p -> Math.sin(p.num(0)));
-        addReporter("cos of []", p -> Math.cos(p.num(0)));
-        addReporter("tan of []", p -> Math.tan(p.num(0)));
-        addReporter("asin of []", p -> Math.asin(p.num(0)));
-        addReporter("acos of []", p -> Math.acos(p.num(0)));
-        addReporter("atan of []", p -> Math.atan(p.num(0)));
-        addReporter("[] to degrees", p -> Math.toDegrees(p.num(0)));
-        addReporter("[] to radians", p -> Math.toRadians(p.num(0)));
-        addReporter("log of []", p -> Math.log10(p.num(0)));
-        addReporter("log e of []", p -> Math.log(p.num(0)));
+        addReporter("round []", Effect.PURE, p -> Math.round(p.num(0)));
+        addReporter("floor []", Effect.PURE, p -> Math.floor(p.num(0)));
+        addReporter("ceiling []", Effect.PURE, p -> Math.ceil(p.num(0)));
+        addReporter("pi", Effect.PURE, p -> Math.PI);
+        addReporter("e", Effect.PURE, p -> Math.E);
+        addReporter("sin of []", Effect.PURE, p -> Math.sin(p.num(0)));
+        addReporter("cos of []", Effect.PURE, p -> Math.cos(p.num(0)));
+        addReporter("tan of []", Effect.PURE, p -> Math.tan(p.num(0)));
+        addReporter("asin of []", Effect.PURE, p -> Math.asin(p.num(0)));
+        addReporter("acos of []", Effect.PURE, p -> Math.acos(p.num(0)));
+        addReporter("atan of []", Effect.PURE, p -> Math.atan(p.num(0)));
+        addReporter("[] to degrees", Effect.PURE, p -> Math.toDegrees(p.num(0)));
+        addReporter("[] to radians", Effect.PURE, p -> Math.toRadians(p.num(0)));
+        addReporter("log of []", Effect.PURE, p -> Math.log10(p.num(0)));
+        addReporter("log e of []", Effect.PURE, p -> Math.log(p.num(0)));
 
-        addReporter("[] = []", p -> {
+        addReporter("[] = []", Effect.PURE, p -> {
             try {
                 return p.num(0) == p.num(1);
             } catch (Exception e) {
             }
             return p.str(0).equals(p.str(1));
-        });
-        addReporter("[] != []", p->{
+        }).setOperator(Operator.EQUAL);
+        addReporter("[] != []", Effect.PURE, p->{
             try {
                 return p.num(0) != p.num(1);
             } catch (Exception e) {
             }
             return !p.str(0).equals(p.str(1));
-        });
-        addReporter("[] < []", p -> p.num(0) < p.num(1));
-        addReporter("[] > []", p -> p.num(0) > p.num(1));
-        addReporter("[] <= []", p -> p.num(0) <= p.num(1));
-        addReporter("[] >= []", p -> p.num(0) >= p.num(1));
-        addReporter("max of [] and []", p -> Math.max(p.num(0), p.num(1)));
-        addReporter("min of [] and []", p -> Math.min(p.num(0), p.num(1)));
+        }).setOperator(Operator.NOT_EQUAL);
+        addReporter("[] < []", Effect.PURE, p -> p.num(0) < p.num(1)).setOperator(Operator.LESS);
+        addReporter("[] > []", Effect.PURE, p -> p.num(0) > p.num(1)).setOperator(Operator.GREATER);
+        addReporter("[] <= []", Effect.PURE, p -> p.num(0) <= p.num(1)).setOperator(Operator.LESS_EQUAL);
+        addReporter("[] >= []", Effect.PURE, p -> p.num(0) >= p.num(1)).setOperator(Operator.GREATER_EQUAL);
+        addReporter("max of [] and []", Effect.PURE, p -> Math.max(p.num(0), p.num(1)));
+        addReporter("min of [] and []", Effect.PURE, p -> Math.min(p.num(0), p.num(1)));
 
-        addReporter("true", p -> true);
-        addReporter("false", p -> false);
-        addReporter("[] and []", p -> p.bool(0) && p.bool(1));
-        addReporter("[] or []", p -> p.bool(0) || p.bool(1));
-        addReporter("not []", p -> !p.bool(0));
-        addReporter("and []>>", p->{
+        addReporter("true", Effect.PURE, p -> true);
+        addReporter("false", Effect.PURE, p -> false);
+        addReporter("[] and []", Effect.PURE, p -> p.bool(0) && p.bool(1)).setOperator(Operator.AND);
+        addReporter("[] or []", Effect.PURE, p -> p.bool(0) || p.bool(1)).setOperator(Operator.OR);
+        addReporter("not []", Effect.PURE, p -> !p.bool(0)).setOperator(Operator.NOT);
+        addReporter("and []>>", Effect.PURE, p->{
            for(int i=0;i<p.getValues().size();i++){
                if(!p.bool(i))
                    return false;
            }
            return true;
         });
-        addReporter("or []>>", p->{
+        addReporter("or []>>", Effect.PURE, p->{
            for(int i=0;i<p.getValues().size();i++){
                if(p.bool(i))
                    return true;
@@ -267,24 +264,24 @@ public class CoreAPI extends API {
         });
 
 
-        addReporter("if [] then [] else []", p -> p.bool(0) ? p.get(1) : p.get(2));
-        addReporter("nothing", p -> null);
+        addReporter("if [] then [] else []", Effect.PURE, p -> p.bool(0) ? p.get(1) : p.get(2));
+        addReporter("nothing", Effect.PURE, p -> null);
     }
 
     /**
      * Adds the commands and reporters for strings.
      */
     private void stringCommands(){
-        addReporter("length of []", p->p.str(0).length());
-        addReporter("letter [] of []", p->""+p.str(1).charAt(p.numInt(0)-1));
-        addReporter("join []>>", p->{
+        addReporter("length of []", Effect.PURE, p->p.str(0).length());
+        addReporter("letter [] of []", Effect.PURE, p->""+p.str(1).charAt(p.numInt(0)-1));
+        addReporter("join []>>", Effect.PURE, p->{
             StringBuilder stringBuilder = new StringBuilder();
             for(int i=0;i<p.getValues().size();i++){
                 stringBuilder.append(p.str(i));
             }
             return stringBuilder.toString();
         });
-        addReporter("[] to uppercase", p->p.str(0).toUpperCase());
-        addReporter("[] to lowercase", p->p.str(0).toLowerCase());
+        addReporter("[] to uppercase", Effect.PURE, p->p.str(0).toUpperCase());
+        addReporter("[] to lowercase", Effect.PURE, p->p.str(0).toLowerCase());
     }
 }
@@ -1,6 +1,8 @@
 package com.jlogical.vision.api.system.collection;
 
 import com.jlogical.vision.api.API;
+import com.jlogical.vision.api.elements.Effect;
+import com.jlogical.vision.api.elements.VariableScope;
 import com.jlogical.vision.compiler.script.Variable;
 import com.jlogical.vision.project.Project;
 
@@ -26,15 +28,15 @@ public class CollectionsAPI extends API {
      */
     private void listCommands() {
 
-        // Constructors
-        addReporter("new list", p -> new ArrayList());
-        addReporter("list", p -> new ArrayList());
-        addReporter("list []>>", p -> {
+        // Constructors. Each call makes a new list, so they have side effects.
+        addReporter("new list", Effect.SIDE_EFFECTS, p -> new ArrayList());
+        addReporter("list", Effect.SIDE_EFFECTS, p -> new ArrayList());
+        addReporter("list []>>", Effect.SIDE_EFFECTS, p -> {
             ArrayList list = new ArrayList();
             for (int i = 0; i < p.getValues().size(); i++) list.add(p.get(i));
             return list;
         });
-        addReporter("[]>>", p -> {
+        addReporter("[]>>", Effect.SIDE_EFFECTS, p -> {
             ArrayList list = new ArrayList();
             for (int i = 0; i < p.getValues().size(); i++) list.add(p.get(i));
             return list;
@@ -47,27 +49,26 @@ public class CollectionsAPI extends API {
         addCommand("for () remove index []", p -> p.list(0).remove(p.numInt(1) - 1));
         addCommand("for () clear", p -> p.list(0).clear());
 
-        // Reporters
-        addReporter("for () item []", p -> p.list(0).get(p.numInt(1) - 1));
-        addReporter("for () size", p -> p.list(0).size());
-        addReporter("for () index of []", p -> p.list(0).indexOf(p.get(1)) + 1);
-        addReporter("for () contains []", p -> p.list(0).contains(p.get(1)));
-        addReporter("for () is empty", p -> p.list(0).isEmpty());
+        // Reporters. Lists can be changed by Commands, so they read state.
+        addReporter("for () item []", Effect.READS_STATE, p -> p.list(0).get(p.numInt(1) - 1));
+        addReporter("for () size", Effect.READS_STATE, p -> p.list(0).size());
+        addReporter("for () index of []", Effect.READS_STATE, p -> p.list(0).indexOf(p.get(1)) + 1);
+        addReporter("for () contains []", Effect.READS_STATE, p -> p.list(0).contains(p.get(1)));
+        addReporter("for () is empty", Effect.READS_STATE, p -> p.list(0).isEmpty());
 
         // CBlocks
-        addCBlock("for each [] in []", p -> {
-            Variable variable = new Variable(p.str(0), 0);
-            p.getCBlock().getVariables().add(variable);
+        addCBlock("for each [] in []", VariableScope.LOOP, p -> {
+            Variable variable = p.declareLoopVariable(0);
             List list = p.list(1);
 
             for (Object o : list) {
-                if(p.shouldStop()) return;
+                if(p.shouldStop()) break;
 
                 variable.setValue(o);
                 p.runLoop();
             }
 
-            p.getCBlock().getVariables().remove(variable);
+            p.removeLoopVariable();
         });
     }
 }
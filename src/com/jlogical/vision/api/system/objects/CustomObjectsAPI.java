@@ -1,6 +1,7 @@
 package com.jlogical.vision.api.system.objects;
 
 import com.jlogical.vision.api.API;
+import com.jlogical.vision.api.elements.Effect;
 import com.jlogical.vision.compiler.exceptions.VisionException;
 import com.jlogical.vision.project.Project;
 
@@ -16,9 +17,9 @@ public class CustomObjectsAPI extends API {
         super(project);
 
         // Constructor.
-        addReporter("new []", e -> {
+        addReporter("new []", Effect.SIDE_EFFECTS, e -> {
             CustomObject object = new CustomObject(e.str(0));
-            e.getScript().start("when custom object () created", object);
+            e.getContext().start("when custom object () created", object);
             return object;
         });
 
@@ -29,7 +30,7 @@ public class CustomObjectsAPI extends API {
         addCommand("for () set [] to []", e -> e.co(0).setProperty(e.str(1), e.get(2)));
 
         // Reporters.
-        addReporter("for () get []", e -> {
+        addReporter("for () get []", Effect.READS_STATE, e -> {
             CustomObject customObject = e.co(0);
             String propName = e.str(1);
             try {
@@ -38,6 +39,6 @@ public class CustomObjectsAPI extends API {
                 throw new VisionException("Cannot find property '" + propName + "' in custom object '" + customObject + "'", e.getRange());
             }
         });
-        addReporter("for () type", e->e.co(0).getType());
+        addReporter("for () type", Effect.PURE, e->e.co(0).getType());
     }
 }
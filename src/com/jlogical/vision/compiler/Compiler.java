@@ -8,19 +8,27 @@ import com.jlogical.vision.compiler.definitions.DefineTemplate;
 import com.jlogical.vision.compiler.definitions.DefinedCommand;
 import com.jlogical.vision.compiler.definitions.DefinedReporter;
 import com.jlogical.vision.compiler.exceptions.CompilerException;
+import com.jlogical.vision.compiler.optimizer.Optimizer;
 import com.jlogical.vision.compiler.script.Script;
 import com.jlogical.vision.compiler.script.elements.*;
 import com.jlogical.vision.compiler.values.*;
-import com.jlogical.vision.project.CodeLocation;
+import com.jlogical.vision.compiler.values.expression.Expression;
 import com.jlogical.vision.project.CodeRange;
 import com.jlogical.vision.project.Project;
 import com.jlogical.vision.project.VisionFile;
+import com.jlogical.vision.util.Calc;
 import com.jlogical.vision.util.Pair;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Compiles a Project into a Script.
@@ -32,6 +40,11 @@ public class Compiler {
      */
     private static final String[] KEYWORDS = {"end", "define", "with", "as", "for", "new"};
 
+    /**
+     * Characters that end the name of a value in text interpolation.
+     */
+    private static final String INTERPOLATION_BREAKS = " +-*/=#.!?~\"'[]{}()";
+
     /**
      * The project that is currently being compiled.
      */
@@ -47,25 +60,100 @@ public class Compiler {
      */
     private ArrayList<DefineTemplate> defineTemplates;
 
+    /**
+     * The definition templates discovered, mapped by the Line they were defined in.
+     */
+    private IdentityHashMap<Line, DefineTemplate> definitionLines;
+
+    /**
+     * Index of the cores of the DefinedCommands.
+     */
+    private SignatureIndex<DefinedCommand> definedCommands;
+
+    /**
+     * Index of the cores of the DefinedReporters.
+     */
+    private SignatureIndex<DefinedReporter> definedReporters;
+
     /**
      * The script that is currently being created and will be returned.
      */
     private Script script;
 
+    /**
+     * The DefineTemplates the Lines being compiled resolve to. Null if they are not being tracked.
+     */
+    private Set<DefineTemplate> dependencies;
+
+    /**
+     * The ForkJoinPool the VisionFiles are lexed and the Hats are compiled in. Null if they are compiled one after another.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * The Optimizer that is run over the compiled Hats. Null if they are not optimized.
+     */
+    private Optimizer optimizer;
+
     /**
      * Creates a compiler that will compile the given project.
      */
-    private Compiler(Project project) {
+    private Compiler(Project project, ForkJoinPool pool, Optimizer optimizer) {
         this.project = project;
+        this.pool = pool;
+        this.optimizer = optimizer;
     }
 
     /**
-     * Compiles a Project.
+     * Creates a compiler that compiles Lines of the given project into Hats, one group of Lines at a time.
+     * Used by a {@link CompilerSession}, which adds every definition with {@link #addDefinition(DefineTemplate)} before compiling any Lines.
+     */
+    Compiler(Project project) {
+        this.project = project;
+        this.definitionLines = new IdentityHashMap<>();
+        this.definedCommands = new SignatureIndex<>();
+        this.definedReporters = new SignatureIndex<>();
+    }
+
+    /**
+     * Compiles a Project. Uses the compiled Script stored with the Project instead if it is not stale.
      *
      * @return the Script when fully compiled. Returns a failed script if there was an error.
      */
     public static Script compile(Project project) {
-        return new Compiler(project).compile();
+        return compile(project, null);
+    }
+
+    /**
+     * Compiles a Project, lexing its VisionFiles and compiling its Hats in parallel in the given ForkJoinPool.
+     * Definitions are still found in one pass, and if there is an error, it is the same one that compiling one after another would find.
+     * Uses the compiled Script stored with the Project instead if it is not stale.
+     *
+     * @param project the Project to compile.
+     * @param pool    the ForkJoinPool to compile in. Null to compile one after another.
+     * @return the Script when fully compiled. Returns a failed script if there was an error.
+     */
+    public static Script compile(Project project, ForkJoinPool pool) {
+        if (project != null) {
+            Script precompiled = project.loadPrecompiled();
+            if (precompiled != null) {
+                return precompiled;
+            }
+        }
+        return compile(project, pool, Optimizer.standard());
+    }
+
+    /**
+     * Compiles a Project and runs the given Optimizer over the compiled Hats.
+     * Always compiles, since the compiled Script stored with the Project was optimized with {@link Optimizer#standard()}.
+     *
+     * @param project   the Project to compile.
+     * @param pool      the ForkJoinPool to compile in. Null to compile one after another.
+     * @param optimizer the Optimizer to run. Null to not optimize the Script.
+     * @return the Script when fully compiled. Returns a failed script if there was an error.
+     */
+    public static Script compile(Project project, ForkJoinPool pool, Optimizer optimizer) {
+        return new Compiler(project, pool, optimizer).compile();
     }
 
     /**
@@ -83,7 +171,9 @@ public class Compiler {
         try {
             precompile();
             findDefinitions();
-            compileLines();
+            script = Script.blank();
+            script.setHats(compileLines(lines));
+            script.setCompileLog("");
             postCompile();
             return script;
         } catch (CompilerException e) {
@@ -100,17 +190,44 @@ public class Compiler {
      */
     private void precompile() throws CompilerException {
         lines = new ArrayList<>();
-        for (VisionFile vfile : project.getFiles()) {
-            lines.addAll(toLines(vfile));
+        if (pool != null && project.getFiles().size() > 1) {
+            ArrayList<Callable<ArrayList<Line>>> tasks = new ArrayList<>();
+            for (VisionFile vfile : project.getFiles()) {
+                tasks.add(() -> toLines(vfile));
+            }
+            for (Future<ArrayList<Line>> fileLines : pool.invokeAll(tasks)) {
+                lines.addAll(join(fileLines));
+            }
+        } else {
+            for (VisionFile vfile : project.getFiles()) {
+                lines.addAll(toLines(vfile));
+            }
         }
     }
 
     /**
-     * Finds all "define" hats and converts them into DefineTemplates. Returns a collection of the found templates.
+     * Finds all "define" hats and converts them into DefineTemplates.
      */
     private void findDefinitions() throws CompilerException {
-        defineTemplates = new ArrayList<>();
+        definitionLines = new IdentityHashMap<>();
+        definedCommands = new SignatureIndex<>();
+        definedReporters = new SignatureIndex<>();
+
+        defineTemplates = findDefinitions(lines);
+        for (DefineTemplate template : defineTemplates) {
+            addDefinition(template);
+        }
+    }
 
+    /**
+     * Finds the "define" hats in the given Lines and converts them into DefineTemplates. The DefineTemplates are not added to the indexes yet.
+     *
+     * @param lines the Lines to look through.
+     * @return the DefineTemplates in the order they were found.
+     * @throws CompilerException if a definition does not have a name.
+     */
+    ArrayList<DefineTemplate> findDefinitions(List<Line> lines) throws CompilerException {
+        ArrayList<DefineTemplate> templates = new ArrayList<>();
         for (Line line : lines) {
             if (line.getCode().startsWith("define command ")) {
                 if (line.getCode().equals("define command ")) {
@@ -118,77 +235,203 @@ public class Compiler {
                 }
 
                 String commandCore = line.getCore().substring("define command ".length());
-                defineTemplates.add(new DefinedCommand(line, commandCore));
+                DefinedCommand definedCommand = new DefinedCommand(line, commandCore);
+                templates.add(definedCommand);
+                definitionLines.put(line, definedCommand);
             } else if (line.getCode().startsWith("define reporter ")) {
                 if (line.getCode().equals("define reporter ")) {
                     throw new CompilerException("'define reporter' needs a name to go along with it!", line.getRange());
                 }
 
                 String reporterCore = line.getCore().substring("define reporter ".length());
-                defineTemplates.add(new DefinedReporter(line, reporterCore));
+                DefinedReporter definedReporter = new DefinedReporter(line, reporterCore);
+                templates.add(definedReporter);
+                definitionLines.put(line, definedReporter);
             }
         }
+        return templates;
     }
 
     /**
-     * Converts all the Lines into a Script.
+     * Adds a DefineTemplate to the indexes so Lines can be resolved to it. Templates added first win when more than one matches.
      *
-     * @return the Script.
+     * @param template the DefineTemplate to add.
+     */
+    void addDefinition(DefineTemplate template) {
+        if (template instanceof DefinedCommand) {
+            definedCommands.add(((DefinedCommand) template).getCore(), (DefinedCommand) template);
+        } else if (template instanceof DefinedReporter) {
+            definedReporters.add(((DefinedReporter) template).getCore(), (DefinedReporter) template);
+        }
+    }
+
+    /**
+     * Converts the given Lines into Hats. Each Hat is compiled on its own, so if there is a ForkJoinPool, the Hats are compiled in parallel.
+     * Either way the error that is thrown is the first one in the order of the Lines.
+     *
+     * @param lines the Lines to compile.
+     * @return the Hats in the order they were found.
      * @throws CompilerException if an exception has occurred.
      */
-    private void compileLines() throws CompilerException {
-        script = Script.blank();
+    private ArrayList<Hat> compileLines(List<Line> lines) throws CompilerException {
+        ArrayList<List<Line>> groups = new ArrayList<>();
+        CompilerException structureError = splitHats(lines, groups);
 
         ArrayList<Hat> hats = new ArrayList<>();
-        Hat currHat = null;
-        Stack<CBlock> cblocks = new Stack<>();
-        CBlock currCBlock = null;
+        if (pool != null && groups.size() > 1) {
+            ArrayList<Callable<Hat>> tasks = new ArrayList<>();
+            for (List<Line> group : groups) {
+                tasks.add(() -> compileHat(group));
+            }
+            for (Future<Hat> hat : pool.invokeAll(tasks)) {
+                hats.add(join(hat));
+            }
+        } else {
+            for (List<Line> group : groups) {
+                hats.add(compileHat(group));
+            }
+        }
+        if (structureError != null) {
+            throw structureError;
+        }
+        return hats;
+    }
+
+    /**
+     * Splits the given Lines into the Lines of each Hat. A Hat starts at a Line that is not inside any Hat, and goes until its 'end'.
+     * Only looks at which Lines are 'end's and which are CBlocks, so Lines that are not valid are found when the Hat is compiled.
+     *
+     * @param lines  the Lines to split.
+     * @param groups the List to add the Lines of each Hat to. The Lines of a Hat that is not ended are added too.
+     * @return the error if there are not enough 'end's. Null if there is none.
+     */
+    private CompilerException splitHats(List<Line> lines, ArrayList<List<Line>> groups) {
+        Stack<CustomCBlock> cblocks = new Stack<>();
+        int start = 0;
         int index = 0;
-        for (Line line : lines) {
+        for (int i = 0; i < lines.size(); i++) {
+            Line line = lines.get(i);
             if (index == 0) {
-                currHat = toHat(line);
-                hats.add(currHat);
+                start = i;
                 index++;
-            } else if (index > 0) {
-                Command command = toCommand(line, currHat, currCBlock);
-                if (currHat == null) {
-                    throw new CompilerException("Cannot compile a Command without a Hat!", line.getRange());
-                }
-                if (currCBlock != null) {
-                    currCBlock.getCommands().add(command);
-                } else {
-                    currHat.addCommand(command);
-                }
-                if (command instanceof End) {
-                    index--;
-                    if (!cblocks.isEmpty()) {
-                        cblocks.pop();
-                        currCBlock = cblocks.isEmpty() ? null : cblocks.peek();
-                    }
+                continue;
+            }
+            if (isEnd(line)) {
+                index--;
+                if (!cblocks.isEmpty()) {
+                    cblocks.pop();
                 }
-                if (command instanceof CBlock) {
-                    CBlock cblock = (CBlock) command;
-                    if (currCBlock != null && currCBlock.getTemplate().getChains().contains(command.getCore())) { //If the new CBlock is a chain...
-                        currCBlock.setChain(cblock);
+            } else {
+                CustomCommand command = project.getCommandIndex().find(line.getCore());
+                if (command instanceof CustomCBlock) {
+                    if (!cblocks.isEmpty() && cblocks.peek().getChains().contains(command.getCore())) { //If the new CBlock is a chain...
                         cblocks.pop();
-                        if (!currCBlock.getCommands().isEmpty()) {
-                            currCBlock.getCommands().remove(currCBlock.getCommands().size() - 1); //Remove the last Command because the new CBlock was added as a command, not as a chain...
-                        }
                     } else {
                         index++;
                     }
-                    cblocks.push(cblock);
-                    currCBlock = cblock;
+                    cblocks.push((CustomCBlock) command);
                 }
-            } else {
-                throw new CompilerException("There are more 'end's than Hats or CBlocks!", line.getRange());
+            }
+            if (index == 0) {
+                groups.add(lines.subList(start, i + 1));
             }
         }
         if (index > 0) {
-            throw new CompilerException("There are not enough 'end's!", lines.get(lines.size() - 1).getRange());
+            groups.add(lines.subList(start, lines.size()));
+            return new CompilerException("There are not enough 'end's!", lines.get(lines.size() - 1).getRange());
+        }
+        return null;
+    }
+
+    /**
+     * Converts the Lines of a single Hat into the Hat.
+     *
+     * @param lines the Lines of the Hat, starting with the Line of the Hat itself.
+     * @return the Hat.
+     * @throws CompilerException if an exception has occurred.
+     */
+    private Hat compileHat(List<Line> lines) throws CompilerException {
+        Hat hat = toHat(lines.get(0));
+        Stack<CBlock> cblocks = new Stack<>();
+        CBlock currCBlock = null;
+        for (Line line : lines.subList(1, lines.size())) {
+            Command command = toCommand(line, hat, currCBlock);
+            if (currCBlock != null) {
+                currCBlock.getCommands().add(command);
+            } else {
+                hat.addCommand(command);
+            }
+            if (command instanceof End) {
+                if (!cblocks.isEmpty()) {
+                    cblocks.pop();
+                    currCBlock = cblocks.isEmpty() ? null : cblocks.peek();
+                }
+            }
+            if (command instanceof CBlock) {
+                CBlock cblock = (CBlock) command;
+                if (currCBlock != null && currCBlock.getTemplate().getChains().contains(command.getCore())) { //If the new CBlock is a chain...
+                    currCBlock.setChain(cblock);
+                    cblocks.pop();
+                    if (!currCBlock.getCommands().isEmpty()) {
+                        currCBlock.getCommands().remove(currCBlock.getCommands().size() - 1); //Remove the last Command because the new CBlock was added as a command, not as a chain...
+                    }
+                }
+                cblocks.push(cblock);
+                currCBlock = cblock;
+            }
+        }
+        return hat;
+    }
+
+    /**
+     * @return whether the Line is an 'end'.
+     */
+    private static boolean isEnd(Line line) {
+        return containsKeyword(line.getCore()) && line.getCode().equals("end");
+    }
+
+    /**
+     * Waits for a task of the ForkJoinPool and returns its result, throwing the CompilerException it threw if it did.
+     * The ForkJoinPool wraps exceptions of Callables in RuntimeExceptions, so the CompilerException is found in the causes.
+     *
+     * @param future the Future of the task.
+     * @return the result of the task.
+     * @throws CompilerException if the task threw one.
+     */
+    private static <T> T join(Future<T> future) throws CompilerException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof CompilerException) {
+                    throw (CompilerException) cause;
+                }
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while compiling!", e);
+        }
+    }
+
+    /**
+     * Converts the given Lines into Hats and keeps track of the DefineTemplates they resolve to.
+     *
+     * @param lines        the Lines to compile.
+     * @param dependencies the Set to add every DefineTemplate a Command or Reporter in the Lines resolves to.
+     * @return the Hats in the order they were found.
+     * @throws CompilerException if an exception has occurred.
+     */
+    ArrayList<Hat> compileLines(List<Line> lines, Set<DefineTemplate> dependencies) throws CompilerException {
+        this.dependencies = dependencies;
+        try {
+            return compileLines(lines);
+        } finally {
+            this.dependencies = null;
         }
-        script.setHats(hats);
-        script.setCompileLog("");
     }
 
     /**
@@ -202,40 +445,37 @@ public class Compiler {
         if (containsKeyword(line.getCore())) {
             if (line.getCode().startsWith("define ")) {
 
-                for (DefineTemplate dt : defineTemplates) {
-                    if (dt.getLine() == line) {
+                DefineTemplate dt = definitionLines.get(line);
+                if (dt != null) {
 
-                        Hat hat = Hat.defineTemplateHat(script, line.getInputs());
+                    Hat hat = Hat.defineTemplateHat(line.getInputs());
+                    hat.setDefinition(dt);
 
-                        if (dt instanceof DefinedCommand) {
-                            DefinedCommand dc = (DefinedCommand) dt;
-                            if (dc.getHat() != null) {
-                                throw new CompilerException("Cannot define the same command multiple times!", line.getRange());
-                            }
-
-                            dc.setHat(hat);
-//                            dc.parseVariableNames(line.getInputs());
-                        } else if (dt instanceof DefinedReporter) {
-                            DefinedReporter dr = (DefinedReporter) dt;
-                            if (dr.getHat() != null) {
-                                throw new CompilerException("Cannot define the same reporter multiple times!", line.getRange());
-                            }
+                    if (dt instanceof DefinedCommand) {
+                        DefinedCommand dc = (DefinedCommand) dt;
+                        if (dc.getHat() != null) {
+                            throw new CompilerException("Cannot define the same command multiple times!", line.getRange());
+                        }
 
-                            dr.setHat(hat);
-//                            dr.parseVariableNames(line.getInputs());
+                        dc.setHat(hat);
+                    } else if (dt instanceof DefinedReporter) {
+                        DefinedReporter dr = (DefinedReporter) dt;
+                        if (dr.getHat() != null) {
+                            throw new CompilerException("Cannot define the same reporter multiple times!", line.getRange());
                         }
 
-                        return hat;
+                        dr.setHat(hat);
                     }
+
+                    return hat;
                 }
                 throw new CompilerException("Could not find the given definition: " + line.getCode(), line.getRange());
             }
             throw new IllegalArgumentException("Hat cannot contain a keyword!");
         } else {
-            for (CustomHat hat : project.getHats()) {
-                if (coreEquals(hat.getCore(), line.getCore())) {
-                    return new Hat(hat, line.getInputs(), script);
-                }
+            CustomHat hat = project.getHatIndex().find(line.getCore());
+            if (hat != null) {
+                return new Hat(hat, line.getInputs());
             }
         }
         throw new CompilerException(line.getCode() + " is not a valid Hat!", line.getRange());
@@ -251,34 +491,27 @@ public class Compiler {
      * @throws CompilerException if the Command is not valid.
      */
     private Command toCommand(Line line, Hat hatHolder, CBlock cblockHolder) throws CompilerException {
-        if (containsKeyword(line.getCore())) {
-            if (line.getCode().equals("end")) {
-                return new End(line);
-            }
+        if (isEnd(line)) {
+            return new End(line);
         }
-        for (CustomCommand command : project.getCommands()) {
-            if (coreEquals(command.getCore(), line.getCore())) {
-                Command c = new Command(command, null, line, hatHolder, cblockHolder);
-                c.setValues(toValues(line.getInputs(), c));
-                return c;
-            }
+        CustomCommand command = project.getCommandIndex().find(line.getCore());
+        if (command instanceof CustomCBlock) {
+            CBlock c = new CBlock((CustomCBlock) command, null, line, hatHolder, null, cblockHolder, null);
+            c.setValues(toValues(line.getInputs(), c));
+            return c;
+        } else if (command != null) {
+            Command c = new Command(command, null, line, hatHolder, cblockHolder);
+            c.setValues(toValues(line.getInputs(), c));
+            return c;
         }
-        for (CustomCBlock cblock : project.getCBlocks()) {
-            if (coreEquals(cblock.getCore(), line.getCore())) {
-                CBlock c = new CBlock(cblock, null, line, hatHolder, null, cblockHolder, null);
-                c.setValues(toValues(line.getInputs(), c));
-                return c;
-            }
-        }
-        for (DefineTemplate dt : defineTemplates) {
-            if (dt instanceof DefinedCommand) {
-                DefinedCommand dc = (DefinedCommand) dt;
-                if (coreEquals(dc.getCore(), line.getCore())) {
-                    Command c = Command.definedCommand(dc, null, line, hatHolder, cblockHolder);
-                    c.setValues(toValues(line.getInputs(), c));
-                    return c;
-                }
+        DefinedCommand dc = definedCommands.find(line.getCore());
+        if (dc != null) {
+            if (dependencies != null) {
+                dependencies.add(dc);
             }
+            Command c = Command.definedCommand(dc, null, line, hatHolder, cblockHolder);
+            c.setValues(toValues(line.getInputs(), c));
+            return c;
         }
 
         throw new CompilerException(line.getCode() + " is not a valid Command!", line.getRange());
@@ -309,41 +542,92 @@ public class Compiler {
      * @throws CompilerException if the given input cannot be converted to any value.
      */
     public Value toValue(Input input, Command commandHolder) throws CompilerException {
-        String val = input.getText();
         switch (input.getType()) {
             case '[':
-                return new TextValue(val, input.getRange(), commandHolder, this);
+                return toTextValue(input, commandHolder);
             case '(':
-                val = val.trim();
-                if (looksNumeric(val)) {
+                if (Lexer.looksNumeric(input)) {
                     try {
-                        double d = Double.parseDouble(val);
+                        double d = Double.parseDouble(input.getText().trim());
                         return new NumValue(d, input.getRange());
                     } catch (Exception e) {
                     }
                 }
                 try {
-                    Pair<String, ArrayList<Input>> split = splitElement(val, input.getRange().startLocation());
+                    Pair<String, ArrayList<Input>> split = Lexer.splitElement(input);
                     Reporter reporter = toReporter(split.getFirst(), split.getSecond(), commandHolder, input.getRange());
                     if (reporter != null) {
                         return reporter;
                     }
-                    if (!split.getSecond().isEmpty() || split.getFirst().matches(".*[+\\-*/^<>=].*")) {
-                        return new ExpressionValue(input.getText(), toValues(split.getSecond(), commandHolder), input.getRange(), commandHolder);
+                    if (!split.getSecond().isEmpty() || Lexer.hasOperator(split.getFirst())) {
+                        Expression expression = Calc.parse(input.getText(), toValues(split.getSecond(), commandHolder), commandHolder, input.getRange());
+                        return new ExpressionValue(input.getText(), expression, input.getRange(), commandHolder);
                     }
-                    return new VariableValue(val, input.getRange(), commandHolder);
+                    return new VariableValue(input.getText().trim(), input.getRange(), commandHolder);
                 } catch (CompilerException e) {
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
                 throw new CompilerException("Value '" + input.getText() + "' cannot be found!", input.getRange());
             case '{':
-                val = val.trim();
             default:
                 return null;
         }
     }
 
+    /**
+     * Converts the given input into a TextValue. Splits text interpolation into the literal text and the Values between it.
+     * A '#' followed by a name interpolates the value of that name. A '##' is a '#'.
+     *
+     * @param input         the input to convert.
+     * @param commandHolder the Command that is holding the Value.
+     * @return the TextValue. If the interpolation is not valid, the TextValue throws an exception when evaluated.
+     */
+    private TextValue toTextValue(Input input, Command commandHolder) {
+        String text = input.getText();
+        if (text.indexOf('#') == -1) {
+            return new TextValue(text, input.getRange());
+        }
+
+        ArrayList<String> literals = new ArrayList<>();
+        ArrayList<Value> values = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int varStart = -1; //The index the current value name started at. -1 if not inside a value name now.
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : '_';
+            if (i < text.length() && c == '#') { //Text interpolation has started.
+                if (varStart != -1) { //Double hashtag, escape sequence for one hashtag.
+                    literal.append('#');
+                    varStart = -1;
+                } else {
+                    varStart = i + 1;
+                }
+            } else if (varStart != -1) { //Inside of interpolation.
+                if (i == text.length() || INTERPOLATION_BREAKS.indexOf(c) != -1) { //Breaks indicate end of interpolation.
+                    String name = text.substring(varStart, i);
+                    if (name.isBlank()) {
+                        return TextValue.failedTextValue(text, "Value in text interpolation cannot be blank!", input.getRange());
+                    }
+                    try {
+                        values.add(toValue(new Input(name, input.getRange(), '('), commandHolder));
+                    } catch (CompilerException e) {
+                        return TextValue.failedTextValue(text, e.getMessage(), input.getRange());
+                    }
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    if (i < text.length()) {
+                        literal.append(c);
+                    }
+                    varStart = -1;
+                }
+            } else if (i < text.length()) {
+                literal.append(c);
+            }
+        }
+        literals.add(literal.toString());
+        return new TextValue(text, literals, values, input.getRange());
+    }
+
     /**
      * Finds a CustomReporter and returns the Reporter version of the given core and inputs.
      *
@@ -358,34 +642,22 @@ public class Compiler {
         if (containsKeyword(core)) {
 
         }
-        for (CustomReporter reporter : project.getReporters()) {
-            if (coreEquals(reporter.getCore(), core)) {
-                return new Reporter(reporter, toValues(inputs, commandHolder), commandHolder, range);
-            }
+        CustomReporter reporter = project.getReporterIndex().find(core);
+        if (reporter != null) {
+            return new Reporter(reporter, toValues(inputs, commandHolder), commandHolder, range);
         }
-        for (DefineTemplate dt : defineTemplates) {
-            if (dt instanceof DefinedReporter) {
-                DefinedReporter dc = (DefinedReporter) dt;
-                if (coreEquals(dc.getCore(), core)) {
-                    Reporter c = Reporter.definedReporter(dc, null, commandHolder, range);
-                    c.setValues(toValues(inputs, commandHolder));
-                    return c;
-                }
+        DefinedReporter dr = definedReporters.find(core);
+        if (dr != null) {
+            if (dependencies != null) {
+                dependencies.add(dr);
             }
+            Reporter c = Reporter.definedReporter(dr, null, commandHolder, range);
+            c.setValues(toValues(inputs, commandHolder));
+            return c;
         }
         return null;
     }
 
-    /**
-     * Checks if the given value looks like a number based on a regular expression.
-     *
-     * @param val the value to check.
-     * @return whether the value looks like a number.
-     */
-    private static boolean looksNumeric(String val) {
-        return val.matches("-?\\d+(\\.\\d+)?");
-    }
-
     /**
      * Returns whether the line has a keyword.
      *
@@ -400,259 +672,26 @@ public class Compiler {
     }
 
     /**
-     * Compares the cores of two elements and returns whether they are equal to each other.
-     *
-     * @param perfect the core you are using to test against.
-     * @param test    the test core you are using to test with.
-     * @return whether the cores are equal.
-     */
-    private static boolean coreEquals(String perfect, String test) {
-        int pIndex = 0; //Current index of perfect.
-        int tIndex = 0; //Current index of test.
-        boolean inMultiParam = false; // Whether it's currently inside of a multiple parameter section.
-        while (pIndex < perfect.length() && tIndex < test.length()) {
-            char pChar = perfect.charAt(pIndex);
-            char tChar = test.charAt(tIndex);
-
-            // If inside of multi parameter section, keep looping.
-            // If test has any characters except for a space or brackets,
-            //    return false since it cannot have any more characters than the parameter section.
-            if (inMultiParam) {
-                if (!(tChar == ' ' || tChar == '[' || tChar == ']' || tChar == '(' || tChar == ')' || tChar == '{' || tChar == '}'))
-                    return false;
-                tIndex++;
-            } else {
-                switch (pChar) {
-                    case '[':
-                        if (!(tChar == '[' || tChar == '(' || tChar == '{')) { //Can be any parameter.
-                            return false;
-                        }
-                        break;
-                    case '(':
-                        if (tChar != '(') { //Can only be objects.
-                            return false;
-                        }
-                    case '{':
-                        if (!(tChar == '{' || tChar == '(')) { //Can be statements or a reference to a statement.
-                            return false;
-                        }
-                    case ']':
-                        // Check if the next inputs are '>>', indicating a multi parameter section.
-                        if (pIndex < perfect.length() - 2 && perfect.charAt(pIndex + 1) == '>' && perfect.charAt(pIndex + 2) == '>')
-                            inMultiParam = true;
-                    case ')':
-                    case '}':
-                        break;
-                    default:
-                        if (tChar != pChar) {
-                            return false;
-                        }
-                }
-
-                pIndex++;
-                tIndex++;
-            }
-        }
-
-        if(inMultiParam) return true; // If the multi param passed through the end, it works.
-
-        return pIndex == perfect.length() && tIndex == test.length();
-    }
-
-    /**
-     * Does everything post compilation related.
+     * Does everything post compilation related. Optimizes the Hats, then resolves their Variables.
      */
     private void postCompile() {
-
+        if (optimizer != null) {
+            optimizer.run(script.getProgram());
+        }
+        new VariableResolver(script).resolve();
     }
 
     /**
-     * Converts the given Project into an ArrayList of Lines.
+     * Converts the given VisionFile into an ArrayList of Lines.
      *
      * @param vfile the VisionFile to convert to lines.
-     * @return the converted ArrayList. Null if text is null.
+     * @return the converted ArrayList. Null if vfile is null.
      * @throws CompilerException if a Line is off balance.
      */
-    private ArrayList<Line> toLines(VisionFile vfile) throws CompilerException {
-        if (vfile == null) {
-            return null;
-        }
-        ArrayList<Line> output = new ArrayList<>();
-        ArrayList<String> split = splitFile(vfile);
-        for (int i = 0; i < split.size(); i++) {
-            String line = split.get(i);
-            if (line.trim().isEmpty() || line.trim().startsWith("#")) {
-                continue;
-            }
-            output.add(toLine(line, i + 1, vfile));
-        }
-        return output;
-    }
-
-    /**
-     * Splits the vfile's code by new lines and returns it as an ArrayList of Strings. Automatically trims the lines when split.
-     *
-     * @param vfile the VisionFile whose code to split. Null if vfile is null.
-     */
-    private static ArrayList<String> splitFile(VisionFile vfile) {
+    ArrayList<Line> toLines(VisionFile vfile) throws CompilerException {
         if (vfile == null) {
             return null;
         }
-        ArrayList<String> output = new ArrayList<>();
-        String currLine = "";
-        for (int i = 0; i < vfile.getCode().length(); i++) {
-            char curr = vfile.getCode().charAt(i);
-            char next = i + 1 == vfile.getCode().length() ? '_' : vfile.getCode().charAt(i + 1);
-
-            if (curr == '\\' && (next == '\n' || next == '\r')) { // Multi-lined command.
-                i += 2;
-            } else if ((curr == '\n' || curr == '\r')) {
-                output.add(currLine);
-                currLine = "";
-            } else {
-                currLine += vfile.getCode().charAt(i);
-            }
-        }
-        output.add(currLine);
-        return output;
-    }
-
-    /**
-     * Converts the given String and linenum into a Line for the given VisionFile.
-     *
-     * @param line    the line to convert.
-     * @param lineNum the line number of the given line.
-     * @param vfile   the VisionFile the line is found in.
-     * @return the Line. Null if line is null.
-     * @throws CompilerException if a Line is off balance.
-     */
-    private Line toLine(String line, int lineNum, VisionFile vfile) throws CompilerException {
-        if (line == null) {
-            return null;
-        }
-        CodeLocation location = new CodeLocation(project, vfile, lineNum, 0);
-        Pair<String, ArrayList<Input>> split = splitElement(line, location);
-        return new Line(line, split.getFirst(), split.getSecond(), location);
-    }
-
-    /**
-     * Splits an element into its imperfect core and inputs.
-     *
-     * @param element  the element whose text to split.
-     * @param location the beginning location of this element.
-     * @return a Pair of its core (first) and an ArrayList of its inputs in Pairs (the first is the input itself, second is the CodeRange for that input). (second).
-     * @throws CompilerException if it is off balance.
-     */
-    private static Pair<String, ArrayList<Input>> splitElement(String element, CodeLocation location) throws CompilerException {
-        String core = "";
-        ArrayList<Input> inputs = new ArrayList<>();
-        String currInput = null; //The current input.
-        Stack<Character> inputTypes = new Stack<>(); //List of the types of parameters used.
-
-        int index = 0;
-        int pIndex = 0; //Index for ()
-        int cIndex = 0; //Index for {}
-
-        boolean inString = false;
-        boolean hadInterpolation = false; //Whether this element had interpolation. If so, make the input type '#' instead of '['.
-        for (int i = 0; i < element.length(); i++) {
-            char c = element.charAt(i);
-            if (inString) {
-                if (c == ']') { //If ending the text.
-                    inString = false;
-                } else {
-                    currInput += c;
-                }
-            }
-            if (!inString) {
-                if (c == ']' || c == '}' || c == ')') {
-                    if (inputTypes.isEmpty()) { //Error. Too many closing parameters.
-                        switch (c) {
-                            case ']':
-                                throw new CompilerException("There are more ']' than '[' in this line.", new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + element.length()));
-                            case ')':
-                                pIndex--;
-                            case '}':
-                                cIndex--;
-                        }
-                        if (pIndex < 0) {
-                            throw new CompilerException("There are more ')' than '(' in this line.", new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + element.length()));
-                        }
-                        if (cIndex < 0) {
-                            throw new CompilerException("There are more '}' than '{' in this line.", new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + element.length()));
-                        }
-                    }
-                    char lastInputType = inputTypes.pop();
-                    switch (c) {
-                        case ']':
-                            if (lastInputType != '[') {
-                                throw new CompilerException("Parameters must match one another. Cannot have " + lastInputType + " matched with ]", new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + element.length()));
-                            }
-                            break;
-                        case '}':
-                            cIndex--;
-                            if (lastInputType != '{') {
-                                throw new CompilerException("Parameters must match one another. Cannot have " + lastInputType + " matched with }", new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + element.length()));
-                            }
-                            break;
-                        case ')':
-                            pIndex--;
-                            if (lastInputType != '(') {
-                                throw new CompilerException("Parameters must match one another. Cannot have " + lastInputType + " matched with )", new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + element.length()));
-                            }
-                            break;
-                    }
-                    index--;
-                    if (index == 0) {
-                        inputs.add(new Input(currInput, new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), i - currInput.length(), location.getLineNum(), i - 1), hadInterpolation ? '#' : lastInputType));
-                        currInput = null;
-                    } else if (index < 0) {
-                        throw new CompilerException("Cannot have a closing parameter (']', ')', or '}') without an opening parameter ('[', '(', or '{') first.", new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + element.length()));
-                    }
-                }
-                if (index == 0) {
-                    core += c;
-                } else {
-                    currInput += c;
-                }
-                if (c == '[' || c == '{' || c == '(') {
-                    switch (c) {
-                        case '[':
-                            inString = true;
-                            break;
-                        case '{':
-                            cIndex++;
-                            break;
-                        case '(':
-                            pIndex++;
-                            break;
-                    }
-                    inputTypes.push(c);
-                    index++;
-                    if (currInput == null) {
-                        currInput = "";
-                    }
-                }
-            }
-
-        }
-        if (index == 0 && !(pIndex == 0 && cIndex == 0)) {
-            throw new CompilerException("Something strange happened with the index of this line.", new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + element.length()));
-        }
-        if (pIndex < 0) {
-            throw new CompilerException("There are more ')' than '(' in this line.", new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + element.length()));
-        }
-        if (cIndex < 0) {
-            throw new CompilerException("There are more '}' than '{' in this line.", new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + element.length()));
-        }
-        if (pIndex > 0) {
-            throw new CompilerException("There are more '(' than ')' in this line.", new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + element.length()));
-        }
-        if (cIndex > 0) {
-            throw new CompilerException("There are more '{' than '}' in this line.", new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + element.length()));
-        }
-
-        core = core.trim().replaceAll(" +", " ");
-        return new Pair<>(core, inputs);
+        return new Lexer(project, vfile).toLines();
     }
 }
@@ -0,0 +1,355 @@
+package com.jlogical.vision.compiler;
+
+import com.jlogical.vision.compiler.definitions.DefineTemplate;
+import com.jlogical.vision.compiler.definitions.DefinedCommand;
+import com.jlogical.vision.compiler.definitions.DefinedReporter;
+import com.jlogical.vision.compiler.exceptions.CompilerException;
+import com.jlogical.vision.compiler.optimizer.Optimizer;
+import com.jlogical.vision.compiler.script.Program;
+import com.jlogical.vision.compiler.script.Script;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.project.Project;
+import com.jlogical.vision.project.VisionFile;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Compiles a Project again every time its VisionFiles are edited, only compiling the VisionFiles that need it.
+ * The Lines, DefineTemplates and Hats of each VisionFile are kept along with a hash of its code. A VisionFile is compiled again when its hash changes,
+ * or when it calls a definition of a VisionFile that is compiled again, since its calls resolve to the old DefineTemplates.
+ * If a definition is added or removed, every VisionFile is compiled again, since any call could resolve to something else.
+ * The Hats that are kept are shared by the Program of each compile without being changed, so Scripts returned by earlier compiles keep running the code they were compiled from.
+ * Only the Hats that were just compiled are optimized. If the names of the global Variables change, every VisionFile is compiled again,
+ * since the kept Hats were optimized thinking the other Variables could only be changed by the Hats using them.
+ * Unlike {@link Compiler#compile(Project)}, each VisionFile needs to end all of the Hats it starts. The APIs of the Project should not change during a session.
+ */
+public class CompilerSession {
+
+    /**
+     * The Project being compiled.
+     */
+    private Project project;
+
+    /**
+     * What was kept from the last successful compile of each VisionFile.
+     */
+    private IdentityHashMap<VisionFile, CompiledFile> files;
+
+    /**
+     * The cores of every definition in the Project, in order, when it was last successfully compiled.
+     */
+    private ArrayList<String> signatures;
+
+    /**
+     * The Program of the last successful compile. Null if there has not been one.
+     */
+    private Program program;
+
+    /**
+     * The Optimizer that is run over the Hats that are compiled. Null if they are not optimized.
+     */
+    private Optimizer optimizer;
+
+    /**
+     * The names of the global Variables in the Program of the last successful compile, which the kept Hats were optimized with. Null if there has not been one.
+     */
+    private Set<String> globalNames;
+
+    /**
+     * The names of the VisionFiles that were compiled by the last successful compile.
+     */
+    private ArrayList<String> recompiledFiles;
+
+    /**
+     * Creates a session for the given Project that optimizes with {@link Optimizer#standard()}, like {@link Compiler#compile(Project)}.
+     * Nothing is compiled until {@link #compile()} is called.
+     */
+    public CompilerSession(Project project) {
+        this(project, Optimizer.standard());
+    }
+
+    /**
+     * Creates a session for the given Project. Nothing is compiled until {@link #compile()} is called.
+     *
+     * @param project   the Project to compile.
+     * @param optimizer the Optimizer to run over the Hats that are compiled. Null to not optimize them.
+     */
+    public CompilerSession(Project project, Optimizer optimizer) {
+        this.project = project;
+        this.optimizer = optimizer;
+        this.files = new IdentityHashMap<>();
+        this.signatures = new ArrayList<>();
+        this.recompiledFiles = new ArrayList<>();
+    }
+
+    /**
+     * Sets the code of the VisionFile with the given name, adding the VisionFile if the Project does not have it, and compiles the Project.
+     *
+     * @param name the name of the VisionFile.
+     * @param code the new code of the VisionFile.
+     * @return the Script. A failed Script if there was an error.
+     */
+    public Script edit(String name, String code) {
+        for (VisionFile vfile : project.getFiles()) {
+            if (vfile.getName().equals(name)) {
+                vfile.setCode(code);
+                return compile();
+            }
+        }
+        project.getFiles().add(new VisionFile(name, code));
+        return compile();
+    }
+
+    /**
+     * Removes the VisionFile with the given name from the Project and compiles the Project.
+     *
+     * @param name the name of the VisionFile.
+     * @return the Script. A failed Script if there was an error.
+     */
+    public Script remove(String name) {
+        project.getFiles().removeIf(vfile -> vfile.getName().equals(name));
+        return compile();
+    }
+
+    /**
+     * Compiles the VisionFiles of the Project that have changed since the last successful compile, and the VisionFiles that depend on them.
+     * Nothing is kept from a compile that fails, so the next compile starts from the last one that succeeded.
+     *
+     * @return the Script. A failed Script if there was an error.
+     */
+    public Script compile() {
+        return compile(false);
+    }
+
+    /**
+     * Compiles the VisionFiles of the Project that need it.
+     *
+     * @param everything whether to compile every VisionFile again, keeping nothing from the last successful compile.
+     * @return the Script. A failed Script if there was an error.
+     */
+    private Script compile(boolean everything) {
+        if (project == null || project.getFiles().isEmpty()) {
+            return Script.failedScript("The Project provided did not have any code.");
+        }
+        Program next = new Program("", null, true);
+        if (program != null) {
+            next.inheritGlobalSlots(program);
+        }
+        Compiler compiler = new Compiler(project);
+        IdentityHashMap<VisionFile, CompiledFile> nextFiles = new IdentityHashMap<>();
+        ArrayList<VisionFile> vfiles = new ArrayList<>(project.getFiles());
+        ArrayList<Hat> hats = new ArrayList<>();
+        ArrayList<Hat> compiledHats = new ArrayList<>();
+        ArrayList<String> recompiled = new ArrayList<>();
+        ArrayList<String> nextSignatures;
+        try {
+            for (VisionFile vfile : vfiles) {
+                String hash = hash(vfile.getCode());
+                CompiledFile file = everything ? null : files.get(vfile);
+                if (file == null || !file.hash.equals(hash)) {
+                    file = new CompiledFile(hash, compiler.toLines(vfile));
+                    file.templates = compiler.findDefinitions(file.lines);
+                }
+                nextFiles.put(vfile, file);
+            }
+
+            nextSignatures = signatures(vfiles, nextFiles);
+            if (!nextSignatures.equals(signatures)) {
+                for (VisionFile vfile : vfiles) {
+                    markDirty(compiler, vfile, nextFiles);
+                }
+            } else if (!everything) {
+                markDependents(compiler, vfiles, nextFiles);
+            }
+
+            for (VisionFile vfile : vfiles) {
+                for (DefineTemplate template : nextFiles.get(vfile).templates) {
+                    compiler.addDefinition(template);
+                }
+            }
+            for (VisionFile vfile : vfiles) {
+                CompiledFile file = nextFiles.get(vfile);
+                if (file.hats == null) {
+                    file.dependencies = Collections.newSetFromMap(new IdentityHashMap<>());
+                    file.hats = compiler.compileLines(file.lines, file.dependencies);
+                    compiledHats.addAll(file.hats);
+                    recompiled.add(vfile.getName());
+                }
+                hats.addAll(file.hats);
+            }
+        } catch (CompilerException e) {
+            e.printStackTrace();
+            return Script.failedScript(e.getMessage());
+        }
+
+        next.setHats(hats);
+        Set<String> nextGlobalNames = null;
+        if (optimizer != null) {
+            optimizer.run(next, compiledHats);
+            nextGlobalNames = Optimizer.globalNames(next.getHats());
+            if (compiledHats.size() < hats.size() && !nextGlobalNames.equals(globalNames)) {
+                return compile(true);
+            }
+        }
+        VariableResolver resolver = new VariableResolver(next);
+        for (VisionFile vfile : vfiles) {
+            CompiledFile file = nextFiles.get(vfile);
+            if (!file.resolved) {
+                for (Hat hat : file.hats) {
+                    resolver.resolve(hat);
+                }
+                file.resolved = true;
+            }
+        }
+
+        files = nextFiles;
+        signatures = nextSignatures;
+        program = next;
+        globalNames = nextGlobalNames;
+        recompiledFiles = recompiled;
+        return new Script(next);
+    }
+
+    /**
+     * Marks every VisionFile that calls a definition of a VisionFile being compiled again to be compiled again too, until there are no more.
+     *
+     * @param compiler  the Compiler to find the new definitions with.
+     * @param vfiles    the VisionFiles of the Project.
+     * @param nextFiles what is kept for each VisionFile in the compile.
+     * @throws CompilerException if a definition does not have a name.
+     */
+    private void markDependents(Compiler compiler, ArrayList<VisionFile> vfiles, IdentityHashMap<VisionFile, CompiledFile> nextFiles) throws CompilerException {
+        Set<DefineTemplate> stale = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (VisionFile vfile : files.keySet()) {
+            if (nextFiles.get(vfile) != files.get(vfile)) {
+                stale.addAll(files.get(vfile).templates);
+            }
+        }
+        boolean marked = !stale.isEmpty();
+        while (marked) {
+            marked = false;
+            for (VisionFile vfile : vfiles) {
+                CompiledFile file = nextFiles.get(vfile);
+                if (file.hats != null && !Collections.disjoint(file.dependencies, stale)) {
+                    stale.addAll(file.templates);
+                    markDirty(compiler, vfile, nextFiles);
+                    marked = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the VisionFile to be compiled again. Its Lines are kept, but it gets new DefineTemplates.
+     *
+     * @param compiler  the Compiler to find the new definitions with.
+     * @param vfile     the VisionFile.
+     * @param nextFiles what is kept for each VisionFile in the compile.
+     * @throws CompilerException if a definition does not have a name.
+     */
+    private static void markDirty(Compiler compiler, VisionFile vfile, IdentityHashMap<VisionFile, CompiledFile> nextFiles) throws CompilerException {
+        CompiledFile file = nextFiles.get(vfile);
+        if (file.hats == null) {
+            return;
+        }
+        CompiledFile dirty = new CompiledFile(file.hash, file.lines);
+        dirty.templates = compiler.findDefinitions(dirty.lines);
+        nextFiles.put(vfile, dirty);
+    }
+
+    /**
+     * @return the cores of every definition in the given VisionFiles, in order, each with what kind of definition it is.
+     */
+    private static ArrayList<String> signatures(ArrayList<VisionFile> vfiles, IdentityHashMap<VisionFile, CompiledFile> nextFiles) {
+        ArrayList<String> signatures = new ArrayList<>();
+        for (VisionFile vfile : vfiles) {
+            for (DefineTemplate template : nextFiles.get(vfile).templates) {
+                if (template instanceof DefinedCommand) {
+                    signatures.add("command " + ((DefinedCommand) template).getCore());
+                } else if (template instanceof DefinedReporter) {
+                    signatures.add("reporter " + ((DefinedReporter) template).getCore());
+                }
+            }
+        }
+        return signatures;
+    }
+
+    /**
+     * @return the SHA-256 of the given code as a hex String.
+     */
+    private static String hash(String code) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available!", e);
+        }
+        byte[] bytes = digest.digest((code != null ? code : "").getBytes(StandardCharsets.UTF_8));
+        StringBuilder hash = new StringBuilder();
+        for (byte b : bytes) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    /**
+     * @return the names of the VisionFiles that were compiled by the last successful compile. The others were kept from before.
+     */
+    public ArrayList<String> getRecompiledFiles() {
+        return recompiledFiles;
+    }
+
+    public Project getProject() {
+        return project;
+    }
+
+    /**
+     * What is kept from compiling a single VisionFile.
+     */
+    private static class CompiledFile {
+
+        /**
+         * The hash of the code the VisionFile had.
+         */
+        private String hash;
+
+        /**
+         * The Lines of the VisionFile.
+         */
+        private ArrayList<Line> lines;
+
+        /**
+         * The DefineTemplates of the definitions in the VisionFile.
+         */
+        private ArrayList<DefineTemplate> templates;
+
+        /**
+         * The Hats of the VisionFile. Null until it is compiled.
+         */
+        private ArrayList<Hat> hats;
+
+        /**
+         * The DefineTemplates that the Commands and Reporters of the VisionFile resolve to.
+         */
+        private Set<DefineTemplate> dependencies;
+
+        /**
+         * Whether the Variables of the Hats have been resolved.
+         */
+        private boolean resolved;
+
+        /**
+         * Creates a CompiledFile that still needs to be compiled.
+         */
+        private CompiledFile(String hash, ArrayList<Line> lines) {
+            this.hash = hash;
+            this.lines = lines;
+        }
+    }
+}
@@ -4,10 +4,26 @@ import com.jlogical.vision.project.CodeRange;
 
 /**
  * Stores information for one input which will be transformed into a Value.
+ * The text of the input is a slice of the characters it was lexed from and is only turned into a String when needed.
  */
 public class Input {
     /**
-     * The text of the input.
+     * The characters the input was lexed from.
+     */
+    private char[] source;
+
+    /**
+     * The index of the first character of the input in the source.
+     */
+    private int offset;
+
+    /**
+     * The number of characters in the input.
+     */
+    private int length;
+
+    /**
+     * The text of the input. Null until it is needed.
      */
     private String text;
 
@@ -26,14 +42,43 @@ public class Input {
      */
     public Input(String text, CodeRange range, char type){
         this.text = text != null ? text : "";
+        this.source = this.text.toCharArray();
+        this.offset = 0;
+        this.length = source.length;
+        this.range = range;
+        this.type = type;
+    }
+
+    /**
+     * Creates a new Input that is a slice of the given source with a given range and type.
+     */
+    public Input(char[] source, int offset, int length, CodeRange range, char type){
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
         this.range = range;
         this.type = type;
     }
 
     public String getText() {
+        if (text == null) {
+            text = new String(source, offset, length);
+        }
         return text;
     }
 
+    public char[] getSource() {
+        return source;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
     public CodeRange getRange() {
         return range;
     }
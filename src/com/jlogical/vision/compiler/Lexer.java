@@ -0,0 +1,302 @@
+package com.jlogical.vision.compiler;
+
+import com.jlogical.vision.compiler.exceptions.CompilerException;
+import com.jlogical.vision.project.CodeLocation;
+import com.jlogical.vision.project.CodeRange;
+import com.jlogical.vision.project.Project;
+import com.jlogical.vision.project.VisionFile;
+import com.jlogical.vision.util.Pair;
+
+import java.util.ArrayList;
+
+/**
+ * Splits the code of a VisionFile into Lines in a single pass over its characters.
+ * Inputs are slices of the characters of the file, so no Strings are created for them until they are needed.
+ */
+public class Lexer {
+
+    /**
+     * The Project the VisionFile is in.
+     */
+    private Project project;
+
+    /**
+     * The VisionFile being lexed.
+     */
+    private VisionFile vfile;
+
+    /**
+     * The characters of the code of the VisionFile.
+     */
+    private char[] source;
+
+    /**
+     * Creates a Lexer for the given VisionFile in the given Project.
+     */
+    public Lexer(Project project, VisionFile vfile) {
+        this.project = project;
+        this.vfile = vfile;
+        this.source = vfile.getCode() != null ? vfile.getCode().toCharArray() : new char[0];
+    }
+
+    /**
+     * Converts the code of the VisionFile into an ArrayList of Lines. Blank lines and comments are skipped.
+     * A '\' at the end of a line continues the line onto the next one.
+     *
+     * @return the Lines.
+     * @throws CompilerException if a Line is off balance.
+     */
+    public ArrayList<Line> toLines() throws CompilerException {
+        ArrayList<Line> output = new ArrayList<>();
+        int lineNum = 1;
+        int lineStart = 0;
+        StringBuilder continued = null; // The code of the current line if it was continued from a previous line.
+        for (int i = 0; i < source.length; i++) {
+            char curr = source[i];
+            char next = i + 1 == source.length ? '_' : source[i + 1];
+
+            if (curr == '\\' && (next == '\n' || next == '\r')) { // Multi-lined command.
+                if (continued == null) {
+                    continued = new StringBuilder();
+                }
+                continued.append(source, lineStart, i - lineStart);
+                i += 2;
+                lineStart = i + 1;
+            } else if (curr == '\n' || curr == '\r') {
+                addLine(output, continued, lineStart, i, lineNum++);
+                continued = null;
+                lineStart = i + 1;
+            }
+        }
+        addLine(output, continued, lineStart, source.length, lineNum);
+        return output;
+    }
+
+    /**
+     * Converts the given line of the source into a Line and adds it to the output unless it is blank or a comment.
+     *
+     * @param output    the Lines to add to.
+     * @param continued the beginning of the line if it was continued from previous lines. Null if none.
+     * @param start     the index of the first character of the line in the source.
+     * @param end       the index after the last character of the line in the source.
+     * @param lineNum   the line number of the line.
+     * @throws CompilerException if the Line is off balance.
+     */
+    private void addLine(ArrayList<Line> output, StringBuilder continued, int start, int end, int lineNum) throws CompilerException {
+        char[] chars = source;
+        if (continued != null) {
+            if (start < end) {
+                continued.append(source, start, end - start);
+            }
+            chars = new char[continued.length()];
+            continued.getChars(0, chars.length, chars, 0);
+            start = 0;
+            end = chars.length;
+        }
+
+        int trimStart = trimStart(chars, start, end);
+        if (trimStart == end || chars[trimStart] == '#') {
+            return;
+        }
+        int trimEnd = trimEnd(chars, trimStart, end);
+
+        CodeLocation location = new CodeLocation(project, vfile, lineNum, 0);
+        Pair<String, ArrayList<Input>> split = splitElement(chars, start, end, location);
+        output.add(new Line(new String(chars, trimStart, trimEnd - trimStart), split.getFirst(), split.getSecond(), location));
+    }
+
+    /**
+     * Splits an element into its imperfect core and inputs.
+     *
+     * @param chars    the characters the element is in.
+     * @param start    the index of the first character of the element.
+     * @param end      the index after the last character of the element.
+     * @param location the beginning location of this element.
+     * @return a Pair of its core (first) and an ArrayList of its inputs (second).
+     * @throws CompilerException if it is off balance.
+     */
+    public static Pair<String, ArrayList<Input>> splitElement(char[] chars, int start, int end, CodeLocation location) throws CompilerException {
+        StringBuilder core = new StringBuilder(end - start);
+        ArrayList<Input> inputs = new ArrayList<>();
+        char[] inputTypes = new char[8]; //Stack of the types of parameters used.
+        int index = 0; //Size of the inputTypes stack.
+        int inputStart = 0; //Index of the first character of the current input.
+
+        int pIndex = 0; //Index for ()
+        int cIndex = 0; //Index for {}
+
+        boolean inString = false;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (inString) {
+                if (c != ']') { //Still inside the text.
+                    continue;
+                }
+                inString = false;
+            }
+            if (c == ']' || c == '}' || c == ')') {
+                if (index == 0) { //Error. Too many closing parameters.
+                    switch (c) {
+                        case ']':
+                            throw new CompilerException("There are more ']' than '[' in this line.", errorRange(location, end - start));
+                        case ')':
+                            throw new CompilerException("There are more ')' than '(' in this line.", errorRange(location, end - start));
+                        default:
+                            throw new CompilerException("There are more '}' than '{' in this line.", errorRange(location, end - start));
+                    }
+                }
+                char lastInputType = inputTypes[--index];
+                switch (c) {
+                    case ']':
+                        if (lastInputType != '[') {
+                            throw new CompilerException("Parameters must match one another. Cannot have " + lastInputType + " matched with ]", errorRange(location, end - start));
+                        }
+                        break;
+                    case '}':
+                        cIndex--;
+                        if (lastInputType != '{') {
+                            throw new CompilerException("Parameters must match one another. Cannot have " + lastInputType + " matched with }", errorRange(location, end - start));
+                        }
+                        break;
+                    case ')':
+                        pIndex--;
+                        if (lastInputType != '(') {
+                            throw new CompilerException("Parameters must match one another. Cannot have " + lastInputType + " matched with )", errorRange(location, end - start));
+                        }
+                        break;
+                }
+                if (index == 0) {
+                    int length = i - inputStart;
+                    int charEnd = i - start;
+                    inputs.add(new Input(chars, inputStart, length, new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), charEnd - length, location.getLineNum(), charEnd - 1), lastInputType));
+                }
+            }
+            if (index == 0 && !(c == ' ' && core.length() > 0 && core.charAt(core.length() - 1) == ' ')) {
+                core.append(c);
+            }
+            if (c == '[' || c == '{' || c == '(') {
+                switch (c) {
+                    case '[':
+                        inString = true;
+                        break;
+                    case '{':
+                        cIndex++;
+                        break;
+                    case '(':
+                        pIndex++;
+                        break;
+                }
+                if (index == inputTypes.length) {
+                    char[] grown = new char[index * 2];
+                    System.arraycopy(inputTypes, 0, grown, 0, index);
+                    inputTypes = grown;
+                }
+                if (index == 0) {
+                    inputStart = i + 1;
+                }
+                inputTypes[index++] = c;
+            }
+        }
+        if (index == 0 && !(pIndex == 0 && cIndex == 0)) {
+            throw new CompilerException("Something strange happened with the index of this line.", errorRange(location, end - start));
+        }
+        if (pIndex < 0) {
+            throw new CompilerException("There are more ')' than '(' in this line.", errorRange(location, end - start));
+        }
+        if (cIndex < 0) {
+            throw new CompilerException("There are more '}' than '{' in this line.", errorRange(location, end - start));
+        }
+        if (pIndex > 0) {
+            throw new CompilerException("There are more '(' than ')' in this line.", errorRange(location, end - start));
+        }
+        if (cIndex > 0) {
+            throw new CompilerException("There are more '{' than '}' in this line.", errorRange(location, end - start));
+        }
+
+        int coreStart = 0;
+        int coreEnd = core.length();
+        while (coreStart < coreEnd && core.charAt(coreStart) <= ' ') coreStart++;
+        while (coreEnd > coreStart && core.charAt(coreEnd - 1) <= ' ') coreEnd--;
+        return new Pair<>(core.substring(coreStart, coreEnd), inputs);
+    }
+
+    /**
+     * Splits the text of an input into its imperfect core and inputs. Surrounding whitespace is ignored.
+     *
+     * @param input the Input to split.
+     * @return a Pair of its core (first) and an ArrayList of its inputs (second).
+     * @throws CompilerException if it is off balance.
+     */
+    public static Pair<String, ArrayList<Input>> splitElement(Input input) throws CompilerException {
+        int start = trimStart(input.getSource(), input.getOffset(), input.getOffset() + input.getLength());
+        int end = trimEnd(input.getSource(), start, input.getOffset() + input.getLength());
+        return splitElement(input.getSource(), start, end, input.getRange().startLocation());
+    }
+
+    /**
+     * Returns whether the given input looks like a number. Surrounding whitespace is ignored.
+     *
+     * @param input the Input to check.
+     * @return true if the input is an optional '-' followed by digits and an optional decimal part.
+     */
+    public static boolean looksNumeric(Input input) {
+        char[] chars = input.getSource();
+        int i = trimStart(chars, input.getOffset(), input.getOffset() + input.getLength());
+        int end = trimEnd(chars, i, input.getOffset() + input.getLength());
+        if (i < end && chars[i] == '-') i++;
+        int digits = i;
+        while (i < end && Character.isDigit(chars[i])) i++;
+        if (i == digits) return false;
+        if (i == end) return true;
+        if (chars[i++] != '.') return false;
+        digits = i;
+        while (i < end && Character.isDigit(chars[i])) i++;
+        return i != digits && i == end;
+    }
+
+    /**
+     * Returns whether the given core contains a math or logic operator.
+     *
+     * @param core the core to check.
+     * @return true if any of '+', '-', '*', '/', '^', '<', '>', or '=' are in the core.
+     */
+    public static boolean hasOperator(String core) {
+        for (int i = 0; i < core.length(); i++) {
+            switch (core.charAt(i)) {
+                case '+':
+                case '-':
+                case '*':
+                case '/':
+                case '^':
+                case '<':
+                case '>':
+                case '=':
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the index of the first character from start that is not whitespace. End if there are none.
+     */
+    private static int trimStart(char[] chars, int start, int end) {
+        while (start < end && chars[start] <= ' ') start++;
+        return start;
+    }
+
+    /**
+     * @return the index after the last character before end that is not whitespace. Start if there are none.
+     */
+    private static int trimEnd(char[] chars, int start, int end) {
+        while (end > start && chars[end - 1] <= ' ') end--;
+        return end;
+    }
+
+    /**
+     * @return the CodeRange used for exceptions of an element with the given location and length.
+     */
+    private static CodeRange errorRange(CodeLocation location, int length) {
+        return new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), location.getCharNum(), location.getLineNum(), location.getCharNum() + length);
+    }
+}
@@ -30,6 +30,11 @@ public class Line {
      */
     private ArrayList<Input> inputs;
 
+    /**
+     * The CodeRange of this Line. Null until it is first needed, which is usually only when a VisionException is thrown.
+     */
+    private CodeRange range;
+
     /**
      * Creates a new Line with the given code and location. Core and inputs must be given.
      */
@@ -47,10 +52,14 @@ public class Line {
     }
 
     /**
-     * @return the CodeRange this Line is in.
+     * @return the CodeRange this Line is in. Built the first time it is needed.
      */
     public CodeRange getRange(){
-        return new CodeRange(location.getProject(), location.getFile(), location.getLineNum(), 0, location.getLineNum(), code.length());
+        if (range == null) {
+            int lineNum = location.getLineNum();
+            range = new CodeRange(location.getProject(), location.getFile(), lineNum, 0, lineNum, code.length());
+        }
+        return range;
     }
 
     /**
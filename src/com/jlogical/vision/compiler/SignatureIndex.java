@@ -0,0 +1,198 @@
+package com.jlogical.vision.compiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Trie of element cores used to resolve the core of a Line or Reporter to the element it represents.
+ * <p>
+ * Literal characters of a core are stored as literal edges. Parameters are stored as wildcard edges:
+ * [] = Anything (matches [], (), or {})
+ * () = Object (matches ())
+ * {} = Statement (matches {} or ())
+ * []>> = Multiple parameters (matches one or more parameters until the end of the core)
+ * <p>
+ * If more than one core matches, the element that was added first is returned.
+ */
+public class SignatureIndex<T> {
+
+    /**
+     * The root of the trie.
+     */
+    private Node<T> root;
+
+    /**
+     * List of the elements in the order they were added. The index of an element is its priority.
+     */
+    private ArrayList<T> elements;
+
+    /**
+     * Creates a blank SignatureIndex.
+     */
+    public SignatureIndex() {
+        clear();
+    }
+
+    /**
+     * Removes every element from the index.
+     */
+    public void clear() {
+        root = new Node<>();
+        elements = new ArrayList<>();
+    }
+
+    /**
+     * Adds an element to the index. If an element with the same core was already added, the first one is kept.
+     *
+     * @param core    the core of the element.
+     * @param element the element to add.
+     */
+    public void add(String core, T element) {
+        int rank = elements.size();
+        elements.add(element);
+
+        Node<T> node = root;
+        for (int i = 0; i < core.length(); i++) {
+            char c = core.charAt(i);
+            char next = i + 1 < core.length() ? core.charAt(i + 1) : '_';
+            if (c == '[' && next == ']') {
+                if (i + 3 < core.length() && core.charAt(i + 2) == '>' && core.charAt(i + 3) == '>') { // Multiple parameter section. Ignores the rest of the core.
+                    if (node.multiRank == -1) node.multiRank = rank;
+                    return;
+                }
+                if (node.any == null) node.any = new Node<>();
+                node = node.any;
+                i++;
+            } else if (c == '(' && next == ')') {
+                if (node.object == null) node.object = new Node<>();
+                node = node.object;
+                i++;
+            } else if (c == '{' && next == '}') {
+                if (node.statement == null) node.statement = new Node<>();
+                node = node.statement;
+                i++;
+            } else {
+                if (node.literals == null) node.literals = new HashMap<>();
+                node = node.literals.computeIfAbsent(c, k -> new Node<>());
+            }
+        }
+        if (node.rank == -1) node.rank = rank;
+    }
+
+    /**
+     * Finds the element whose core matches the given core.
+     *
+     * @param core the core to look for. Parameters need to be empty (ex: "print []").
+     * @return the element that was added first out of all the matching elements. Null if none match.
+     */
+    public T find(String core) {
+        if (core == null) {
+            return null;
+        }
+
+        // Index of the last character that cannot be in a multiple parameter section.
+        int lastNonParam = -1;
+        for (int i = core.length() - 1; i >= 0; i--) {
+            if (!isParamChar(core.charAt(i))) {
+                lastNonParam = i;
+                break;
+            }
+        }
+
+        int rank = find(root, core, 0, lastNonParam);
+        return rank == -1 ? null : elements.get(rank);
+    }
+
+    /**
+     * Walks the trie from the given node and returns the best rank that matches the rest of the core.
+     *
+     * @param node         the current node.
+     * @param core         the core being matched.
+     * @param index        the current index in the core.
+     * @param lastNonParam the index of the last character in the core that cannot be in a multiple parameter section.
+     * @return the lowest rank that matched. -1 if none match.
+     */
+    private int find(Node<T> node, String core, int index, int lastNonParam) {
+        if (index == core.length()) {
+            return node.rank;
+        }
+
+        int best = -1;
+        char c = core.charAt(index);
+        boolean isParam = (c == '[' || c == '(' || c == '{') && index + 1 < core.length();
+
+        if (node.multiRank != -1 && isParam && index + 2 > lastNonParam) {
+            best = node.multiRank;
+        }
+        if (node.literals != null) {
+            Node<T> literal = node.literals.get(c);
+            if (literal != null) {
+                best = min(best, find(literal, core, index + 1, lastNonParam));
+            }
+        }
+        if (isParam) {
+            if (node.any != null) {
+                best = min(best, find(node.any, core, index + 2, lastNonParam));
+            }
+            if (node.object != null && c == '(') {
+                best = min(best, find(node.object, core, index + 2, lastNonParam));
+            }
+            if (node.statement != null && (c == '{' || c == '(')) {
+                best = min(best, find(node.statement, core, index + 2, lastNonParam));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the lowest of two ranks, ignoring -1.
+     */
+    private static int min(int rank1, int rank2) {
+        if (rank1 == -1) return rank2;
+        if (rank2 == -1) return rank1;
+        return Math.min(rank1, rank2);
+    }
+
+    /**
+     * @return whether the given character can be part of a multiple parameter section.
+     */
+    private static boolean isParamChar(char c) {
+        return c == ' ' || c == '[' || c == ']' || c == '(' || c == ')' || c == '{' || c == '}';
+    }
+
+    /**
+     * A node in the trie.
+     */
+    private static class Node<T> {
+
+        /**
+         * Edges for literal characters. Null if none.
+         */
+        private HashMap<Character, Node<T>> literals;
+
+        /**
+         * Edge for a [] parameter. Null if none.
+         */
+        private Node<T> any;
+
+        /**
+         * Edge for a () parameter. Null if none.
+         */
+        private Node<T> object;
+
+        /**
+         * Edge for a {} parameter. Null if none.
+         */
+        private Node<T> statement;
+
+        /**
+         * Rank of the element whose core ends at this node. -1 if none.
+         */
+        private int rank = -1;
+
+        /**
+         * Rank of the element whose core ends with a multiple parameter section starting at this node. -1 if none.
+         */
+        private int multiRank = -1;
+    }
+}
@@ -0,0 +1,257 @@
+package com.jlogical.vision.compiler;
+
+import com.jlogical.vision.api.elements.VariableScope;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Program;
+import com.jlogical.vision.compiler.script.Script;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.elements.CompiledElement;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+import com.jlogical.vision.compiler.values.ExpressionValue;
+import com.jlogical.vision.compiler.values.HoistedValue;
+import com.jlogical.vision.compiler.values.SharedValue;
+import com.jlogical.vision.compiler.values.SharingValue;
+import com.jlogical.vision.compiler.values.TextValue;
+import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.compiler.values.VariableValue;
+import com.jlogical.vision.compiler.values.expression.Expression;
+import com.jlogical.vision.compiler.values.expression.OperatorExpression;
+import com.jlogical.vision.compiler.values.expression.ReferenceExpression;
+import com.jlogical.vision.compiler.values.expression.SignExpression;
+import com.jlogical.vision.compiler.values.expression.ValueExpression;
+
+import java.util.ArrayList;
+
+/**
+ * Resolves the Variables of a compiled Script to slots so they do not need to be searched for by name when running.
+ * Inputs of Hats, Variables set in Hats, and loop Variables of CBlocks get slots in the Frame of their Hat, and global Variables get slots in the Program of the Script.
+ * Variables whose names are not constant are still found by name when running.
+ */
+public class VariableResolver {
+
+    /**
+     * The Script being resolved. Null if only single Hats are being resolved.
+     */
+    private Script script;
+
+    /**
+     * The Program that holds the global slots.
+     */
+    private Program program;
+
+    /**
+     * Creates a VariableResolver for the given Script.
+     */
+    public VariableResolver(Script script) {
+        this.script = script;
+        this.program = script.getProgram();
+    }
+
+    /**
+     * Creates a VariableResolver that resolves single Hats with the global slots of the given Program.
+     */
+    public VariableResolver(Program program) {
+        this.program = program;
+    }
+
+    /**
+     * Resolves the Variables of every Hat in the Script.
+     */
+    public void resolve() {
+        for (Hat hat : program.getHats()) {
+            resolve(hat);
+        }
+        if (script != null) {
+            script.resetGlobals();
+        }
+    }
+
+    /**
+     * Resolves the Variables of the given Hat. Each Hat can only be resolved once.
+     *
+     * @param hat the Hat to resolve.
+     */
+    public void resolve(Hat hat) {
+        declare(hat, hat.getCommands());
+        resolve(hat.getCommands());
+    }
+
+    /**
+     * Gives a slot to every Variable that is declared in the given Commands.
+     *
+     * @param hat      the Hat holding the Commands.
+     * @param commands the Commands to look through.
+     */
+    private void declare(Hat hat, ArrayList<Command> commands) {
+        for (Command command : commands) {
+            declare(hat, command);
+        }
+    }
+
+    /**
+     * Gives a slot to every Variable that is declared by the given element, its Reporters, and the Commands inside it if it is a CBlock.
+     */
+    private void declare(Hat hat, CompiledElement<?> element) {
+        String name = constantVariableName(element);
+        VariableScope scope = element.getTemplate() == null ? null : element.getTemplate().getVariableScope();
+        if (scope == VariableScope.LOCAL && name != null) {
+            hat.addSlot(name);
+        } else if (scope == VariableScope.GLOBAL && name != null) {
+            program.addGlobalSlot(name);
+        } else if (scope == VariableScope.LOOP && element instanceof CBlock) {
+            CBlock cblock = (CBlock) element;
+            cblock.setLoopSlot(hat.addLoopSlot());
+            cblock.setLoopName(name);
+        }
+        for (Value value : element.getValues()) {
+            if (value instanceof HoistedValue) {
+                value = ((HoistedValue) value).getValue();
+            }
+            if (value instanceof SharingValue) {
+                value = ((SharingValue) value).getValue();
+            }
+            if (value instanceof SharedValue) {
+                value = ((SharedValue) value).getValue();
+            }
+            if (value instanceof Reporter) {
+                declare(hat, (Reporter) value);
+            }
+        }
+        if (element instanceof CBlock) {
+            CBlock cblock = (CBlock) element;
+            declare(hat, cblock.getCommands());
+            if (cblock.getChain() != null) {
+                declare(hat, cblock.getChain());
+            }
+        }
+    }
+
+    /**
+     * Resolves every Variable that is used in the given Commands, including the Commands inside CBlocks and their chains.
+     *
+     * @param commands the Commands to look through.
+     */
+    private void resolve(ArrayList<Command> commands) {
+        for (Command command : commands) {
+            resolve(command);
+            if (command instanceof CBlock) {
+                for (CBlock cblock = (CBlock) command; cblock != null; cblock = cblock.getChain()) {
+                    if (cblock != command) {
+                        resolve(cblock);
+                    }
+                    resolve(cblock.getCommands());
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves the Variable named by the Command and every Variable used in its Values.
+     */
+    private void resolve(Command<?> command) {
+        resolveReference(command, command);
+        for (Value value : command.getValues()) {
+            resolve(value, command);
+        }
+    }
+
+    /**
+     * Creates the reference to the Variable named by the element if its name is constant.
+     */
+    private void resolveReference(CompiledElement<?> element, Command command) {
+        VariableScope scope = element.getTemplate() == null ? null : element.getTemplate().getVariableScope();
+        String name = constantVariableName(element);
+        if (scope == null || scope == VariableScope.LOOP || name == null) {
+            return;
+        }
+        VariableValue reference = new VariableValue(name, element.getValues().get(0).getRange(), command);
+        if (scope == VariableScope.GLOBAL) {
+            reference.resolve(-1, program.addGlobalSlot(name));
+        } else {
+            resolve(reference, command);
+        }
+        element.setVariableReference(reference);
+    }
+
+    /**
+     * Resolves every Variable used in the given Value.
+     */
+    private void resolve(Value value, Command command) {
+        if (value instanceof VariableValue) {
+            resolve((VariableValue) value, command);
+        } else if (value instanceof Reporter) {
+            Reporter reporter = (Reporter) value;
+            resolveReference(reporter, command);
+            for (Value child : reporter.getValues()) {
+                resolve(child, command);
+            }
+        } else if (value instanceof TextValue) {
+            for (Value child : ((TextValue) value).getValues()) {
+                resolve(child, command);
+            }
+        } else if (value instanceof ExpressionValue) {
+            try {
+                resolve(((ExpressionValue) value).getExpression(), command);
+            } catch (VisionException e) {
+                // The exception is thrown again when the Value is evaluated.
+            }
+        } else if (value instanceof HoistedValue) {
+            resolve(((HoistedValue) value).getValue(), command);
+        } else if (value instanceof SharingValue) {
+            resolve(((SharingValue) value).getValue(), command);
+        } else if (value instanceof SharedValue) {
+            resolve(((SharedValue) value).getValue(), command);
+        }
+    }
+
+    /**
+     * Resolves every Variable used in the given Expression.
+     */
+    private void resolve(Expression expression, Command command) {
+        if (expression instanceof ReferenceExpression) {
+            resolve(((ReferenceExpression) expression).getVariableValue(), command);
+        } else if (expression instanceof ValueExpression) {
+            resolve(((ValueExpression) expression).getValue(), command);
+        } else if (expression instanceof OperatorExpression) {
+            resolve(((OperatorExpression) expression).getLeft(), command);
+            resolve(((OperatorExpression) expression).getRight(), command);
+        } else if (expression instanceof SignExpression) {
+            resolve(((SignExpression) expression).getOperand(), command);
+        }
+    }
+
+    /**
+     * Resolves a VariableValue to the slot of the loop Variable or local Variable it refers to, or to a global slot if there is none.
+     * If a CBlock holding the Command has a loop Variable whose name is not constant, the VariableValue is left to be found by name.
+     */
+    private void resolve(VariableValue value, Command command) {
+        String name = value.getVariableName();
+        for (CBlock cblock = command.getCBlockHolder(); cblock != null; cblock = cblock.getCBlockHolder()) {
+            if (cblock.getLoopSlot() != -1) {
+                if (cblock.getLoopName() == null) {
+                    return;
+                }
+                if (cblock.getLoopName().equals(name)) {
+                    value.resolve(cblock.getLoopSlot(), -1);
+                    return;
+                }
+            }
+        }
+        Hat hat = command.getHatHolder();
+        int slot = hat.getSlot(name);
+        value.resolve(slot, slot == -1 ? program.addGlobalSlot(name) : -1);
+    }
+
+    /**
+     * @return the name of the Variable in the first input of the element. Null if there is none or it is not constant.
+     */
+    public static String constantVariableName(CompiledElement<?> element) {
+        if (element.getValues().isEmpty()) {
+            return null;
+        }
+        Value value = element.getValues().get(0);
+        return value instanceof TextValue ? ((TextValue) value).getConstantText() : null;
+    }
+}
@@ -12,12 +12,30 @@ public class VisionException extends Exception{
      */
     private CodeRange range;
 
+    /**
+     * The message without the range.
+     */
+    private String description;
+
     /**
      * Creates a new VisionException with a given message and range.
      */
     public VisionException(String message, CodeRange range){
         super(message + "(@ "+range+")");
         this.range = range;
+        this.description = message;
+    }
+
+    /**
+     * Returns a VisionException with the same message at the given range. Used when the exception was thrown without a range.
+     *
+     * @param range the range of where the error occurred.
+     * @return the new VisionException.
+     */
+    public VisionException at(CodeRange range){
+        VisionException exception = new VisionException(description, range);
+        exception.setStackTrace(getStackTrace());
+        return exception;
     }
 
     public CodeRange getRange() {
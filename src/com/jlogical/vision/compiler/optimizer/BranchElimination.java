@@ -0,0 +1,111 @@
+package com.jlogical.vision.compiler.optimizer;
+
+import com.jlogical.vision.api.elements.ControlFlow;
+import com.jlogical.vision.api.runnables.Parameters;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.Program;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.elements.Hat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes the branches of "if []" and "else if []" CBlocks that can never run because their condition is constant.
+ * If the condition is always true, the CBlocks chained after it are removed. If it is always false, the CBlock is replaced by its chain, or removed if it has none.
+ */
+public class BranchElimination implements Pass {
+
+    @Override
+    public String getName() {
+        return "branch elimination";
+    }
+
+    @Override
+    public int run(Program program, List<Hat> hats) {
+        int changes = 0;
+        for (Hat hat : hats) {
+            changes += eliminate(hat.getCommands(), new Frame(hat));
+        }
+        return changes;
+    }
+
+    /**
+     * Removes the branches that can never run from the given Commands and the Commands inside them.
+     *
+     * @return the number of branches removed.
+     */
+    private int eliminate(ArrayList<Command> commands, Frame frame) {
+        int changes = 0;
+        for (int i = 0; i < commands.size(); i++) {
+            if (!(commands.get(i) instanceof CBlock)) {
+                continue;
+            }
+            CBlock cblock = (CBlock) commands.get(i);
+            Boolean condition = condition(cblock, frame);
+            if (condition == Boolean.FALSE) {
+                if (cblock.getChain() != null) {
+                    commands.set(i, cblock.getChain());
+                } else {
+                    commands.remove(i);
+                }
+                changes++;
+                i--;
+                continue;
+            }
+            if (condition == Boolean.TRUE && cblock.getChain() != null) {
+                cblock.setChain(null);
+                changes++;
+            }
+            changes += eliminateChain(cblock, frame);
+            for (CBlock link = cblock; link != null; link = link.getChain()) {
+                changes += eliminate(link.getCommands(), frame);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Removes the CBlocks chained after the given CBlock that can never run.
+     *
+     * @return the number of branches removed.
+     */
+    private int eliminateChain(CBlock cblock, Frame frame) {
+        int changes = 0;
+        while (cblock.getChain() != null) {
+            CBlock chain = cblock.getChain();
+            Boolean condition = condition(chain, frame);
+            if (condition == Boolean.FALSE) {
+                cblock.setChain(chain.getChain());
+                changes++;
+                continue;
+            }
+            if (condition == Boolean.TRUE && chain.getChain() != null) {
+                chain.setChain(null);
+                changes++;
+            }
+            cblock = chain;
+        }
+        return changes;
+    }
+
+    /**
+     * @return the condition of the CBlock if it is an "if []" or "else if []" whose condition is constant. Null otherwise.
+     */
+    private static Boolean condition(CBlock cblock, Frame frame) {
+        if (cblock.getTemplate().getControlFlow() != ControlFlow.IF || cblock.getValues().isEmpty()) {
+            return null;
+        }
+        Object value = Constants.evaluate(cblock.getValues().get(0), frame);
+        if (value == Constants.NOT_CONSTANT) {
+            return null;
+        }
+        try {
+            return Parameters.toBoolean(Parameters.normalize(value), cblock.getRange());
+        } catch (VisionException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.jlogical.vision.compiler.optimizer;
+
+import com.jlogical.vision.compiler.VariableResolver;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Program;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+import com.jlogical.vision.compiler.values.ExpressionValue;
+import com.jlogical.vision.compiler.values.NumValue;
+import com.jlogical.vision.compiler.values.SharedValue;
+import com.jlogical.vision.compiler.values.SharingValue;
+import com.jlogical.vision.compiler.values.TextValue;
+import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.compiler.values.VariableValue;
+import com.jlogical.vision.compiler.values.expression.ConstantExpression;
+import com.jlogical.vision.compiler.values.expression.Expression;
+import com.jlogical.vision.compiler.values.expression.OperatorExpression;
+import com.jlogical.vision.compiler.values.expression.ReferenceExpression;
+import com.jlogical.vision.compiler.values.expression.SignExpression;
+import com.jlogical.vision.compiler.values.expression.ValueExpression;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Evaluates each Reporter, expression, interpolated text and Variable that is repeated in an input once each time the input is evaluated, instead of every time it is repeated.
+ * Ex: in "print (join (for (board) item (1)) (for (board) item (2)))", "(board)" is read once each time the Command runs.
+ * <p>
+ * Nothing in an input can change a Variable, list or object unless the input has a Reporter with side effects, so inputs with one are left alone.
+ * Reporters that only read lists and objects are shared too, since nothing else in the input can change what they read.
+ * Each input is shared on its own, so the condition of a 'while' loop is still evaluated again every time around the loop.
+ */
+public class CommonSubexpressionElimination implements Pass {
+
+    /**
+     * What running the elements of the Program being optimized can change.
+     */
+    private Purity purity;
+
+    /**
+     * The key of each Value that has been looked at. Two Values with the same key always have the same value when evaluated in the same input.
+     * Null if the Value cannot be shared.
+     */
+    private IdentityHashMap<Value, String> keys;
+
+    /**
+     * A number for each CustomReporter and DefinedReporter, used in the keys of the Reporters that call it.
+     */
+    private IdentityHashMap<Object, Integer> ids;
+
+    @Override
+    public String getName() {
+        return "common subexpression elimination";
+    }
+
+    @Override
+    public int run(Program program, List<Hat> hats) {
+        purity = new Purity(program);
+        keys = new IdentityHashMap<>();
+        ids = new IdentityHashMap<>();
+
+        int[] changes = {0};
+        for (Hat hat : hats) {
+            Elements.forEachCommand(hat.getCommands(), command -> {
+                for (int i = Purity.scope(command) != null ? 1 : 0; i < command.getValues().size(); i++) {
+                    changes[0] += share(hat, command, i);
+                }
+            });
+        }
+        return changes[0];
+    }
+
+    /**
+     * Shares the subexpressions that are repeated in an input of a Command, and wraps the input in a SharingValue if any were.
+     *
+     * @param hat     the Hat the Command is in.
+     * @param command the Command.
+     * @param index   the index of the input.
+     * @return the number of SharedValues that were made.
+     */
+    private int share(Hat hat, Command<?> command, int index) {
+        ArrayList<Value> values = command.getValues();
+        Value input = values.get(index);
+        boolean[] sideEffects = {false};
+        Elements.forEachValue(input, value -> {
+            if (value instanceof Reporter && purity.hasSideEffects((Reporter) value)) {
+                sideEffects[0] = true;
+            }
+        });
+        if (sideEffects[0]) {
+            return 0;
+        }
+
+        HashMap<String, Integer> counts = new HashMap<>();
+        count(input, counts);
+        HashMap<String, SharedValue> shared = new HashMap<>();
+        Value replaced = share(hat, input, counts, shared);
+        if (!shared.isEmpty()) {
+            values.set(index, new SharingValue(replaced));
+        }
+        return shared.size();
+    }
+
+    /**
+     * Counts how many times each key is evaluated in the Value. The Values inside a repeat of a key are not counted, since the repeat is not evaluated.
+     */
+    private void count(Value value, HashMap<String, Integer> counts) {
+        String key = isWorthSharing(value) ? key(value) : null;
+        if (key != null && counts.merge(key, 1, Integer::sum) > 1) {
+            return;
+        }
+        if (value instanceof Reporter) {
+            Reporter reporter = (Reporter) value;
+            for (int i = Purity.scope(reporter) != null ? 1 : 0; i < reporter.getValues().size(); i++) {
+                count(reporter.getValues().get(i), counts);
+            }
+        } else if (value instanceof TextValue) {
+            for (Value child : ((TextValue) value).getValues()) {
+                count(child, counts);
+            }
+        }
+    }
+
+    /**
+     * Replaces every Value in the given Value whose key is evaluated more than once with the SharedValue of its key.
+     *
+     * @param hat    the Hat the Value is in.
+     * @param value  the Value.
+     * @param counts how many times each key is evaluated in the input.
+     * @param shared the SharedValue of each key that has been shared.
+     * @return the Value to replace the given Value with.
+     */
+    private Value share(Hat hat, Value value, HashMap<String, Integer> counts, HashMap<String, SharedValue> shared) {
+        String key = isWorthSharing(value) ? key(value) : null;
+        boolean repeated = key != null && counts.getOrDefault(key, 0) > 1;
+        if (repeated && shared.containsKey(key)) {
+            return shared.get(key);
+        }
+        if (value instanceof Reporter) {
+            Reporter reporter = (Reporter) value;
+            for (int i = Purity.scope(reporter) != null ? 1 : 0; i < reporter.getValues().size(); i++) {
+                reporter.getValues().set(i, share(hat, reporter.getValues().get(i), counts, shared));
+            }
+        } else if (value instanceof TextValue) {
+            Value[] children = ((TextValue) value).getValues();
+            for (int i = 0; i < children.length; i++) {
+                children[i] = share(hat, children[i], counts, shared);
+            }
+        }
+        if (repeated) {
+            SharedValue sharedValue = new SharedValue(value, hat.addShared());
+            shared.put(key, sharedValue);
+            return sharedValue;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the key of the Value, made from what it is and the keys of the Values inside it.
+     * Parts of the key are prefixed by their length, so different Values never have the same key.
+     *
+     * @param value the Value.
+     * @return the key. Null if the Value cannot be shared.
+     */
+    private String key(Value value) {
+        if (keys.containsKey(value)) {
+            return keys.get(value);
+        }
+        String key = null;
+        if (value instanceof NumValue) {
+            key = "n" + ((NumValue) value).getDouble(null, null);
+        } else if (value instanceof VariableValue) {
+            key = "v" + ((VariableValue) value).getVariableName();
+        } else if (value instanceof TextValue) {
+            TextValue text = (TextValue) value;
+            if (text.getError() == null) {
+                StringBuilder builder = new StringBuilder("t");
+                for (String literal : text.getLiterals()) {
+                    builder.append(part(literal));
+                }
+                key = children(builder, text.getValues());
+            }
+        } else if (value instanceof ExpressionValue) {
+            try {
+                key = key(((ExpressionValue) value).getExpression());
+            } catch (VisionException e) {
+                // The exception is thrown again when the Value is evaluated.
+            }
+        } else if (value instanceof Reporter) {
+            Reporter reporter = (Reporter) value;
+            Object template = reporter.getDefinedReporter() != null ? reporter.getDefinedReporter() : reporter.getTemplate();
+            boolean scoped = Purity.scope(reporter) != null;
+            String name = scoped ? VariableResolver.constantVariableName(reporter) : "";
+            if (template != null && name != null) {
+                StringBuilder builder = new StringBuilder("r").append(ids.computeIfAbsent(template, t -> ids.size())).append('.').append(part(name));
+                ArrayList<Value> values = reporter.getValues();
+                key = children(builder, values.subList(scoped ? 1 : 0, values.size()).toArray(new Value[0]));
+            }
+        }
+        keys.put(value, key);
+        return key;
+    }
+
+    /**
+     * @return the key of the Expression. Null if it cannot be shared.
+     */
+    private String key(Expression expression) {
+        if (expression instanceof ConstantExpression) {
+            return "c" + ((ConstantExpression) expression).getValue();
+        } else if (expression instanceof ReferenceExpression) {
+            return "v" + ((ReferenceExpression) expression).getVariableValue().getVariableName();
+        } else if (expression instanceof ValueExpression) {
+            return key(((ValueExpression) expression).getValue());
+        } else if (expression instanceof OperatorExpression) {
+            OperatorExpression operator = (OperatorExpression) expression;
+            String left = key(operator.getLeft());
+            String right = key(operator.getRight());
+            return left == null || right == null ? null : "o" + operator.getOperator() + part(left) + part(right);
+        } else if (expression instanceof SignExpression) {
+            String operand = key(((SignExpression) expression).getOperand());
+            return operand == null ? null : (((SignExpression) expression).isNegative() ? "-" : "+") + part(operand);
+        }
+        return null;
+    }
+
+    /**
+     * Adds the keys of the given Values to the key being built.
+     *
+     * @return the key. Null if any of the Values cannot be shared.
+     */
+    private String children(StringBuilder builder, Value[] values) {
+        for (Value child : values) {
+            String key = key(child);
+            if (key == null) {
+                return null;
+            }
+            builder.append(part(key));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the String prefixed by its length.
+     */
+    private static String part(String string) {
+        return string.length() + ":" + string;
+    }
+
+    /**
+     * @return whether evaluating the Value once instead of every time it is repeated saves anything. Numbers and text without interpolation are constant.
+     */
+    private static boolean isWorthSharing(Value value) {
+        return value instanceof Reporter || value instanceof ExpressionValue || value instanceof VariableValue || value instanceof TextValue && ((TextValue) value).getValues().length > 0;
+    }
+}
@@ -0,0 +1,102 @@
+package com.jlogical.vision.compiler.optimizer;
+
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.Program;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+import com.jlogical.vision.compiler.values.ExpressionValue;
+import com.jlogical.vision.compiler.values.TextValue;
+import com.jlogical.vision.compiler.values.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces pure Reporters, expressions and interpolated text whose inputs are all constant with the NumValue or TextValue they evaluate to.
+ * Ex: "((2) + (3))" becomes "5" and "(join [a] [b])" becomes "[ab]".
+ * Values that evaluate to something other than a number or text, or throw an exception when evaluated, are left as they are.
+ */
+public class ConstantFolding implements Pass {
+
+    @Override
+    public String getName() {
+        return "constant folding";
+    }
+
+    @Override
+    public int run(Program program, List<Hat> hats) {
+        int changes = 0;
+        for (Hat hat : hats) {
+            Frame frame = new Frame(hat);
+            int[] folded = {0};
+            Elements.forEachCommand(hat.getCommands(), command -> folded[0] += fold(command.getValues(), frame));
+            changes += folded[0];
+        }
+        return changes;
+    }
+
+    /**
+     * Folds each Value in the List, replacing it if it was folded.
+     *
+     * @return the number of Values that were folded.
+     */
+    private int fold(ArrayList<Value> values, Frame frame) {
+        int changes = 0;
+        for (int i = 0; i < values.size(); i++) {
+            Value value = values.get(i);
+            changes += foldChildren(value, frame);
+            Value folded = fold(value, false, frame);
+            if (folded != null) {
+                values.set(i, folded);
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Folds the Values inside the given Value.
+     *
+     * @return the number of Values that were folded.
+     */
+    private int foldChildren(Value value, Frame frame) {
+        if (value instanceof Reporter) {
+            return fold(((Reporter) value).getValues(), frame);
+        }
+        int changes = 0;
+        if (value instanceof TextValue) {
+            Value[] values = ((TextValue) value).getValues();
+            for (int i = 0; i < values.length; i++) {
+                changes += foldChildren(values[i], frame);
+                Value folded = fold(values[i], true, frame);
+                if (folded != null) {
+                    values[i] = folded;
+                    changes++;
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the NumValue or TextValue the given Value folds to.
+     *
+     * @param value the Value to fold.
+     * @param raw   whether the value of the Value is used as it is. Text interpolation does not turn whole Doubles into Integers.
+     * @param frame a Frame of the Hat holding the Value.
+     * @return the folded Value. Null if it cannot be folded.
+     */
+    private static Value fold(Value value, boolean raw, Frame frame) {
+        if (!(value instanceof Reporter) && !(value instanceof ExpressionValue) && !(value instanceof TextValue && ((TextValue) value).getValues().length > 0)) {
+            return null;
+        }
+        if (value instanceof ExpressionValue && !((ExpressionValue) value).isNumeric()) {
+            return null;
+        }
+        Object result = Constants.evaluate(value, frame);
+        if (result == Constants.NOT_CONSTANT) {
+            return null;
+        }
+        return Constants.toValue(result, raw, value);
+    }
+}
@@ -0,0 +1,124 @@
+package com.jlogical.vision.compiler.optimizer;
+
+import com.jlogical.vision.api.runnables.Parameters;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+import com.jlogical.vision.compiler.values.ExpressionValue;
+import com.jlogical.vision.compiler.values.NumValue;
+import com.jlogical.vision.compiler.values.TextValue;
+import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.compiler.values.expression.ConstantExpression;
+import com.jlogical.vision.compiler.values.expression.Expression;
+import com.jlogical.vision.compiler.values.expression.OperatorExpression;
+import com.jlogical.vision.compiler.values.expression.SignExpression;
+import com.jlogical.vision.compiler.values.expression.ValueExpression;
+
+import java.util.Objects;
+
+/**
+ * Finds and evaluates Values that always have the same value, so the Passes of the Optimizer can use their values while compiling.
+ */
+class Constants {
+
+    /**
+     * Returned by {@link #evaluate(Value, Frame)} when a Value is not constant.
+     */
+    static final Object NOT_CONSTANT = new Object();
+
+    /**
+     * Returns whether the Value always has the same value. Numbers, text without interpolation of anything else, pure Reporters and expressions
+     * whose inputs are all constant are constant.
+     *
+     * @param value the Value to check.
+     * @return whether the Value is constant.
+     */
+    static boolean isConstant(Value value) {
+        if (value instanceof NumValue) {
+            return true;
+        } else if (value instanceof TextValue) {
+            TextValue text = (TextValue) value;
+            if (text.getError() != null) {
+                return false;
+            }
+            for (Value child : text.getValues()) {
+                if (!isConstant(child)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (value instanceof Reporter) {
+            Reporter reporter = (Reporter) value;
+            if (reporter.getDefinedReporter() != null || reporter.getTemplate() == null || !reporter.getTemplate().isPure()) {
+                return false;
+            }
+            for (Value child : reporter.getValues()) {
+                if (!isConstant(child)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (value instanceof ExpressionValue) {
+            try {
+                return isConstant(((ExpressionValue) value).getExpression());
+            } catch (VisionException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the Expression always has the same value.
+     */
+    private static boolean isConstant(Expression expression) {
+        if (expression instanceof ConstantExpression) {
+            return true;
+        } else if (expression instanceof ValueExpression) {
+            return isConstant(((ValueExpression) expression).getValue());
+        } else if (expression instanceof OperatorExpression) {
+            return isConstant(((OperatorExpression) expression).getLeft()) && isConstant(((OperatorExpression) expression).getRight());
+        } else if (expression instanceof SignExpression) {
+            return isConstant(((SignExpression) expression).getOperand());
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates the Value if it is constant.
+     *
+     * @param value the Value to evaluate.
+     * @param frame a Frame of the Hat holding the Value. Only used by Reporters to keep their Parameters.
+     * @return the value. {@link #NOT_CONSTANT} if the Value is not constant or evaluating it throws an exception, which is left to be thrown when running.
+     */
+    static Object evaluate(Value value, Frame frame) {
+        if (!isConstant(value)) {
+            return NOT_CONSTANT;
+        }
+        try {
+            return value.getValue(frame);
+        } catch (VisionException | RuntimeException e) {
+            return NOT_CONSTANT;
+        }
+    }
+
+    /**
+     * Returns a NumValue or TextValue that has the given value, if there is one that gives exactly the same value.
+     *
+     * @param result the value.
+     * @param raw    whether the value is used as it is, rather than through {@link Parameters#normalize(Object)}, which turns whole Doubles into Integers.
+     * @param value  the Value being replaced. Its range is used.
+     * @return the NumValue or TextValue. Null if there is none.
+     */
+    static Value toValue(Object result, boolean raw, Value value) {
+        Object expected = raw ? result : Parameters.normalize(result);
+        if (result instanceof Number) {
+            NumValue num = new NumValue(((Number) result).doubleValue(), value.getRange());
+            return Objects.equals(num.getValue(null), expected) ? num : null;
+        }
+        if (result instanceof String) {
+            return new TextValue((String) result, value.getRange());
+        }
+        return null;
+    }
+}
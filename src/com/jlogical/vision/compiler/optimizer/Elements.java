@@ -0,0 +1,117 @@
+package com.jlogical.vision.compiler.optimizer;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+import com.jlogical.vision.compiler.values.ExpressionValue;
+import com.jlogical.vision.compiler.values.HoistedValue;
+import com.jlogical.vision.compiler.values.SharedValue;
+import com.jlogical.vision.compiler.values.SharingValue;
+import com.jlogical.vision.compiler.values.TextValue;
+import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.compiler.values.expression.Expression;
+import com.jlogical.vision.compiler.values.expression.OperatorExpression;
+import com.jlogical.vision.compiler.values.expression.SignExpression;
+import com.jlogical.vision.compiler.values.expression.ValueExpression;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Walks the compiled tree of a Hat for the Passes of the Optimizer.
+ */
+class Elements {
+
+    /**
+     * Gives every Command in the List to the action, including the Commands inside CBlocks and their chains.
+     *
+     * @param commands the Commands to walk.
+     * @param action   the action to run on each Command.
+     */
+    static void forEachCommand(List<Command> commands, Consumer<Command> action) {
+        for (Command command : commands) {
+            action.accept(command);
+            if (command instanceof CBlock) {
+                for (CBlock cblock = (CBlock) command; cblock != null; cblock = cblock.getChain()) {
+                    if (cblock != command) {
+                        action.accept(cblock);
+                    }
+                    forEachCommand(cblock.getCommands(), action);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives every Value in the List to the action, including the Values inside Reporters, text interpolation, expressions, HoistedValues and SharedValues.
+     * A SharedValue that is used in more than one place is only walked into once.
+     *
+     * @param values the Values to walk.
+     * @param action the action to run on each Value.
+     */
+    static void forEachValue(List<Value> values, Consumer<Value> action) {
+        Set<SharedValue> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Value value : values) {
+            forEachValue(value, action, visited);
+        }
+    }
+
+    /**
+     * Gives the Value and every Value inside it to the action.
+     */
+    static void forEachValue(Value value, Consumer<Value> action) {
+        forEachValue(value, action, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    /**
+     * Gives the Value and every Value inside it to the action, skipping the SharedValues that were already visited.
+     */
+    private static void forEachValue(Value value, Consumer<Value> action, Set<SharedValue> visited) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof SharedValue && !visited.add((SharedValue) value)) {
+            return;
+        }
+        action.accept(value);
+        if (value instanceof Reporter) {
+            for (Value child : ((Reporter) value).getValues()) {
+                forEachValue(child, action, visited);
+            }
+        } else if (value instanceof TextValue) {
+            for (Value child : ((TextValue) value).getValues()) {
+                forEachValue(child, action, visited);
+            }
+        } else if (value instanceof ExpressionValue) {
+            try {
+                forEachValue(((ExpressionValue) value).getExpression(), action, visited);
+            } catch (VisionException e) {
+                // The exception is thrown again when the Value is evaluated.
+            }
+        } else if (value instanceof HoistedValue) {
+            forEachValue(((HoistedValue) value).getValue(), action, visited);
+        } else if (value instanceof SharingValue) {
+            forEachValue(((SharingValue) value).getValue(), action, visited);
+        } else if (value instanceof SharedValue) {
+            forEachValue(((SharedValue) value).getValue(), action, visited);
+        }
+    }
+
+    /**
+     * Gives every Value inside the Expression to the action.
+     */
+    private static void forEachValue(Expression expression, Consumer<Value> action, Set<SharedValue> visited) {
+        if (expression instanceof ValueExpression) {
+            forEachValue(((ValueExpression) expression).getValue(), action, visited);
+        } else if (expression instanceof OperatorExpression) {
+            forEachValue(((OperatorExpression) expression).getLeft(), action, visited);
+            forEachValue(((OperatorExpression) expression).getRight(), action, visited);
+        } else if (expression instanceof SignExpression) {
+            forEachValue(((SignExpression) expression).getOperand(), action, visited);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.jlogical.vision.compiler.optimizer;
+
+import com.jlogical.vision.api.elements.ControlFlow;
+import com.jlogical.vision.api.elements.VariableScope;
+import com.jlogical.vision.compiler.VariableResolver;
+import com.jlogical.vision.compiler.script.Program;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.elements.CompiledElement;
+import com.jlogical.vision.compiler.script.elements.End;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+import com.jlogical.vision.compiler.values.ExpressionValue;
+import com.jlogical.vision.compiler.values.TextValue;
+import com.jlogical.vision.compiler.values.Value;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates the bounds of 'repeat' and 'for every' loops once when the loop starts, instead of every time around the loop, if they cannot change while it runs.
+ * If only parts of a bound cannot change, those parts are hoisted instead. Ex: in "repeat ((for (list) size) - (n * n))", "(n * n)" is hoisted if the loop does not set n.
+ * <p>
+ * A Value cannot change while the loop runs if it only uses numbers, text, pure Reporters, defined reporters that only return pure values of their inputs,
+ * and Variables that the loop does not set. Variables that are set as global Variables anywhere can be changed by other Hats, so they always count as changing.
+ * Commands outside of the CoreAPI and Reporters with side effects can change the lists and objects that Variables hold, so no Variables are hoisted from loops that use them.
+ */
+public class LoopInvariantHoisting implements Pass {
+
+    /**
+     * What running the elements of the Program being optimized can change.
+     */
+    private Purity purity;
+
+    @Override
+    public String getName() {
+        return "loop invariant hoisting";
+    }
+
+    @Override
+    public int run(Program program, List<Hat> hats) {
+        purity = new Purity(program);
+
+        int[] changes = {0};
+        for (Hat hat : hats) {
+            Elements.forEachCommand(hat.getCommands(), command -> {
+                if (command instanceof CBlock) {
+                    ControlFlow controlFlow = ((CBlock) command).getTemplate().getControlFlow();
+                    if (controlFlow == ControlFlow.REPEAT) {
+                        changes[0] += hoist((CBlock) command, 0);
+                    } else if (controlFlow == ControlFlow.FOR_EVERY) {
+                        changes[0] += hoist((CBlock) command, 1);
+                    }
+                }
+            });
+        }
+        return changes[0];
+    }
+
+    /**
+     * Hoists the bound of a loop, or the parts of it that do not change while the loop runs.
+     *
+     * @param cblock the loop.
+     * @param index  the index of the bound in the inputs of the loop.
+     * @return the number of Values that were hoisted.
+     */
+    private int hoist(CBlock cblock, int index) {
+        if (index >= cblock.getValues().size()) {
+            return 0;
+        }
+        HashSet<String> written = new HashSet<>();
+        boolean[] writesAny = {false};
+        boolean[] changesObjects = {false};
+        if (Purity.scope(cblock) == VariableScope.LOOP) {
+            addWritten(cblock, written, writesAny);
+        }
+        Elements.forEachCommand(cblock.getCommands(), command -> {
+            VariableScope scope = Purity.scope(command);
+            if (scope == VariableScope.LOCAL || scope == VariableScope.ANY || scope == VariableScope.LOOP) {
+                addWritten(command, written, writesAny);
+            }
+            if (!(command instanceof End) && !Purity.isCore(command)) {
+                changesObjects[0] = true;
+            }
+            Elements.forEachValue(command.getValues(), value -> {
+                if (value instanceof Reporter && purity.hasSideEffects((Reporter) value)) {
+                    changesObjects[0] = true;
+                }
+            });
+        });
+        Predicate<String> unchanged = name -> !writesAny[0] && !changesObjects[0] && !written.contains(name) && purity.isLocal(name);
+        return hoist(cblock, cblock.getValues(), index, unchanged);
+    }
+
+    /**
+     * Hoists the Value at the given index if it does not change while the loop runs, or the parts of it that do not.
+     *
+     * @param cblock    the loop.
+     * @param values    the Values holding the Value.
+     * @param index     the index of the Value.
+     * @param unchanged whether a Variable with the given name does not change while the loop runs.
+     * @return the number of Values that were hoisted.
+     */
+    private int hoist(CBlock cblock, ArrayList<Value> values, int index, Predicate<String> unchanged) {
+        Value value = values.get(index);
+        if (isWorthHoisting(value) && purity.isInvariant(value, unchanged)) {
+            values.set(index, cblock.hoist(value));
+            return 1;
+        }
+        int changes = 0;
+        if (value instanceof Reporter) {
+            Reporter reporter = (Reporter) value;
+            for (int i = Purity.scope(reporter) != null ? 1 : 0; i < reporter.getValues().size(); i++) {
+                changes += hoist(cblock, reporter.getValues(), i, unchanged);
+            }
+        } else if (value instanceof TextValue) {
+            Value[] children = ((TextValue) value).getValues();
+            for (int i = 0; i < children.length; i++) {
+                if (isWorthHoisting(children[i]) && purity.isInvariant(children[i], unchanged)) {
+                    children[i] = cblock.hoist(children[i]);
+                    changes++;
+                } else {
+                    ArrayList<Value> child = new ArrayList<>();
+                    child.add(children[i]);
+                    changes += hoist(cblock, child, 0, unchanged);
+                    children[i] = child.get(0);
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Adds the name of the Variable the element sets to the written names.
+     * If the name is not constant, any Variable could be set.
+     */
+    private static void addWritten(CompiledElement<?> element, HashSet<String> written, boolean[] writesAny) {
+        String name = VariableResolver.constantVariableName(element);
+        if (name == null) {
+            writesAny[0] = true;
+        } else {
+            written.add(name);
+        }
+    }
+
+    /**
+     * @return whether evaluating the Value once instead of every time saves anything. Numbers, text and Variables are already quick to get.
+     */
+    private static boolean isWorthHoisting(Value value) {
+        return value instanceof Reporter || value instanceof ExpressionValue || value instanceof TextValue && ((TextValue) value).getValues().length > 0;
+    }
+}
@@ -0,0 +1,175 @@
+package com.jlogical.vision.compiler.optimizer;
+
+import com.jlogical.vision.api.elements.VariableScope;
+import com.jlogical.vision.compiler.VariableResolver;
+import com.jlogical.vision.compiler.script.Program;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.values.HoistedValue;
+import com.jlogical.vision.compiler.values.SharedValue;
+import com.jlogical.vision.compiler.values.SharingValue;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs a pipeline of {@link Pass}es over a compiled Program, one after another in the order they were added.
+ * Keeps statistics of what each Pass did in the last run, and can print them after each run.
+ */
+public class Optimizer {
+
+    /**
+     * The version of what the Passes of {@link #standard()} do. Needs to be increased whenever one of them changes how it optimizes,
+     * so Scripts that were stored after being optimized by an older version are compiled again.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The Passes to run, in order.
+     */
+    private ArrayList<Pass> passes;
+
+    /**
+     * What each Pass did in the last run.
+     */
+    private ArrayList<PassStatistics> statistics;
+
+    /**
+     * Whether to print the statistics after each run.
+     */
+    private boolean dumpStatistics;
+
+    /**
+     * Where to print the statistics.
+     */
+    private PrintStream statisticsOut;
+
+    /**
+     * Creates an Optimizer with no Passes.
+     */
+    public Optimizer() {
+        this.passes = new ArrayList<>();
+        this.statistics = new ArrayList<>();
+        this.statisticsOut = System.out;
+    }
+
+    /**
+     * @return an Optimizer with the Passes the Compiler uses by default.
+     */
+    public static Optimizer standard() {
+        return new Optimizer()
+                .addPass(new ConstantFolding())
+                .addPass(new BranchElimination())
+                .addPass(new UnreachableCodeElimination())
+                .addPass(new UnusedDefinitionElimination())
+                .addPass(new LoopInvariantHoisting())
+                .addPass(new CommonSubexpressionElimination());
+    }
+
+    /**
+     * Adds a Pass to the end of the pipeline.
+     *
+     * @param pass the Pass to add.
+     * @return this Optimizer.
+     */
+    public Optimizer addPass(Pass pass) {
+        passes.add(pass);
+        return this;
+    }
+
+    /**
+     * Runs every Pass over the Program.
+     *
+     * @param program the Program to optimize.
+     */
+    public void run(Program program) {
+        run(program, null);
+    }
+
+    /**
+     * Runs every Pass over the given Hats of the Program. Used to only optimize the Hats that were just compiled, since each Hat can only be optimized once.
+     * The other Hats are still looked at, so they need to have been optimized with the same {@link #globalNames}.
+     *
+     * @param program the Program to optimize.
+     * @param hats    the Hats to optimize. Null for every Hat of the Program.
+     */
+    public void run(Program program, List<Hat> hats) {
+        statistics = new ArrayList<>();
+        for (Pass pass : passes) {
+            int before = countElements(program);
+            long start = System.nanoTime();
+            int changes = pass.run(program, hats != null ? hats : program.getHats());
+            long nanos = System.nanoTime() - start;
+            statistics.add(new PassStatistics(pass.getName(), changes, before, countElements(program), nanos));
+        }
+        if (dumpStatistics) {
+            for (PassStatistics pass : statistics) {
+                statisticsOut.println(pass);
+            }
+        }
+    }
+
+    /**
+     * Returns the names of the Variables that are set as global Variables in the given Hats.
+     * The Passes treat every other Variable as one that only the Hat using it can change, so Hats need to be optimized again if the names change.
+     *
+     * @param hats the Hats to look through.
+     * @return the names. Has null if a global Variable is set whose name is not constant.
+     */
+    public static Set<String> globalNames(List<Hat> hats) {
+        Set<String> names = new HashSet<>();
+        for (Hat hat : hats) {
+            Elements.forEachCommand(hat.getCommands(), command -> {
+                if (Purity.scope(command) == VariableScope.GLOBAL) {
+                    names.add(VariableResolver.constantVariableName(command));
+                }
+            });
+        }
+        return names;
+    }
+
+    /**
+     * @return the number of Commands and Values in the Hats of the Program. HoistedValues, SharingValues and SharedValues are not counted, only the Values they hold.
+     */
+    public static int countElements(Program program) {
+        int[] count = {0};
+        for (Hat hat : program.getHats()) {
+            Elements.forEachCommand(hat.getCommands(), command -> {
+                count[0]++;
+                Elements.forEachValue(command.getValues(), value -> {
+                    if (!(value instanceof HoistedValue || value instanceof SharingValue || value instanceof SharedValue)) count[0]++;
+                });
+            });
+        }
+        return count[0];
+    }
+
+    public ArrayList<Pass> getPasses() {
+        return passes;
+    }
+
+    public ArrayList<PassStatistics> getStatistics() {
+        return statistics;
+    }
+
+    public boolean isDumpStatistics() {
+        return dumpStatistics;
+    }
+
+    /**
+     * Sets whether to print the statistics of each Pass after each run.
+     *
+     * @param dumpStatistics whether to print the statistics.
+     * @return this Optimizer.
+     */
+    public Optimizer setDumpStatistics(boolean dumpStatistics) {
+        this.dumpStatistics = dumpStatistics;
+        return this;
+    }
+
+    public void setStatisticsOut(PrintStream statisticsOut) {
+        this.statisticsOut = statisticsOut;
+    }
+}
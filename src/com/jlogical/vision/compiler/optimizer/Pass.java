@@ -0,0 +1,28 @@
+package com.jlogical.vision.compiler.optimizer;
+
+import com.jlogical.vision.compiler.script.Program;
+import com.jlogical.vision.compiler.script.elements.Hat;
+
+import java.util.List;
+
+/**
+ * A step of the {@link Optimizer} that changes the compiled Hats of a Program without changing what running them does.
+ * Passes run before the Variables of the Program are resolved.
+ * Each Hat is only changed once, so a Pass can be run over only the Hats that were just compiled. It still looks at the other Hats of the Program.
+ */
+public interface Pass {
+
+    /**
+     * @return the name of the Pass. Used in the statistics of the Optimizer.
+     */
+    String getName();
+
+    /**
+     * Runs the Pass over the given Hats of the Program.
+     *
+     * @param program the Program to optimize.
+     * @param hats    the Hats to change. Usually every Hat of the Program.
+     * @return the number of changes the Pass made.
+     */
+    int run(Program program, List<Hat> hats);
+}
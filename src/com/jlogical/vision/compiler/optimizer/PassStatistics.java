@@ -0,0 +1,75 @@
+package com.jlogical.vision.compiler.optimizer;
+
+/**
+ * What a single {@link Pass} did the last time the {@link Optimizer} ran it.
+ */
+public class PassStatistics {
+
+    /**
+     * The name of the Pass.
+     */
+    private String name;
+
+    /**
+     * The number of changes the Pass made.
+     */
+    private int changes;
+
+    /**
+     * The number of Commands and Values in the Program before the Pass ran.
+     */
+    private int elementsBefore;
+
+    /**
+     * The number of Commands and Values in the Program after the Pass ran.
+     */
+    private int elementsAfter;
+
+    /**
+     * The number of nanoseconds the Pass took.
+     */
+    private long nanos;
+
+    /**
+     * Creates a PassStatistics.
+     */
+    public PassStatistics(String name, int changes, int elementsBefore, int elementsAfter, long nanos) {
+        this.name = name;
+        this.changes = changes;
+        this.elementsBefore = elementsBefore;
+        this.elementsAfter = elementsAfter;
+        this.nanos = nanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getChanges() {
+        return changes;
+    }
+
+    public int getElementsBefore() {
+        return elementsBefore;
+    }
+
+    public int getElementsAfter() {
+        return elementsAfter;
+    }
+
+    /**
+     * @return the number of Commands and Values the Pass removed.
+     */
+    public int getElementsSaved() {
+        return elementsBefore - elementsAfter;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-30s %6d changes %8d -> %8d elements (%d saved) %9.3f ms", name, changes, elementsBefore, elementsAfter, getElementsSaved(), nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,224 @@
+package com.jlogical.vision.compiler.optimizer;
+
+import com.jlogical.vision.api.elements.CustomCommand;
+import com.jlogical.vision.api.elements.CustomElement;
+import com.jlogical.vision.api.elements.CustomReporter;
+import com.jlogical.vision.api.elements.Effect;
+import com.jlogical.vision.api.elements.VariableScope;
+import com.jlogical.vision.api.system.CoreAPI;
+import com.jlogical.vision.compiler.VariableResolver;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Program;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.elements.CompiledElement;
+import com.jlogical.vision.compiler.script.elements.End;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+import com.jlogical.vision.compiler.values.ExpressionValue;
+import com.jlogical.vision.compiler.values.HoistedValue;
+import com.jlogical.vision.compiler.values.NumValue;
+import com.jlogical.vision.compiler.values.TextValue;
+import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.compiler.values.VariableValue;
+import com.jlogical.vision.compiler.values.expression.ConstantExpression;
+import com.jlogical.vision.compiler.values.expression.Expression;
+import com.jlogical.vision.compiler.values.expression.OperatorExpression;
+import com.jlogical.vision.compiler.values.expression.ReferenceExpression;
+import com.jlogical.vision.compiler.values.expression.SignExpression;
+import com.jlogical.vision.compiler.values.expression.ValueExpression;
+
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Finds out what running the elements of a Program can change, for the Passes of the Optimizer that move or reuse Values.
+ * Variables that are set as global Variables anywhere in the Program can be changed by other Hats. Other Variables can only be changed by the Hat using them.
+ */
+class Purity {
+
+    /**
+     * The names of the Variables that are set as global Variables in the Program.
+     */
+    private Set<String> globals;
+
+    /**
+     * Whether a global Variable is set whose name is not constant, so any Variable could be global.
+     */
+    private boolean anyGlobal;
+
+    /**
+     * Whether each definition Hat that has been checked only returns pure values of its inputs.
+     */
+    private IdentityHashMap<Hat, Boolean> pureDefinitions;
+
+    /**
+     * Creates a Purity for the given Program, finding the global Variables it sets.
+     */
+    Purity(Program program) {
+        this.globals = Optimizer.globalNames(program.getHats());
+        this.anyGlobal = globals.contains(null);
+        this.pureDefinitions = new IdentityHashMap<>();
+    }
+
+    /**
+     * Returns whether the Value always has the same value as long as the Variables it uses do not change.
+     * Numbers, text, pure Reporters, pure definitions and Variables that do not change are invariant.
+     *
+     * @param value     the Value to check.
+     * @param unchanged whether a Variable with the given name does not change.
+     * @return whether the Value does not change.
+     */
+    boolean isInvariant(Value value, Predicate<String> unchanged) {
+        if (value instanceof NumValue) {
+            return true;
+        } else if (value instanceof TextValue) {
+            TextValue text = (TextValue) value;
+            if (text.getError() != null) {
+                return false;
+            }
+            for (Value child : text.getValues()) {
+                if (!isInvariant(child, unchanged)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (value instanceof VariableValue) {
+            return unchanged.test(((VariableValue) value).getVariableName());
+        } else if (value instanceof ExpressionValue) {
+            try {
+                return isInvariant(((ExpressionValue) value).getExpression(), unchanged);
+            } catch (VisionException e) {
+                return false;
+            }
+        } else if (value instanceof HoistedValue) {
+            return isInvariant(((HoistedValue) value).getValue(), unchanged);
+        } else if (value instanceof Reporter) {
+            Reporter reporter = (Reporter) value;
+            int first = 0;
+            if (reporter.getDefinedReporter() != null) {
+                if (!isPureDefinition(reporter.getDefinedReporter().getHat())) {
+                    return false;
+                }
+            } else {
+                CustomReporter template = reporter.getTemplate();
+                if (template == null) {
+                    return false;
+                } else if (template.getEffect() == Effect.READS_STATE && template.getVariableScope() == VariableScope.ANY) {
+                    String name = VariableResolver.constantVariableName(reporter);
+                    if (name == null || !unchanged.test(name)) {
+                        return false;
+                    }
+                    first = 1;
+                } else if (template.getEffect() != Effect.PURE || template.getVariableScope() != null) {
+                    return false;
+                }
+            }
+            for (int i = first; i < reporter.getValues().size(); i++) {
+                if (!isInvariant(reporter.getValues().get(i), unchanged)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the Expression always has the same value as long as the Variables it uses do not change.
+     */
+    private boolean isInvariant(Expression expression, Predicate<String> unchanged) {
+        if (expression instanceof ConstantExpression) {
+            return true;
+        } else if (expression instanceof ReferenceExpression) {
+            return unchanged.test(((ReferenceExpression) expression).getVariableValue().getVariableName());
+        } else if (expression instanceof ValueExpression) {
+            return isInvariant(((ValueExpression) expression).getValue(), unchanged);
+        } else if (expression instanceof OperatorExpression) {
+            return isInvariant(((OperatorExpression) expression).getLeft(), unchanged) && isInvariant(((OperatorExpression) expression).getRight(), unchanged);
+        } else if (expression instanceof SignExpression) {
+            return isInvariant(((SignExpression) expression).getOperand(), unchanged);
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the definition Hat always returns the same value for the same inputs and does nothing else.
+     * Its Commands can only be CoreAPI control flow and local Variables, and its Values need to be pure or local.
+     * Definitions that call themselves, directly or through other definitions, are not counted as pure.
+     *
+     * @param hat the Hat of the definition.
+     * @return whether the definition is pure.
+     */
+    boolean isPureDefinition(Hat hat) {
+        if (hat == null) {
+            return false;
+        }
+        Boolean pure = pureDefinitions.get(hat);
+        if (pure != null) {
+            return pure;
+        }
+        pureDefinitions.put(hat, false);
+        boolean[] result = {true};
+        Predicate<String> local = this::isLocal;
+        Elements.forEachCommand(hat.getCommands(), command -> {
+            if (command instanceof End) {
+                return;
+            }
+            VariableScope scope = scope(command);
+            boolean variable = scope == VariableScope.LOCAL || scope == VariableScope.ANY || scope == VariableScope.LOOP;
+            if (!isCore(command) || ((CustomCommand) command.getTemplate()).getControlFlow() == null && !variable) {
+                result[0] = false;
+                return;
+            }
+            int first = 0;
+            if (variable) {
+                String name = VariableResolver.constantVariableName(command);
+                if (name == null || !isLocal(name)) {
+                    result[0] = false;
+                    return;
+                }
+                first = 1;
+            }
+            for (int i = first; i < command.getValues().size(); i++) {
+                if (!isInvariant((Value) command.getValues().get(i), local)) {
+                    result[0] = false;
+                }
+            }
+        });
+        pureDefinitions.put(hat, result[0]);
+        return result[0];
+    }
+
+    /**
+     * @return whether a Variable with the given name is never a global Variable, so only the Hat using it can change it.
+     */
+    boolean isLocal(String name) {
+        return !anyGlobal && !globals.contains(name);
+    }
+
+    /**
+     * @return whether running the Reporter could change a Variable, list or object, or runs code that is not known to be pure.
+     */
+    boolean hasSideEffects(Reporter reporter) {
+        if (reporter.getDefinedReporter() != null) {
+            return !isPureDefinition(reporter.getDefinedReporter().getHat());
+        }
+        return reporter.getTemplate() == null || reporter.getTemplate().getEffect() == Effect.SIDE_EFFECTS;
+    }
+
+    /**
+     * @return whether the Command is from the CoreAPI, whose Commands only change Variables.
+     */
+    static boolean isCore(Command<?> command) {
+        return command.getDefinedCommand() == null && command.getTemplate() != null && command.getTemplate().getApi() instanceof CoreAPI;
+    }
+
+    /**
+     * @return how the element uses the Variable named by its first input. Null if it does not name a Variable.
+     */
+    static VariableScope scope(CompiledElement<?> element) {
+        CustomElement template = element.getTemplate();
+        return template == null ? null : template.getVariableScope();
+    }
+}
@@ -0,0 +1,60 @@
+package com.jlogical.vision.compiler.optimizer;
+
+import com.jlogical.vision.api.elements.ControlFlow;
+import com.jlogical.vision.api.elements.CustomCommand;
+import com.jlogical.vision.compiler.script.Program;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.elements.End;
+import com.jlogical.vision.compiler.script.elements.Hat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes the Commands after a "return" in the same Hat or CBlock, and after a "stop loop" in the same CBlock, since they can never run.
+ */
+public class UnreachableCodeElimination implements Pass {
+
+    @Override
+    public String getName() {
+        return "unreachable code elimination";
+    }
+
+    @Override
+    public int run(Program program, List<Hat> hats) {
+        int changes = 0;
+        for (Hat hat : hats) {
+            changes += eliminate(hat.getCommands(), false);
+        }
+        return changes;
+    }
+
+    /**
+     * Removes the Commands that can never run from the given Commands and the Commands inside them.
+     *
+     * @param commands the Commands.
+     * @param inCBlock whether the Commands are inside a CBlock. A "stop loop" outside of a CBlock does not stop anything.
+     * @return the number of Commands removed.
+     */
+    private int eliminate(ArrayList<Command> commands, boolean inCBlock) {
+        int changes = 0;
+        for (int i = 0; i < commands.size(); i++) {
+            Command command = commands.get(i);
+            if (command instanceof CBlock) {
+                for (CBlock link = (CBlock) command; link != null; link = link.getChain()) {
+                    changes += eliminate(link.getCommands(), true);
+                }
+            }
+            CustomCommand template = (CustomCommand) command.getTemplate();
+            ControlFlow flow = template == null ? null : template.getControlFlow();
+            if (flow == ControlFlow.RETURN || (flow == ControlFlow.STOP_LOOP && inCBlock)) {
+                while (i + 1 < commands.size() && !(commands.get(i + 1) instanceof End)) {
+                    commands.remove(i + 1);
+                    changes++;
+                }
+            }
+        }
+        return changes;
+    }
+}
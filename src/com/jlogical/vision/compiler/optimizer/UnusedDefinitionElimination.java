@@ -0,0 +1,69 @@
+package com.jlogical.vision.compiler.optimizer;
+
+import com.jlogical.vision.compiler.script.Program;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes the Hats of defined commands and reporters that are never called from a Hat that is run by an event, directly or through other definitions.
+ * Looks at every Hat of the Program, not only the ones given, since leaving a Hat out of the Program does not change the Hat.
+ */
+public class UnusedDefinitionElimination implements Pass {
+
+    @Override
+    public String getName() {
+        return "unused definition elimination";
+    }
+
+    @Override
+    public int run(Program program, List<Hat> hats) {
+        Set<Hat> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Hat> unvisited = new ArrayDeque<>();
+        for (Hat hat : program.getHats()) {
+            if (hat.getDefinition() == null) {
+                used.add(hat);
+                unvisited.add(hat);
+            }
+        }
+        while (!unvisited.isEmpty()) {
+            Elements.forEachCommand(unvisited.poll().getCommands(), command -> {
+                if (command.getDefinedCommand() != null) {
+                    visit(command.getDefinedCommand().getHat(), used, unvisited);
+                }
+                Elements.forEachValue(command.getValues(), value -> {
+                    if (value instanceof Reporter && ((Reporter) value).getDefinedReporter() != null) {
+                        visit(((Reporter) value).getDefinedReporter().getHat(), used, unvisited);
+                    }
+                });
+            });
+        }
+
+        ArrayList<Hat> kept = new ArrayList<>();
+        for (Hat hat : program.getHats()) {
+            if (used.contains(hat)) {
+                kept.add(hat);
+            }
+        }
+        int removed = program.getHats().size() - kept.size();
+        if (removed > 0) {
+            program.setHats(kept);
+        }
+        return removed;
+    }
+
+    /**
+     * Marks the Hat as used, and visits it later if it was not already used.
+     */
+    private static void visit(Hat hat, Set<Hat> used, ArrayDeque<Hat> unvisited) {
+        if (hat != null && used.add(hat)) {
+            unvisited.add(hat);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.jlogical.vision.compiler.script;
+
+/**
+ * The ways a Script can run its Hats.
+ */
+public enum Engine {
+
+    /**
+     * Walks the tree of Commands and CBlocks, running each CBlock through its runnable.
+     */
+    TREE,
+
+    /**
+     * Lowers each Hat to an array of Instructions with jumps for the core control CBlocks and runs it in a single loop.
+     * CBlocks without a known control flow are still run through their runnables.
+     */
+    FLAT,
+
+    /**
+     * Compiles each Hat to a tree of Statements the first time it runs. Inputs are compiled once, and core operators and control CBlocks run directly instead of through their runnables.
+     */
+    COMPILED
+}
@@ -0,0 +1,236 @@
+package com.jlogical.vision.compiler.script;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.script.output.MemoryOutputSink;
+import com.jlogical.vision.compiler.script.output.OutputSink;
+import com.jlogical.vision.compiler.script.output.StreamOutputSink;
+import com.jlogical.vision.compiler.script.output.TeeOutputSink;
+import com.jlogical.vision.compiler.script.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Stores the state of running a Program: its global Variables, where its output goes, and how its Hats are run.
+ * The local state of each Hat is kept in its own Frame. Creating an ExecutionContext is cheap, so a Program can be compiled once and each run given a new one.
+ */
+public class ExecutionContext {
+
+    /**
+     * The Program being run.
+     */
+    private Program program;
+
+    /**
+     * The global Variables of the run.
+     */
+    private VariableTable globals;
+
+    /**
+     * Where the output of the run goes. Occurs when the 'print []' command is called.
+     */
+    private OutputSink outputSink;
+
+    /**
+     * The Engine used to run the Hats.
+     */
+    private Engine engine = Engine.TREE;
+
+    /**
+     * Whether the Hats started by an event run at the same time, each on its own thread. Otherwise they run one after another on the thread that started them.
+     */
+    private boolean concurrent;
+
+    /**
+     * Runs the Hats when the context is concurrent. Null until the first concurrent Hat is started.
+     */
+    private ExecutorService executor;
+
+    /**
+     * The runs of Hats that were started concurrently and have not been waited for by {@link #await()}.
+     */
+    private final ArrayList<Future<Object>> pending = new ArrayList<>();
+
+    /**
+     * The Scheduler that runs the Hats that are started. Null if Hats run as soon as they are started.
+     */
+    private Scheduler scheduler;
+
+    /**
+     * Creates an ExecutionContext for the given Program that keeps its output in memory and prints it to the console.
+     */
+    public ExecutionContext(Program program) {
+        this(program, new TeeOutputSink(new MemoryOutputSink(), StreamOutputSink.console()));
+    }
+
+    /**
+     * Creates an ExecutionContext for the given Program that sends its output to the given OutputSink.
+     */
+    public ExecutionContext(Program program, OutputSink outputSink) {
+        if (program == null) {
+            throw new IllegalArgumentException("The Program of an ExecutionContext cannot be null!");
+        }
+        if (outputSink == null) {
+            throw new IllegalArgumentException("The OutputSink of an ExecutionContext cannot be null!");
+        }
+        this.program = program;
+        this.outputSink = outputSink;
+        resetGlobals();
+    }
+
+    /**
+     * Starts the Hats with the given core and provides them with the given inputs.
+     * If the context is concurrent, each Hat starts on its own thread and this returns right away. Use {@link #await()} to wait for them.
+     * If the context has a Scheduler, each Hat is added to it and runs when the Scheduler is run.
+     *
+     * @param core   the core of the Hats to run.
+     * @param inputs the inputs of the Hats.
+     * @throws VisionException if there is an error running any of the code in the Hats.
+     */
+    public void start(String core, Object... inputs) throws VisionException {
+        Hat[] listeners = program.getListeners(core);
+        if (listeners == null) return;
+        for (Hat hat : listeners) {
+            if (scheduler != null) {
+                scheduler.spawn(this, hat, inputs);
+            } else if (concurrent) {
+                Future<Object> run = executor().submit(() -> hat.run(this, inputs));
+                synchronized (pending) {
+                    pending.add(run);
+                }
+            } else {
+                hat.run(this, inputs);
+            }
+        }
+        if (scheduler == null && !concurrent) outputSink.flush();
+    }
+
+    /**
+     * Starts the Hats with the given core.
+     *
+     * @param core the core of the Hats to run.
+     * @throws VisionException if there is an error running any of the code in the Hats.
+     */
+    public void start(String core) throws VisionException {
+        start(core, (Object[]) null);
+    }
+
+    /**
+     * Starts the Program with the 'when started' Hats.
+     *
+     * @throws VisionException if there is an error running any of the code in the Hats.
+     */
+    public void start() throws VisionException {
+        start("when started");
+    }
+
+    /**
+     * Waits for every Hat started concurrently to finish, including Hats they started themselves.
+     * Does nothing if the context is not concurrent.
+     *
+     * @throws VisionException the first exception thrown by any of the Hats, after all of them have finished.
+     */
+    public void await() throws VisionException {
+        Throwable error = null;
+        while (true) {
+            Future<Object> run;
+            synchronized (pending) {
+                if (pending.isEmpty()) break;
+                run = pending.remove(0);
+            }
+            try {
+                run.get();
+            } catch (ExecutionException e) {
+                if (error == null) error = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new VisionException("Interrupted while waiting for the Hats to finish!", null);
+            }
+        }
+        outputSink.flush();
+        if (error instanceof VisionException) throw (VisionException) error;
+        if (error instanceof RuntimeException) throw (RuntimeException) error;
+        if (error instanceof Error) throw (Error) error;
+    }
+
+    /**
+     * @return the ExecutorService that runs concurrent Hats. Creates it the first time it is needed.
+     */
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "vision-hat");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Clears the global Variables and creates a slot for each global name known when compiling.
+     */
+    public void resetGlobals() {
+        globals = new SharedVariableTable(program.getGlobalSlotCount());
+    }
+
+    /**
+     * @return the output the OutputSink keeps, one line after another. Empty if it does not keep its output.
+     */
+    public String getOutputLog() {
+        return outputSink.getText();
+    }
+
+    public OutputSink getOutputSink() {
+        return outputSink;
+    }
+
+    /**
+     * Sets where the output of the run goes. Flushes the previous OutputSink first.
+     *
+     * @param outputSink the OutputSink.
+     */
+    public void setOutputSink(OutputSink outputSink) {
+        if (outputSink == null) {
+            throw new IllegalArgumentException("The OutputSink of an ExecutionContext cannot be null!");
+        }
+        this.outputSink.flush();
+        this.outputSink = outputSink;
+    }
+
+    public Program getProgram() {
+        return program;
+    }
+
+    public VariableTable getGlobals() {
+        return globals;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    public void setConcurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    public void setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+}
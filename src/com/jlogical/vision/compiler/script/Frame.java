@@ -0,0 +1,267 @@
+package com.jlogical.vision.compiler.script;
+
+import com.jlogical.vision.api.runnables.Parameters;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.script.elements.CompiledElement;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.values.HoistedValue;
+import com.jlogical.vision.compiler.values.SharedValue;
+
+import java.util.Arrays;
+
+/**
+ * Stores the state of one run of a Hat. Inputs of the Hat, Variables set in the Hat, and loop Variables each have their own slot.
+ * Every call of a defined command or reporter gets its own Frame, so recursive calls do not share Variables.
+ * Frames are reused by their Hat once the run is over.
+ */
+public class Frame extends VariableTable {
+
+    /**
+     * The Hat the Frame belongs to.
+     */
+    private Hat hat;
+
+    /**
+     * The ExecutionContext of the run. Set each time the Frame is used for a run.
+     */
+    private ExecutionContext context;
+
+    /**
+     * Whether the Hat is running. If set to false, stops the Hat from running.
+     */
+    private boolean running;
+
+    /**
+     * Whether each CBlock in the Hat is running, indexed by {@link CBlock#getIndex()}.
+     */
+    private boolean[] cblocksRunning;
+
+    /**
+     * The loop counter of each CBlock in the Hat, indexed by {@link CBlock#getIndex()}. Used by {@link Engine#FLAT}.
+     */
+    private int[] counters;
+
+    /**
+     * The value of each HoistedValue in the Hat, indexed by {@link HoistedValue#getIndex()}. Null if it has not been loaded.
+     */
+    private Object[] hoisted;
+
+    /**
+     * The value of each SharedValue in the Hat, indexed by {@link SharedValue#getIndex()}. Only kept for the evaluation it was set in.
+     */
+    private Object[] shared;
+
+    /**
+     * The evaluation each value in {@link #shared} was set in.
+     */
+    private long[] sharedEvaluations;
+
+    /**
+     * The evaluation of an input holding SharedValues that is running. Goes up each time one starts, so values from other evaluations are never used.
+     */
+    private long sharing;
+
+    /**
+     * The output of the run. Used when defining reporters.
+     */
+    private Object output;
+
+    /**
+     * The Parameters of each element of the Hat that has run in this Frame, indexed by {@link CompiledElement#getParametersIndex()}.
+     * Kept when the Frame is cleared, since they only belong to this Frame.
+     */
+    private Parameters[] parameters;
+
+    /**
+     * Creates a Frame for the given Hat with a slot for each of its local Variables.
+     */
+    public Frame(Hat hat) {
+        super(hat.getSlotCount());
+        this.hat = hat;
+        this.cblocksRunning = new boolean[hat.getCBlockCount()];
+        this.counters = new int[hat.getCBlockCount()];
+        this.hoisted = new Object[hat.getHoistedCount()];
+        this.shared = new Object[hat.getSharedCount()];
+        this.sharedEvaluations = new long[hat.getSharedCount()];
+        this.sharing = 1;
+        this.parameters = new Parameters[hat.getParametersCount()];
+    }
+
+    /**
+     * Creates a local Variable in this Frame. Uses the slot of its name if it has one.
+     *
+     * @param name  the name of the Variable.
+     * @param value the value of the Variable.
+     * @return the Variable that was created.
+     */
+    public Variable declare(String name, Object value) {
+        Variable variable = new Variable(name, value);
+        int slot = hat.getSlot(name);
+        if (slot == -1) {
+            putNamed(variable);
+        } else {
+            set(slot, variable);
+        }
+        return variable;
+    }
+
+    /**
+     * Clears the Frame so it can be used for another run of the Hat.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        Arrays.fill(cblocksRunning, false);
+        Arrays.fill(hoisted, null);
+        Arrays.fill(shared, null);
+        sharing++;
+        running = false;
+        output = null;
+        context = null;
+    }
+
+    /**
+     * Stops the Hat from continuing to run.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * @param cblock the CBlock to check.
+     * @return whether the CBlock is running in this Frame.
+     */
+    public boolean isRunning(CBlock cblock) {
+        return cblocksRunning[cblock.getIndex()];
+    }
+
+    /**
+     * Sets whether the CBlock is running in this Frame.
+     *
+     * @param cblock  the CBlock.
+     * @param running whether it is running.
+     */
+    public void setRunning(CBlock cblock, boolean running) {
+        cblocksRunning[cblock.getIndex()] = running;
+    }
+
+    /**
+     * @param cblock the CBlock.
+     * @return the loop counter of the CBlock.
+     */
+    public int getCounter(CBlock cblock) {
+        return counters[cblock.getIndex()];
+    }
+
+    /**
+     * Sets the loop counter of the CBlock.
+     *
+     * @param cblock  the CBlock.
+     * @param counter the value of the counter.
+     */
+    public void setCounter(CBlock cblock, int counter) {
+        counters[cblock.getIndex()] = counter;
+    }
+
+    /**
+     * @param index the index of the HoistedValue.
+     * @return the value the HoistedValue was loaded with. Null if it has not been loaded.
+     */
+    public Object getHoisted(int index) {
+        return hoisted[index];
+    }
+
+    /**
+     * Keeps the value of a HoistedValue until it is loaded again.
+     *
+     * @param index the index of the HoistedValue.
+     * @param value the value. Null if it should be evaluated every time it is used.
+     */
+    public void setHoisted(int index, Object value) {
+        hoisted[index] = value;
+    }
+
+    /**
+     * Starts a new evaluation of an input holding SharedValues, so each of them is evaluated again the first time it is used.
+     */
+    public void startSharing() {
+        sharing++;
+    }
+
+    /**
+     * @param index the index of the SharedValue.
+     * @return whether the SharedValue has been evaluated in the evaluation that is running.
+     */
+    public boolean hasShared(int index) {
+        return sharedEvaluations[index] == sharing;
+    }
+
+    /**
+     * @param index the index of the SharedValue.
+     * @return the value of the SharedValue. Only valid if {@link #hasShared(int)}.
+     */
+    public Object getShared(int index) {
+        return shared[index];
+    }
+
+    /**
+     * Keeps the value of a SharedValue until the evaluation that is running is over.
+     *
+     * @param index the index of the SharedValue.
+     * @param value the value.
+     */
+    public void setShared(int index, Object value) {
+        shared[index] = value;
+        sharedEvaluations[index] = sharing;
+    }
+
+    /**
+     * @param index the index of the Parameters of the element.
+     * @return the Parameters of the element in this Frame. Null if the element has not run in this Frame or does not reuse its Parameters.
+     */
+    public Parameters getParameters(int index) {
+        return index >= 0 && index < parameters.length ? parameters[index] : null;
+    }
+
+    /**
+     * Keeps the Parameters of an element so they can be reused the next time it runs in this Frame.
+     *
+     * @param index      the index of the Parameters of the element. Does nothing if -1.
+     * @param parameters the Parameters.
+     */
+    public void setParameters(int index, Parameters parameters) {
+        if (index < 0) return;
+        if (index >= this.parameters.length) {
+            this.parameters = Arrays.copyOf(this.parameters, Math.max(index + 1, this.parameters.length * 2));
+        }
+        this.parameters[index] = parameters;
+    }
+
+    public Hat getHat() {
+        return hat;
+    }
+
+    public ExecutionContext getContext() {
+        return context;
+    }
+
+    public void setContext(ExecutionContext context) {
+        this.context = context;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    public Object getOutput() {
+        return output;
+    }
+
+    public void setOutput(Object output) {
+        this.output = output;
+    }
+}
@@ -0,0 +1,145 @@
+package com.jlogical.vision.compiler.script;
+
+import com.jlogical.vision.compiler.script.elements.Hat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Stores the compiled code of a Project. Holds no state of any run, so once it is compiled it can be run any number of times, on any number of threads,
+ * each run with its own {@link ExecutionContext}.
+ * Hats, global slots and the compile log are only changed by the Compiler while compiling.
+ */
+public class Program {
+
+    /**
+     * The compilation log associated with compiling this Program.
+     */
+    private String compileLog;
+
+    /**
+     * List of Hats in the Program.
+     */
+    private ArrayList<Hat> hats;
+
+    /**
+     * The Hats of the Program grouped by their core. Used to find the Hats to run when an event is started without looking at every Hat.
+     */
+    private HashMap<String, Hat[]> events;
+
+    /**
+     * The slots of the names of global Variables that were known when compiling.
+     */
+    private HashMap<String, Integer> globalSlots;
+
+    /**
+     * Whether this Program was successfully compiled.
+     */
+    private boolean succeeded;
+
+    /**
+     * Creates a new Program.
+     */
+    public Program(String compileLog, ArrayList<Hat> hats, boolean succeeded) {
+        this.compileLog = compileLog != null ? compileLog : "";
+        this.hats = hats != null ? hats : new ArrayList<>();
+        this.globalSlots = new HashMap<>();
+        this.succeeded = succeeded;
+        indexHats();
+    }
+
+    /**
+     * Groups the Hats of the Program by their core so events can find them. Called whenever the Hats are set.
+     * Needs to be called again if the List of Hats is changed directly.
+     */
+    public void indexHats() {
+        HashMap<String, ArrayList<Hat>> grouped = new HashMap<>();
+        for (Hat hat : hats) {
+            grouped.computeIfAbsent(hat.getCore(), core -> new ArrayList<>()).add(hat);
+        }
+        HashMap<String, Hat[]> events = new HashMap<>();
+        for (String core : grouped.keySet()) {
+            events.put(core, grouped.get(core).toArray(new Hat[0]));
+        }
+        this.events = events;
+    }
+
+    /**
+     * @param core the core of the Hats.
+     * @return the Hats with the given core. Null if there are none.
+     */
+    public Hat[] getListeners(String core) {
+        return events.get(core);
+    }
+
+    /**
+     * @param core the core of the Hats.
+     * @return whether the Program has any Hats with the given core.
+     */
+    public boolean hasHats(String core) {
+        return events.containsKey(core);
+    }
+
+    /**
+     * Returns the slot of the global Variable with the given name. Gives the name a new slot if it does not have one.
+     * Only used when compiling.
+     *
+     * @param name the name of the global Variable.
+     * @return the slot.
+     */
+    public int addGlobalSlot(String name) {
+        Integer slot = globalSlots.get(name);
+        if (slot == null) {
+            slot = globalSlots.size();
+            globalSlots.put(name, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Gives this Program every global slot of the given Program, so Hats resolved against that Program can run in this one.
+     * Only used when compiling, before any slots are added.
+     *
+     * @param previous the Program to take the global slots from.
+     */
+    public void inheritGlobalSlots(Program previous) {
+        globalSlots.putAll(previous.globalSlots);
+    }
+
+    /**
+     * @param name the name of the global Variable.
+     * @return the slot of the global Variable with the given name. -1 if it does not have one.
+     */
+    public int getGlobalSlot(String name) {
+        Integer slot = globalSlots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * @return the number of global slots. Each ExecutionContext has a table of globals this big.
+     */
+    public int getGlobalSlotCount() {
+        return globalSlots.size();
+    }
+
+    public String getCompileLog() {
+        return compileLog;
+    }
+
+    public void setCompileLog(String compileLog) {
+        this.compileLog = compileLog;
+    }
+
+    public boolean succeeded() {
+        return succeeded;
+    }
+
+    public ArrayList<Hat> getHats() {
+        return hats;
+    }
+
+    public void setHats(ArrayList<Hat> hats) {
+        this.hats = hats;
+        indexHats();
+    }
+}
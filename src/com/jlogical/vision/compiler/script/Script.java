@@ -1,48 +1,56 @@
 package com.jlogical.vision.compiler.script;
 
+import com.jlogical.vision.compiler.exceptions.FileFormatException;
 import com.jlogical.vision.compiler.exceptions.VisionException;
 import com.jlogical.vision.compiler.script.elements.Hat;
-
+import com.jlogical.vision.compiler.script.output.OutputSink;
+import com.jlogical.vision.compiler.script.scheduler.Scheduler;
+import com.jlogical.vision.compiler.script.vis.VisReader;
+import com.jlogical.vision.compiler.script.vis.VisWriter;
+import com.jlogical.vision.project.Project;
+
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 
 /**
  * Stores the compiled information for a Project. Cannot be back-compiled. Stored as a .vis file.
+ * Pairs the compiled Program with an ExecutionContext to run it in. To run the same Program many times, or on many threads at once,
+ * give each run its own context from {@link #newContext()}.
  */
 public class Script {
-    /**
-     * The compilation log associated with compiling this Script.
-     */
-    private String compileLog;
 
     /**
-     * The output log from the project. Occurs when the 'print []' command is called.
+     * The compiled code of the Script.
      */
-    private String outputLog;
+    private Program program;
 
     /**
-     * List of Hats in the Script.
+     * The ExecutionContext the Script runs in.
      */
-    private ArrayList<Hat> hats;
+    private ExecutionContext context;
 
     /**
-     * List of global Variables in the Script.
+     * Creates a new Script.
      */
-    private ArrayList<Variable> variables;
+    public Script(String compileLog, ArrayList<Hat> hats) {
+        this(new Program(compileLog, hats, true));
+    }
 
     /**
-     * Whether this Script was successfully compiled.
+     * Creates a Script that runs the given Program.
      */
-    private boolean succeeded;
+    public Script(Program program) {
+        this.program = program;
+        this.context = new ExecutionContext(program);
+    }
 
     /**
-     * Creates a new Script.
+     * Creates a Script that runs in the given ExecutionContext, sharing its Program, global Variables and output.
      */
-    public Script(String compileLog, ArrayList<Hat> hats) {
-        this.compileLog = compileLog != null ? compileLog : "";
-        this.hats = hats != null ? hats : new ArrayList<>();
-        this.variables = new ArrayList<>();
-        outputLog = "";
-        succeeded = true;
+    public Script(ExecutionContext context) {
+        this.program = context.getProgram();
+        this.context = context;
     }
 
     /**
@@ -58,22 +66,72 @@ public class Script {
      * @return the Script.
      */
     public static Script failedScript(String compileLog) {
-        Script script = new Script(compileLog, null);
-        script.succeeded = false;
-        return script;
+        return new Script(new Program(compileLog, null, false));
+    }
+
+    /**
+     * Loads a Script from a .vis file without compiling it.
+     * @param path the path of the .vis file.
+     * @param project the Project to load the Script into. Needs to have the APIs the Script was compiled with.
+     * @return the Script.
+     * @throws IOException if there is an error reading the file.
+     * @throws FileFormatException if the file is not a valid .vis file for the Project.
+     */
+    public static Script load(Path path, Project project) throws IOException, FileFormatException {
+        return VisReader.read(path, project);
+    }
+
+    /**
+     * Saves the compiled Script in a .vis file so it can be loaded without compiling it again.
+     * @param path the path of the .vis file.
+     * @throws IOException if there is an error writing the file.
+     */
+    public void save(Path path) throws IOException {
+        VisWriter.write(this, path);
+    }
+
+    /**
+     * @return a new ExecutionContext for the Program of the Script, with its own global Variables and output.
+     */
+    public ExecutionContext newContext(){
+        return new ExecutionContext(program);
     }
 
     /**
      * Starts a Hat with the given core and provides it with the given inputs.
+     * If the Script is concurrent, each Hat starts on its own thread and this returns right away. Use {@link #await()} to wait for them.
+     * If the Script has a Scheduler, each Hat is added to it and runs when the Scheduler is run.
      * @param core the core of the Hat to run.
      * @param inputs the inputs of the Hat.
      */
     public void start(String core, Object... inputs) throws VisionException{
-        for(Hat hat: hats){
-            if(hat.getCore().equals(core)){
-                hat.run(inputs);
-            }
-        }
+        context.start(core, inputs);
+    }
+
+    /**
+     * Waits for every Hat started concurrently to finish, including Hats they started themselves.
+     * Does nothing if the Script is not concurrent.
+     *
+     * @throws VisionException the first exception thrown by any of the Hats, after all of them have finished.
+     */
+    public void await() throws VisionException{
+        context.await();
+    }
+
+    /**
+     * Groups the Hats of the Script by their core so events can find them. Called whenever the Hats are set.
+     * Needs to be called again if the List of Hats is changed directly.
+     */
+    public void indexHats(){
+        program.indexHats();
+    }
+
+    /**
+     * @param core the core of the Hats.
+     * @return whether the Script has any Hats with the given core.
+     */
+    public boolean hasHats(String core){
+        return program.hasHats(core);
     }
 
     /**
@@ -83,7 +141,7 @@ public class Script {
      * @throws VisionException if there is an error running any of the code in the Hat.
      */
     public void start(String core) throws VisionException {
-        start(core, (Object[]) null);
+        context.start(core);
     }
 
     /**
@@ -92,46 +150,106 @@ public class Script {
      * @throws VisionException if there is an error running any of the code in the Hat.
      */
     public void start() throws VisionException{
-        start("when started");
-    }
-
-    /**
-     * Appends the given log into the output log. Adds a new line at the end.
-     * @param log the log to append.
-     */
-    public void appendOutputLog(String log){
-        if(outputLog.equals("")){
-            outputLog += log;
-        }else{
-            outputLog += "\n" + log;
-        }
+        context.start();
     }
 
     public String getCompileLog() {
-        return compileLog;
+        return program.getCompileLog();
     }
 
     public boolean succeeded() {
-        return succeeded;
+        return program.succeeded();
     }
 
     public ArrayList<Hat> getHats() {
-        return hats;
+        return program.getHats();
     }
 
     public void setHats(ArrayList<Hat> hats) {
-        this.hats = hats;
+        program.setHats(hats);
     }
 
+    /**
+     * @return the output the OutputSink of the Script keeps, one line after another. Empty if it does not keep its output.
+     */
     public String getOutputLog() {
-        return outputLog;
+        return context.getOutputLog();
+    }
+
+    public OutputSink getOutputSink() {
+        return context.getOutputSink();
+    }
+
+    /**
+     * Sets where the output of the Script goes. Flushes the previous OutputSink first.
+     * @param outputSink the OutputSink.
+     */
+    public void setOutputSink(OutputSink outputSink) {
+        context.setOutputSink(outputSink);
     }
 
     public void setCompileLog(String compileLog) {
-        this.compileLog = compileLog;
+        program.setCompileLog(compileLog);
+    }
+
+    /**
+     * Returns the slot of the global Variable with the given name. Gives the name a new slot if it does not have one.
+     * Only used when compiling, since the table of globals is recreated by {@link #resetGlobals()}.
+     * @param name the name of the global Variable.
+     * @return the slot.
+     */
+    public int addGlobalSlot(String name){
+        return program.addGlobalSlot(name);
+    }
+
+    /**
+     * @param name the name of the global Variable.
+     * @return the slot of the global Variable with the given name. -1 if it does not have one.
+     */
+    public int getGlobalSlot(String name){
+        return program.getGlobalSlot(name);
+    }
+
+    /**
+     * Clears the global Variables and creates a slot for each global name known when compiling.
+     */
+    public void resetGlobals(){
+        context.resetGlobals();
+    }
+
+    public Engine getEngine() {
+        return context.getEngine();
+    }
+
+    public void setEngine(Engine engine) {
+        context.setEngine(engine);
+    }
+
+    public boolean isConcurrent() {
+        return context.isConcurrent();
+    }
+
+    public void setConcurrent(boolean concurrent) {
+        context.setConcurrent(concurrent);
+    }
+
+    public Scheduler getScheduler() {
+        return context.getScheduler();
+    }
+
+    public void setScheduler(Scheduler scheduler) {
+        context.setScheduler(scheduler);
+    }
+
+    public VariableTable getGlobals() {
+        return context.getGlobals();
+    }
+
+    public Program getProgram() {
+        return program;
     }
 
-    public ArrayList<Variable> getVariables() {
-        return variables;
+    public ExecutionContext getContext() {
+        return context;
     }
 }
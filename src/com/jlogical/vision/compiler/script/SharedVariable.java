@@ -0,0 +1,53 @@
+package com.jlogical.vision.compiler.script;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.compiled.UnexpectedValueException;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * A Variable that can be used by Hats running on different threads at the same time. Used for global Variables.
+ */
+public class SharedVariable extends Variable {
+
+    /**
+     * Creates a SharedVariable with the given name and value.
+     */
+    public SharedVariable(String name, Object value) {
+        super(name, value);
+    }
+
+    @Override
+    public synchronized Object getValue() {
+        return super.getValue();
+    }
+
+    @Override
+    public synchronized void setValue(Object value) {
+        super.setValue(value);
+    }
+
+    @Override
+    public synchronized double getNum() {
+        return super.getNum();
+    }
+
+    @Override
+    public synchronized double getNumExact() throws UnexpectedValueException {
+        return super.getNumExact();
+    }
+
+    @Override
+    public synchronized void setNum(double num) {
+        super.setNum(num);
+    }
+
+    @Override
+    public synchronized boolean isNumeric() {
+        return super.isNumeric();
+    }
+
+    @Override
+    public synchronized void add(double amount, CodeRange range) throws VisionException {
+        super.add(amount, range);
+    }
+}
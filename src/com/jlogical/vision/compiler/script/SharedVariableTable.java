@@ -0,0 +1,44 @@
+package com.jlogical.vision.compiler.script;
+
+/**
+ * A VariableTable that can be used by Hats running on different threads at the same time. Used for global Variables.
+ */
+public class SharedVariableTable extends VariableTable {
+
+    /**
+     * Creates a SharedVariableTable with the given number of slots.
+     */
+    public SharedVariableTable(int size) {
+        super(size);
+    }
+
+    @Override
+    public synchronized Variable get(int slot) {
+        return super.get(slot);
+    }
+
+    @Override
+    public synchronized void set(int slot, Variable variable) {
+        super.set(slot, variable);
+    }
+
+    @Override
+    public synchronized Variable getNamed(String name) {
+        return super.getNamed(name);
+    }
+
+    @Override
+    public synchronized void putNamed(Variable variable) {
+        super.putNamed(variable);
+    }
+
+    @Override
+    public synchronized boolean hasNamed() {
+        return super.hasNamed();
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+    }
+}
@@ -1,7 +1,11 @@
 package com.jlogical.vision.compiler.script;
 
+import com.jlogical.vision.api.runnables.Parameters;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.compiled.UnexpectedValueException;
 import com.jlogical.vision.compiler.script.elements.CBlock;
 import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.project.CodeRange;
 
 /**
  * Container for a name and value.
@@ -13,16 +17,26 @@ public class Variable {
     private String name;
 
     /**
-     * The value of the variable.
+     * The value of the variable. Null if the value is a number, since numbers are kept in num.
      */
     private Object value;
 
+    /**
+     * The value of the variable if it is a number.
+     */
+    private double num;
+
+    /**
+     * Whether the value of the variable is a number.
+     */
+    private boolean numeric;
+
     /**
      * Creates a Variable with the given name and value.
      */
     public Variable(String name, Object value){
         this.name = name != null ? name : "";
-        this.value = value;
+        setValue(value);
     }
 
     /**
@@ -33,49 +47,67 @@ public class Variable {
     }
 
     /**
-     * Finds a Variable with the given name by searching through the Hat's local variables first then looking at the Scripts global variables.
+     * Finds a Variable with the given name by looking at the loop Variables of the CBlocks first, then the Hat's local Variables, then the Script's global variables.
+     * Used when the Variable could not be resolved to a slot when compiling.
      * @param name the name of the Variable.
      * @param cblock the CBlock to look at first. Looks at all CBlocks holding this one as well. Null if none.
-     * @param hat the Hat to look at next. Uses the Hat to find the Script for global variables as well.
+     * @param frame the Frame of the Hat to look at next. Uses the Hat to find the Script for global variables as well.
      * @return the Variable if it is found. Null if not found.
      */
-    public static Variable findVariable(String name, CBlock cblock, Hat hat){
-        if(cblock != null){
-            CBlock look = cblock;
-            do{
-                for(Variable variable: look.getVariables()){
-                    if(name.equals(variable.getName())){
-                        return variable;
-                    }
+    public static Variable findVariable(String name, CBlock cblock, Frame frame){
+        Hat hat = frame.getHat();
+        for(CBlock look = cblock; look != null; look = look.getCBlockHolder()){
+            if(look.getLoopSlot() != -1){
+                Variable variable = frame.get(look.getLoopSlot());
+                if(variable != null && name.equals(variable.getName())){
+                    return variable;
                 }
-            }while((look = look.getCBlockHolder()) != null);
-        }
-        for(Variable variable: hat.getVariables()){
-            if(name.equals(variable.getName())){
-                return variable;
             }
         }
-        for(Variable variable: hat.getScript().getVariables()){
-            if(name.equals(variable.getName())){
-                return variable;
-            }
+        int slot = hat.getSlot(name);
+        Variable variable = slot == -1 ? frame.getNamed(name) : frame.get(slot);
+        if(variable != null){
+            return variable;
         }
-        return null;
+        return findGlobalVariable(name, frame.getContext());
     }
 
     /**
      * Finds a global Variable with the given name and returns it.
      * @param name the name of the Variable.
-     * @param script the Script to look at.
+     * @param context the ExecutionContext to look at.
      * @return the Variable if it is found. Null if not found.
      */
-    public static Variable findGlobalVariable(String name, Script script) {
-        for(Variable variable: script.getVariables()){
-            if(name.equals(variable.getName())){
+    public static Variable findGlobalVariable(String name, ExecutionContext context) {
+        int slot = context.getProgram().getGlobalSlot(name);
+        return slot == -1 ? context.getGlobals().getNamed(name) : context.getGlobals().get(slot);
+    }
+
+    /**
+     * Creates a global Variable in the ExecutionContext. Uses the slot of its name if it has one.
+     * @param name the name of the Variable.
+     * @param value the value of the Variable.
+     * @param context the ExecutionContext to add the Variable to.
+     * @return the Variable that was created.
+     */
+    public static Variable declareGlobalVariable(String name, Object value, ExecutionContext context) {
+        VariableTable globals = context.getGlobals();
+        synchronized (globals) {
+            // Another Hat may have created the Variable since the caller looked for it.
+            Variable variable = findGlobalVariable(name, context);
+            if(variable != null){
+                variable.setValue(value);
                 return variable;
             }
+            variable = new SharedVariable(name, value);
+            int slot = context.getProgram().getGlobalSlot(name);
+            if(slot == -1){
+                globals.putNamed(variable);
+            }else{
+                globals.set(slot, variable);
+            }
+            return variable;
         }
-        return null;
     }
 
     public String getName() {
@@ -86,11 +118,76 @@ public class Variable {
         this.name = name;
     }
 
+    /**
+     * @return the value of the variable. Numbers are boxed as an Integer if they are whole, otherwise as a Double.
+     */
     public Object getValue() {
+        if (numeric) {
+            if (num == (int) num)
+                return (int) num;
+            return num;
+        }
         return value;
     }
 
+    /**
+     * Sets the value of the variable. Integers and Doubles are kept unboxed.
+     *
+     * @param value the value.
+     */
     public void setValue(Object value) {
-        this.value = value;
+        if (value instanceof Integer || value instanceof Double) {
+            setNum(((Number) value).doubleValue());
+        } else {
+            this.value = value;
+            this.numeric = false;
+        }
+    }
+
+    /**
+     * @return the value of the variable if it is a number. Only valid if {@link #isNumeric()} is true.
+     */
+    public double getNum() {
+        return num;
+    }
+
+    /**
+     * Returns the value of the variable if it is a number without boxing it.
+     * Checks whether the value is a number and reads it in one call, so another Hat setting a SharedVariable cannot change it in between.
+     *
+     * @return the number.
+     * @throws UnexpectedValueException holding the value if it is not a number.
+     */
+    public double getNumExact() throws UnexpectedValueException {
+        if (numeric) {
+            return num;
+        }
+        throw new UnexpectedValueException(value);
+    }
+
+    /**
+     * Sets the value of the variable to a number without boxing it.
+     *
+     * @param num the number. -0.0 is kept as 0.0, like Parameters.normalize does.
+     */
+    public void setNum(double num) {
+        this.num = num + 0.0;
+        this.numeric = true;
+        this.value = null;
+    }
+
+    /**
+     * Adds the given amount to the value of the variable.
+     *
+     * @param amount the amount to add.
+     * @param range the range to throw the exception at.
+     * @throws VisionException if the value of the variable is not a number.
+     */
+    public void add(double amount, CodeRange range) throws VisionException {
+        setNum((numeric ? num : Parameters.toNum(value, range)) + amount);
+    }
+
+    public boolean isNumeric() {
+        return numeric;
     }
 }
@@ -0,0 +1,88 @@
+package com.jlogical.vision.compiler.script;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Stores Variables in slots that were assigned to their names when compiling.
+ * Variables whose names were not known when compiling are stored by name.
+ */
+public class VariableTable {
+
+    /**
+     * The Variables in each slot. A slot is null until its Variable is created.
+     */
+    private Variable[] slots;
+
+    /**
+     * Variables whose names did not have a slot, mapped by their names. Null until one is added.
+     */
+    private HashMap<String, Variable> named;
+
+    /**
+     * Creates a VariableTable with the given number of slots.
+     */
+    public VariableTable(int size) {
+        this.slots = new Variable[size];
+    }
+
+    /**
+     * @param slot the slot to look at.
+     * @return the Variable in the slot. Null if it has not been created.
+     */
+    public Variable get(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * Puts a Variable in the given slot.
+     *
+     * @param slot     the slot to put the Variable in.
+     * @param variable the Variable. Null to remove the Variable in the slot.
+     */
+    public void set(int slot, Variable variable) {
+        slots[slot] = variable;
+    }
+
+    /**
+     * @param name the name of the Variable.
+     * @return the Variable with the given name that does not have a slot. Null if not found.
+     */
+    public Variable getNamed(String name) {
+        return named == null ? null : named.get(name);
+    }
+
+    /**
+     * Adds a Variable that does not have a slot.
+     *
+     * @param variable the Variable to add.
+     */
+    public void putNamed(Variable variable) {
+        if (named == null) {
+            named = new HashMap<>();
+        }
+        named.put(variable.getName(), variable);
+    }
+
+    /**
+     * @return whether any Variables without a slot have been added.
+     */
+    public boolean hasNamed() {
+        return named != null;
+    }
+
+    /**
+     * Removes every Variable from the table.
+     */
+    public void clear() {
+        Arrays.fill(slots, null);
+        named = null;
+    }
+
+    /**
+     * @return the number of slots.
+     */
+    public int size() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,183 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.api.elements.Operator;
+import com.jlogical.vision.api.runnables.Parameters;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * A compiled math Reporter, such as "[] + []", that does its arithmetic directly on primitives.
+ * Specializes to int arithmetic while its operands and results are ints, and falls back to double arithmetic for good once they are not.
+ */
+public class Arithmetic extends CompiledValue {
+
+    /**
+     * The operation. Either ADD, SUBTRACT, MULTIPLY, DIVIDE, POWER, MODULO, or NEGATE.
+     */
+    private Operator operator;
+
+    /**
+     * The first operand.
+     */
+    private CompiledValue left;
+
+    /**
+     * The second operand. Null for NEGATE.
+     */
+    private CompiledValue right;
+
+    /**
+     * The types the Arithmetic is specialized for. Either UNINITIALIZED, INT, or GENERIC.
+     */
+    private Specialization specialization;
+
+    /**
+     * Creates an Arithmetic with the given operator, operands, and range of the Reporter.
+     */
+    public Arithmetic(Operator operator, CompiledValue left, CompiledValue right, CodeRange range) {
+        super(range);
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+        this.specialization = operator == Operator.POWER ? Specialization.GENERIC : Specialization.UNINITIALIZED;
+    }
+
+    @Override
+    public Object getValue(Frame frame) throws VisionException {
+        if (specialization != Specialization.GENERIC) {
+            try {
+                return getIntExact(frame);
+            } catch (UnexpectedValueException e) {
+                return e.getValue();
+            }
+        }
+        return calculate(frame);
+    }
+
+    @Override
+    public double getDouble(Frame frame, CodeRange range) throws VisionException {
+        if (specialization != Specialization.GENERIC) {
+            try {
+                return getIntExact(frame);
+            } catch (UnexpectedValueException e) {
+                return (double) e.getValue() + 0.0;
+            }
+        }
+        return calculate(frame) + 0.0; // Adding 0.0 turns -0.0 into 0.0, like Parameters.normalize does.
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return true;
+    }
+
+    @Override
+    public int getIntExact(Frame frame) throws VisionException, UnexpectedValueException {
+        if (specialization == Specialization.GENERIC) {
+            double result = calculate(frame);
+            if (result == (int) result) {
+                return (int) result;
+            }
+            throw new UnexpectedValueException(result);
+        }
+
+        int l;
+        try {
+            l = left.getIntExact(frame);
+        } catch (UnexpectedValueException e) {
+            double value = Parameters.toNum(e.getValue(), getRange());
+            double r = operator == Operator.NEGATE ? 0 : right.getDouble(frame, getRange());
+            throw new UnexpectedValueException(deoptimize(value, r));
+        }
+        if (operator == Operator.NEGATE) {
+            if (l == Integer.MIN_VALUE) {
+                throw new UnexpectedValueException(deoptimize(l, 0));
+            }
+            specialization = Specialization.INT;
+            return -l;
+        }
+        int r;
+        try {
+            r = right.getIntExact(frame);
+        } catch (UnexpectedValueException e) {
+            throw new UnexpectedValueException(deoptimize(l, Parameters.toNum(e.getValue(), getRange())));
+        }
+
+        long result;
+        switch (operator) {
+            case ADD:
+                result = (long) l + r;
+                break;
+            case SUBTRACT:
+                result = (long) l - r;
+                break;
+            case MULTIPLY:
+                result = (long) l * r;
+                break;
+            case DIVIDE:
+                if (r == 0 || l % r != 0) {
+                    throw new UnexpectedValueException(deoptimize(l, r));
+                }
+                result = (long) l / r;
+                break;
+            default:
+                if (r == 0) {
+                    throw new UnexpectedValueException(deoptimize(l, r));
+                }
+                result = l % r;
+                break;
+        }
+        if (result != (int) result) {
+            throw new UnexpectedValueException(deoptimize(l, r));
+        }
+        specialization = Specialization.INT;
+        return (int) result;
+    }
+
+    /**
+     * Stops the Arithmetic from using ints, since its operands or result were not ints.
+     *
+     * @return the result of the operation on the given operands.
+     */
+    private double deoptimize(double l, double r) {
+        specialization = Specialization.GENERIC;
+        return apply(l, r);
+    }
+
+    /**
+     * @return the result of the operation with double arithmetic.
+     * @throws VisionException if an operand is not a number.
+     */
+    private double calculate(Frame frame) throws VisionException {
+        double l = left.getDouble(frame, getRange());
+        double r = operator == Operator.NEGATE ? 0 : right.getDouble(frame, getRange());
+        return apply(l, r);
+    }
+
+    /**
+     * @return the result of the operation on the given operands.
+     */
+    private double apply(double l, double r) {
+        switch (operator) {
+            case ADD:
+                return l + r;
+            case SUBTRACT:
+                return l - r;
+            case MULTIPLY:
+                return l * r;
+            case DIVIDE:
+                return l / r;
+            case POWER:
+                return Math.pow(l, r);
+            case NEGATE:
+                return -l;
+            default:
+                return l % r;
+        }
+    }
+
+    public Specialization getSpecialization() {
+        return specialization;
+    }
+}
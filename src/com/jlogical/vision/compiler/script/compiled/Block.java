@@ -0,0 +1,80 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.compiler.Line;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+
+/**
+ * The compiled Commands of a Hat or of the inside of a CBlock.
+ * Keeps the Line of each Statement so exceptions without a range, such as those thrown by CBlocks, point at the Line that caused them.
+ */
+public class Block implements Statement {
+
+    /**
+     * The CBlock whose inside this is. Null if this is the body of a Hat.
+     */
+    private CBlock cblock;
+
+    /**
+     * The Statements to run in order.
+     */
+    private Statement[] statements;
+
+    /**
+     * The Line each Statement was compiled from.
+     */
+    private Line[] lines;
+
+    /**
+     * Creates a Block with the given Statements and the Lines they were compiled from.
+     */
+    public Block(CBlock cblock, Statement[] statements, Line[] lines) {
+        this.cblock = cblock;
+        this.statements = statements;
+        this.lines = lines;
+    }
+
+    /**
+     * Runs the Statements. Matches {@link CBlock#runLoop} inside a CBlock, and stops when the Hat is stopped in the body of a Hat.
+     */
+    @Override
+    public void run(Frame frame) throws VisionException {
+        if (cblock == null) {
+            for (int i = 0; i < statements.length; i++) {
+                if (!frame.isRunning()) return;
+                runStatement(i, frame);
+            }
+        } else {
+            frame.setRunning(cblock, true);
+            for (int i = 0; i < statements.length; i++) {
+                runStatement(i, frame);
+                if (!frame.isRunning(cblock)) return;
+            }
+        }
+    }
+
+    /**
+     * Runs the Statement at the given index.
+     *
+     * @throws VisionException with the range of its Line if the exception thrown did not have one.
+     */
+    private void runStatement(int index, Frame frame) throws VisionException {
+        try {
+            statements[index].run(frame);
+        } catch (VisionException e) {
+            throw e.getRange() == null && lines[index] != null ? e.at(lines[index].getRange()) : e;
+        }
+    }
+
+    /**
+     * @return the Line number each Statement was compiled from.
+     */
+    public int[] getLineNumbers() {
+        int[] lineNumbers = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            lineNumbers[i] = lines[i] != null ? lines[i].getLineNum() : -1;
+        }
+        return lineNumbers;
+    }
+}
@@ -0,0 +1,64 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.api.runnables.CBlockRunnable;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.values.Value;
+
+import java.util.ArrayList;
+
+/**
+ * A compiled CBlock without a known control flow. It is run through its runnable, which runs the compiled inside and chain.
+ */
+public class CBlockStatement implements Statement {
+
+    /**
+     * The CBlock to run.
+     */
+    private CBlock cblock;
+
+    /**
+     * The compiled inputs of the CBlock.
+     */
+    private ArrayList<Value> values;
+
+    /**
+     * The compiled inside of the CBlock.
+     */
+    private Block body;
+
+    /**
+     * The compiled chain of the CBlock. Null if there is none.
+     */
+    private Statement chain;
+
+    /**
+     * The index of the Parameters of this Statement in each Frame of the Hat.
+     */
+    private int parametersIndex;
+
+    /**
+     * Creates a CBlockStatement for the given CBlock with compiled inputs, inside, and chain.
+     */
+    public CBlockStatement(CBlock cblock, ArrayList<Value> values, Block body, Statement chain, int parametersIndex) {
+        this.cblock = cblock;
+        this.values = values;
+        this.body = body;
+        this.chain = chain;
+        this.parametersIndex = parametersIndex;
+    }
+
+    @Override
+    public void run(Frame frame) throws VisionException {
+        frame.setRunning(cblock, true);
+        cblock.loadHoisted(frame);
+        CompiledCBlockParameters parameters = (CompiledCBlockParameters) frame.getParameters(parametersIndex);
+        if (parameters == null) {
+            parameters = new CompiledCBlockParameters(cblock, values, frame, body, chain);
+            frame.setParameters(parametersIndex, parameters);
+        }
+        ((CBlockRunnable) cblock.getTemplate().getRunnable()).run(parameters);
+        frame.setRunning(cblock, false);
+    }
+}
@@ -0,0 +1,56 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.api.runnables.CommandParameters;
+import com.jlogical.vision.api.runnables.CommandRunnable;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.values.Value;
+
+import java.util.ArrayList;
+
+/**
+ * A compiled Command that is run through its runnable with compiled inputs.
+ */
+public class CommandStatement implements Statement {
+
+    /**
+     * The Command to run.
+     */
+    private Command command;
+
+    /**
+     * The runnable of the Command.
+     */
+    private CommandRunnable runnable;
+
+    /**
+     * The compiled inputs of the Command.
+     */
+    private ArrayList<Value> values;
+
+    /**
+     * The index of the Parameters of this Statement in each Frame of the Hat.
+     */
+    private int parametersIndex;
+
+    /**
+     * Creates a CommandStatement for the given Command with the given compiled inputs.
+     */
+    public CommandStatement(Command command, CommandRunnable runnable, ArrayList<Value> values, int parametersIndex) {
+        this.command = command;
+        this.runnable = runnable;
+        this.values = values;
+        this.parametersIndex = parametersIndex;
+    }
+
+    @Override
+    public void run(Frame frame) throws VisionException {
+        CommandParameters parameters = (CommandParameters) frame.getParameters(parametersIndex);
+        if (parameters == null) {
+            parameters = new CommandParameters(command, values, command.getHatHolder(), null, command.getCBlockHolder(), frame);
+            frame.setParameters(parametersIndex, parameters);
+        }
+        runnable.run(parameters);
+    }
+}
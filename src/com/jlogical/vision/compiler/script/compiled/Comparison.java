@@ -0,0 +1,200 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.api.elements.Operator;
+import com.jlogical.vision.api.runnables.Parameters;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * A compiled comparison or logic Reporter, such as "[] < []" or "[] and []", that compares its operands directly.
+ * Comparisons specialize to the types of the operands they first see: ints are compared without boxing, and text that cannot be a number is compared without trying to convert it first.
+ * They fall back to comparing any types for good once they see other types.
+ */
+public class Comparison extends CompiledValue {
+
+    /**
+     * The operation. Either EQUAL, NOT_EQUAL, LESS, GREATER, LESS_EQUAL, GREATER_EQUAL, AND, OR, or NOT.
+     */
+    private Operator operator;
+
+    /**
+     * The first operand.
+     */
+    private CompiledValue left;
+
+    /**
+     * The second operand. Null for NOT.
+     */
+    private CompiledValue right;
+
+    /**
+     * The types the Comparison is specialized for.
+     */
+    private Specialization specialization;
+
+    /**
+     * Creates a Comparison with the given operator, operands, and range of the Reporter.
+     */
+    public Comparison(Operator operator, CompiledValue left, CompiledValue right, CodeRange range) {
+        super(range);
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+        boolean logic = operator == Operator.AND || operator == Operator.OR || operator == Operator.NOT;
+        this.specialization = logic ? Specialization.GENERIC : Specialization.UNINITIALIZED;
+    }
+
+    @Override
+    public Object getValue(Frame frame) throws VisionException {
+        return test(frame);
+    }
+
+    @Override
+    public boolean getBool(Frame frame, CodeRange range) throws VisionException {
+        return test(frame);
+    }
+
+    /**
+     * @return the result of the comparison.
+     * @throws VisionException if an operand cannot be compared.
+     */
+    private boolean test(Frame frame) throws VisionException {
+        CodeRange range = getRange();
+        switch (operator) {
+            case EQUAL:
+                return equal(frame);
+            case NOT_EQUAL:
+                return !equal(frame);
+            case AND:
+                return left.getBool(frame, range) && right.getBool(frame, range);
+            case OR:
+                return left.getBool(frame, range) || right.getBool(frame, range);
+            case NOT:
+                return !left.getBool(frame, range);
+            default:
+                return compare(frame);
+        }
+    }
+
+    /**
+     * Compares the operands as numbers. Uses ints while both operands are ints.
+     */
+    private boolean compare(Frame frame) throws VisionException {
+        if (specialization == Specialization.GENERIC) {
+            return compare(left.getDouble(frame, getRange()), right.getDouble(frame, getRange()));
+        }
+        int l;
+        try {
+            l = left.getIntExact(frame);
+        } catch (UnexpectedValueException e) {
+            specialization = Specialization.GENERIC;
+            return compare(Parameters.toNum(e.getValue(), getRange()), right.getDouble(frame, getRange()));
+        }
+        int r;
+        try {
+            r = right.getIntExact(frame);
+        } catch (UnexpectedValueException e) {
+            specialization = Specialization.GENERIC;
+            return compare(l, Parameters.toNum(e.getValue(), getRange()));
+        }
+        specialization = Specialization.INT;
+        return compare(l, r);
+    }
+
+    /**
+     * @return the result of comparing the given numbers with the operator.
+     */
+    private boolean compare(double l, double r) {
+        switch (operator) {
+            case LESS:
+                return l < r;
+            case GREATER:
+                return l > r;
+            case LESS_EQUAL:
+                return l <= r;
+            default:
+                return l >= r;
+        }
+    }
+
+    /**
+     * Compares the operands as numbers, or as text if either is not a number.
+     */
+    private boolean equal(Frame frame) throws VisionException {
+        switch (specialization) {
+            case INT: {
+                int l;
+                try {
+                    l = left.getIntExact(frame);
+                } catch (UnexpectedValueException e) {
+                    specialization = Specialization.GENERIC;
+                    return equal(e.getValue(), Parameters.normalize(right.getValue(frame)));
+                }
+                try {
+                    return l == right.getIntExact(frame);
+                } catch (UnexpectedValueException e) {
+                    specialization = Specialization.GENERIC;
+                    return equal(l, e.getValue());
+                }
+            }
+            case TEXT: {
+                Object l = Parameters.normalize(left.getValue(frame));
+                Object r = Parameters.normalize(right.getValue(frame));
+                if (isText(l) && isText(r)) {
+                    return l.equals(r);
+                }
+                specialization = Specialization.GENERIC;
+                return equal(l, r);
+            }
+            case UNINITIALIZED: {
+                Object l = Parameters.normalize(left.getValue(frame));
+                Object r = Parameters.normalize(right.getValue(frame));
+                if (l instanceof Integer && r instanceof Integer) {
+                    specialization = Specialization.INT;
+                } else if (isText(l) && isText(r)) {
+                    specialization = Specialization.TEXT;
+                } else {
+                    specialization = Specialization.GENERIC;
+                }
+                return equal(l, r);
+            }
+            default:
+                return equal(Parameters.normalize(left.getValue(frame)), Parameters.normalize(right.getValue(frame)));
+        }
+    }
+
+    /**
+     * Compares the given values as numbers, or as text if either is not a number.
+     */
+    private boolean equal(Object l, Object r) {
+        if (!isText(l) && !isText(r)) {
+            try {
+                return Parameters.toNum(l, getRange()) == Parameters.toNum(r, getRange());
+            } catch (Exception e) {
+            }
+        }
+        return Parameters.toText(l).equals(Parameters.toText(r));
+    }
+
+    /**
+     * @return whether the value is text that cannot be converted to a number. Such text has no digits and is not "NaN" or "Infinity".
+     */
+    private static boolean isText(Object value) {
+        if (!(value instanceof String)) {
+            return false;
+        }
+        String text = (String) value;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                return false;
+            }
+        }
+        return !text.contains("NaN") && !text.contains("Infinity");
+    }
+
+    public Specialization getSpecialization() {
+        return specialization;
+    }
+}
@@ -0,0 +1,46 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.api.runnables.CBlockParameters;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.values.Value;
+
+import java.util.ArrayList;
+
+/**
+ * CBlockParameters that run the compiled inside and chain of the CBlock instead of the CBlock itself.
+ */
+public class CompiledCBlockParameters extends CBlockParameters {
+
+    /**
+     * The compiled inside of the CBlock.
+     */
+    private Block body;
+
+    /**
+     * The compiled chain of the CBlock. Null if there is none.
+     */
+    private Statement chain;
+
+    /**
+     * Creates CompiledCBlockParameters for the given CBlock with compiled inputs, inside, and chain.
+     */
+    public CompiledCBlockParameters(CBlock cblock, ArrayList<Value> values, Frame frame, Block body, Statement chain) {
+        super(cblock, values, cblock.getHatHolder(), cblock.getRange(), cblock.getCBlockHolder(), frame);
+        this.body = body;
+        this.chain = chain;
+    }
+
+    @Override
+    public void runLoop() throws VisionException {
+        body.run(getFrame());
+    }
+
+    @Override
+    public void runChain() throws VisionException {
+        if (chain != null) {
+            chain.run(getFrame());
+        }
+    }
+}
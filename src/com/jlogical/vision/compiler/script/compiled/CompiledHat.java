@@ -0,0 +1,47 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.elements.Hat;
+
+/**
+ * A Hat compiled into a tree of Statements and CompiledValues by the HatCompiler.
+ */
+public class CompiledHat {
+
+    /**
+     * The Hat this was compiled from.
+     */
+    private Hat hat;
+
+    /**
+     * The compiled Commands of the Hat.
+     */
+    private Block body;
+
+    /**
+     * Creates a CompiledHat for the given Hat with its compiled Commands.
+     */
+    public CompiledHat(Hat hat, Block body) {
+        this.hat = hat;
+        this.body = body;
+    }
+
+    /**
+     * Runs the compiled Commands of the Hat.
+     *
+     * @param frame the Frame of the run.
+     * @throws VisionException if there is an error running any of the Commands.
+     */
+    public void run(Frame frame) throws VisionException {
+        body.run(frame);
+    }
+
+    public Hat getHat() {
+        return hat;
+    }
+
+    public Block getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,70 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.api.runnables.Parameters;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * A Value that was compiled by the HatCompiler. Can be read as a number or boolean directly, which lets compiled arithmetic skip boxing.
+ * Conversions give the same results and exceptions as the methods of {@link Parameters}.
+ */
+public abstract class CompiledValue implements Value {
+
+    /**
+     * The range of the Value this was compiled from.
+     */
+    private CodeRange range;
+
+    /**
+     * Creates a CompiledValue with the given range.
+     */
+    public CompiledValue(CodeRange range) {
+        this.range = range;
+    }
+
+    /**
+     * Returns the value if it is an int. Lets Arithmetic and Comparison specialized for ints run without boxing.
+     *
+     * @param frame the Frame of the Hat running the Value.
+     * @return the int.
+     * @throws VisionException          if there was an error getting the value.
+     * @throws UnexpectedValueException holding the value if it is not an int.
+     */
+    public int getIntExact(Frame frame) throws VisionException, UnexpectedValueException {
+        Object value = Parameters.normalize(getValue(frame));
+        if (value instanceof Integer) {
+            return (int) value;
+        }
+        throw new UnexpectedValueException(value);
+    }
+
+    /**
+     * Returns the value as a boolean.
+     *
+     * @param frame the Frame of the Hat running the Value.
+     * @param range the range of the element using the value. Used for exception throwing.
+     * @return the boolean.
+     * @throws VisionException if the value cannot be converted to a boolean.
+     */
+    public boolean getBool(Frame frame, CodeRange range) throws VisionException {
+        return Parameters.toBoolean(Parameters.normalize(getValue(frame)), range);
+    }
+
+    /**
+     * Returns the value as a String.
+     *
+     * @param frame the Frame of the Hat running the Value.
+     * @return the String.
+     * @throws VisionException if there was an error getting the value.
+     */
+    public String getText(Frame frame) throws VisionException {
+        return Parameters.toText(Parameters.normalize(getValue(frame)));
+    }
+
+    @Override
+    public CodeRange getRange() {
+        return range;
+    }
+}
@@ -0,0 +1,65 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.api.runnables.Parameters;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * A compiled Value that is always the same, such as a number or text without interpolation.
+ */
+public class ConstantValue extends CompiledValue {
+
+    /**
+     * The value.
+     */
+    private Object value;
+
+    /**
+     * Whether the value is a number.
+     */
+    private boolean numeric;
+
+    /**
+     * The value as a number. Only used if the value is a number.
+     */
+    private double num;
+
+    /**
+     * Creates a ConstantValue with the given value and range.
+     */
+    public ConstantValue(Object value, CodeRange range) {
+        super(range);
+        this.value = value;
+        this.numeric = value instanceof Number;
+        this.num = numeric ? ((Number) value).doubleValue() : 0;
+    }
+
+    @Override
+    public Object getValue(Frame frame) {
+        return value;
+    }
+
+    @Override
+    public double getDouble(Frame frame, CodeRange range) throws VisionException {
+        return numeric ? num : Parameters.toNum(value, range);
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return numeric;
+    }
+
+    @Override
+    public int getIntExact(Frame frame) throws UnexpectedValueException {
+        if (value instanceof Integer) {
+            return (int) value;
+        }
+        throw new UnexpectedValueException(value);
+    }
+
+    @Override
+    public int getInt(Frame frame, CodeRange range) throws VisionException {
+        return numeric ? (int) num : Parameters.toInt(value, range);
+    }
+}
@@ -0,0 +1,99 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.api.elements.ControlFlow;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.Variable;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * A compiled CBlock with a known {@link ControlFlow}. Runs in the same order as its runnable does, so stopping loops and returning from Hats work the same way.
+ */
+public class ControlStatement implements Statement {
+
+    /**
+     * The CBlock this was compiled from.
+     */
+    private CBlock cblock;
+
+    /**
+     * The control flow of the CBlock.
+     */
+    private ControlFlow controlFlow;
+
+    /**
+     * The compiled inputs of the CBlock.
+     */
+    private CompiledValue[] values;
+
+    /**
+     * The compiled inside of the CBlock.
+     */
+    private Block body;
+
+    /**
+     * The compiled chain of the CBlock. Null if there is none.
+     */
+    private Statement chain;
+
+    /**
+     * Creates a ControlStatement for the given CBlock with compiled inputs, inside, and chain.
+     */
+    public ControlStatement(CBlock cblock, CompiledValue[] values, Block body, Statement chain) {
+        this.cblock = cblock;
+        this.controlFlow = cblock.getTemplate().getControlFlow();
+        this.values = values;
+        this.body = body;
+        this.chain = chain;
+    }
+
+    @Override
+    public void run(Frame frame) throws VisionException {
+        frame.setRunning(cblock, true);
+        cblock.loadHoisted(frame);
+        CodeRange range = cblock.getRange();
+        switch (controlFlow) {
+            case IF:
+                if (values[0].getBool(frame, range)) {
+                    body.run(frame);
+                } else if (chain != null) {
+                    chain.run(frame);
+                }
+                break;
+            case ELSE:
+                body.run(frame);
+                break;
+            case REPEAT:
+                for (int i = 0; i < values[0].getInt(frame, range); i++) {
+                    if (!frame.isRunning(cblock)) break;
+                    body.run(frame);
+                }
+                break;
+            case WHILE:
+            case UNTIL:
+                boolean until = controlFlow == ControlFlow.UNTIL;
+                while (values[0].getBool(frame, range) != until) {
+                    if (!frame.isRunning(cblock)) break;
+                    body.run(frame);
+                }
+                break;
+            case FOREVER:
+                while (frame.isRunning(cblock)) {
+                    body.run(frame);
+                }
+                break;
+            case FOR_EVERY:
+                Variable variable = new Variable(cblock.getLoopName() != null ? cblock.getLoopName() : values[0].getText(frame), 0);
+                frame.set(cblock.getLoopSlot(), variable);
+                for (int i = 1; i <= values[1].getInt(frame, range); i++) {
+                    if (!frame.isRunning(cblock)) break;
+                    variable.setNum(i);
+                    body.run(frame);
+                }
+                frame.set(cblock.getLoopSlot(), null);
+                break;
+        }
+        frame.setRunning(cblock, false);
+    }
+}
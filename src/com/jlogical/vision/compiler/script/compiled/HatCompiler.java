@@ -0,0 +1,166 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.api.elements.Operator;
+import com.jlogical.vision.api.runnables.CommandRunnable;
+import com.jlogical.vision.compiler.Line;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.elements.End;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+import com.jlogical.vision.compiler.values.NumValue;
+import com.jlogical.vision.compiler.values.SharedValue;
+import com.jlogical.vision.compiler.values.SharingValue;
+import com.jlogical.vision.compiler.values.TextValue;
+import com.jlogical.vision.compiler.values.Value;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Compiles the Commands of a Hat into a tree of Statements and CompiledValues.
+ * Inputs are compiled once, so constants are converted ahead of time and Reporters with a known {@link Operator} work directly on numbers and booleans.
+ * CBlocks with a known control flow become ControlStatements. Everything else is still run through its runnable.
+ */
+public class HatCompiler {
+
+    /**
+     * The Hat being compiled.
+     */
+    private Hat hat;
+
+    /**
+     * The compiled version of each SharedValue that has been compiled, so every place it is used shares the same one.
+     */
+    private IdentityHashMap<SharedValue, CompiledValue> shared;
+
+    /**
+     * Creates a HatCompiler for the given Hat.
+     */
+    private HatCompiler(Hat hat) {
+        this.hat = hat;
+        this.shared = new IdentityHashMap<>();
+    }
+
+    /**
+     * Compiles the Commands of the given Hat.
+     *
+     * @param hat the Hat to compile.
+     * @return the CompiledHat.
+     */
+    public static CompiledHat compile(Hat hat) {
+        HatCompiler compiler = new HatCompiler(hat);
+        return new CompiledHat(hat, compiler.compileBlock(null, hat.getCommands()));
+    }
+
+    /**
+     * Compiles a List of Commands into a Block. End Commands are left out since they do nothing.
+     *
+     * @param cblock   the CBlock the Commands are in. Null if they are in the body of a Hat.
+     * @param commands the Commands to compile.
+     * @return the Block.
+     */
+    private Block compileBlock(CBlock cblock, ArrayList<Command> commands) {
+        ArrayList<Statement> statements = new ArrayList<>();
+        ArrayList<Line> lines = new ArrayList<>();
+        for (Command command : commands) {
+            Statement statement = compileCommand(command);
+            if (statement != null) {
+                statements.add(statement);
+                lines.add(command.getLine());
+            }
+        }
+        return new Block(cblock, statements.toArray(new Statement[0]), lines.toArray(new Line[0]));
+    }
+
+    /**
+     * Compiles a Command.
+     *
+     * @param command the Command to compile.
+     * @return the Statement. Null if the Command does nothing.
+     */
+    private Statement compileCommand(Command<?> command) {
+        if (command instanceof End) {
+            return null;
+        }
+        if (command instanceof CBlock) {
+            CBlock cblock = (CBlock) command;
+            Block body = compileBlock(cblock, cblock.getCommands());
+            Statement chain = cblock.getChain() != null ? compileCommand(cblock.getChain()) : null;
+            if (cblock.getTemplate().getControlFlow() != null) {
+                return new ControlStatement(cblock, compileValues(cblock.getValues()).toArray(new CompiledValue[0]), body, chain);
+            }
+            return new CBlockStatement(cblock, new ArrayList<>(compileValues(cblock.getValues())), body, chain, hat.addParameters());
+        }
+        CommandRunnable runnable = command.getTemplate().getRunnable();
+        if (runnable == null) {
+            return null;
+        }
+        return new CommandStatement(command, runnable, new ArrayList<>(compileValues(command.getValues())), hat.addParameters());
+    }
+
+    /**
+     * Compiles the given inputs.
+     *
+     * @param values the inputs to compile.
+     * @return the CompiledValues.
+     */
+    private ArrayList<CompiledValue> compileValues(ArrayList<Value> values) {
+        ArrayList<CompiledValue> compiled = new ArrayList<>();
+        for (Value value : values) {
+            compiled.add(compileValue(value));
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiles an input.
+     *
+     * @param value the Value to compile.
+     * @return the CompiledValue.
+     */
+    private CompiledValue compileValue(Value value) {
+        if (value instanceof NumValue) {
+            return new ConstantValue(((NumValue) value).getValue(null), value.getRange());
+        }
+        if (value instanceof TextValue && ((TextValue) value).isConstant()) {
+            return new ConstantValue(((TextValue) value).getConstantText(), value.getRange());
+        }
+        if (value instanceof Reporter) {
+            return compileReporter((Reporter) value);
+        }
+        if (value instanceof SharingValue) {
+            return new InterpretedValue(new SharingValue(compileValue(((SharingValue) value).getValue())));
+        }
+        if (value instanceof SharedValue) {
+            SharedValue sharedValue = (SharedValue) value;
+            CompiledValue compiled = shared.get(sharedValue);
+            if (compiled == null) {
+                compiled = new InterpretedValue(new SharedValue(compileValue(sharedValue.getValue()), sharedValue.getIndex()));
+                shared.put(sharedValue, compiled);
+            }
+            return compiled;
+        }
+        return new InterpretedValue(value);
+    }
+
+    /**
+     * Compiles a Reporter. Reporters with a known Operator and the right number of inputs do their operation directly.
+     *
+     * @param reporter the Reporter to compile.
+     * @return the CompiledValue.
+     */
+    private CompiledValue compileReporter(Reporter reporter) {
+        ArrayList<CompiledValue> values = compileValues(reporter.getValues());
+        Operator operator = reporter.getTemplate().getOperator();
+        if (operator != null && values.size() == operator.getOperandCount()) {
+            CompiledValue left = values.get(0);
+            CompiledValue right = values.size() > 1 ? values.get(1) : null;
+            if (operator.isArithmetic()) {
+                return new Arithmetic(operator, left, right, reporter.getRange());
+            }
+            return new Comparison(operator, left, right, reporter.getRange());
+        }
+        return new ReporterCall(reporter, new ArrayList<>(values), hat.addParameters());
+    }
+}
@@ -0,0 +1,73 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.Variable;
+import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.compiler.values.VariableValue;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * A compiled Value that gets its value from the Value it was compiled from. Used for Variables, interpolated text, and expressions.
+ */
+public class InterpretedValue extends CompiledValue {
+
+    /**
+     * The Value to get the value from.
+     */
+    private Value value;
+
+    /**
+     * Whether the Value is always a number.
+     */
+    private boolean numeric;
+
+    /**
+     * Creates an InterpretedValue for the given Value.
+     */
+    public InterpretedValue(Value value) {
+        super(value.getRange());
+        this.value = value;
+        this.numeric = value.isNumeric();
+    }
+
+    @Override
+    public Object getValue(Frame frame) throws VisionException {
+        return value.getValue(frame);
+    }
+
+    @Override
+    public double getDouble(Frame frame, CodeRange range) throws VisionException {
+        return value.getDouble(frame, range);
+    }
+
+    @Override
+    public int getInt(Frame frame, CodeRange range) throws VisionException {
+        return value.getInt(frame, range);
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return numeric;
+    }
+
+    @Override
+    public int getIntExact(Frame frame) throws VisionException, UnexpectedValueException {
+        double d;
+        if (numeric) {
+            d = value.getDouble(frame, getRange());
+        } else if (value instanceof VariableValue) {
+            Variable variable = ((VariableValue) value).getVariable(frame);
+            if (variable == null) {
+                return super.getIntExact(frame);
+            }
+            d = variable.getNumExact();
+        } else {
+            return super.getIntExact(frame);
+        }
+        if (d == (int) d) {
+            return (int) d;
+        }
+        throw new UnexpectedValueException(d);
+    }
+}
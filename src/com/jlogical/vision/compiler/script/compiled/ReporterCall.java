@@ -0,0 +1,50 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.api.runnables.ReporterParameters;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+import com.jlogical.vision.compiler.values.Value;
+
+import java.util.ArrayList;
+
+/**
+ * A compiled Reporter that is run through its runnable. Its inputs are compiled Values.
+ */
+public class ReporterCall extends CompiledValue {
+
+    /**
+     * The Reporter to run.
+     */
+    private Reporter reporter;
+
+    /**
+     * The compiled inputs of the Reporter.
+     */
+    private ArrayList<Value> values;
+
+    /**
+     * The index of the Parameters of this ReporterCall in each Frame of the Hat.
+     */
+    private int parametersIndex;
+
+    /**
+     * Creates a ReporterCall for the given Reporter with the given compiled inputs.
+     */
+    public ReporterCall(Reporter reporter, ArrayList<Value> values, int parametersIndex) {
+        super(reporter.getRange());
+        this.reporter = reporter;
+        this.values = values;
+        this.parametersIndex = parametersIndex;
+    }
+
+    @Override
+    public Object getValue(Frame frame) throws VisionException {
+        ReporterParameters parameters = (ReporterParameters) frame.getParameters(parametersIndex);
+        if (parameters == null) {
+            parameters = new ReporterParameters(reporter, values, reporter.getCommandHolder(), reporter.getRange(), frame);
+            frame.setParameters(parametersIndex, parameters);
+        }
+        return reporter.getTemplate().getRunnable().getValue(parameters);
+    }
+}
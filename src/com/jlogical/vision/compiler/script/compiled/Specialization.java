@@ -0,0 +1,28 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+/**
+ * The types of operands an Arithmetic or Comparison is specialized for.
+ * Nodes start UNINITIALIZED, specialize to the types they first see, and fall back to GENERIC for good once they see any other types.
+ */
+public enum Specialization {
+
+    /**
+     * The node has not run yet.
+     */
+    UNINITIALIZED,
+
+    /**
+     * Both operands have been ints, and so has the result.
+     */
+    INT,
+
+    /**
+     * Both operands have been text that cannot be a number.
+     */
+    TEXT,
+
+    /**
+     * The operands can be of any type.
+     */
+    GENERIC
+}
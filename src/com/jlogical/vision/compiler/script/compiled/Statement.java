@@ -0,0 +1,18 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+
+/**
+ * A Command that was compiled into Java objects by the HatCompiler.
+ */
+public interface Statement {
+
+    /**
+     * Runs the Statement.
+     *
+     * @param frame the Frame of the Hat running the Statement.
+     * @throws VisionException if there was an error running the Statement.
+     */
+    void run(Frame frame) throws VisionException;
+}
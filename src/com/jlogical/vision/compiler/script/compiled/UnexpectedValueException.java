@@ -0,0 +1,26 @@
+package com.jlogical.vision.compiler.script.compiled;
+
+/**
+ * Thrown by {@link CompiledValue#getIntExact} when a value is not an int, and by {@link com.jlogical.vision.compiler.script.Variable#getNumExact} when it is not a number. Holds the value so the caller can use it without evaluating the CompiledValue again.
+ */
+public class UnexpectedValueException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The value that was not an int.
+     */
+    private Object value;
+
+    /**
+     * Creates an UnexpectedValueException holding the given value. Has no stack trace since it is only used to return the value.
+     */
+    public UnexpectedValueException(Object value) {
+        super(null, null, false, false);
+        this.value = value;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+}
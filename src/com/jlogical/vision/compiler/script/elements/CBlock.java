@@ -5,7 +5,8 @@ import com.jlogical.vision.api.elements.CustomCommand;
 import com.jlogical.vision.api.runnables.CBlockParameters;
 import com.jlogical.vision.compiler.Line;
 import com.jlogical.vision.compiler.exceptions.VisionException;
-import com.jlogical.vision.compiler.script.Variable;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.values.HoistedValue;
 import com.jlogical.vision.compiler.values.Value;
 import com.jlogical.vision.project.CodeRange;
 
@@ -24,14 +25,24 @@ public class CBlock extends Command<CustomCBlock> {
     private CBlock chain;
 
     /**
-     * List of Variables in this CBlock.
+     * The slot of the loop Variable this CBlock creates in the Frame of its Hat. -1 if it does not create one.
      */
-    private ArrayList<Variable> variables;
+    private int loopSlot = -1;
 
     /**
-     * Whether the CBlock is running.
+     * The name of the loop Variable if it was known when compiling. Null otherwise.
      */
-    private boolean running = false;
+    private String loopName;
+
+    /**
+     * The Values in the inputs of the CBlock that are evaluated once each time it starts. Empty unless the Optimizer hoisted any.
+     */
+    private ArrayList<HoistedValue> hoisted;
+
+    /**
+     * The index of the CBlock in its Hat. Used by Frames to keep track of whether the CBlock is running.
+     */
+    private int index;
 
     /**
      * Creates a new CompiledElement with a core, template, values, and line.
@@ -40,36 +51,76 @@ public class CBlock extends Command<CustomCBlock> {
         super(template, values, line, hatHolder, cblockHolder);
         this.commands = commands != null ? commands : new ArrayList<>();
         this.chain = chain;
-        this.variables = new ArrayList<>();
+        this.hoisted = new ArrayList<>();
+        this.index = hatHolder != null ? hatHolder.addCBlock() : -1;
     }
 
     /**
      * Runs the commands inside this CBlock.
+     *
+     * @param frame the Frame of the Hat running the CBlock.
      */
-    public void run() throws VisionException {
-        running = true;
-        getTemplate().getRunnable().run(new CBlockParameters(this, getValues(), getHatHolder(), getRange(), getCBlockHolder()));
-        running = false;
+    public void run(Frame frame) throws VisionException {
+        frame.setRunning(this, true);
+        loadHoisted(frame);
+        getTemplate().getRunnable().run(getParameters(frame));
+        frame.setRunning(this, false);
+    }
+
+    /**
+     * Returns the CBlockParameters of this CBlock in the given Frame. Creates them the first time the CBlock runs in the Frame.
+     *
+     * @param frame the Frame of the Hat running the CBlock.
+     * @return the CBlockParameters.
+     */
+    public CBlockParameters getParameters(Frame frame) {
+        CBlockParameters parameters = (CBlockParameters) frame.getParameters(getParametersIndex());
+        if (parameters == null) {
+            parameters = new CBlockParameters(this, getValues(), getHatHolder(), null, getCBlockHolder(), frame);
+            frame.setParameters(getParametersIndex(), parameters);
+        }
+        return parameters;
     }
 
     /**
      * Runs all the Commands in this CBlock.
      *
+     * @param frame the Frame of the Hat running the CBlock.
      * @throws VisionException if any of the Commands have an exception when running.
      */
-    public void runLoop() throws VisionException {
-        running = true;
+    public void runLoop(Frame frame) throws VisionException {
+        frame.setRunning(this, true);
         for (Command command : getCommands()) {
-            command.run();
-            if (!running) return;
+            command.run(frame);
+            if (!frame.isRunning(this)) return;
         }
     }
 
     /**
-     * Stops the loop.
+     * Makes a HoistedValue for a Value in the inputs of the CBlock, which is evaluated each time the CBlock starts. The Value is not replaced.
+     *
+     * @param value the Value to hoist.
+     * @return the HoistedValue to replace the Value with.
+     */
+    public HoistedValue hoist(Value value) {
+        HoistedValue hoistedValue = new HoistedValue(value, getHatHolder().addHoisted());
+        hoisted.add(hoistedValue);
+        return hoistedValue;
+    }
+
+    /**
+     * Evaluates the HoistedValues of the CBlock. Needs to be called each time the CBlock starts, before its inputs are used.
+     *
+     * @param frame the Frame of the Hat running the CBlock.
      */
-    public void stop() {
-        running = false;
+    public void loadHoisted(Frame frame) {
+        for (int i = 0; i < hoisted.size(); i++) {
+            hoisted.get(i).load(frame);
+        }
+    }
+
+    public ArrayList<HoistedValue> getHoisted() {
+        return hoisted;
     }
 
     public ArrayList<Command> getCommands() {
@@ -88,12 +139,24 @@ public class CBlock extends Command<CustomCBlock> {
         this.chain = chain;
     }
 
-    public ArrayList<Variable> getVariables() {
-        return variables;
+    public int getLoopSlot() {
+        return loopSlot;
+    }
+
+    public void setLoopSlot(int loopSlot) {
+        this.loopSlot = loopSlot;
+    }
+
+    public String getLoopName() {
+        return loopName;
+    }
+
+    public void setLoopName(String loopName) {
+        this.loopName = loopName;
     }
 
-    public boolean isRunning() {
-        return running;
+    public int getIndex() {
+        return index;
     }
 
     @Override
@@ -7,6 +7,7 @@ import com.jlogical.vision.compiler.Input;
 import com.jlogical.vision.compiler.Line;
 import com.jlogical.vision.compiler.definitions.DefinedCommand;
 import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
 import com.jlogical.vision.compiler.script.Variable;
 import com.jlogical.vision.compiler.values.Value;
 import com.jlogical.vision.project.CodeRange;
@@ -51,6 +52,7 @@ public class Command<T extends CustomCommand> extends CompiledElement<T> {
         this.line = line;
         this.hatHolder = hatHolder;
         this.cblockHolder = cblockHolder;
+        setParametersIndex(hatHolder != null ? hatHolder.addParameters() : -1);
     }
 
     /**
@@ -66,15 +68,31 @@ public class Command<T extends CustomCommand> extends CompiledElement<T> {
     /**
      * Runs the Command.
      *
+     * @param frame the Frame of the Hat running the Command.
      * @throws VisionException if there was an error running the Command.
      */
-    public void run() throws VisionException {
+    public void run(Frame frame) throws VisionException {
         CommandRunnable runnable = getTemplate().getRunnable();
         if (runnable != null) {
-            runnable.run(new CommandParameters(this, getValues(), hatHolder, getRange(), cblockHolder));
+            runnable.run(getParameters(frame));
         }
     }
 
+    /**
+     * Returns the CommandParameters of this Command in the given Frame. Creates them the first time the Command runs in the Frame.
+     *
+     * @param frame the Frame of the Hat running the Command.
+     * @return the CommandParameters.
+     */
+    private CommandParameters getParameters(Frame frame) {
+        CommandParameters parameters = (CommandParameters) frame.getParameters(getParametersIndex());
+        if (parameters == null) {
+            parameters = new CommandParameters(this, getValues(), hatHolder, null, cblockHolder, frame);
+            frame.setParameters(getParametersIndex(), parameters);
+        }
+        return parameters;
+    }
+
     /**
      * Runs a defined command based on the parameters given by e.
      */
@@ -86,10 +104,10 @@ public class Command<T extends CustomCommand> extends CompiledElement<T> {
 //        for(int i=0;i<command.getValues().size();i++){
 //            hat.getVariables().add(new Variable(command.definedCommand.getVariableNames().get(i), ((Value) e.getValues().get(i)).getValue()));
 //        }
-        ArrayList<Object> inputs = new ArrayList<>();
-        for(int i = 0;i<e.getValues().size();i++)
-            inputs.add(e.get(i));
-        hat.run(inputs.toArray());
+        Object[] inputs = new Object[e.getValues().size()];
+        for(int i = 0;i<inputs.length;i++)
+            inputs[i] = e.get(i);
+        hat.run(e.getContext(), inputs);
     }
 
     @Override
@@ -108,4 +126,11 @@ public class Command<T extends CustomCommand> extends CompiledElement<T> {
     public CBlock getCBlockHolder() {
         return cblockHolder;
     }
+
+    /**
+     * @return the DefinedCommand this Command runs. Null if it runs a CustomCommand.
+     */
+    public DefinedCommand getDefinedCommand() {
+        return definedCommand;
+    }
 }
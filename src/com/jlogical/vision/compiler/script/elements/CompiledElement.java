@@ -3,6 +3,7 @@ package com.jlogical.vision.compiler.script.elements;
 import com.jlogical.vision.api.elements.CustomElement;
 import com.jlogical.vision.compiler.Line;
 import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.compiler.values.VariableValue;
 import com.jlogical.vision.project.CodeRange;
 
 import java.util.ArrayList;
@@ -22,6 +23,16 @@ public abstract class CompiledElement<T extends CustomElement> {
      */
     private ArrayList<Value> values;
 
+    /**
+     * Refers to the Variable named by the first input, resolved when compiling. Null if the template does not name a Variable or the name is not constant.
+     */
+    private VariableValue variableReference;
+
+    /**
+     * The index of the Parameters of this CompiledElement in each Frame of its Hat. -1 if its Parameters are not reused.
+     */
+    private int parametersIndex = -1;
+
     /**
      * Creates a new CompiledElement based on a template, line, and values.
      */
@@ -53,4 +64,20 @@ public abstract class CompiledElement<T extends CustomElement> {
     public void setValues(ArrayList<Value> values) {
         this.values = values;
     }
+
+    public VariableValue getVariableReference() {
+        return variableReference;
+    }
+
+    public void setVariableReference(VariableValue variableReference) {
+        this.variableReference = variableReference;
+    }
+
+    public int getParametersIndex() {
+        return parametersIndex;
+    }
+
+    public void setParametersIndex(int parametersIndex) {
+        this.parametersIndex = parametersIndex;
+    }
 }
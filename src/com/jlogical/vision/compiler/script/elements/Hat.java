@@ -2,16 +2,25 @@ package com.jlogical.vision.compiler.script.elements;
 
 import com.jlogical.vision.api.elements.CustomHat;
 import com.jlogical.vision.compiler.Input;
+import com.jlogical.vision.compiler.definitions.DefineTemplate;
 import com.jlogical.vision.compiler.exceptions.VisionException;
-import com.jlogical.vision.compiler.script.Script;
+import com.jlogical.vision.compiler.script.Engine;
+import com.jlogical.vision.compiler.script.ExecutionContext;
+import com.jlogical.vision.compiler.script.Frame;
 import com.jlogical.vision.compiler.script.Variable;
-import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.compiler.script.compiled.CompiledHat;
+import com.jlogical.vision.compiler.script.compiled.HatCompiler;
+import com.jlogical.vision.compiler.script.flat.FlatInterpreter;
+import com.jlogical.vision.compiler.script.flat.Instruction;
+import com.jlogical.vision.compiler.script.flat.Lowerer;
 import com.jlogical.vision.project.CodeRange;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * Stores a list of commands that is run when an event occurs.
+ * The Hat does not keep the Program it is in, so the same Hat can be shared by several Programs. Each run gets the Program from its ExecutionContext.
  */
 public class Hat extends CompiledElement<CustomHat> {
 
@@ -21,79 +30,179 @@ public class Hat extends CompiledElement<CustomHat> {
     private ArrayList<Command> commands;
 
     /**
-     * The Script the Hat is in.
+     * List of variable names for the predefined variables in the hat.
      */
-    private Script script;
+    private ArrayList<String> variableNames;
 
     /**
-     * List of variable names for the predefined variables in the hat.
+     * The definition the Hat holds the code of. Null if the Hat is run by an event.
      */
-    private ArrayList<String> variableNames;
+    private DefineTemplate definition;
 
     /**
-     * List of local Variables in the Hat.
+     * The slots of the names of local Variables in the Hat. Loop Variables have slots that are not in here.
      */
-    private ArrayList<Variable> variables;
+    private HashMap<String, Integer> slots;
 
     /**
-     * The output of the hat. Used when defining reporters.
+     * The number of slots in the Hat.
      */
-    private Object output;
+    private int slotCount;
 
     /**
-     * Whether this hat is running. If set to false during run(), stops the hat from running.
+     * The number of CBlocks in the Hat, including chained CBlocks.
      */
-    private boolean running;
+    private int cblockCount;
+
+    /**
+     * The number of Parameters each Frame of the Hat keeps, one for each element that runs through a runnable.
+     */
+    private int parametersCount;
+
+    /**
+     * The number of HoistedValues in the Hat. Each Frame keeps the value of each one.
+     */
+    private int hoistedCount;
+
+    /**
+     * The number of SharedValues in the Hat. Each Frame keeps the value of each one.
+     */
+    private int sharedCount;
+
+    /**
+     * The most Frames that are kept for reuse once their runs are over.
+     */
+    private static final int MAX_POOLED_FRAMES = 16;
+
+    /**
+     * Frames that are not being used by a run of the Hat.
+     */
+    private ArrayList<Frame> freeFrames;
+
+    /**
+     * The Commands of the Hat lowered to Instructions. Null until the Hat is first run with {@link Engine#FLAT}.
+     */
+    private Instruction[] instructions;
+
+    /**
+     * The Commands of the Hat compiled to Statements. Null until the Hat is first run with {@link Engine#COMPILED}.
+     */
+    private CompiledHat compiled;
 
     /**
      * Creates a new Hat with a core.
      *
      * @param hat the custom hat to model this hat on.
      * @param inputs the inputs of the hat. Used for getting variable names.
-     * @param script the script this hat belongs to.
      */
-    public Hat(CustomHat hat, ArrayList<Input> inputs, Script script) {
+    public Hat(CustomHat hat, ArrayList<Input> inputs) {
         super(hat, null);
-        this.script = script;
         this.commands = new ArrayList<>();
-        this.variables = new ArrayList<>();
+        this.slots = new HashMap<>();
+        this.freeFrames = new ArrayList<>();
         initVariableNames(inputs);
-        running = false;
     }
 
     /**
      * Returns a special hat that is for custom definitions of commands and reporters.
      *
-     * @param script the script the hat belongs to.
      * @param inputs the inputs of the hat for variable extraction.
      * @return the hat.
      */
-    public static Hat defineTemplateHat(Script script, ArrayList<Input> inputs) {
-        return new Hat(null, inputs, script);
+    public static Hat defineTemplateHat(ArrayList<Input> inputs) {
+        return new Hat(null, inputs);
     }
 
     /**
-     * Runs the Hat.
+     * Runs the Hat in a new Frame.
      *
+     * @param context the ExecutionContext to run the Hat in.
      * @param inputs inputs of the hat.
+     * @return the output of the hat. Null if it did not return anything.
      * @throws VisionException if there is an error running any of the Commands in the Hat.
      */
-    public void run(Object[] inputs) throws VisionException {
-        setupInputs(inputs);
+    public Object run(ExecutionContext context, Object[] inputs) throws VisionException {
+        Frame frame = obtainFrame();
+        try {
+            frame.setContext(context);
+            setupInputs(frame, inputs);
 
-        running = true;
-        for (Command command : commands) {
-            if (!running) return;
-            command.run();
+            frame.setRunning(true);
+            if (context.getEngine() == Engine.FLAT) {
+                FlatInterpreter.run(getInstructions(), frame);
+            } else if (context.getEngine() == Engine.COMPILED) {
+                getCompiled().run(frame);
+            } else {
+                for (Command command : commands) {
+                    if (!frame.isRunning()) break;
+                    command.run(frame);
+                }
+            }
+            return frame.getOutput();
+        } finally {
+            releaseFrame(frame);
+        }
+    }
+
+    /**
+     * Starts a run of the Hat without running any of its Commands. Used by the Scheduler, which runs the Instructions of the Hat a slice at a time.
+     *
+     * @param context the ExecutionContext to run the Hat in.
+     * @param inputs inputs of the hat.
+     * @return the Frame of the run. Needs to be given to {@link #end(Frame)} once the run is over.
+     */
+    public Frame begin(ExecutionContext context, Object[] inputs) {
+        Frame frame = obtainFrame();
+        frame.setContext(context);
+        setupInputs(frame, inputs);
+        frame.setRunning(true);
+        return frame;
+    }
+
+    /**
+     * Ends a run of the Hat started by {@link #begin(ExecutionContext, Object[])}.
+     *
+     * @param frame the Frame of the run.
+     * @return the output of the run. Null if it did not return anything.
+     */
+    public Object end(Frame frame) {
+        Object output = frame.getOutput();
+        releaseFrame(frame);
+        return output;
+    }
+
+    /**
+     * @return a Frame that is not being used. Reuses a previous Frame if there is one.
+     */
+    private Frame obtainFrame() {
+        synchronized (freeFrames) {
+            if (!freeFrames.isEmpty()) {
+                return freeFrames.remove(freeFrames.size() - 1);
+            }
+        }
+        return new Frame(this);
+    }
+
+    /**
+     * Clears the Frame and keeps it for the next run.
+     *
+     * @param frame the Frame whose run is over.
+     */
+    private void releaseFrame(Frame frame) {
+        frame.clear();
+        synchronized (freeFrames) {
+            if (freeFrames.size() < MAX_POOLED_FRAMES) {
+                freeFrames.add(frame);
+            }
         }
-        running = false;
     }
 
     /**
      * Sets up the inputs of the hat with the given inputs.
+     * @param frame the Frame to put the inputs in.
      * @param inputs the inputs to initialize the hat variables to.
      */
-    private void setupInputs(Object[] inputs){
+    private void setupInputs(Frame frame, Object[] inputs){
 
         // Don't do anything if there are no inputs.
         if(inputs == null) return;
@@ -102,9 +211,9 @@ public class Hat extends CompiledElement<CustomHat> {
         if(inputs.length != variableNames.size())
             throw new IllegalArgumentException("Cannot have different sizes of inputs and variable names");
 
-        // Add new a new variable for each input.
-        for(int i=0;i<variableNames.size();i++)
-            variables.add(new Variable(variableNames.get(i), inputs[i]));
+        // Put a new variable for each input in its slot. Goes backwards so the first input wins if two have the same name.
+        for(int i=variableNames.size()-1;i>=0;i--)
+            frame.set(getSlot(variableNames.get(i)), new Variable(variableNames.get(i), inputs[i]));
     }
 
     /**
@@ -115,12 +224,121 @@ public class Hat extends CompiledElement<CustomHat> {
     private void initVariableNames(ArrayList<Input> inputs) {
         variableNames = new ArrayList<>();
         if(inputs == null) return;
-        for(Input input : inputs)
+        for(Input input : inputs) {
             variableNames.add(input.getText());
+            addSlot(input.getText());
+        }
+    }
+
+    /**
+     * Returns the slot of the local Variable with the given name. Gives the name a new slot if it does not have one.
+     *
+     * @param name the name of the Variable.
+     * @return the slot.
+     */
+    public int addSlot(String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = slotCount++;
+            slots.put(name, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * @return a new slot for a loop Variable. The slot is not given to any name, so it is only found through the CBlock that owns it.
+     */
+    public int addLoopSlot() {
+        return slotCount++;
     }
 
-    public Script getScript() {
-        return script;
+    /**
+     * @param name the name of the Variable.
+     * @return the slot of the local Variable with the given name. -1 if it does not have one.
+     */
+    public int getSlot(String name) {
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * @return the Commands of the Hat lowered to Instructions. Lowers them the first time this is called.
+     */
+    public synchronized Instruction[] getInstructions() {
+        if (instructions == null) {
+            instructions = Lowerer.lower(this);
+        }
+        return instructions;
+    }
+
+    /**
+     * @return the Commands of the Hat compiled to Statements. Compiles them the first time this is called.
+     */
+    public synchronized CompiledHat getCompiled() {
+        if (compiled == null) {
+            compiled = HatCompiler.compile(this);
+        }
+        return compiled;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * @return the index of a new CBlock in the Hat. Used by Frames to keep track of which CBlocks are running.
+     */
+    public int addCBlock() {
+        return cblockCount++;
+    }
+
+    public int getCBlockCount() {
+        return cblockCount;
+    }
+
+    /**
+     * @return the index of the Parameters of a new element in the Hat. Used by Frames to reuse the Parameters of each element.
+     */
+    public int addParameters() {
+        return parametersCount++;
+    }
+
+    public int getParametersCount() {
+        return parametersCount;
+    }
+
+    /**
+     * @return the index of a new HoistedValue in the Hat. Used by Frames to keep the value of each HoistedValue.
+     */
+    public int addHoisted() {
+        return hoistedCount++;
+    }
+
+    public int getHoistedCount() {
+        return hoistedCount;
+    }
+
+    /**
+     * @return the index of a new SharedValue in the Hat. Used by Frames to keep the value of each SharedValue.
+     */
+    public int addShared() {
+        return sharedCount++;
+    }
+
+    public int getSharedCount() {
+        return sharedCount;
+    }
+
+    public ArrayList<String> getVariableNames() {
+        return variableNames;
+    }
+
+    public DefineTemplate getDefinition() {
+        return definition;
+    }
+
+    public void setDefinition(DefineTemplate definition) {
+        this.definition = definition;
     }
 
     /**
@@ -143,23 +361,4 @@ public class Hat extends CompiledElement<CustomHat> {
         }
         return CodeRange.between(commands.get(0).getRange().startLocation(), commands.get(commands.size() - 1).getRange().endLocation());
     }
-
-    /**
-     * Stops the hat from continuing to run.
-     */
-    public void stop() {
-        running = false;
-    }
-
-    public ArrayList<Variable> getVariables() {
-        return variables;
-    }
-
-    public Object getOutput() {
-        return output;
-    }
-
-    public void setOutput(Object output) {
-        this.output = output;
-    }
 }
@@ -8,6 +8,7 @@ import com.jlogical.vision.compiler.Line;
 import com.jlogical.vision.compiler.definitions.DefinedCommand;
 import com.jlogical.vision.compiler.definitions.DefinedReporter;
 import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
 import com.jlogical.vision.compiler.script.Variable;
 import com.jlogical.vision.compiler.values.Value;
 import com.jlogical.vision.project.CodeRange;
@@ -46,6 +47,7 @@ public class Reporter extends CompiledElement<CustomReporter> implements Value {
         super(template, values);
         this.commandHolder = commandHolder;
         this.range = range;
+        setParametersIndex(commandHolder != null && commandHolder.getHatHolder() != null ? commandHolder.getHatHolder().addParameters() : -1);
     }
 
     /**
@@ -71,20 +73,35 @@ public class Reporter extends CompiledElement<CustomReporter> implements Value {
 //        }
 
 
-        ArrayList<Object> inputs = new ArrayList<>();
-        for(int i = 0;i<e.getValues().size();i++)
-            inputs.add(e.get(i));
-        hat.run(inputs.toArray());
-        return hat.getOutput();
+        Object[] inputs = new Object[e.getValues().size()];
+        for(int i = 0;i<inputs.length;i++)
+            inputs[i] = e.get(i);
+        return hat.run(e.getContext(), inputs);
     }
 
     @Override
-    public Object getValue() throws VisionException {
-        return getTemplate().getRunnable().getValue(new ReporterParameters(this, getValues(), commandHolder, getRange()));
+    public Object getValue(Frame frame) throws VisionException {
+        ReporterParameters parameters = (ReporterParameters) frame.getParameters(getParametersIndex());
+        if (parameters == null) {
+            parameters = new ReporterParameters(this, getValues(), commandHolder, getRange(), frame);
+            frame.setParameters(getParametersIndex(), parameters);
+        }
+        return getTemplate().getRunnable().getValue(parameters);
     }
 
     @Override
     public CodeRange getRange() {
         return range;
     }
+
+    public Command getCommandHolder() {
+        return commandHolder;
+    }
+
+    /**
+     * @return the DefinedReporter this Reporter runs. Null if it runs a CustomReporter.
+     */
+    public DefinedReporter getDefinedReporter() {
+        return definedReporter;
+    }
 }
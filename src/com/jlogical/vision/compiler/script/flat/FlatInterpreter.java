@@ -0,0 +1,95 @@
+package com.jlogical.vision.compiler.script.flat;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+
+import static com.jlogical.vision.compiler.script.flat.Instruction.*;
+
+/**
+ * Runs the Instructions of a lowered Hat in a single dispatch loop.
+ */
+public class FlatInterpreter {
+
+    /**
+     * Runs the given Instructions in the given Frame.
+     *
+     * @param instructions the Instructions of the Hat.
+     * @param frame        the Frame of the run.
+     * @throws VisionException if there is an error running any of the Commands.
+     */
+    public static void run(Instruction[] instructions, Frame frame) throws VisionException {
+        run(instructions, frame, 0, -1);
+    }
+
+    /**
+     * Runs the given Instructions in the given Frame from the given index until they finish or have jumped back to the start of a loop too many times.
+     * Every value the Instructions use is kept in the Frame, so the run can be resumed later from the index that is returned.
+     *
+     * @param instructions the Instructions of the Hat.
+     * @param frame        the Frame of the run.
+     * @param pc           the index of the Instruction to start at.
+     * @param budget       the number of jumps back to the start of a loop to take before stopping. -1 for no limit.
+     * @return the index to resume the run from. -1 if the run is over.
+     * @throws VisionException if there is an error running any of the Commands.
+     */
+    public static int run(Instruction[] instructions, Frame frame, int pc, int budget) throws VisionException {
+        while (pc < instructions.length) {
+            Instruction instruction = instructions[pc++];
+            CBlock cblock = instruction.getCBlock();
+            switch (instruction.getOp()) {
+                case RUN:
+                    instruction.getCommand().run(frame);
+                    break;
+                case ENTER:
+                    frame.setRunning(cblock, true);
+                    break;
+                case EXIT:
+                    frame.setRunning(cblock, false);
+                    break;
+                case JUMP:
+                    if (instruction.getTarget() < pc && budget >= 0 && budget-- == 0) return instruction.getTarget();
+                    pc = instruction.getTarget();
+                    break;
+                case JUMP_IF_FALSE:
+                    if (!cblock.getParameters(frame).bool(0)) pc = instruction.getTarget();
+                    break;
+                case JUMP_IF_TRUE:
+                    if (cblock.getParameters(frame).bool(0)) pc = instruction.getTarget();
+                    break;
+                case JUMP_IF_STOPPED:
+                    if (!frame.isRunning(cblock)) pc = instruction.getTarget();
+                    break;
+                case RESET_COUNTER:
+                    frame.setCounter(cblock, 0);
+                    break;
+                case INCREMENT_COUNTER:
+                    frame.setCounter(cblock, frame.getCounter(cblock) + 1);
+                    break;
+                case JUMP_IF_COUNTED:
+                    if (frame.getCounter(cblock) >= cblock.getParameters(frame).numInt(0)) pc = instruction.getTarget();
+                    break;
+                case DECLARE_LOOP_VARIABLE:
+                    cblock.getParameters(frame).declareLoopVariable(0);
+                    frame.setCounter(cblock, 1);
+                    break;
+                case JUMP_IF_PAST:
+                    if (frame.getCounter(cblock) > cblock.getParameters(frame).numInt(1)) pc = instruction.getTarget();
+                    break;
+                case SET_LOOP_VARIABLE:
+                    frame.get(cblock.getLoopSlot()).setNum(frame.getCounter(cblock));
+                    break;
+                case REMOVE_LOOP_VARIABLE:
+                    frame.set(cblock.getLoopSlot(), null);
+                    break;
+                case RETURN_IF_STOPPED:
+                    if (!frame.isRunning()) return -1;
+                    break;
+                case LOAD_HOISTED:
+                    cblock.loadHoisted(frame);
+                    break;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,140 @@
+package com.jlogical.vision.compiler.script.flat;
+
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.script.elements.Command;
+
+/**
+ * One step of a Hat that was lowered to a flat array. Most Instructions act on the CBlock they were lowered from.
+ */
+public class Instruction {
+
+    /**
+     * Runs a Command the same way the tree does.
+     */
+    public static final int RUN = 0;
+
+    /**
+     * Marks the CBlock as running.
+     */
+    public static final int ENTER = 1;
+
+    /**
+     * Marks the CBlock as not running.
+     */
+    public static final int EXIT = 2;
+
+    /**
+     * Jumps to the target.
+     */
+    public static final int JUMP = 3;
+
+    /**
+     * Jumps to the target if the first input of the CBlock is false.
+     */
+    public static final int JUMP_IF_FALSE = 4;
+
+    /**
+     * Jumps to the target if the first input of the CBlock is true.
+     */
+    public static final int JUMP_IF_TRUE = 5;
+
+    /**
+     * Jumps to the target if the CBlock was stopped.
+     */
+    public static final int JUMP_IF_STOPPED = 6;
+
+    /**
+     * Sets the counter of the CBlock to 0.
+     */
+    public static final int RESET_COUNTER = 7;
+
+    /**
+     * Adds 1 to the counter of the CBlock.
+     */
+    public static final int INCREMENT_COUNTER = 8;
+
+    /**
+     * Jumps to the target unless the counter of the CBlock is less than its first input.
+     */
+    public static final int JUMP_IF_COUNTED = 9;
+
+    /**
+     * Creates the loop Variable of the CBlock and sets its counter to 1.
+     */
+    public static final int DECLARE_LOOP_VARIABLE = 10;
+
+    /**
+     * Jumps to the target if the counter of the CBlock is greater than its second input.
+     */
+    public static final int JUMP_IF_PAST = 11;
+
+    /**
+     * Sets the loop Variable of the CBlock to its counter.
+     */
+    public static final int SET_LOOP_VARIABLE = 12;
+
+    /**
+     * Removes the loop Variable of the CBlock.
+     */
+    public static final int REMOVE_LOOP_VARIABLE = 13;
+
+    /**
+     * Stops running the Hat if it was stopped.
+     */
+    public static final int RETURN_IF_STOPPED = 14;
+
+    /**
+     * Evaluates the HoistedValues of the CBlock.
+     */
+    public static final int LOAD_HOISTED = 15;
+
+    /**
+     * The operation of the Instruction.
+     */
+    private int op;
+
+    /**
+     * The Command to run. Only used by {@link #RUN}.
+     */
+    private Command command;
+
+    /**
+     * The CBlock the Instruction was lowered from. Null if none.
+     */
+    private CBlock cblock;
+
+    /**
+     * The index of the Instruction to jump to. -1 if the Instruction does not jump.
+     */
+    private int target;
+
+    /**
+     * Creates an Instruction with the given operation, Command, CBlock, and target.
+     */
+    public Instruction(int op, Command command, CBlock cblock, int target) {
+        this.op = op;
+        this.command = command;
+        this.cblock = cblock;
+        this.target = target;
+    }
+
+    public int getOp() {
+        return op;
+    }
+
+    public Command getCommand() {
+        return command;
+    }
+
+    public CBlock getCBlock() {
+        return cblock;
+    }
+
+    public int getTarget() {
+        return target;
+    }
+
+    public void setTarget(int target) {
+        this.target = target;
+    }
+}
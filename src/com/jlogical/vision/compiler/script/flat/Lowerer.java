@@ -0,0 +1,170 @@
+package com.jlogical.vision.compiler.script.flat;
+
+import com.jlogical.vision.api.elements.ControlFlow;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.elements.End;
+import com.jlogical.vision.compiler.script.elements.Hat;
+
+import java.util.ArrayList;
+
+import static com.jlogical.vision.compiler.script.flat.Instruction.*;
+
+/**
+ * Lowers the Commands of a Hat to a flat array of Instructions.
+ * CBlocks with a known {@link ControlFlow} become jumps. Each one runs in the same order as its runnable does, so both engines stop loops and return from Hats the same way.
+ */
+public class Lowerer {
+
+    /**
+     * The Instructions lowered so far.
+     */
+    private ArrayList<Instruction> instructions;
+
+    /**
+     * Creates a Lowerer.
+     */
+    private Lowerer() {
+        this.instructions = new ArrayList<>();
+    }
+
+    /**
+     * Lowers the Commands of the given Hat.
+     *
+     * @param hat the Hat to lower.
+     * @return the Instructions.
+     */
+    public static Instruction[] lower(Hat hat) {
+        Lowerer lowerer = new Lowerer();
+        for (Command command : hat.getCommands()) {
+            if (command instanceof End) continue;
+            lowerer.lowerCommand(command);
+            lowerer.emit(RETURN_IF_STOPPED, null, -1);
+        }
+        return lowerer.instructions.toArray(new Instruction[0]);
+    }
+
+    /**
+     * Lowers a Command. CBlocks without a known control flow are run like any other Command.
+     */
+    private void lowerCommand(Command command) {
+        if (command instanceof CBlock && ((CBlock) command).getTemplate().getControlFlow() != null) {
+            lowerCBlock((CBlock) command);
+        } else {
+            instructions.add(new Instruction(RUN, command, null, -1));
+        }
+    }
+
+    /**
+     * Lowers a CBlock with a known control flow. Matches what running the CBlock and its runnable does.
+     */
+    private void lowerCBlock(CBlock cblock) {
+        emit(ENTER, cblock, -1);
+        if (!cblock.getHoisted().isEmpty()) {
+            emit(LOAD_HOISTED, cblock, -1);
+        }
+        switch (cblock.getTemplate().getControlFlow()) {
+            case IF: {
+                Instruction toChain = emit(JUMP_IF_FALSE, cblock, -1);
+                lowerLoop(cblock);
+                if (cblock.getChain() != null) {
+                    Instruction toExit = emit(JUMP, cblock, -1);
+                    toChain.setTarget(here());
+                    lowerCommand(cblock.getChain());
+                    toExit.setTarget(here());
+                } else {
+                    toChain.setTarget(here());
+                }
+                break;
+            }
+            case ELSE:
+                lowerLoop(cblock);
+                break;
+            case REPEAT: {
+                emit(RESET_COUNTER, cblock, -1);
+                int start = here();
+                Instruction counted = emit(JUMP_IF_COUNTED, cblock, -1);
+                Instruction stopped = emit(JUMP_IF_STOPPED, cblock, -1);
+                lowerLoop(cblock);
+                emit(INCREMENT_COUNTER, cblock, -1);
+                emit(JUMP, cblock, start);
+                counted.setTarget(here());
+                stopped.setTarget(here());
+                break;
+            }
+            case WHILE:
+            case UNTIL: {
+                int start = here();
+                Instruction done = emit(cblock.getTemplate().getControlFlow() == ControlFlow.WHILE ? JUMP_IF_FALSE : JUMP_IF_TRUE, cblock, -1);
+                Instruction stopped = emit(JUMP_IF_STOPPED, cblock, -1);
+                lowerLoop(cblock);
+                emit(JUMP, cblock, start);
+                done.setTarget(here());
+                stopped.setTarget(here());
+                break;
+            }
+            case FOREVER: {
+                int start = here();
+                Instruction stopped = emit(JUMP_IF_STOPPED, cblock, -1);
+                lowerLoop(cblock);
+                emit(JUMP, cblock, start);
+                stopped.setTarget(here());
+                break;
+            }
+            case FOR_EVERY: {
+                emit(DECLARE_LOOP_VARIABLE, cblock, -1);
+                int start = here();
+                Instruction past = emit(JUMP_IF_PAST, cblock, -1);
+                Instruction stopped = emit(JUMP_IF_STOPPED, cblock, -1);
+                emit(SET_LOOP_VARIABLE, cblock, -1);
+                lowerLoop(cblock);
+                emit(INCREMENT_COUNTER, cblock, -1);
+                emit(JUMP, cblock, start);
+                past.setTarget(here());
+                stopped.setTarget(here());
+                emit(REMOVE_LOOP_VARIABLE, cblock, -1);
+                break;
+            }
+        }
+        emit(EXIT, cblock, -1);
+    }
+
+    /**
+     * Lowers the Commands inside a CBlock. Matches {@link CBlock#runLoop}, which stops as soon as the CBlock is stopped.
+     */
+    private void lowerLoop(CBlock cblock) {
+        emit(ENTER, cblock, -1);
+        ArrayList<Instruction> checks = new ArrayList<>();
+        ArrayList<Command> commands = cblock.getCommands();
+        int last = commands.size() - 1;
+        while (last >= 0 && commands.get(last) instanceof End) last--;
+        for (int i = 0; i <= last; i++) {
+            if (commands.get(i) instanceof End) continue;
+            lowerCommand(commands.get(i));
+            if (i < last) {
+                checks.add(emit(JUMP_IF_STOPPED, cblock, -1));
+            }
+        }
+        for (Instruction check : checks) {
+            check.setTarget(here());
+        }
+    }
+
+    /**
+     * Adds an Instruction for the given CBlock.
+     *
+     * @return the Instruction, so its target can be set later.
+     */
+    private Instruction emit(int op, CBlock cblock, int target) {
+        Instruction instruction = new Instruction(op, null, cblock, target);
+        instructions.add(instruction);
+        return instruction;
+    }
+
+    /**
+     * @return the index of the next Instruction.
+     */
+    private int here() {
+        return instructions.size();
+    }
+}
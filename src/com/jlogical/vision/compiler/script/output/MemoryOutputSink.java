@@ -0,0 +1,102 @@
+package com.jlogical.vision.compiler.script.output;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps all of the output in memory. Lines are appended to fixed size chunks, so a long output is never copied to grow it.
+ */
+public class MemoryOutputSink implements OutputSink {
+
+    /**
+     * The number of characters in each chunk.
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * The chunks of output. Only the last one is written to. Empty until the first line is written.
+     */
+    private ArrayList<StringBuilder> chunks;
+
+    /**
+     * The number of lines written.
+     */
+    private long lineCount;
+
+    /**
+     * The number of characters written, including the separators between lines.
+     */
+    private long length;
+
+    /**
+     * The text of the output. Null if lines were written since it was last built.
+     */
+    private String text;
+
+    /**
+     * Creates an empty MemoryOutputSink.
+     */
+    public MemoryOutputSink() {
+        chunks = new ArrayList<>();
+        text = "";
+    }
+
+    @Override
+    public synchronized void writeLine(String line) {
+        if (lineCount > 0) {
+            append("\n");
+        }
+        append(line);
+        lineCount++;
+        text = null;
+    }
+
+    /**
+     * Appends the given text to the chunks, starting new chunks as each one fills up.
+     */
+    private void append(String s) {
+        int start = 0;
+        while (start < s.length()) {
+            StringBuilder chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+            int room = chunk != null ? CHUNK_SIZE - chunk.length() : 0;
+            if (room == 0) {
+                chunk = new StringBuilder(CHUNK_SIZE);
+                chunks.add(chunk);
+                room = CHUNK_SIZE;
+            }
+            int end = Math.min(s.length(), start + room);
+            chunk.append(s, start, end);
+            start = end;
+        }
+        length += s.length();
+    }
+
+    /**
+     * Removes all of the output.
+     */
+    public synchronized void clear() {
+        chunks.clear();
+        lineCount = 0;
+        length = 0;
+        text = "";
+    }
+
+    @Override
+    public synchronized String getText() {
+        if (text == null) {
+            StringBuilder builder = new StringBuilder((int) Math.min(length, Integer.MAX_VALUE - 8));
+            for (StringBuilder chunk : chunks) {
+                builder.append(chunk);
+            }
+            text = builder.toString();
+        }
+        return text;
+    }
+
+    public synchronized long getLineCount() {
+        return lineCount;
+    }
+
+    public synchronized long getLength() {
+        return length;
+    }
+}
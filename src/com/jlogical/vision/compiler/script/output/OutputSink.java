@@ -0,0 +1,45 @@
+package com.jlogical.vision.compiler.script.output;
+
+/**
+ * Receives the output of a Script, such as the lines written by the 'print []' command.
+ */
+public interface OutputSink {
+
+    /**
+     * Writes a line of output.
+     *
+     * @param line the line, without a line separator.
+     */
+    void writeLine(String line);
+
+    /**
+     * Writes text that asks the user for input. Sinks that write to a console show it right away, without a line separator.
+     *
+     * @param prompt the text asking for input.
+     */
+    default void writePrompt(String prompt) {
+        writeLine(prompt);
+    }
+
+    /**
+     * Writes input the user gave. Sinks that write to a console skip it, since the console already shows it.
+     *
+     * @param input the input.
+     */
+    default void writeInput(String input) {
+        writeLine(input);
+    }
+
+    /**
+     * Writes out any output that is being held back.
+     */
+    default void flush() {
+    }
+
+    /**
+     * @return the output the sink keeps, one line after another. Empty if the sink does not keep its output.
+     */
+    default String getText() {
+        return "";
+    }
+}
@@ -0,0 +1,80 @@
+package com.jlogical.vision.compiler.script.output;
+
+/**
+ * Keeps only the last lines of the output, dropping the oldest line once it is full.
+ */
+public class RingOutputSink implements OutputSink {
+
+    /**
+     * The lines kept, starting at {@link #start} and wrapping around.
+     */
+    private String[] lines;
+
+    /**
+     * The index of the oldest line kept.
+     */
+    private int start;
+
+    /**
+     * The number of lines kept.
+     */
+    private int size;
+
+    /**
+     * The number of lines that were dropped to make room.
+     */
+    private long droppedCount;
+
+    /**
+     * Creates a RingOutputSink that keeps the given number of lines.
+     */
+    public RingOutputSink(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("A RingOutputSink needs to keep at least one line!");
+        }
+        this.lines = new String[capacity];
+    }
+
+    @Override
+    public synchronized void writeLine(String line) {
+        if (size < lines.length) {
+            lines[(start + size++) % lines.length] = line;
+        } else {
+            lines[start] = line;
+            start = (start + 1) % lines.length;
+            droppedCount++;
+        }
+    }
+
+    /**
+     * Removes all of the lines kept.
+     */
+    public synchronized void clear() {
+        lines = new String[lines.length];
+        start = 0;
+        size = 0;
+        droppedCount = 0;
+    }
+
+    @Override
+    public synchronized String getText() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) builder.append('\n');
+            builder.append(lines[(start + i) % lines.length]);
+        }
+        return builder.toString();
+    }
+
+    public int getCapacity() {
+        return lines.length;
+    }
+
+    public synchronized int getSize() {
+        return size;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+}
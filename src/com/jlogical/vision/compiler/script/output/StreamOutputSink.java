@@ -0,0 +1,138 @@
+package com.jlogical.vision.compiler.script.output;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the output to a stream, such as stdout or a file, through a buffer. Lines are held in the buffer until a set number of them have been written,
+ * the buffer fills up, or the sink is flushed. Prompts are always written out right away so the user can see them before giving input.
+ */
+public class StreamOutputSink implements OutputSink {
+
+    /**
+     * The size of the buffer in characters.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The StreamOutputSink that writes to stdout. Shared by every ExecutionContext, since they all write to the same stream.
+     */
+    private static final StreamOutputSink CONSOLE = new StreamOutputSink(System.out, 1);
+
+    /**
+     * The buffered Writer of the stream.
+     */
+    private Writer writer;
+
+    /**
+     * The number of lines written before the buffer is flushed. 0 to only flush when the buffer is full or {@link #flush()} is called.
+     */
+    private int flushEvery;
+
+    /**
+     * The number of lines written since the buffer was last flushed.
+     */
+    private int unflushed;
+
+    /**
+     * Creates a StreamOutputSink that writes to the given stream in the default charset.
+     *
+     * @param out        the stream to write to.
+     * @param flushEvery the number of lines written before the buffer is flushed. 1 to flush every line, 0 to only flush when the buffer is full or the sink is flushed.
+     */
+    public StreamOutputSink(OutputStream out, int flushEvery) {
+        this(new OutputStreamWriter(out, Charset.defaultCharset()), flushEvery);
+    }
+
+    /**
+     * Creates a StreamOutputSink that writes to the given Writer.
+     *
+     * @param writer     the Writer to write to.
+     * @param flushEvery the number of lines written before the buffer is flushed. 1 to flush every line, 0 to only flush when the buffer is full or the sink is flushed.
+     */
+    public StreamOutputSink(Writer writer, int flushEvery) {
+        if (flushEvery < 0) {
+            throw new IllegalArgumentException("Cannot flush every negative number of lines!");
+        }
+        this.writer = new BufferedWriter(writer, BUFFER_SIZE);
+        this.flushEvery = flushEvery;
+    }
+
+    /**
+     * @return the StreamOutputSink that writes to stdout and flushes every line. The same one is returned every time, so it should not be closed.
+     */
+    public static StreamOutputSink console() {
+        return CONSOLE;
+    }
+
+    /**
+     * Creates a StreamOutputSink that writes to the file at the given path, replacing what was in it.
+     *
+     * @param path       the path of the file.
+     * @param flushEvery the number of lines written before the buffer is flushed. 0 to only flush when the buffer is full or the sink is flushed.
+     * @return the StreamOutputSink.
+     * @throws IOException if the file cannot be opened.
+     */
+    public static StreamOutputSink toFile(Path path, int flushEvery) throws IOException {
+        return new StreamOutputSink(Files.newBufferedWriter(path), flushEvery);
+    }
+
+    @Override
+    public synchronized void writeLine(String line) {
+        try {
+            writer.write(line);
+            writer.write(System.lineSeparator());
+            if (flushEvery > 0 && ++unflushed >= flushEvery) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void writePrompt(String prompt) {
+        try {
+            writer.write(prompt);
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void writeInput(String input) {
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            writer.flush();
+            unflushed = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes and closes the stream.
+     */
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getFlushEvery() {
+        return flushEvery;
+    }
+}
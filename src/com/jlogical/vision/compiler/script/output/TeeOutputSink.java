@@ -0,0 +1,65 @@
+package com.jlogical.vision.compiler.script.output;
+
+/**
+ * Writes the output to two OutputSinks, such as one that keeps it in memory and one that writes it to the console.
+ */
+public class TeeOutputSink implements OutputSink {
+
+    /**
+     * The first OutputSink. Its text is the text of the TeeOutputSink.
+     */
+    private OutputSink first;
+
+    /**
+     * The second OutputSink.
+     */
+    private OutputSink second;
+
+    /**
+     * Creates a TeeOutputSink that writes to both of the given OutputSinks.
+     */
+    public TeeOutputSink(OutputSink first, OutputSink second) {
+        if (first == null || second == null) {
+            throw new IllegalArgumentException("OutputSinks cannot be null!");
+        }
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public synchronized void writeLine(String line) {
+        first.writeLine(line);
+        second.writeLine(line);
+    }
+
+    @Override
+    public synchronized void writePrompt(String prompt) {
+        first.writePrompt(prompt);
+        second.writePrompt(prompt);
+    }
+
+    @Override
+    public synchronized void writeInput(String input) {
+        first.writeInput(input);
+        second.writeInput(input);
+    }
+
+    @Override
+    public synchronized void flush() {
+        first.flush();
+        second.flush();
+    }
+
+    @Override
+    public String getText() {
+        return first.getText();
+    }
+
+    public OutputSink getFirst() {
+        return first;
+    }
+
+    public OutputSink getSecond() {
+        return second;
+    }
+}
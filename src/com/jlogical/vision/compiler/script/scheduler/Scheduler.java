@@ -0,0 +1,178 @@
+package com.jlogical.vision.compiler.script.scheduler;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.ExecutionContext;
+import com.jlogical.vision.compiler.script.elements.Hat;
+
+import java.util.ArrayDeque;
+
+/**
+ * Runs many Hats on one thread by giving each a slice at a time, in the order they were started.
+ * A Task yields whenever it has jumped back to the start of a loop a set number of times, so a 'forever' cannot starve the other Tasks.
+ * Slices are counted in loop iterations rather than time, so the order Tasks run in is always the same.
+ * Hats are run from their lowered Instructions, like {@link com.jlogical.vision.compiler.script.Engine#FLAT}.
+ * Defined commands and reporters they call, and CBlocks without a known control flow, run to the end without yielding.
+ * Not thread safe. Tasks need to be started and run on the same thread.
+ */
+public class Scheduler {
+
+    /**
+     * The default number of loop iterations a Task runs before yielding.
+     */
+    public static final int DEFAULT_SLICE = 100;
+
+    /**
+     * The number of jumps back to the start of a loop a Task takes before yielding.
+     */
+    private int slice;
+
+    /**
+     * The Tasks waiting for their next slice.
+     */
+    private ArrayDeque<Task> runQueue;
+
+    /**
+     * The number of slices that have been run.
+     */
+    private long sliceCount;
+
+    /**
+     * The number of times a Task yielded before it was finished.
+     */
+    private long yieldCount;
+
+    /**
+     * The number of Tasks that have finished.
+     */
+    private long finishedCount;
+
+    /**
+     * The total time spent running slices, in nanoseconds.
+     */
+    private long sliceNanos;
+
+    /**
+     * The longest time a slice has taken, in nanoseconds.
+     */
+    private long maxSliceNanos;
+
+    /**
+     * Creates a Scheduler that gives each Task {@link #DEFAULT_SLICE} loop iterations at a time.
+     */
+    public Scheduler() {
+        this(DEFAULT_SLICE);
+    }
+
+    /**
+     * Creates a Scheduler that gives each Task the given number of loop iterations at a time.
+     */
+    public Scheduler(int slice) {
+        if (slice < 0) {
+            throw new IllegalArgumentException("The slice of a Scheduler cannot be negative!");
+        }
+        this.slice = slice;
+        this.runQueue = new ArrayDeque<>();
+    }
+
+    /**
+     * Starts a run of the given Hat. The Hat does not run until the Scheduler is stepped.
+     *
+     * @param context the ExecutionContext to run the Hat in.
+     * @param hat     the Hat to run.
+     * @param inputs  the inputs of the Hat.
+     * @return the Task running the Hat.
+     */
+    public Task spawn(ExecutionContext context, Hat hat, Object[] inputs) {
+        Task task = new Task(context, hat, inputs);
+        runQueue.add(task);
+        return task;
+    }
+
+    /**
+     * Runs one slice of the next Task. Puts the Task back at the end of the run queue if it is not finished.
+     *
+     * @return whether there are Tasks left to run.
+     * @throws VisionException if there is an error running the Task. The Task is dropped.
+     */
+    public boolean step() throws VisionException {
+        Task task = runQueue.poll();
+        if (task == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        boolean finished = true;
+        try {
+            finished = task.runSlice(slice);
+        } finally {
+            long duration = System.nanoTime() - start;
+            sliceCount++;
+            sliceNanos += duration;
+            maxSliceNanos = Math.max(maxSliceNanos, duration);
+            if (finished) {
+                finishedCount++;
+            } else {
+                yieldCount++;
+                runQueue.add(task);
+            }
+        }
+        return !runQueue.isEmpty();
+    }
+
+    /**
+     * Runs Tasks until all of them are finished, including ones started while running.
+     *
+     * @throws VisionException the first exception thrown by any of the Tasks, after the rest have finished.
+     */
+    public void run() throws VisionException {
+        VisionException error = null;
+        while (!runQueue.isEmpty()) {
+            try {
+                step();
+            } catch (VisionException e) {
+                if (error == null) error = e;
+            }
+        }
+        if (error != null) throw error;
+    }
+
+    /**
+     * @return the number of Tasks waiting for their next slice.
+     */
+    public int getRunQueueLength() {
+        return runQueue.size();
+    }
+
+    public long getSliceCount() {
+        return sliceCount;
+    }
+
+    public long getYieldCount() {
+        return yieldCount;
+    }
+
+    public long getFinishedCount() {
+        return finishedCount;
+    }
+
+    public long getMaxSliceNanos() {
+        return maxSliceNanos;
+    }
+
+    /**
+     * @return the average time a slice has taken, in nanoseconds. 0 if no slices have run.
+     */
+    public double getAverageSliceNanos() {
+        return sliceCount == 0 ? 0 : (double) sliceNanos / sliceCount;
+    }
+
+    /**
+     * @return the number of yields per second of time spent running slices. 0 if no slices have run.
+     */
+    public double getYieldsPerSecond() {
+        return sliceNanos == 0 ? 0 : yieldCount / (sliceNanos / 1e9);
+    }
+
+    public int getSlice() {
+        return slice;
+    }
+}
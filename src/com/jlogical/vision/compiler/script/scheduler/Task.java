@@ -0,0 +1,93 @@
+package com.jlogical.vision.compiler.script.scheduler;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.ExecutionContext;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.script.flat.FlatInterpreter;
+import com.jlogical.vision.compiler.script.flat.Instruction;
+
+/**
+ * One run of a Hat in a Scheduler. Runs the Instructions of the Hat a slice at a time, keeping its place between slices.
+ */
+public class Task {
+
+    /**
+     * The Hat being run.
+     */
+    private Hat hat;
+
+    /**
+     * The Instructions of the Hat.
+     */
+    private Instruction[] instructions;
+
+    /**
+     * The Frame of the run. Null once the run is over.
+     */
+    private Frame frame;
+
+    /**
+     * The index of the next Instruction to run.
+     */
+    private int pc;
+
+    /**
+     * The output of the run. Null until the run is over.
+     */
+    private Object output;
+
+    /**
+     * Creates a Task that runs the given Hat in the given ExecutionContext with the given inputs.
+     */
+    public Task(ExecutionContext context, Hat hat, Object[] inputs) {
+        this.hat = hat;
+        this.instructions = hat.getInstructions();
+        this.frame = hat.begin(context, inputs);
+    }
+
+    /**
+     * Runs the Task until it finishes or it has jumped back to the start of a loop the given number of times.
+     *
+     * @param budget the number of jumps back to the start of a loop to take before yielding.
+     * @return whether the Task is finished.
+     * @throws VisionException if there is an error running the Hat. The Task is finished afterwards.
+     */
+    public boolean runSlice(int budget) throws VisionException {
+        try {
+            pc = FlatInterpreter.run(instructions, frame, pc, budget);
+        } catch (VisionException | RuntimeException e) {
+            finish();
+            throw e;
+        }
+        if (pc == -1) {
+            finish();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Ends the run of the Hat.
+     */
+    private void finish() {
+        output = hat.end(frame);
+        frame = null;
+        pc = -1;
+    }
+
+    /**
+     * @return whether the run is over.
+     */
+    public boolean isFinished() {
+        return frame == null;
+    }
+
+    public Hat getHat() {
+        return hat;
+    }
+
+    public Object getOutput() {
+        return output;
+    }
+}
@@ -0,0 +1,81 @@
+package com.jlogical.vision.compiler.script.vis;
+
+/**
+ * Constants of the binary .vis format a compiled Script is stored in. All numbers are big endian.
+ * <pre>
+ * header     int magic, int version
+ * strings    int count, then each: int byte length, UTF-8 bytes
+ * numbers    int count, then each: double
+ * files      int count, then each: int name
+ * ranges     int count, then each: int file, int line start, int char start, int line end, int char end
+ * lines      int count, then each: int file, int line number, int code, int core
+ * hats       int count, then each header: byte kind, int core, int line, int input count, int name of each input
+ *            then each body: int command count, commands
+ * command    byte tag, int line, then nothing more for END, otherwise
+ *            int core (COMMAND, CBLOCK) or int hat (DEFINED_COMMAND), int value count, values
+ *            CBLOCK also has: int command count, commands, byte whether it has a chain, chain CBLOCK
+ * value      byte tag, then
+ *            TEXT: int text, int error, int range, int literal count, int each literal, int value count, values
+ *            NUM: int number, int range
+ *            VARIABLE: int name, int range
+ *            EXPRESSION: int text, int range, expression
+ *            REPORTER: int core, int range, int value count, values
+ *            DEFINED_REPORTER: int hat, int range, int value count, values
+ *            HOISTED: value, only in the inputs of a CBLOCK
+ *            SHARING: value
+ *            SHARED: int id, byte whether it is the first use of the id, then value if it is
+ * expression byte tag, then
+ *            CONSTANT: int number, int range
+ *            OPERATOR: char operator, int range, left expression, right expression
+ *            SIGN: byte negative, int range, operand expression
+ *            REFERENCE: int name, int range
+ *            VALUE: value
+ * </pre>
+ * Strings, numbers, files, ranges and lines are written as their index in their pool. -1 stands for null.
+ * Cores refer to the CustomElements of the APIs of the Project the Script is loaded with, so the same APIs need to be added when loading.
+ */
+public final class VisFormat {
+
+    /**
+     * The first four bytes of every .vis file, "VIS1".
+     */
+    public static final int MAGIC = 0x56495331;
+
+    /**
+     * The version of the format. Files with another version cannot be loaded.
+     */
+    public static final int VERSION = 3;
+
+    // Kinds of Hats.
+    public static final byte EVENT_HAT = 0;
+    public static final byte DEFINED_COMMAND_HAT = 1;
+    public static final byte DEFINED_REPORTER_HAT = 2;
+
+    // Tags of Commands.
+    public static final byte COMMAND = 0;
+    public static final byte CBLOCK = 1;
+    public static final byte END = 2;
+    public static final byte DEFINED_COMMAND = 3;
+
+    // Tags of Values.
+    public static final byte NULL = 0;
+    public static final byte TEXT = 1;
+    public static final byte NUM = 2;
+    public static final byte VARIABLE = 3;
+    public static final byte EXPRESSION = 4;
+    public static final byte REPORTER = 5;
+    public static final byte DEFINED_REPORTER = 6;
+    public static final byte HOISTED = 7;
+    public static final byte SHARING = 8;
+    public static final byte SHARED = 9;
+
+    // Tags of Expressions.
+    public static final byte CONSTANT = 0;
+    public static final byte OPERATOR = 1;
+    public static final byte SIGN = 2;
+    public static final byte REFERENCE = 3;
+    public static final byte VALUE = 4;
+
+    private VisFormat() {
+    }
+}
@@ -0,0 +1,490 @@
+package com.jlogical.vision.compiler.script.vis;
+
+import com.jlogical.vision.api.elements.CustomCBlock;
+import com.jlogical.vision.api.elements.CustomCommand;
+import com.jlogical.vision.api.elements.CustomHat;
+import com.jlogical.vision.api.elements.CustomReporter;
+import com.jlogical.vision.compiler.Input;
+import com.jlogical.vision.compiler.Line;
+import com.jlogical.vision.compiler.VariableResolver;
+import com.jlogical.vision.compiler.definitions.DefineTemplate;
+import com.jlogical.vision.compiler.definitions.DefinedCommand;
+import com.jlogical.vision.compiler.definitions.DefinedReporter;
+import com.jlogical.vision.compiler.exceptions.FileFormatException;
+import com.jlogical.vision.compiler.script.Script;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.elements.End;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+import com.jlogical.vision.compiler.values.ExpressionValue;
+import com.jlogical.vision.compiler.values.NumValue;
+import com.jlogical.vision.compiler.values.SharedValue;
+import com.jlogical.vision.compiler.values.SharingValue;
+import com.jlogical.vision.compiler.values.TextValue;
+import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.compiler.values.VariableValue;
+import com.jlogical.vision.compiler.values.expression.ConstantExpression;
+import com.jlogical.vision.compiler.values.expression.Expression;
+import com.jlogical.vision.compiler.values.expression.OperatorExpression;
+import com.jlogical.vision.compiler.values.expression.ReferenceExpression;
+import com.jlogical.vision.compiler.values.expression.SignExpression;
+import com.jlogical.vision.compiler.values.expression.ValueExpression;
+import com.jlogical.vision.project.CodeLocation;
+import com.jlogical.vision.project.CodeRange;
+import com.jlogical.vision.project.Project;
+import com.jlogical.vision.project.VisionFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static com.jlogical.vision.compiler.script.vis.VisFormat.*;
+
+/**
+ * Loads a Script from the binary .vis format described by {@link VisFormat} without lexing or compiling any code.
+ * The CustomElements of the Script are looked up by their cores in the APIs of the given Project.
+ */
+public class VisReader {
+
+    /**
+     * The bytes being read.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * The Project the Script is loaded into.
+     */
+    private Project project;
+
+    /**
+     * The CustomCommands and CustomCBlocks of the Project by their cores.
+     */
+    private HashMap<String, CustomCommand> commands;
+
+    /**
+     * The CustomReporters of the Project by their cores.
+     */
+    private HashMap<String, CustomReporter> reporters;
+
+    /**
+     * The CustomHats of the Project by their cores.
+     */
+    private HashMap<String, CustomHat> hatTemplates;
+
+    /**
+     * The string pool.
+     */
+    private String[] strings;
+
+    /**
+     * The number pool.
+     */
+    private double[] numbers;
+
+    /**
+     * The VisionFiles the ranges and lines are in.
+     */
+    private VisionFile[] files;
+
+    /**
+     * The CodeRange pool.
+     */
+    private CodeRange[] ranges;
+
+    /**
+     * The line table.
+     */
+    private Line[] lines;
+
+    /**
+     * The Hats of the Script.
+     */
+    private Hat[] hats;
+
+    /**
+     * The SharedValues that have been read by their ids.
+     */
+    private HashMap<Integer, SharedValue> shared;
+
+    /**
+     * Creates a VisReader for the given bytes and Project.
+     */
+    private VisReader(ByteBuffer buffer, Project project) {
+        this.buffer = buffer;
+        this.project = project;
+        this.commands = new HashMap<>();
+        this.reporters = new HashMap<>();
+        this.hatTemplates = new HashMap<>();
+        this.shared = new HashMap<>();
+        // Commands take priority over CBlocks with the same core, like when compiling.
+        for (CustomCBlock cblock : project.getCBlocks()) commands.put(cblock.getCore(), cblock);
+        for (CustomCommand command : project.getCommands()) commands.put(command.getCore(), command);
+        for (CustomReporter reporter : project.getReporters()) reporters.put(reporter.getCore(), reporter);
+        for (CustomHat hat : project.getHats()) hatTemplates.put(hat.getCore(), hat);
+    }
+
+    /**
+     * Loads the Script in the .vis file at the given path. The file is memory mapped rather than read into an array.
+     *
+     * @param path    the path of the file.
+     * @param project the Project to load the Script into. Needs to have the APIs the Script was compiled with.
+     * @return the Script.
+     * @throws IOException         if there is an error reading the file.
+     * @throws FileFormatException if the file is not a .vis file of this version, or uses elements the Project does not have.
+     */
+    public static Script read(Path path, Project project) throws IOException, FileFormatException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), project);
+        }
+    }
+
+    /**
+     * Loads the Script in the given bytes of a .vis file.
+     *
+     * @param bytes   the bytes.
+     * @param project the Project to load the Script into. Needs to have the APIs the Script was compiled with.
+     * @return the Script.
+     * @throws FileFormatException if the bytes are not a .vis file of this version, or use elements the Project does not have.
+     */
+    public static Script read(byte[] bytes, Project project) throws FileFormatException {
+        return read(ByteBuffer.wrap(bytes), project);
+    }
+
+    /**
+     * Loads the Script in the given buffer of a .vis file, starting at its position.
+     *
+     * @param buffer  the buffer.
+     * @param project the Project to load the Script into. Needs to have the APIs the Script was compiled with.
+     * @return the Script.
+     * @throws FileFormatException if the buffer is not a .vis file of this version, or uses elements the Project does not have.
+     */
+    public static Script read(ByteBuffer buffer, Project project) throws FileFormatException {
+        try {
+            return new VisReader(buffer, project).read();
+        } catch (RuntimeException e) {
+            // Anything else that goes wrong while reading, like an index out of bounds or the end of the buffer, means the file is corrupt.
+            throw new FileFormatException("The .vis file is not valid: " + e);
+        }
+    }
+
+    /**
+     * Reads the Script.
+     */
+    private Script read() throws FileFormatException {
+        if (buffer.getInt() != MAGIC) {
+            throw new FileFormatException("Not a .vis file.");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new FileFormatException("Cannot load version " + version + " of the .vis format.");
+        }
+        readPools();
+
+        Script script = Script.blank();
+        hats = new Hat[count()];
+        for (int i = 0; i < hats.length; i++) {
+            hats[i] = readHatHeader();
+        }
+        for (Hat hat : hats) {
+            int count = count();
+            for (int i = 0; i < count; i++) {
+                hat.addCommand(readCommand(hat, null));
+            }
+        }
+        script.setHats(new ArrayList<>(Arrays.asList(hats)));
+        script.setCompileLog("");
+        new VariableResolver(script).resolve();
+        return script;
+    }
+
+    /**
+     * Reads the strings, numbers, files, ranges and lines.
+     */
+    private void readPools() throws FileFormatException {
+        strings = new String[count()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[count()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        numbers = new double[count()];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = buffer.getDouble();
+        }
+        files = new VisionFile[count()];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = findFile(strings[buffer.getInt()]);
+        }
+        ranges = new CodeRange[count()];
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = new CodeRange(project, files[buffer.getInt()], buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        }
+        lines = new Line[count()];
+        for (int i = 0; i < lines.length; i++) {
+            VisionFile file = files[buffer.getInt()];
+            int lineNum = buffer.getInt();
+            lines[i] = new Line(strings[buffer.getInt()], strings[buffer.getInt()], null, new CodeLocation(project, file, lineNum));
+        }
+    }
+
+    /**
+     * @return the VisionFile of the Project with the given name. An empty VisionFile with the name if the Project does not have one.
+     */
+    private VisionFile findFile(String name) {
+        for (VisionFile file : project.getFiles()) {
+            if (file.getName().equals(name)) {
+                return file;
+            }
+        }
+        return new VisionFile(name, "");
+    }
+
+    /**
+     * Reads the header of a Hat and creates it without any Commands.
+     */
+    private Hat readHatHeader() throws FileFormatException {
+        byte kind = buffer.get();
+        String core = strings[buffer.getInt()];
+        int line = buffer.getInt();
+        ArrayList<Input> inputs = new ArrayList<>();
+        int count = count();
+        for (int i = 0; i < count; i++) {
+            inputs.add(new Input(strings[buffer.getInt()], null, '('));
+        }
+        switch (kind) {
+            case EVENT_HAT:
+                CustomHat template = hatTemplates.get(core);
+                if (template == null) {
+                    throw new FileFormatException("The Project does not have the hat '" + core + "'.");
+                }
+                return new Hat(template, inputs);
+            case DEFINED_COMMAND_HAT:
+                DefinedCommand command = new DefinedCommand(lines[line], core);
+                Hat commandHat = Hat.defineTemplateHat(inputs);
+                command.setHat(commandHat);
+                commandHat.setDefinition(command);
+                return commandHat;
+            case DEFINED_REPORTER_HAT:
+                DefinedReporter reporter = new DefinedReporter(lines[line], core);
+                Hat reporterHat = Hat.defineTemplateHat(inputs);
+                reporter.setHat(reporterHat);
+                reporterHat.setDefinition(reporter);
+                return reporterHat;
+            default:
+                throw new FileFormatException("Unknown kind of hat " + kind + ".");
+        }
+    }
+
+    /**
+     * Reads a Command, including the Commands inside it and its chain if it is a CBlock.
+     */
+    private Command readCommand(Hat hat, CBlock cblockHolder) throws FileFormatException {
+        byte tag = buffer.get();
+        Line line = lines[buffer.getInt()];
+        switch (tag) {
+            case END:
+                return new End(line);
+            case DEFINED_COMMAND: {
+                DefinedCommand definition = definition(DefinedCommand.class);
+                Command command = Command.definedCommand(definition, null, line, hat, cblockHolder);
+                command.setValues(readValues(command));
+                return command;
+            }
+            case COMMAND: {
+                CustomCommand template = commands.get(strings[buffer.getInt()]);
+                if (template == null || template instanceof CustomCBlock) {
+                    throw new FileFormatException("The Project does not have the command in '" + line.getCode() + "'.");
+                }
+                Command command = new Command(template, null, line, hat, cblockHolder);
+                command.setValues(readValues(command));
+                return command;
+            }
+            case CBLOCK: {
+                CustomCommand template = commands.get(strings[buffer.getInt()]);
+                if (!(template instanceof CustomCBlock)) {
+                    throw new FileFormatException("The Project does not have the CBlock in '" + line.getCode() + "'.");
+                }
+                CBlock cblock = new CBlock((CustomCBlock) template, null, line, hat, null, cblockHolder, null);
+                cblock.setValues(readValues(cblock));
+                int count = count();
+                for (int i = 0; i < count; i++) {
+                    cblock.getCommands().add(readCommand(hat, cblock));
+                }
+                if (buffer.get() != 0) {
+                    cblock.setChain((CBlock) readCommand(hat, cblock));
+                }
+                return cblock;
+            }
+            default:
+                throw new FileFormatException("Unknown command tag " + tag + ".");
+        }
+    }
+
+    /**
+     * Reads the number of Values and each Value.
+     */
+    private ArrayList<Value> readValues(Command commandHolder) throws FileFormatException {
+        int count = count();
+        ArrayList<Value> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readValue(commandHolder));
+        }
+        return values;
+    }
+
+    /**
+     * Reads a Value and the Values inside it.
+     */
+    private Value readValue(Command commandHolder) throws FileFormatException {
+        byte tag = buffer.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TEXT: {
+                String text = strings[buffer.getInt()];
+                String error = string(buffer.getInt());
+                CodeRange range = range(buffer.getInt());
+                ArrayList<String> literals = new ArrayList<>();
+                int literalCount = count();
+                for (int i = 0; i < literalCount; i++) {
+                    literals.add(strings[buffer.getInt()]);
+                }
+                ArrayList<Value> values = new ArrayList<>();
+                int valueCount = count();
+                for (int i = 0; i < valueCount; i++) {
+                    values.add(readValue(commandHolder));
+                }
+                if (error != null) {
+                    return TextValue.failedTextValue(text, error, range);
+                }
+                return new TextValue(text, literals, values, range);
+            }
+            case NUM:
+                return new NumValue(numbers[buffer.getInt()], range(buffer.getInt()));
+            case VARIABLE:
+                return new VariableValue(strings[buffer.getInt()], range(buffer.getInt()), commandHolder);
+            case EXPRESSION: {
+                String text = strings[buffer.getInt()];
+                CodeRange range = range(buffer.getInt());
+                return new ExpressionValue(text, readExpression(commandHolder), range, commandHolder);
+            }
+            case REPORTER: {
+                String core = strings[buffer.getInt()];
+                CustomReporter template = reporters.get(core);
+                if (template == null) {
+                    throw new FileFormatException("The Project does not have the reporter '" + core + "'.");
+                }
+                CodeRange range = range(buffer.getInt());
+                return new Reporter(template, readValues(commandHolder), commandHolder, range);
+            }
+            case DEFINED_REPORTER: {
+                DefinedReporter definition = definition(DefinedReporter.class);
+                Reporter reporter = Reporter.definedReporter(definition, null, commandHolder, range(buffer.getInt()));
+                reporter.setValues(readValues(commandHolder));
+                return reporter;
+            }
+            case HOISTED: {
+                if (!(commandHolder instanceof CBlock)) {
+                    throw new FileFormatException("Only the inputs of CBlocks can be hoisted.");
+                }
+                return ((CBlock) commandHolder).hoist(readValue(commandHolder));
+            }
+            case SHARING:
+                return new SharingValue(readValue(commandHolder));
+            case SHARED: {
+                int id = buffer.getInt();
+                if (buffer.get() != 0) {
+                    SharedValue value = new SharedValue(readValue(commandHolder), commandHolder.getHatHolder().addShared());
+                    shared.put(id, value);
+                    return value;
+                }
+                SharedValue value = shared.get(id);
+                if (value == null) {
+                    throw new FileFormatException("Shared value " + id + " is used before it is defined.");
+                }
+                return value;
+            }
+            default:
+                throw new FileFormatException("Unknown value tag " + tag + ".");
+        }
+    }
+
+    /**
+     * Reads an Expression and the Expressions inside it.
+     */
+    private Expression readExpression(Command commandHolder) throws FileFormatException {
+        byte tag = buffer.get();
+        switch (tag) {
+            case CONSTANT:
+                return new ConstantExpression(numbers[buffer.getInt()], range(buffer.getInt()));
+            case OPERATOR: {
+                char operator = buffer.getChar();
+                CodeRange range = range(buffer.getInt());
+                Expression left = readExpression(commandHolder);
+                return new OperatorExpression(operator, left, readExpression(commandHolder), range);
+            }
+            case SIGN: {
+                boolean negative = buffer.get() != 0;
+                CodeRange range = range(buffer.getInt());
+                return new SignExpression(negative ? '-' : '+', readExpression(commandHolder), range);
+            }
+            case REFERENCE:
+                return new ReferenceExpression(new VariableValue(strings[buffer.getInt()], range(buffer.getInt()), commandHolder));
+            case VALUE:
+                return new ValueExpression(readValue(commandHolder));
+            default:
+                throw new FileFormatException("Unknown expression tag " + tag + ".");
+        }
+    }
+
+    /**
+     * Reads the number of items that follow.
+     *
+     * @return the number.
+     * @throws FileFormatException if the number is negative or more than the bytes left, since every item takes at least one byte.
+     */
+    private int count() throws FileFormatException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new FileFormatException("Invalid count " + count + ".");
+        }
+        return count;
+    }
+
+    /**
+     * Reads the index of a Hat and returns the definition it holds.
+     *
+     * @param type the type of the definition.
+     * @return the definition.
+     * @throws FileFormatException if the Hat does not hold a definition of the given type.
+     */
+    private <T extends DefineTemplate> T definition(Class<T> type) throws FileFormatException {
+        int index = buffer.getInt();
+        DefineTemplate definition = hats[index].getDefinition();
+        if (!type.isInstance(definition)) {
+            throw new FileFormatException("Hat " + index + " is not a " + type.getSimpleName() + ".");
+        }
+        return type.cast(definition);
+    }
+
+    /**
+     * @return the string at the given index in the pool. Null if the index is -1.
+     */
+    private String string(int index) {
+        return index == -1 ? null : strings[index];
+    }
+
+    /**
+     * @return the CodeRange at the given index in the pool. Null if the index is -1.
+     */
+    private CodeRange range(int index) {
+        return index == -1 ? null : ranges[index];
+    }
+}
@@ -0,0 +1,480 @@
+package com.jlogical.vision.compiler.script.vis;
+
+import com.jlogical.vision.compiler.Line;
+import com.jlogical.vision.compiler.definitions.DefineTemplate;
+import com.jlogical.vision.compiler.definitions.DefinedCommand;
+import com.jlogical.vision.compiler.definitions.DefinedReporter;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Script;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.elements.End;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+import com.jlogical.vision.compiler.values.ExpressionValue;
+import com.jlogical.vision.compiler.values.HoistedValue;
+import com.jlogical.vision.compiler.values.SharedValue;
+import com.jlogical.vision.compiler.values.SharingValue;
+import com.jlogical.vision.compiler.values.NumValue;
+import com.jlogical.vision.compiler.values.TextValue;
+import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.compiler.values.VariableValue;
+import com.jlogical.vision.compiler.values.expression.ConstantExpression;
+import com.jlogical.vision.compiler.values.expression.Expression;
+import com.jlogical.vision.compiler.values.expression.OperatorExpression;
+import com.jlogical.vision.compiler.values.expression.ReferenceExpression;
+import com.jlogical.vision.compiler.values.expression.SignExpression;
+import com.jlogical.vision.compiler.values.expression.ValueExpression;
+import com.jlogical.vision.project.CodeRange;
+import com.jlogical.vision.project.VisionFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import static com.jlogical.vision.compiler.script.vis.VisFormat.*;
+
+/**
+ * Writes a compiled Script in the binary .vis format described by {@link VisFormat}.
+ * The Hats are written to a buffer first while the pools are filled, then the pools and the buffer are written out.
+ */
+public class VisWriter {
+
+    /**
+     * The Script being written.
+     */
+    private Script script;
+
+    /**
+     * The index of each Hat of the Script.
+     */
+    private IdentityHashMap<Hat, Integer> hatIndices;
+
+    /**
+     * The strings in the pool, in order.
+     */
+    private ArrayList<String> strings;
+
+    /**
+     * The index of each string in the pool.
+     */
+    private HashMap<String, Integer> stringIndices;
+
+    /**
+     * The numbers in the pool, in order.
+     */
+    private ArrayList<Double> numbers;
+
+    /**
+     * The index of each number in the pool.
+     */
+    private HashMap<Double, Integer> numberIndices;
+
+    /**
+     * The VisionFiles in the pool, in order.
+     */
+    private ArrayList<VisionFile> files;
+
+    /**
+     * The index of each VisionFile in the pool.
+     */
+    private IdentityHashMap<VisionFile, Integer> fileIndices;
+
+    /**
+     * The CodeRanges in the pool, in order.
+     */
+    private ArrayList<CodeRange> ranges;
+
+    /**
+     * The index of each CodeRange in the pool.
+     */
+    private IdentityHashMap<CodeRange, Integer> rangeIndices;
+
+    /**
+     * The Lines in the line table, in order.
+     */
+    private ArrayList<Line> lines;
+
+    /**
+     * The index of each Line in the line table.
+     */
+    private IdentityHashMap<Line, Integer> lineIndices;
+
+    /**
+     * The id of each SharedValue that has been written.
+     */
+    private IdentityHashMap<SharedValue, Integer> sharedIds;
+
+    /**
+     * Creates a VisWriter for the given Script.
+     */
+    private VisWriter(Script script) {
+        this.script = script;
+        this.hatIndices = new IdentityHashMap<>();
+        this.strings = new ArrayList<>();
+        this.stringIndices = new HashMap<>();
+        this.numbers = new ArrayList<>();
+        this.numberIndices = new HashMap<>();
+        this.files = new ArrayList<>();
+        this.fileIndices = new IdentityHashMap<>();
+        this.ranges = new ArrayList<>();
+        this.rangeIndices = new IdentityHashMap<>();
+        this.lines = new ArrayList<>();
+        this.lineIndices = new IdentityHashMap<>();
+        this.sharedIds = new IdentityHashMap<>();
+    }
+
+    /**
+     * Writes the given Script to the file at the given path, replacing what was in it.
+     *
+     * @param script the Script to write. Needs to have compiled successfully.
+     * @param path   the path of the file.
+     * @throws IOException if there is an error writing to the file.
+     */
+    public static void write(Script script, Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(script, out);
+        }
+    }
+
+    /**
+     * Writes the given Script to the given stream.
+     *
+     * @param script the Script to write. Needs to have compiled successfully.
+     * @param out    the stream to write to. Not closed afterwards.
+     * @throws IOException if there is an error writing to the stream.
+     */
+    public static void write(Script script, OutputStream out) throws IOException {
+        if (!script.succeeded()) {
+            throw new IllegalArgumentException("Cannot write a Script that failed to compile!");
+        }
+        new VisWriter(script).write(out);
+    }
+
+    /**
+     * Writes the Script to the given stream.
+     */
+    private void write(OutputStream stream) throws IOException {
+        ArrayList<Hat> hats = script.getHats();
+        for (int i = 0; i < hats.size(); i++) {
+            hatIndices.put(hats.get(i), i);
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(buffer);
+        body.writeInt(hats.size());
+        for (Hat hat : hats) {
+            writeHatHeader(body, hat);
+        }
+        for (Hat hat : hats) {
+            writeCommands(body, hat.getCommands());
+        }
+        body.flush();
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(numbers.size());
+        for (double number : numbers) {
+            out.writeDouble(number);
+        }
+        out.writeInt(files.size());
+        for (VisionFile file : files) {
+            out.writeInt(stringIndices.get(file.getName()));
+        }
+        out.writeInt(ranges.size());
+        for (CodeRange range : ranges) {
+            out.writeInt(fileIndices.get(range.getFile()));
+            out.writeInt(range.getLineStart());
+            out.writeInt(range.getCharStart());
+            out.writeInt(range.getLineEnd());
+            out.writeInt(range.getCharEnd());
+        }
+        out.writeInt(lines.size());
+        for (Line line : lines) {
+            out.writeInt(fileIndices.get(line.getLocation().getFile()));
+            out.writeInt(line.getLineNum());
+            out.writeInt(stringIndices.get(line.getCode()));
+            out.writeInt(stringIndices.get(line.getCore()));
+        }
+        buffer.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Writes what is needed to create the Hat before any of the Commands are read.
+     */
+    private void writeHatHeader(DataOutputStream out, Hat hat) throws IOException {
+        DefineTemplate definition = hat.getDefinition();
+        if (definition instanceof DefinedCommand) {
+            out.writeByte(DEFINED_COMMAND_HAT);
+            out.writeInt(string(((DefinedCommand) definition).getCore()));
+            out.writeInt(line(definition.getLine()));
+        } else if (definition instanceof DefinedReporter) {
+            out.writeByte(DEFINED_REPORTER_HAT);
+            out.writeInt(string(((DefinedReporter) definition).getCore()));
+            out.writeInt(line(definition.getLine()));
+        } else {
+            out.writeByte(EVENT_HAT);
+            out.writeInt(string(hat.getCore()));
+            out.writeInt(-1);
+        }
+        out.writeInt(hat.getVariableNames().size());
+        for (String name : hat.getVariableNames()) {
+            out.writeInt(string(name));
+        }
+    }
+
+    /**
+     * Writes the number of Commands and each Command.
+     */
+    private void writeCommands(DataOutputStream out, ArrayList<Command> commands) throws IOException {
+        out.writeInt(commands.size());
+        for (Command command : commands) {
+            writeCommand(out, command);
+        }
+    }
+
+    /**
+     * Writes a Command, including the Commands inside it and its chain if it is a CBlock.
+     */
+    private void writeCommand(DataOutputStream out, Command<?> command) throws IOException {
+        if (command instanceof End) {
+            out.writeByte(END);
+            out.writeInt(line(command.getLine()));
+            return;
+        }
+        if (command.getDefinedCommand() != null) {
+            out.writeByte(DEFINED_COMMAND);
+            out.writeInt(line(command.getLine()));
+            out.writeInt(hat(command.getDefinedCommand().getHat()));
+        } else {
+            out.writeByte(command instanceof CBlock ? CBLOCK : COMMAND);
+            out.writeInt(line(command.getLine()));
+            out.writeInt(string(command.getCore()));
+        }
+        writeValues(out, command.getValues());
+        if (command instanceof CBlock) {
+            CBlock cblock = (CBlock) command;
+            writeCommands(out, cblock.getCommands());
+            out.writeBoolean(cblock.getChain() != null);
+            if (cblock.getChain() != null) {
+                writeCommand(out, cblock.getChain());
+            }
+        }
+    }
+
+    /**
+     * Writes the number of Values and each Value.
+     */
+    private void writeValues(DataOutputStream out, ArrayList<Value> values) throws IOException {
+        out.writeInt(values.size());
+        for (Value value : values) {
+            writeValue(out, value);
+        }
+    }
+
+    /**
+     * Writes a Value and the Values inside it.
+     */
+    private void writeValue(DataOutputStream out, Value value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof TextValue) {
+            TextValue text = (TextValue) value;
+            out.writeByte(TEXT);
+            out.writeInt(string(text.getText()));
+            out.writeInt(string(text.getError()));
+            out.writeInt(range(text.getRange()));
+            out.writeInt(text.getLiterals().length);
+            for (String literal : text.getLiterals()) {
+                out.writeInt(string(literal));
+            }
+            out.writeInt(text.getValues().length);
+            for (Value inner : text.getValues()) {
+                writeValue(out, inner);
+            }
+        } else if (value instanceof NumValue) {
+            out.writeByte(NUM);
+            out.writeInt(number(((NumValue) value).getDouble(null, null)));
+            out.writeInt(range(value.getRange()));
+        } else if (value instanceof VariableValue) {
+            out.writeByte(VARIABLE);
+            out.writeInt(string(((VariableValue) value).getVariableName()));
+            out.writeInt(range(value.getRange()));
+        } else if (value instanceof ExpressionValue) {
+            ExpressionValue expression = (ExpressionValue) value;
+            out.writeByte(EXPRESSION);
+            out.writeInt(string(expression.getText()));
+            out.writeInt(range(expression.getRange()));
+            try {
+                writeExpression(out, expression.getExpression());
+            } catch (VisionException e) {
+                throw new IOException("Cannot write an expression that does not parse: " + e.getMessage(), e);
+            }
+        } else if (value instanceof Reporter) {
+            Reporter reporter = (Reporter) value;
+            if (reporter.getDefinedReporter() != null) {
+                out.writeByte(DEFINED_REPORTER);
+                out.writeInt(hat(reporter.getDefinedReporter().getHat()));
+            } else {
+                out.writeByte(REPORTER);
+                out.writeInt(string(reporter.getCore()));
+            }
+            out.writeInt(range(reporter.getRange()));
+            writeValues(out, reporter.getValues());
+        } else if (value instanceof HoistedValue) {
+            out.writeByte(HOISTED);
+            writeValue(out, ((HoistedValue) value).getValue());
+        } else if (value instanceof SharingValue) {
+            out.writeByte(SHARING);
+            writeValue(out, ((SharingValue) value).getValue());
+        } else if (value instanceof SharedValue) {
+            SharedValue shared = (SharedValue) value;
+            Integer id = sharedIds.get(shared);
+            out.writeByte(SHARED);
+            if (id != null) {
+                out.writeInt(id);
+                out.writeByte(0);
+            } else {
+                id = sharedIds.size();
+                sharedIds.put(shared, id);
+                out.writeInt(id);
+                out.writeByte(1);
+                writeValue(out, shared.getValue());
+            }
+        } else {
+            throw new IOException("Cannot write a " + value.getClass().getSimpleName() + " to a .vis file!");
+        }
+    }
+
+    /**
+     * Writes an Expression and the Expressions inside it.
+     */
+    private void writeExpression(DataOutputStream out, Expression expression) throws IOException {
+        if (expression instanceof ConstantExpression) {
+            out.writeByte(CONSTANT);
+            out.writeInt(number(((ConstantExpression) expression).getValue()));
+            out.writeInt(range(expression.getRange()));
+        } else if (expression instanceof OperatorExpression) {
+            OperatorExpression operator = (OperatorExpression) expression;
+            out.writeByte(OPERATOR);
+            out.writeChar(operator.getOperator());
+            out.writeInt(range(operator.getRange()));
+            writeExpression(out, operator.getLeft());
+            writeExpression(out, operator.getRight());
+        } else if (expression instanceof SignExpression) {
+            SignExpression sign = (SignExpression) expression;
+            out.writeByte(SIGN);
+            out.writeBoolean(sign.isNegative());
+            out.writeInt(range(sign.getRange()));
+            writeExpression(out, sign.getOperand());
+        } else if (expression instanceof ReferenceExpression) {
+            VariableValue variable = ((ReferenceExpression) expression).getVariableValue();
+            out.writeByte(REFERENCE);
+            out.writeInt(string(variable.getVariableName()));
+            out.writeInt(range(variable.getRange()));
+        } else if (expression instanceof ValueExpression) {
+            out.writeByte(VALUE);
+            writeValue(out, ((ValueExpression) expression).getValue());
+        } else {
+            throw new IOException("Cannot write a " + expression.getClass().getSimpleName() + " to a .vis file!");
+        }
+    }
+
+    /**
+     * @return the index of the Hat in the Script.
+     */
+    private int hat(Hat hat) throws IOException {
+        Integer index = hatIndices.get(hat);
+        if (index == null) {
+            throw new IOException("A definition is not one of the Hats of the Script!");
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of the string in the pool. Adds it if it is not there. -1 if the string is null.
+     */
+    private int string(String string) {
+        if (string == null) return -1;
+        Integer index = stringIndices.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.add(string);
+            stringIndices.put(string, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of the number in the pool. Adds it if it is not there.
+     */
+    private int number(double number) {
+        Integer index = numberIndices.get(number);
+        if (index == null) {
+            index = numbers.size();
+            numbers.add(number);
+            numberIndices.put(number, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of the VisionFile in the pool. Adds it if it is not there.
+     */
+    private int file(VisionFile file) {
+        Integer index = fileIndices.get(file);
+        if (index == null) {
+            index = files.size();
+            files.add(file);
+            fileIndices.put(file, index);
+            string(file.getName());
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of the CodeRange in the pool. Adds it if it is not there. -1 if the CodeRange is null.
+     */
+    private int range(CodeRange range) {
+        if (range == null) return -1;
+        Integer index = rangeIndices.get(range);
+        if (index == null) {
+            index = ranges.size();
+            ranges.add(range);
+            rangeIndices.put(range, index);
+            file(range.getFile());
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of the Line in the line table. Adds it if it is not there.
+     */
+    private int line(Line line) {
+        Integer index = lineIndices.get(line);
+        if (index == null) {
+            index = lines.size();
+            lines.add(line);
+            lineIndices.put(line, index);
+            file(line.getLocation().getFile());
+            string(line.getCode());
+            string(line.getCore());
+        }
+        return index;
+    }
+}
@@ -1,15 +1,17 @@
 package com.jlogical.vision.compiler.values;
 
+import com.jlogical.vision.compiler.exceptions.CompilerException;
 import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
 import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.values.expression.Expression;
 import com.jlogical.vision.project.CodeRange;
-import com.jlogical.vision.project.Project;
 import com.jlogical.vision.util.Calc;
 
 import java.util.ArrayList;
 
 /**
- * Value that holds either a math expression or logic expression.
+ * Value that holds either a math expression or logic expression. The expression is parsed into a tree of Expressions once.
  */
 public class ExpressionValue implements Value {
 
@@ -34,7 +36,12 @@ public class ExpressionValue implements Value {
     private ArrayList<Value> values;
 
     /**
-     * Creates a new ExpressionValue with the given text, range, commandHolder, and project.
+     * The parsed expression. Null until it is parsed.
+     */
+    private Expression expression;
+
+    /**
+     * Creates a new ExpressionValue with the given text, range, commandHolder, and project. The text is parsed when it is first evaluated.
      */
     public ExpressionValue(String text, ArrayList<Value> values, CodeRange range, Command commandHolder){
         this.text = text;
@@ -43,13 +50,24 @@ public class ExpressionValue implements Value {
         this.commandHolder = commandHolder;
     }
 
+    /**
+     * Creates a new ExpressionValue with the given text, parsed expression, range, and commandHolder.
+     */
+    public ExpressionValue(String text, Expression expression, CodeRange range, Command commandHolder){
+        this(text, new ArrayList<>(), range, commandHolder);
+        this.expression = expression;
+    }
+
     @Override
-    public Object getValue() throws VisionException {
-        String newText = text;
-        for(Value value : values){
-            newText = newText.substring(0, value.getRange().getCharStart()) + value.getValue() + newText.substring(value.getRange().getCharEnd());
+    public Object getValue(Frame frame) throws VisionException {
+        Expression expression = getExpression();
+        if (expression.isNumeric()) {
+            double d = expression.evaluateNum(frame, '_');
+            if (d == (int) d)
+                return (int) d;
+            return d;
         }
-        Object o = Calc.calc(this);
+        Object o = expression.evaluate(frame);
         if (o instanceof Double) {
             Double d = (Double) o;
             if (d == (int) d.doubleValue())
@@ -58,6 +76,48 @@ public class ExpressionValue implements Value {
         return o;
     }
 
+    @Override
+    public double getDouble(Frame frame, CodeRange range) throws VisionException {
+        Expression expression = getExpression();
+        if (expression.isNumeric()) {
+            return expression.evaluateNum(frame, '_') + 0.0; // Adding 0.0 turns -0.0 into 0.0, like getValue does.
+        }
+        return Value.super.getDouble(frame, range);
+    }
+
+    @Override
+    public int getInt(Frame frame, CodeRange range) throws VisionException {
+        Expression expression = getExpression();
+        if (expression.isNumeric()) {
+            return (int) expression.evaluateNum(frame, '_');
+        }
+        return Value.super.getInt(frame, range);
+    }
+
+    @Override
+    public boolean isNumeric() {
+        try {
+            return getExpression().isNumeric();
+        } catch (VisionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the parsed expression. Parses the text if it was not parsed yet.
+     * @throws VisionException if the text is not a valid expression.
+     */
+    public Expression getExpression() throws VisionException {
+        if (expression == null) {
+            try {
+                expression = Calc.parse(text, values, commandHolder, range);
+            } catch (CompilerException e) {
+                throw new VisionException(e.getMessage(), range);
+            }
+        }
+        return expression;
+    }
+
     @Override
     public CodeRange getRange() {
         return range;
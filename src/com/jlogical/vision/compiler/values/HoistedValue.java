@@ -0,0 +1,72 @@
+package com.jlogical.vision.compiler.values;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.elements.CBlock;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * Value that is evaluated once each time the CBlock holding it starts, instead of every time it is used.
+ * Made by the Optimizer for the parts of loop bounds that cannot change while the loop is running.
+ * If evaluating it when the CBlock starts throws an exception, it is evaluated every time it is used instead, so the exception is thrown where it always was.
+ */
+public class HoistedValue implements Value {
+
+    /**
+     * The Value that is evaluated when the CBlock starts.
+     */
+    private Value value;
+
+    /**
+     * The index of the value in the Frame of the Hat, given by {@link com.jlogical.vision.compiler.script.elements.Hat#addHoisted()}.
+     */
+    private int index;
+
+    /**
+     * Creates a HoistedValue for the given Value. Use {@link CBlock#hoist(Value)} so the CBlock evaluates it when it starts.
+     */
+    public HoistedValue(Value value, int index) {
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null!");
+        }
+        this.value = value;
+        this.index = index;
+    }
+
+    /**
+     * Evaluates the Value and keeps it in the Frame until the next time the CBlock starts.
+     *
+     * @param frame the Frame of the Hat running the CBlock.
+     */
+    public void load(Frame frame) {
+        try {
+            frame.setHoisted(index, value.getValue(frame));
+        } catch (VisionException | RuntimeException e) {
+            frame.setHoisted(index, null);
+        }
+    }
+
+    @Override
+    public Object getValue(Frame frame) throws VisionException {
+        Object loaded = frame.getHoisted(index);
+        return loaded != null ? loaded : value.getValue(frame);
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return value.isNumeric();
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public CodeRange getRange() {
+        return value.getRange();
+    }
+}
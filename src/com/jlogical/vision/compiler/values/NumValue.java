@@ -1,5 +1,6 @@
 package com.jlogical.vision.compiler.values;
 
+import com.jlogical.vision.compiler.script.Frame;
 import com.jlogical.vision.project.CodeRange;
 
 /**
@@ -12,6 +13,11 @@ public class NumValue implements Value {
      */
     private double value;
 
+    /**
+     * The boxed value of the Value. Boxed once so getting the value does not allocate.
+     */
+    private Object boxed;
+
     /**
      * The range the Value is in.
      */
@@ -21,17 +27,31 @@ public class NumValue implements Value {
      * Creates a NumValue with a given value and range.
      */
     public NumValue(double value, CodeRange range){
-        this.value = value;
+        this.value = value + 0.0;
+        this.boxed = value == (int) value ? (Object) (int) value : (Object) value;
         this.range = range;
     }
 
     @Override
-    public Object getValue() {
-        if (value == (int) value)
-            return (int) value;
+    public Object getValue(Frame frame) {
+        return boxed;
+    }
+
+    @Override
+    public double getDouble(Frame frame, CodeRange range) {
         return value;
     }
 
+    @Override
+    public int getInt(Frame frame, CodeRange range) {
+        return (int) value;
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return true;
+    }
+
     @Override
     public CodeRange getRange() {
         return range;
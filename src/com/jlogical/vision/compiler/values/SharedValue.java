@@ -0,0 +1,62 @@
+package com.jlogical.vision.compiler.values;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * Value that is evaluated at most once each time the input holding it is evaluated, no matter how many times it is used in the input.
+ * Made by the Optimizer for subexpressions that are repeated in an input, so every place the subexpression was repeated holds the same SharedValue.
+ * The input is wrapped in a {@link SharingValue}, which starts a new evaluation each time the input is used.
+ */
+public class SharedValue implements Value {
+
+    /**
+     * The Value that is evaluated the first time it is used in each evaluation of the input.
+     */
+    private Value value;
+
+    /**
+     * The index of the value in the Frame of the Hat, given by {@link com.jlogical.vision.compiler.script.elements.Hat#addShared()}.
+     */
+    private int index;
+
+    /**
+     * Creates a SharedValue for the given Value.
+     */
+    public SharedValue(Value value, int index) {
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null!");
+        }
+        this.value = value;
+        this.index = index;
+    }
+
+    @Override
+    public Object getValue(Frame frame) throws VisionException {
+        if (frame.hasShared(index)) {
+            return frame.getShared(index);
+        }
+        Object result = value.getValue(frame);
+        frame.setShared(index, result);
+        return result;
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return value.isNumeric();
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public CodeRange getRange() {
+        return value.getRange();
+    }
+}
@@ -0,0 +1,59 @@
+package com.jlogical.vision.compiler.values;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * Value that holds an input whose repeated subexpressions are {@link SharedValue}s.
+ * Each time the input is evaluated, the SharedValues in it are evaluated again the first time they are used.
+ */
+public class SharingValue implements Value {
+
+    /**
+     * The input holding the SharedValues.
+     */
+    private Value value;
+
+    /**
+     * Creates a SharingValue for the given input.
+     */
+    public SharingValue(Value value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null!");
+        }
+        this.value = value;
+    }
+
+    @Override
+    public Object getValue(Frame frame) throws VisionException {
+        frame.startSharing();
+        return value.getValue(frame);
+    }
+
+    @Override
+    public double getDouble(Frame frame, CodeRange range) throws VisionException {
+        frame.startSharing();
+        return value.getDouble(frame, range);
+    }
+
+    @Override
+    public int getInt(Frame frame, CodeRange range) throws VisionException {
+        frame.startSharing();
+        return value.getInt(frame, range);
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return value.isNumeric();
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    @Override
+    public CodeRange getRange() {
+        return value.getRange();
+    }
+}
@@ -1,27 +1,40 @@
 package com.jlogical.vision.compiler.values;
 
-import com.jlogical.vision.compiler.Compiler;
-import com.jlogical.vision.compiler.Input;
-import com.jlogical.vision.compiler.exceptions.CompilerException;
 import com.jlogical.vision.compiler.exceptions.VisionException;
-import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.Frame;
 import com.jlogical.vision.project.CodeRange;
-import com.jlogical.vision.project.Project;
+
+import java.util.ArrayList;
 
 /**
- * Value that holds a String.
+ * Value that holds a String. Text interpolation is split into literal segments and the Values between them when compiled.
  */
 public class TextValue implements Value {
 
     /**
-     * List of characters that break a string interpolation variable.
+     * The String holding the text as it was written. Hashtags indicate interpolation.
+     */
+    private String text;
+
+    /**
+     * The literal segments of the text. There is always one more segment than there are values.
+     */
+    private String[] literals;
+
+    /**
+     * The Values that are interpolated between the literal segments.
+     */
+    private Value[] values;
+
+    /**
+     * The combined length of the literal segments.
      */
-    private static String varBreaks = " +-*/=#.!?~\"'[]{}()";
+    private int literalLength;
 
     /**
-     * The String holding the value of the text. Hashtags indicate interpolation.
+     * The message of the exception to throw when the TextValue is evaluated. Null if the text is valid.
      */
-    private String value;
+    private String error;
 
     /**
      * The range the TextValue is in.
@@ -29,72 +42,91 @@ public class TextValue implements Value {
     private CodeRange range;
 
     /**
-     * Command the TextValue is in. Used to get values in text interpolation.
+     * Creates a new TextValue with a given text and range that has no interpolation.
      */
-    private Command commandHolder;
+    public TextValue(String text, CodeRange range) {
+        this.text = text != null ? text : "";
+        this.literals = new String[]{this.text};
+        this.values = new Value[0];
+        this.literalLength = this.text.length();
+        this.range = range;
+    }
 
     /**
-     * The Compiler the TextValue was compiled with. Used to generate values for interpolation.
+     * Creates a new TextValue with a given text, the literal segments and Values it was split into, and range.
      */
-    private Compiler compiler;
+    public TextValue(String text, ArrayList<String> literals, ArrayList<Value> values, CodeRange range) {
+        this.text = text != null ? text : "";
+        this.literals = literals.toArray(new String[0]);
+        this.values = values.toArray(new Value[0]);
+        for (String literal : this.literals) {
+            literalLength += literal.length();
+        }
+        this.range = range;
+    }
 
     /**
-     * Creates a new TextValue with a given value, range, command.
+     * Returns a TextValue that throws an exception with the given message when it is evaluated.
+     *
+     * @param text  the text of the TextValue.
+     * @param error the message of the exception.
+     * @param range the range of the TextValue.
+     * @return the TextValue.
      */
-    public TextValue(String value, CodeRange range, Command commandHolder, Compiler compiler) {
-        this.value = value != null ? value : "";
-        this.range = range;
-        this.commandHolder = commandHolder;
-        this.compiler = compiler;
+    public static TextValue failedTextValue(String text, String error, CodeRange range) {
+        TextValue textValue = new TextValue(text, range);
+        textValue.error = error;
+        return textValue;
     }
 
     @Override
-    public Object getValue() throws VisionException {
-        String output = ""; //The current output text.
-        String currVar = null; //The current variable name. Null if not inside a variable now.
-
-        for (int i = 0; i < value.length(); i++) {
-            char c = value.charAt(i);
-            if (c == '#') { //Text interpolation has started.
-                if (currVar != null) { //Double hashtag, escape sequence for one hashtag.
-                    output += "#";
-                    currVar = null;
-                } else {
-                    currVar = "";
-                }
-            } else if (currVar != null) { //Inside of interpolation.
-                if (varBreaks.contains(c + "")) { //Spaces indicate end of interpolation.
-                    if(currVar.isBlank()){
-                        throw new VisionException("Value in text interpolation cannot be blank!", getRange());
-                    }
-                    try {
-                        Value v = compiler.toValue(new Input(currVar, getRange(), '('), commandHolder);
-                        output += v.getValue().toString() + c;
-                    } catch (CompilerException e) {
-                        throw new VisionException(e.getMessage(), getRange());
-                    }
-                    currVar = null;
-                } else {
-                    currVar += c;
-                }
-            } else {
-                output += c;
-            }
+    public Object getValue(Frame frame) throws VisionException {
+        if (error != null) {
+            throw new VisionException(error, range);
         }
-
-        if (currVar != null) { //If it ends with a Variable name.
-            if(currVar.isBlank()){
-                throw new VisionException("Value in text interpolation cannot be blank!", getRange());
-            }
-            try {
-                Value v = compiler.toValue(new Input(currVar, getRange(), '('), commandHolder);
-                output += v.getValue().toString();
-            } catch (CompilerException e) {
-                throw new VisionException(e.getMessage(), getRange());
-            }
+        if (values.length == 0) {
+            return literals[0];
+        }
+        StringBuilder output = new StringBuilder(literalLength + 16 * values.length);
+        output.append(literals[0]);
+        for (int i = 0; i < values.length; i++) {
+            output.append(values[i].getValue(frame).toString());
+            output.append(literals[i + 1]);
         }
+        return output.toString();
+    }
+
+    /**
+     * @return whether the text has no interpolation, meaning it always has the same value.
+     */
+    public boolean isConstant() {
+        return values.length == 0 && error == null;
+    }
+
+    /**
+     * @return the value of the text if it is constant. Null otherwise.
+     */
+    public String getConstantText() {
+        return isConstant() ? literals[0] : null;
+    }
 
-        return output;
+    public String getText() {
+        return text;
+    }
+
+    public String[] getLiterals() {
+        return literals;
+    }
+
+    public Value[] getValues() {
+        return values;
+    }
+
+    /**
+     * @return the message of the exception thrown when the TextValue is evaluated. Null if the text is valid.
+     */
+    public String getError() {
+        return error;
     }
 
     @Override
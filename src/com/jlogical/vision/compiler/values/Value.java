@@ -1,6 +1,8 @@
 package com.jlogical.vision.compiler.values;
 
+import com.jlogical.vision.api.runnables.Parameters;
 import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
 import com.jlogical.vision.project.CodeRange;
 
 /**
@@ -9,9 +11,43 @@ import com.jlogical.vision.project.CodeRange;
 public interface Value {
 
     /**
+     * @param frame the Frame of the Hat running the Value. Holds the local Variables the Value can use.
      * @return the value of this Value.
      */
-    Object getValue() throws VisionException;
+    Object getValue(Frame frame) throws VisionException;
+
+    /**
+     * Returns the value as a double. Values that hold numbers override this so the number is never boxed.
+     * Gives the same result as converting {@link #getValue} with {@link Parameters#toNum}.
+     *
+     * @param frame the Frame of the Hat running the Value.
+     * @param range the range of the element using the value. Used for exception throwing.
+     * @return the double.
+     * @throws VisionException if the value cannot be converted to a number.
+     */
+    default double getDouble(Frame frame, CodeRange range) throws VisionException {
+        return Parameters.toNum(Parameters.normalize(getValue(frame)), range);
+    }
+
+    /**
+     * Returns the value as an int. Values that hold numbers override this so the number is never boxed.
+     * Gives the same result as converting {@link #getValue} with {@link Parameters#toInt}.
+     *
+     * @param frame the Frame of the Hat running the Value.
+     * @param range the range of the element using the value. Used for exception throwing.
+     * @return the int.
+     * @throws VisionException if the value cannot be converted to an int.
+     */
+    default int getInt(Frame frame, CodeRange range) throws VisionException {
+        return Parameters.toInt(Parameters.normalize(getValue(frame)), range);
+    }
+
+    /**
+     * @return whether the value is always a number, so it can be read with {@link #getDouble} instead of {@link #getValue}.
+     */
+    default boolean isNumeric() {
+        return false;
+    }
 
     /**
      * @return the CodeRange this Value is in.
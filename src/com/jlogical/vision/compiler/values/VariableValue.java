@@ -1,10 +1,12 @@
 package com.jlogical.vision.compiler.values;
 
+import com.jlogical.vision.api.runnables.Parameters;
 import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
 import com.jlogical.vision.compiler.script.Variable;
+import com.jlogical.vision.compiler.script.compiled.UnexpectedValueException;
 import com.jlogical.vision.compiler.script.elements.Command;
 import com.jlogical.vision.project.CodeRange;
-import com.jlogical.vision.util.Calc;
 
 /**
  * Value that holds the name of a Variable and returns the value of it.
@@ -26,6 +28,16 @@ public class VariableValue implements Value {
      */
     private Command commandHolder;
 
+    /**
+     * The slot of the Variable in the Frame of the Hat. -1 if it was not resolved to a local slot.
+     */
+    private int slot = -1;
+
+    /**
+     * The slot of the Variable in the global Variables of the Script. -1 if it was not resolved to a global slot.
+     */
+    private int globalSlot = -1;
+
     /**
      * Creates a VariableValue with the given variableName, range, and commandHolder.
      */
@@ -39,19 +51,98 @@ public class VariableValue implements Value {
     }
 
     @Override
-    public Object getValue() throws VisionException {
-        Variable variable = Variable.findVariable(variableName, commandHolder.getCBlockHolder(), commandHolder.getHatHolder());
+    public Object getValue(Frame frame) throws VisionException {
+        Variable variable = getVariable(frame);
         if (variable == null) {
             throw new VisionException("Variable '" + variableName + "' could not be found!", getRange());
         }
 
-        Object o = variable.getValue();
-        if (o instanceof Double) {
-            Double d = (Double) o;
-            if (d == (int) d.doubleValue())
-                return (int) d.doubleValue();
+        return variable.getValue();
+    }
+
+    @Override
+    public double getDouble(Frame frame, CodeRange range) throws VisionException {
+        Variable variable = getVariable(frame);
+        if (variable == null) {
+            throw new VisionException("Variable '" + variableName + "' could not be found!", getRange());
         }
-        return o;
+        try {
+            return variable.getNumExact();
+        } catch (UnexpectedValueException e) {
+            return Parameters.toNum(e.getValue(), range);
+        }
+    }
+
+    @Override
+    public int getInt(Frame frame, CodeRange range) throws VisionException {
+        Variable variable = getVariable(frame);
+        if (variable == null) {
+            throw new VisionException("Variable '" + variableName + "' could not be found!", getRange());
+        }
+        try {
+            return (int) variable.getNumExact();
+        } catch (UnexpectedValueException e) {
+            return Parameters.toInt(e.getValue(), range);
+        }
+    }
+
+    /**
+     * Returns the Variable this Value refers to. Looks in its slot if it was resolved when compiling, otherwise searches for it by name.
+     *
+     * @param frame the Frame of the Hat running the Value.
+     * @return the Variable. Null if it cannot be found.
+     */
+    public Variable getVariable(Frame frame) {
+        if (slot != -1) {
+            Variable variable = frame.get(slot);
+            if (variable != null) {
+                return variable;
+            }
+        } else if (globalSlot != -1 && !frame.hasNamed()) {
+            Variable variable = frame.getContext().getGlobals().get(globalSlot);
+            if (variable != null) {
+                return variable;
+            }
+        }
+        return Variable.findVariable(variableName, commandHolder.getCBlockHolder(), frame);
+    }
+
+    /**
+     * @param frame the Frame of the Hat running the Value.
+     * @return the global Variable with the name of this Value. Null if it cannot be found.
+     */
+    public Variable getGlobalVariable(Frame frame) {
+        if (globalSlot != -1) {
+            return frame.getContext().getGlobals().get(globalSlot);
+        }
+        return Variable.findGlobalVariable(variableName, frame.getContext());
+    }
+
+    /**
+     * Resolves this Value to the slots it should look at first.
+     *
+     * @param slot       the slot of the local Variable. -1 if none.
+     * @param globalSlot the slot of the global Variable. Only used if there is no local slot. -1 if none.
+     */
+    public void resolve(int slot, int globalSlot) {
+        this.slot = slot;
+        this.globalSlot = globalSlot;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public int getGlobalSlot() {
+        return globalSlot;
+    }
+
+    public Command getCommandHolder() {
+        return commandHolder;
+    }
+
+    public String getVariableName() {
+        return variableName;
     }
 
     @Override
@@ -0,0 +1,42 @@
+package com.jlogical.vision.compiler.values.expression;
+
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * Expression that holds a number that was written in the expression.
+ */
+public class ConstantExpression extends Expression {
+
+    /**
+     * The number.
+     */
+    private double value;
+
+    /**
+     * Creates a ConstantExpression with the given value and range.
+     */
+    public ConstantExpression(double value, CodeRange range) {
+        super(range);
+        this.value = value;
+    }
+
+    @Override
+    public Object evaluate(Frame frame) {
+        return value;
+    }
+
+    @Override
+    public double evaluateNum(Frame frame, char operator) {
+        return value;
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return true;
+    }
+
+    public double getValue() {
+        return value;
+    }
+}
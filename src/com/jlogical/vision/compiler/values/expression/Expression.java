@@ -0,0 +1,61 @@
+package com.jlogical.vision.compiler.values.expression;
+
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * A node in the tree of a parsed math expression. Expressions are immutable once parsed.
+ */
+public abstract class Expression {
+
+    /**
+     * The range of the ExpressionValue this Expression is in. Used for exception throwing.
+     */
+    private CodeRange range;
+
+    /**
+     * Creates an Expression with the given range.
+     */
+    public Expression(CodeRange range) {
+        this.range = range;
+    }
+
+    /**
+     * @param frame the Frame of the Hat running the Expression.
+     * @return the value of this Expression.
+     * @throws VisionException if there was an error evaluating the Expression.
+     */
+    public abstract Object evaluate(Frame frame) throws VisionException;
+
+    /**
+     * Returns the value of this Expression as a number.
+     *
+     * @param frame    the Frame of the Hat running the Expression.
+     * @param operator the operator that needs the number. Used for the error message.
+     * @return the number.
+     * @throws VisionException if the value is not a number.
+     */
+    public double evaluateNum(Frame frame, char operator) throws VisionException {
+        Object value = evaluate(frame);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            return Double.parseDouble(value + "");
+        } catch (NumberFormatException e) {
+            throw new VisionException(value + " must be a number next to " + operator, range);
+        }
+    }
+
+    /**
+     * @return whether this Expression always evaluates to a number.
+     */
+    public boolean isNumeric() {
+        return false;
+    }
+
+    public CodeRange getRange() {
+        return range;
+    }
+}
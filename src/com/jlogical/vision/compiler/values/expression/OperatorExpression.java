@@ -0,0 +1,76 @@
+package com.jlogical.vision.compiler.values.expression;
+
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * Expression for a binary operator. Either '+', '-', '*', '/', or '^'.
+ */
+public class OperatorExpression extends Expression {
+
+    /**
+     * The operator.
+     */
+    private char operator;
+
+    /**
+     * The Expression to the left of the operator.
+     */
+    private Expression left;
+
+    /**
+     * The Expression to the right of the operator.
+     */
+    private Expression right;
+
+    /**
+     * Creates an OperatorExpression with the given operator, operands, and range.
+     */
+    public OperatorExpression(char operator, Expression left, Expression right, CodeRange range) {
+        super(range);
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    public Object evaluate(Frame frame) throws VisionException {
+        return evaluateNum(frame, operator);
+    }
+
+    @Override
+    public double evaluateNum(Frame frame, char parent) throws VisionException {
+        double l = left.evaluateNum(frame, operator);
+        double r = right.evaluateNum(frame, operator);
+        switch (operator) {
+            case '+':
+                return l + r;
+            case '-':
+                return l - r;
+            case '*':
+                return l * r;
+            case '/':
+                return l / r;
+            default:
+                return Math.pow(l, r);
+        }
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return true;
+    }
+
+    public char getOperator() {
+        return operator;
+    }
+
+    public Expression getLeft() {
+        return left;
+    }
+
+    public Expression getRight() {
+        return right;
+    }
+}
@@ -0,0 +1,44 @@
+package com.jlogical.vision.compiler.values.expression;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.Variable;
+import com.jlogical.vision.compiler.values.VariableValue;
+
+/**
+ * Expression for a name written in the expression. Evaluates to the value of the Variable with that name, or the name itself if there is no such Variable.
+ */
+public class ReferenceExpression extends Expression {
+
+    /**
+     * The Value of the Variable the name refers to.
+     */
+    private VariableValue variableValue;
+
+    /**
+     * Creates a ReferenceExpression for the given VariableValue.
+     */
+    public ReferenceExpression(VariableValue variableValue) {
+        super(variableValue.getRange());
+        this.variableValue = variableValue;
+    }
+
+    @Override
+    public Object evaluate(Frame frame) {
+        Variable variable = variableValue.getVariable(frame);
+        return variable != null ? variable.getValue() : variableValue.getVariableName();
+    }
+
+    @Override
+    public double evaluateNum(Frame frame, char operator) throws VisionException {
+        Variable variable = variableValue.getVariable(frame);
+        if (variable != null && variable.isNumeric()) {
+            return variable.getNum();
+        }
+        return super.evaluateNum(frame, operator);
+    }
+
+    public VariableValue getVariableValue() {
+        return variableValue;
+    }
+}
@@ -0,0 +1,54 @@
+package com.jlogical.vision.compiler.values.expression;
+
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.project.CodeRange;
+
+/**
+ * Expression for a '+' or '-' sign in front of a number.
+ */
+public class SignExpression extends Expression {
+
+    /**
+     * Whether the sign is '-'.
+     */
+    private boolean negative;
+
+    /**
+     * The Expression the sign is in front of.
+     */
+    private Expression operand;
+
+    /**
+     * Creates a SignExpression with the given sign, operand, and range.
+     */
+    public SignExpression(char sign, Expression operand, CodeRange range) {
+        super(range);
+        this.negative = sign == '-';
+        this.operand = operand;
+    }
+
+    @Override
+    public Object evaluate(Frame frame) throws VisionException {
+        return evaluateNum(frame, negative ? '-' : '+');
+    }
+
+    @Override
+    public double evaluateNum(Frame frame, char parent) throws VisionException {
+        double value = operand.evaluateNum(frame, negative ? '-' : '+');
+        return negative ? -value : value;
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return true;
+    }
+
+    public boolean isNegative() {
+        return negative;
+    }
+
+    public Expression getOperand() {
+        return operand;
+    }
+}
@@ -0,0 +1,46 @@
+package com.jlogical.vision.compiler.values.expression;
+
+import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.values.Value;
+
+/**
+ * Expression that gets its value from a compiled Value, such as a Reporter in parentheses.
+ */
+public class ValueExpression extends Expression {
+
+    /**
+     * The Value to get the value of.
+     */
+    private Value value;
+
+    /**
+     * Creates a ValueExpression for the given Value.
+     */
+    public ValueExpression(Value value) {
+        super(value.getRange());
+        this.value = value;
+    }
+
+    @Override
+    public Object evaluate(Frame frame) throws VisionException {
+        return value.getValue(frame);
+    }
+
+    @Override
+    public double evaluateNum(Frame frame, char operator) throws VisionException {
+        if (value.isNumeric()) {
+            return value.getDouble(frame, getRange());
+        }
+        return super.evaluateNum(frame, operator);
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return value.isNumeric();
+    }
+
+    public Value getValue() {
+        return value;
+    }
+}
@@ -7,32 +7,32 @@ public class CodeRange {
     /**
      * The Project this CodeRange is found in. Cannot be null.
      */
-    private Project project;
+    private final Project project;
 
     /**
      * The VisionFile this CodeRange is found in. Cannot be null.
      */
-    private VisionFile file;
+    private final VisionFile file;
 
     /**
      * The starting line of the range. Cannot be null.
      */
-    private int lineStart;
+    private final int lineStart;
 
     /**
      * The starting character number of the range. Cannot be null.
      */
-    private int charStart;
+    private final int charStart;
 
     /**
      * The ending line of the range. Cannot be null.
      */
-    private int lineEnd;
+    private final int lineEnd;
 
     /**
      * The ending character number of the range. Cannot be null.
      */
-    private int charEnd;
+    private final int charEnd;
 
     /**
      * Creates a new CodeRange with a specified project, file, run position, and end position.
@@ -128,6 +128,18 @@ public class CodeRange {
         return project;
     }
 
+    public VisionFile getFile() {
+        return file;
+    }
+
+    public int getLineStart() {
+        return lineStart;
+    }
+
+    public int getLineEnd() {
+        return lineEnd;
+    }
+
     public int getCharStart() {
         return charStart;
     }
@@ -8,13 +8,24 @@ import com.jlogical.vision.api.elements.CustomReporter;
 import com.jlogical.vision.api.system.CoreAPI;
 import com.jlogical.vision.api.system.collection.CollectionsAPI;
 import com.jlogical.vision.api.system.objects.CustomObjectsAPI;
+import com.jlogical.vision.compiler.Compiler;
+import com.jlogical.vision.compiler.SignatureIndex;
 import com.jlogical.vision.compiler.exceptions.FileFormatException;
+import com.jlogical.vision.compiler.optimizer.Optimizer;
+import com.jlogical.vision.compiler.optimizer.Pass;
+import com.jlogical.vision.compiler.script.Script;
+import com.jlogical.vision.compiler.script.vis.VisFormat;
+import com.jlogical.vision.compiler.script.vis.VisReader;
+import com.jlogical.vision.compiler.script.vis.VisWriter;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -28,6 +39,16 @@ import java.util.zip.ZipOutputStream;
  */
 public class Project {
 
+    /**
+     * The name of the entry of a .vproj file that holds the compiled Script in the .vis format.
+     */
+    private static final String PRECOMPILED_ENTRY = "compiled.vis";
+
+    /**
+     * The name of the entry of a .vproj file that holds the source key the compiled Script was compiled from.
+     */
+    private static final String PRECOMPILED_KEY_ENTRY = "compiled.key";
+
     /**
      * Name of the Project.
      */
@@ -63,6 +84,31 @@ public class Project {
      */
     private ArrayList<CustomCBlock> cblocks;
 
+    /**
+     * Index of the cores of the CustomCommands followed by the CustomCBlocks.
+     */
+    private SignatureIndex<CustomCommand> commandIndex;
+
+    /**
+     * Index of the cores of the CustomReporters.
+     */
+    private SignatureIndex<CustomReporter> reporterIndex;
+
+    /**
+     * Index of the cores of the CustomHats.
+     */
+    private SignatureIndex<CustomHat> hatIndex;
+
+    /**
+     * The compiled Script that was stored with the Project in its .vproj file, in the .vis format. Null if there was none.
+     */
+    private byte[] precompiled;
+
+    /**
+     * The source key of the Project when the stored Script was compiled. Null if there was no stored Script.
+     */
+    private String precompiledKey;
+
     /**
      * Can only be instantiated from the factory static methods. Creates a Project with a given name and files.
      */
@@ -74,6 +120,9 @@ public class Project {
         reporters = new ArrayList<>();
         hats = new ArrayList<>();
         cblocks = new ArrayList<>();
+        commandIndex = new SignatureIndex<>();
+        reporterIndex = new SignatureIndex<>();
+        hatIndex = new SignatureIndex<>();
         for (API api : this.apis) {
             indexCustomElements(api);
         }
@@ -113,8 +162,14 @@ public class Project {
         if (file == null || !file.exists() || !file.getPath().endsWith(".vproj")) {
             return null;
         }
-        JSONObject json = unzipJSon(new ZipFile(file));
-        return fromJSon(json);
+        try (ZipFile zip = new ZipFile(file)) {
+            JSONObject json = unzipJSon(zip);
+            Project project = fromJSon(json);
+            if (project != null) {
+                project.unzipPrecompiled(zip);
+            }
+            return project;
+        }
     }
 
     /**
@@ -208,6 +263,24 @@ public class Project {
         }
     }
 
+    /**
+     * Reads the compiled Script stored in the ZIP of a .vproj file, if there is one.
+     *
+     * @param zip the ZipFile of the Project.
+     * @throws IOException if there was an error reading the ZIP.
+     */
+    private void unzipPrecompiled(ZipFile zip) throws IOException {
+        ZipEntry entry = zip.getEntry(PRECOMPILED_ENTRY);
+        ZipEntry keyEntry = zip.getEntry(PRECOMPILED_KEY_ENTRY);
+        if (entry == null || keyEntry == null) {
+            return;
+        }
+        try (InputStream key = zip.getInputStream(keyEntry); InputStream stream = zip.getInputStream(entry)) {
+            precompiledKey = new String(key.readAllBytes(), StandardCharsets.UTF_8);
+            precompiled = stream.readAllBytes();
+        }
+    }
+
     /**
      * Saves the Project in a File as a ZIP with an extension of .vproj.
      *
@@ -217,27 +290,128 @@ public class Project {
      * @throws IOException           if there is an error writing to the file.
      */
     public void save(File file) throws FileFormatException, IOException {
+        save(file, false);
+    }
+
+    /**
+     * Saves the Project in a File as a ZIP with an extension of .vproj.
+     * If precompile is true, the Project is compiled and the Script is stored with it, so opening the file does not need to compile it again.
+     * Nothing extra is stored if the Project does not compile.
+     *
+     * @param file       the File to save the Project in.
+     * @param precompile whether to store the compiled Script too.
+     * @throws FileFormatException   if the File does not end with .vproj
+     * @throws FileNotFoundException if the File is null.
+     * @throws IOException           if there is an error writing to the file.
+     */
+    public void save(File file, boolean precompile) throws FileFormatException, IOException {
         if (file == null) {
             throw new FileNotFoundException();
         }
         if (!file.getPath().endsWith(".vproj")) {
             throw new FileFormatException("Needs to be .vproj format.");
         }
-        zip(file);
+        zip(file, precompile);
     }
 
     /**
      * Compresses the Project into a ZIP and stores it in the given file.
      *
-     * @param file the File to store the Project in. Must be valid.
+     * @param file       the File to store the Project in. Must be valid.
+     * @param precompile whether to store the compiled Script too.
      * @throws IOException if there is an error writing to the file.
      */
-    private void zip(File file) throws IOException {
-        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
-        out.putNextEntry(new ZipEntry("project.json"));
-        out.write(toJSon().toJSONString().getBytes());
-        out.closeEntry();
-        out.close();
+    private void zip(File file, boolean precompile) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("project.json"));
+            out.write(toJSon().toJSONString().getBytes());
+            out.closeEntry();
+            if (precompile) {
+                Script script = Compiler.compile(this);
+                if (script.succeeded()) {
+                    String key = getSourceKey();
+                    ByteArrayOutputStream compiled = new ByteArrayOutputStream();
+                    VisWriter.write(script, compiled);
+                    out.putNextEntry(new ZipEntry(PRECOMPILED_ENTRY));
+                    compiled.writeTo(out);
+                    out.closeEntry();
+                    out.putNextEntry(new ZipEntry(PRECOMPILED_KEY_ENTRY));
+                    out.write(key.getBytes(StandardCharsets.UTF_8));
+                    out.closeEntry();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a key that changes whenever anything the compiled Script depends on changes: the version of the .vis format,
+     * the names and code of the files, the cores of the CustomElements of the APIs and the tags the Optimizer uses,
+     * and the version and Passes of the standard Optimizer the Script was optimized with.
+     *
+     * @return the SHA-256 of the sources as a hex String.
+     */
+    public String getSourceKey() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available!", e);
+        }
+        update(digest, "vis " + VisFormat.VERSION);
+        for (VisionFile file : files) {
+            update(digest, file.getName());
+            update(digest, file.getCode());
+        }
+        update(digest, "optimizer " + Optimizer.VERSION);
+        for (Pass pass : Optimizer.standard().getPasses()) update(digest, "pass " + pass.getName());
+        for (CustomCommand command : commands) update(digest, "command " + command.getCore() + " " + command.getControlFlow() + " " + command.getVariableScope());
+        for (CustomCBlock cblock : cblocks) update(digest, "cblock " + cblock.getCore() + " " + cblock.getControlFlow() + " " + cblock.getVariableScope());
+        for (CustomReporter reporter : reporters) update(digest, "reporter " + reporter.getCore() + " " + reporter.getEffect() + " " + reporter.getOperator() + " " + reporter.getVariableScope());
+        for (CustomHat hat : hats) update(digest, "hat " + hat.getCore() + " " + hat.getVariableScope());
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Adds the given text to the digest, followed by a separator so neighbouring texts cannot run together.
+     */
+    private static void update(MessageDigest digest, String text) {
+        digest.update((text != null ? text : "").getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Loads the compiled Script that was stored with the Project, if it is not stale.
+     *
+     * @return the Script. Null if none was stored, the sources or APIs have changed since, or it cannot be loaded.
+     */
+    public Script loadPrecompiled() {
+        if (precompiled == null || !getSourceKey().equals(precompiledKey)) {
+            return null;
+        }
+        try {
+            return VisReader.read(precompiled, this);
+        } catch (FileFormatException | RuntimeException e) {
+            // A Script that cannot be loaded is stale as well, so it is compiled again.
+            return null;
+        }
+    }
+
+    /**
+     * @return whether a compiled Script was stored with the Project.
+     */
+    public boolean hasPrecompiled() {
+        return precompiled != null;
+    }
+
+    /**
+     * @return the source key the stored Script was compiled from. Null if none was stored.
+     */
+    public String getPrecompiledKey() {
+        return precompiledKey;
     }
 
     /**
@@ -268,9 +442,9 @@ public class Project {
     }
 
     /**
-     * Gets all the CustomElements of the API
+     * Gets all the CustomElements of the API and rebuilds the indices of their cores.
      *
-     * @param api
+     * @param api the API to index.
      */
     private void indexCustomElements(API api) {
         commands.addAll(api.getCommands());
@@ -281,6 +455,15 @@ public class Project {
         Collections.sort(hats, Comparator.comparing(CustomHat::getCore));
         cblocks.addAll(api.getCBlocks());
         Collections.sort(cblocks, Comparator.comparing(CustomCBlock::getCore));
+
+        // Commands take priority over CBlocks with the same core.
+        commandIndex.clear();
+        for (CustomCommand command : commands) commandIndex.add(command.getCore(), command);
+        for (CustomCBlock cblock : cblocks) commandIndex.add(cblock.getCore(), cblock);
+        reporterIndex.clear();
+        for (CustomReporter reporter : reporters) reporterIndex.add(reporter.getCore(), reporter);
+        hatIndex.clear();
+        for (CustomHat hat : hats) hatIndex.add(hat.getCore(), hat);
     }
 
     @Override
@@ -324,4 +507,16 @@ public class Project {
     public ArrayList<CustomCBlock> getCBlocks() {
         return cblocks;
     }
+
+    public SignatureIndex<CustomCommand> getCommandIndex() {
+        return commandIndex;
+    }
+
+    public SignatureIndex<CustomReporter> getReporterIndex() {
+        return reporterIndex;
+    }
+
+    public SignatureIndex<CustomHat> getHatIndex() {
+        return hatIndex;
+    }
 }
@@ -1,245 +1,235 @@
 package com.jlogical.vision.util;
 
+import com.jlogical.vision.compiler.exceptions.CompilerException;
 import com.jlogical.vision.compiler.exceptions.VisionException;
-import com.jlogical.vision.compiler.script.Variable;
+import com.jlogical.vision.compiler.script.Frame;
+import com.jlogical.vision.compiler.script.elements.Command;
 import com.jlogical.vision.compiler.values.ExpressionValue;
+import com.jlogical.vision.compiler.values.Value;
+import com.jlogical.vision.compiler.values.VariableValue;
+import com.jlogical.vision.compiler.values.expression.*;
 import com.jlogical.vision.project.CodeRange;
 
 import java.util.ArrayList;
 
 /**
- * Util class for solving expressions.
+ * Util class for parsing and solving expressions.
  */
 public class Calc {
 
     /**
      * Calculates the value of the expression and returns it.
      *
-     * @param value the ExpressionValue that is calling this function. Used for getting text, determining range, and finding variables.
+     * @param value the ExpressionValue that is calling this function.
+     * @param frame the Frame of the Hat running the expression.
      * @return the value. Null if none.
      * @throws VisionException if there was an error calculating the value.
      */
-    public static Object calc(ExpressionValue value) throws VisionException {
-        ArrayList<Object> elements = parse(value);
-        adjust(elements);
-        return solve(elements, value);
+    public static Object calc(ExpressionValue value, Frame frame) throws VisionException {
+        return value.getExpression().evaluate(frame);
     }
 
     /**
-     * Splits the given text and parses it to a List of elements.
+     * Parses the text of an expression into a tree of Expressions.
+     * '^' is solved first, then '*' and '/', then '+' and '-'. Operators of the same precedence are solved from left to right.
+     * A '+' or '-' at the start of the expression or after another operator is the sign of the number after it.
      *
-     * @param value the ExpressionValue that is calling this function.
-     * @return the List of objects.
+     * @param text          the text of the expression.
+     * @param values        the Values of the inputs in the text, in the order they appear.
+     * @param commandHolder the Command that is holding the expression. Used for finding variables.
+     * @param range         the range of the expression.
+     * @return the root of the tree.
+     * @throws CompilerException if the expression is not valid.
      */
-    private static ArrayList<Object> parse(ExpressionValue value)  {
-
-        String text = value.getText(); // The text of the equation.
+    public static Expression parse(String text, ArrayList<Value> values, Command commandHolder, CodeRange range) throws CompilerException {
+        ArrayList<Object> elements = split(text, values, commandHolder, range);
+        if (elements.isEmpty()) {
+            throw new CompilerException("Expression '" + text + "' cannot be empty!", range);
+        }
+        int[] index = {0};
+        Expression expression = parseSum(elements, index, range);
+        if (index[0] != elements.size()) {
+            throw new CompilerException(elements.get(index[0]) + " must be a number next to " + elements.get(index[0] - 1), range);
+        }
+        return expression;
+    }
 
+    /**
+     * Splits the given text into a List of operators (Characters) and operands (Expressions).
+     *
+     * @return the List of elements.
+     * @throws CompilerException if two operands are next to each other or the inputs do not match the values.
+     */
+    private static ArrayList<Object> split(String text, ArrayList<Value> values, Command commandHolder, CodeRange range) throws CompilerException {
         ArrayList<Object> elements = new ArrayList<>();
-        String currInput = "";
-
-        // Loop through and parse the expression.
-        for (int i = 0; i < text.length(); i++) {
-
-            char c = text.charAt(i);
+        int valueIndex = 0;
+        int start = 0; // Start of the current name or number.
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : '+';
+            boolean isInput = c == '[' || c == '(' || c == '{';
+            if (!isOperator(c) && !isInput) {
+                continue;
+            }
 
-            // if we found an operator, add the previous element and the current operator.
-            if (isOperator(c)) {
-                currInput = currInput.trim(); // Trim the input.
-                if (!currInput.isBlank()) {
-
-                    // Add the element. If it's a number, add it. Otherwise, try to convert it to a variable.
-                    try {
-                        elements.add(Double.parseDouble(currInput));
-                    } catch (Exception e) {
-                        Variable variable = Variable.findVariable(currInput, value.getCommandHolder().getCBlockHolder(), value.getCommandHolder().getHatHolder());
-                        if (variable != null) {
-                            elements.add(variable.getValue());
-                        } else {
-                            elements.add(currInput);
-                        }
-                    }
-                    currInput = "";
-                }
-                elements.add(c);
-            } else {
-                currInput += c;
+            // Add the name or number before this character.
+            String element = text.substring(start, i).trim();
+            if (!element.isEmpty()) {
+                addOperand(elements, toOperand(element, commandHolder, range), text, range);
             }
-        }
 
-        // Add the last element to the list.
-        currInput = currInput.trim();
-        if (!currInput.isBlank()) {
-            try {
-                elements.add(Double.parseDouble(currInput));
-            } catch (Exception e) {
-                Variable variable = Variable.findVariable(currInput, value.getCommandHolder().getCBlockHolder(), value.getCommandHolder().getHatHolder());
-                if (variable != null) {
-                    elements.add(variable.getValue());
-                } else {
-                    elements.add(currInput);
+            if (i == text.length()) {
+                break;
+            } else if (isInput) {
+                if (valueIndex >= values.size()) {
+                    throw new CompilerException("Expression '" + text + "' has more inputs than values!", range);
                 }
+                addOperand(elements, new ValueExpression(values.get(valueIndex++)), text, range);
+                i = skipInput(text, i);
+            } else {
+                elements.add(c);
             }
+            start = i + 1;
         }
         return elements;
     }
 
     /**
-     * Does some adjustments to the given elements before being solved.
-     * Some of these changes include fixing positive and negative signs.
+     * Adds the operand to the elements.
      *
-     * @param elements the elements to adjust.
+     * @throws CompilerException if the last element is also an operand.
      */
-    private static void adjust(ArrayList<Object> elements) {
-
-        if(elements.size() <= 1) return; // Don't do anything if the expression is less than two elements.
-
-        Object curr;
-        Object next;
-        Object moreNext;
-
-        // Fix the case where (+) or (-) are the first elements of the expression.
-        curr = elements.get(0);
-        next = elements.get(1);
-        if(curr.toString().equals("+") && isNumber(next)){
-            elements.set(1, +Double.parseDouble(next.toString()));
-            elements.remove(0);
-        }else if (curr.toString().equals("-") && isNumber(next)){
-            elements.set(1, -Double.parseDouble(next.toString()));
-            elements.remove(0);
+    private static void addOperand(ArrayList<Object> elements, Expression operand, String text, CodeRange range) throws CompilerException {
+        if (!elements.isEmpty() && elements.get(elements.size() - 1) instanceof Expression) {
+            throw new CompilerException("Expression '" + text + "' needs an operator between its values!", range);
         }
+        elements.add(operand);
+    }
 
-        // Loop through and find stray (+) and (-) signs after operations, and cast the next number to either positive or negative.
-        for (int i = 0; i < elements.size() - 2; i++) {
-            curr = elements.get(i);
-            next = elements.get(i+1);
-            moreNext = elements.get(i+2);
-
-            if(isOperator(curr) && next.toString().equals("+") && isNumber(moreNext)){
-                elements.set(i+2, +Double.parseDouble(moreNext.toString()));
-                elements.remove(i+1);
-            }else if (isOperator(curr) && next.toString().equals("-") && isNumber(moreNext)){
-                elements.set(i+2, -Double.parseDouble(moreNext.toString()));
-                elements.remove(i+1);
-            }
+    /**
+     * Converts a number or name in an expression to an Expression.
+     */
+    private static Expression toOperand(String element, Command commandHolder, CodeRange range) {
+        try {
+            return new ConstantExpression(Double.parseDouble(element), range);
+        } catch (NumberFormatException e) {
+            return new ReferenceExpression(new VariableValue(element, range, commandHolder));
         }
     }
 
     /**
-     * Solves the given expression and returns its value.
-     *
-     * @param elements List of elements to solve. Found using parse.
-     * @param value    the ExpressionValue this
-     * @return the value. Null if none.
-     * @throws VisionException if there was an error solving the text.
+     * Returns the index of the character that closes the input that starts at the given index.
      */
-    private static Object solve(ArrayList<Object> elements, ExpressionValue value) throws VisionException {
-        int index;
-        while (elements.size() > 1) {
-            if ((index = indexOf(elements, "^")) != -1) {
-                ArrayList<Double> nums = checkNum(elements, value.getRange(), index, -1, 1);
-                elements.set(index - 1, Math.pow(nums.get(0), nums.get(1)));
-                elements.remove(index);
-                elements.remove(index);
-            } else if ((index = indexOf(elements, "*", "/")) != -1) {
-                String s = elements.get(index).toString();
-                if (s.equals("*")) { //Multiply
-                    ArrayList<Double> nums = checkNum(elements, value.getRange(), index, -1, 1);
-                    elements.set(index - 1, nums.get(0) * nums.get(1));
-                    elements.remove(index);
-                    elements.remove(index);
-                } else if (s.equals("/")) { //Divide
-                    ArrayList<Double> nums = checkNum(elements, value.getRange(), index, -1, 1);
-                    elements.set(index - 1, nums.get(0) / nums.get(1));
-                    elements.remove(index);
-                    elements.remove(index);
-                }
-            } else if ((index = indexOf(elements, "+", "-")) != -1) {
-                String s = elements.get(index).toString();
-                if (s.equals("+")) { //Add
-                    ArrayList<Double> nums = checkNum(elements, value.getRange(), index, -1, 1);
-                    elements.set(index - 1, nums.get(0) + nums.get(1));
-                    elements.remove(index);
-                    elements.remove(index);
-                } else if (s.equals("-")) { //Subtract
-                    ArrayList<Double> nums = checkNum(elements, value.getRange(), index, -1, 1);
-                    elements.set(index - 1, nums.get(0) - nums.get(1));
-                    elements.remove(index);
-                    elements.remove(index);
-                }
+    private static int skipInput(String text, int start) {
+        int depth = 0;
+        boolean inString = false;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c != ']') continue;
+                inString = false;
+            } else if (c == '[') {
+                inString = true;
+            }
+            if (c == '[' || c == '(' || c == '{') {
+                depth++;
+            } else if (c == ']' || c == ')' || c == '}') {
+                depth--;
+            }
+            if (depth == 0) {
+                return i;
             }
         }
-        return elements.get(0);
+        return text.length();
     }
 
     /**
-     * Returns whether the given object is a mathematical operator.
-     * @param o the object to test.
-     * @return true if it is an operator.
+     * Parses '+' and '-' operators.
      */
-    private static boolean isOperator(Object o){
-        return "+-*/^".contains(o.toString());
+    private static Expression parseSum(ArrayList<Object> elements, int[] index, CodeRange range) throws CompilerException {
+        Expression expression = parseProduct(elements, index, range);
+        while (isNext(elements, index, '+', '-')) {
+            char operator = (char) elements.get(index[0]++);
+            expression = new OperatorExpression(operator, expression, parseProduct(elements, index, range), range);
+        }
+        return expression;
     }
 
     /**
-     * Returns whether the given object is a number or not.
-     * @param o the object to test.
-     * @return true if the object is a number.
+     * Parses '*' and '/' operators.
      */
-    private static boolean isNumber(Object o){
-        try{
-            Double.parseDouble(o.toString());
-            return true;
-        }catch (Exception e){
-            return false;
+    private static Expression parseProduct(ArrayList<Object> elements, int[] index, CodeRange range) throws CompilerException {
+        Expression expression = parsePower(elements, index, range);
+        while (isNext(elements, index, '*', '/')) {
+            char operator = (char) elements.get(index[0]++);
+            expression = new OperatorExpression(operator, expression, parsePower(elements, index, range), range);
         }
+        return expression;
     }
 
     /**
-     * Returns the index of the smallest index where any of the tests are in the elements. -1 if none are found.
-     *
-     * @param elements the elements to look through.
-     * @param tests    the Strings to test.
-     * @return the index.
+     * Parses '^' operators.
      */
-    private static int indexOf(ArrayList<Object> elements, String... tests) {
-        for (int i = 0; i < elements.size(); i++) {
-            Object o = elements.get(i);
-            for (String s : tests) {
-                if (s.equals(o.toString())) {
-                    return i;
-                }
-            }
+    private static Expression parsePower(ArrayList<Object> elements, int[] index, CodeRange range) throws CompilerException {
+        Expression expression = parseOperand(elements, index, range);
+        while (isNext(elements, index, '^')) {
+            char operator = (char) elements.get(index[0]++);
+            expression = new OperatorExpression(operator, expression, parseOperand(elements, index, range), range);
         }
-        return -1;
+        return expression;
     }
 
     /**
-     * Checks if any of the elements relative to the index are numbers. If not, throws an exception.
-     *
-     * @param elements the elements of the current calculation.
-     * @param range    the CodeRange this calculation occurs in.
-     * @param index    the initial index to check.
-     * @param relative all the relative indices to check.
-     * @return List of doubles of the numbers it just checked.
-     * @throws VisionException if the relative elements are not numbers.
+     * Parses an operand and the sign in front of it.
      */
-    private static ArrayList<Double> checkNum(ArrayList<Object> elements, CodeRange range, int index, int... relative) throws VisionException {
-        ArrayList<Double> nums = new ArrayList<>();
-        for (int i = 0; i < relative.length; i++) {
-            int ri = index + relative[i];
-            if (ri < 0) {
-                throw new VisionException(elements.get(index) + " needs to be proceeded by a number.", range);
-            }
-            if (ri >= elements.size()) {
-                throw new VisionException(elements.get(index) + " needs to be before a number.", range);
+    private static Expression parseOperand(ArrayList<Object> elements, int[] index, CodeRange range) throws CompilerException {
+        int i = index[0];
+        if (i >= elements.size()) {
+            throw new CompilerException(elements.get(i - 1) + " needs to be before a number.", range);
+        }
+        Object element = elements.get(i);
+        if (element instanceof Expression) {
+            index[0]++;
+            return (Expression) element;
+        }
+        char sign = (char) element;
+        if ((sign == '+' || sign == '-') && i + 1 < elements.size() && elements.get(i + 1) instanceof Expression) {
+            index[0] += 2;
+            Expression operand = (Expression) elements.get(i + 1);
+            if (operand instanceof ConstantExpression) { // Signed numbers are numbers themselves.
+                double value = ((ConstantExpression) operand).getValue();
+                return new ConstantExpression(sign == '-' ? -value : value, range);
             }
-            try {
-                nums.add(Double.parseDouble(elements.get(ri) + ""));
-            } catch (Exception e) {
-                throw new VisionException(elements.get(ri) + " must be a number next to " + elements.get(index), range);
+            return new SignExpression(sign, operand, range);
+        }
+        if (i == 0) {
+            throw new CompilerException(element + " needs to be proceeded by a number.", range);
+        }
+        throw new CompilerException(element + " must be a number next to " + elements.get(i - 1), range);
+    }
+
+    /**
+     * Returns whether the next element is any of the given operators.
+     */
+    private static boolean isNext(ArrayList<Object> elements, int[] index, char... operators) {
+        if (index[0] >= elements.size()) {
+            return false;
+        }
+        Object element = elements.get(index[0]);
+        for (char operator : operators) {
+            if (element.equals(operator)) {
+                return true;
             }
         }
-        return nums;
+        return false;
+    }
+
+    /**
+     * Returns whether the given character is a mathematical operator.
+     *
+     * @param c the character to test.
+     * @return true if it is an operator.
+     */
+    private static boolean isOperator(char c) {
+        return c == '+' || c == '-' || c == '*' || c == '/' || c == '^';
     }
 }
@@ -0,0 +1,98 @@
+import com.jlogical.vision.compiler.Compiler;
+import com.jlogical.vision.compiler.script.Engine;
+import com.jlogical.vision.compiler.script.Script;
+import com.jlogical.vision.project.Project;
+import com.jlogical.vision.project.VisionFile;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how many bytes each Engine allocates while running numeric loops like those in res/operators1.txt.
+ * Run the main method on a HotSpot JVM, which can report the bytes allocated by a thread.
+ */
+public class AllocationBenchmark {
+
+    /**
+     * Number of untimed runs before measuring, so the JIT has compiled the interpreter.
+     */
+    private static final int WARMUP = 50;
+
+    /**
+     * Number of measured runs.
+     */
+    private static final int RUNS = 20;
+
+    /**
+     * Number of times each loop program repeats its body.
+     */
+    private static final int ITERATIONS = 10000;
+
+    /**
+     * Loop programs that only do math on numbers.
+     */
+    private static final String[][] PROGRAMS = {
+            {"sum", "when started\n" +
+                    "    set [total] to (0)\n" +
+                    "    repeat (" + ITERATIONS + ")\n" +
+                    "        set [total] to ((total) + (3))\n" +
+                    "    end\n" +
+                    "    print (total)\n" +
+                    "end"},
+            {"operators", "when started\n" +
+                    "    set [total] to (0)\n" +
+                    "    for every [i] up to (" + ITERATIONS + ")\n" +
+                    "        set [total] to ((total) + (((9) - ((i) ^ (2))) / (2)))\n" +
+                    "    end\n" +
+                    "    print (total)\n" +
+                    "end"},
+            {"change", "when started\n" +
+                    "    set [total] to (0)\n" +
+                    "    for every [i] up to (" + ITERATIONS + ")\n" +
+                    "        change [total] by (i * 2)\n" +
+                    "    end\n" +
+                    "    print (total)\n" +
+                    "end"},
+    };
+
+    public static void main(String[] args) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (String[] program : PROGRAMS) {
+                Project project = Project.blank("benchmark");
+                project.getFiles().add(new VisionFile(program[0], program[1]));
+                StringBuilder line = new StringBuilder(String.format("%-12s", program[0]));
+                for (Engine engine : Engine.values()) {
+                    for (int i = 0; i < WARMUP; i++) {
+                        compile(project, engine).start();
+                    }
+                    long bytes = 0;
+                    for (int i = 0; i < RUNS; i++) {
+                        Script script = compile(project, engine);
+                        long start = threads.getThreadAllocatedBytes(thread);
+                        script.start();
+                        bytes += threads.getThreadAllocatedBytes(thread) - start;
+                    }
+                    line.append(String.format("   %s: %8.1f bytes/iteration", engine.name().toLowerCase(), (double) bytes / RUNS / ITERATIONS));
+                }
+                out.println(line);
+            }
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * Compiles the Project into a Script that runs with the given Engine.
+     */
+    private static Script compile(Project project, Engine engine) {
+        Script script = Compiler.compile(project);
+        script.setEngine(engine);
+        return script;
+    }
+}
@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 public class CalcTest {
@@ -23,7 +24,7 @@ public class CalcTest {
      * @throws VisionException if parsing didn't work.
      */
     private Object calc(String text) throws VisionException{
-        return Calc.calc(new ExpressionValue(text,  new ArrayList<>(), CodeRange.fromCodeLocation(CodeLocation.emptyReference()), null));
+        return Calc.calc(new ExpressionValue(text,  new ArrayList<>(), CodeRange.fromCodeLocation(CodeLocation.emptyReference()), null), null);
     }
 
     @Test
@@ -50,4 +51,20 @@ public class CalcTest {
         assertEquals(calc("10^10/1000000000"), 10.0);
         assertEquals(calc("1+2*3/4+5-6"), 1.5);
     }
+
+    @Test
+    public void testSigns() throws Exception{
+        assertEquals(calc("2*-3"), -6.0);
+        assertEquals(calc("-2^2"), 4.0);
+        assertEquals(calc("2^-1"), 0.5);
+        assertEquals(calc("1--2"), 3.0);
+        assertEquals(calc("2^3^2"), 64.0);
+    }
+
+    @Test
+    public void testInvalid(){
+        assertThrows(VisionException.class, () -> calc("1+"));
+        assertThrows(VisionException.class, () -> calc("*2"));
+        assertThrows(VisionException.class, () -> calc("2**3"));
+    }
 }
@@ -1,12 +1,46 @@
+import com.jlogical.vision.api.elements.CustomReporter;
+import com.jlogical.vision.api.elements.Effect;
 import com.jlogical.vision.compiler.Compiler;
+import com.jlogical.vision.compiler.CompilerSession;
 import com.jlogical.vision.compiler.exceptions.CompilerException;
+import com.jlogical.vision.compiler.exceptions.FileFormatException;
 import com.jlogical.vision.compiler.exceptions.VisionException;
+import com.jlogical.vision.compiler.optimizer.Optimizer;
+import com.jlogical.vision.compiler.optimizer.PassStatistics;
+import com.jlogical.vision.compiler.script.Engine;
+import com.jlogical.vision.compiler.script.ExecutionContext;
+import com.jlogical.vision.compiler.script.Program;
 import com.jlogical.vision.compiler.script.Script;
+import com.jlogical.vision.compiler.script.elements.Command;
+import com.jlogical.vision.compiler.script.elements.Hat;
+import com.jlogical.vision.compiler.script.elements.Reporter;
+import com.jlogical.vision.compiler.script.output.MemoryOutputSink;
+import com.jlogical.vision.compiler.script.output.RingOutputSink;
+import com.jlogical.vision.compiler.script.output.StreamOutputSink;
+import com.jlogical.vision.compiler.script.output.TeeOutputSink;
+import com.jlogical.vision.compiler.script.scheduler.Scheduler;
+import com.jlogical.vision.compiler.script.vis.VisFormat;
+import com.jlogical.vision.compiler.script.vis.VisReader;
+import com.jlogical.vision.compiler.script.vis.VisWriter;
+import com.jlogical.vision.compiler.values.SharedValue;
+import com.jlogical.vision.compiler.values.SharingValue;
 import com.jlogical.vision.project.Project;
+import com.jlogical.vision.project.VisionFile;
 import org.junit.jupiter.api.Test;
 
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,32 +68,60 @@ public class CompilerTest {
      * @return the log of the Script.
      */
     private String compileAndRun(String path) throws VisionException {
+        return compileAndRun(path, Engine.TREE);
+    }
+
+    /**
+     * Compiles a Project from the given file and returns the output log after it has run with the given Engine.
+     * @param path the path to the file.
+     * @param engine the Engine to run the Script with.
+     * @return the log of the Script.
+     */
+    private String compileAndRun(String path, Engine engine) throws VisionException {
         try {
             Project project = Project.fromTextFile(path, "test");
             Script script = Compiler.compile(project);
-            script.start();
-            return script.getOutputLog();
+            script.setEngine(engine);
+            return run(script);
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
     }
 
+    /**
+     * Runs the Script and returns its output log, followed by the message of the error that stopped it if there was one.
+     * @param script the Script to run.
+     * @return the log of the Script.
+     */
+    private static String run(Script script){
+        try {
+            script.start();
+            return script.getOutputLog();
+        } catch (VisionException e) {
+            return script.getOutputLog() + "\n" + e.getMessage();
+        }
+    }
+
     @Test
     public void testCompileSuccess(){
         assertTrue(compile("res/helloworld.txt"));
         assertTrue(compile("res/variable1.txt"));
         assertTrue(compile("res/variable2.txt"));
         assertTrue(compile("res/variable3.txt"));
+        assertTrue(compile("res/variable4.txt"));
         assertTrue(compile("res/operators1.txt"));
         assertTrue(compile("res/operators2.txt"));
+        assertTrue(compile("res/operators3.txt"));
         assertTrue(compile("res/control1.txt"));
         assertTrue(compile("res/control2.txt"));
+        assertTrue(compile("res/control3.txt"));
         assertTrue(compile("res/string_interpolation1.txt"));
         assertTrue(compile("res/string_interpolation2.txt"));
         assertTrue(compile("res/string_interpolation3.txt"));
         assertTrue(compile("res/compiler_sugar.txt"));
         assertTrue(compile("res/definitions.txt"));
+        assertTrue(compile("res/definitions2.txt"));
         assertTrue(compile("res/list.txt"));
         assertTrue(compile("res/string.txt"));
         assertTrue(compile("res/custom_objects.txt"));
@@ -73,20 +135,402 @@ public class CompilerTest {
         assertEquals(compileAndRun("res/variable1.txt"),  "Hello World");
         assertEquals(compileAndRun("res/variable2.txt"),  "5");
         assertEquals(compileAndRun("res/variable3.txt"),  "5\n14");
+        assertEquals(compileAndRun("res/variable4.txt"),  "1\n2\n1\n7\nHello Jake\nHello Bob");
         assertEquals(compileAndRun("res/operators1.txt"), "5\n5\n5");
         assertEquals(compileAndRun("res/operators2.txt"), "false\ntrue\n5\n5\n5");
+        assertEquals(compileAndRun("res/operators3.txt"), "10.5\n2.147483648E9\n0\nfound aaa\nthree\nless\nCannot convert 'abc' to a number!(@ beg: (29,10) end: (29,22))");
         assertEquals(compileAndRun("res/control1.txt"),   "3");
         assertEquals(compileAndRun("res/control2.txt"), "1\n2\n3");
+        assertEquals(compileAndRun("res/control3.txt"), "5\nlow\nlow\n1\n3\n4\n4");
         assertEquals(compileAndRun("res/string_interpolation1.txt"), "Hello World");
         assertEquals(compileAndRun("res/string_interpolation2.txt"), "pi="+Math.PI+". e="+Math.E);
         assertEquals(compileAndRun("res/string_interpolation3.txt"), "#3+2=5#");
         assertEquals(compileAndRun("res/compiler_sugar.txt"), "3");
         assertEquals(compileAndRun("res/definitions.txt"), "1\nHello Jake\n0\n9");
+        assertEquals(compileAndRun("res/definitions2.txt"), "120\n0 done\n0 done\n1 done\n0 done\n0 done\n1 done\n2 done");
         assertEquals(compileAndRun("res/list.txt"), "1\n2\n10\n6\n6\nfalse\ntrue\n2\n5\n0\ntrue\n1\n3\n6");
         assertEquals(compileAndRun("res/string.txt"), "11\nH\nHello World!\ns: Hello World");
         assertEquals(compileAndRun("res/custom_objects.txt"), "Robinson Crusoe");
     }
 
+    @Test
+    public void testEngines() throws VisionException{
+        String[] paths = {"res/helloworld.txt", "res/variable1.txt", "res/variable2.txt", "res/variable3.txt", "res/variable4.txt",
+                "res/operators1.txt", "res/operators2.txt", "res/operators3.txt", "res/control1.txt", "res/control2.txt", "res/control3.txt",
+                "res/string_interpolation1.txt", "res/string_interpolation2.txt", "res/string_interpolation3.txt", "res/compiler_sugar.txt",
+                "res/definitions.txt", "res/definitions2.txt", "res/list.txt", "res/string.txt", "res/custom_objects.txt"};
+        for(String path : paths){
+            String expected = compileAndRun(path, Engine.TREE);
+            assertEquals(expected, compileAndRun(path, Engine.FLAT), path);
+            assertEquals(expected, compileAndRun(path, Engine.COMPILED), path);
+        }
+    }
+
+    @Test
+    public void testVisFormat() throws Exception{
+        String[] paths = {"res/helloworld.txt", "res/variable4.txt", "res/operators3.txt", "res/control3.txt",
+                "res/string_interpolation2.txt", "res/string_interpolation3.txt", "res/definitions.txt", "res/definitions2.txt",
+                "res/list.txt", "res/string.txt", "res/custom_objects.txt"};
+        for(String path : paths){
+            Project project = Project.fromTextFile(path, "test");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            VisWriter.write(Compiler.compile(project), out);
+            for(Engine engine : Engine.values()){
+                Script compiled = Compiler.compile(project);
+                compiled.setEngine(engine);
+                Script loaded = VisReader.read(out.toByteArray(), project);
+                loaded.setEngine(engine);
+                assertEquals(run(compiled), run(loaded), path + " " + engine);
+            }
+        }
+        for(String path : new String[]{"res/hangman.txt", "res/tictactoe.txt"}){
+            Project project = Project.fromTextFile(path, "test");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            VisWriter.write(Compiler.compile(project), out);
+            assertEquals(Compiler.compile(project).getHats().size(), VisReader.read(out.toByteArray(), project).getHats().size(), path);
+        }
+        assertThrows(FileFormatException.class, () -> VisReader.read(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, Project.blank("test")));
+        for(int count : new int[]{-5, Integer.MAX_VALUE}){
+            ByteBuffer header = ByteBuffer.allocate(12).putInt(VisFormat.MAGIC).putInt(VisFormat.VERSION).putInt(count);
+            assertThrows(FileFormatException.class, () -> VisReader.read(header.array(), Project.blank("test")));
+        }
+        ByteBuffer eventCall = ByteBuffer.allocate(256);
+        eventCall.putInt(VisFormat.MAGIC).putInt(VisFormat.VERSION);
+        eventCall.putInt(2).putInt(12).put("when started".getBytes()).putInt(1).put("x".getBytes()); // Strings.
+        eventCall.putInt(0).putInt(1).putInt(1).putInt(0); // No numbers, the file "x", and no ranges.
+        eventCall.putInt(1).putInt(0).putInt(1).putInt(1).putInt(1); // One line.
+        eventCall.putInt(1).put(VisFormat.EVENT_HAT).putInt(0).putInt(0).putInt(0); // A 'when started' Hat...
+        eventCall.putInt(1).put(VisFormat.DEFINED_COMMAND).putInt(0).putInt(0); // ...that calls itself as a defined command.
+        assertThrows(FileFormatException.class, () -> VisReader.read(eventCall.array(), Project.blank("test")));
+    }
+
+    @Test
+    public void testOptimizer() throws VisionException, IOException{
+        Project project = Project.fromTextFile("res/optimizer.txt", "test");
+        String expected = "5\nabc\n7\nyes\nx big\nloop\n8\npi is " + Math.PI + "\nafter";
+        for(Engine engine : Engine.values()){
+            Script plain = Compiler.compile(project, null, null);
+            plain.setEngine(engine);
+            plain.start();
+            assertEquals(expected, plain.getOutputLog(), engine.name());
+
+            Optimizer optimizer = Optimizer.standard();
+            Script optimized = Compiler.compile(project, null, optimizer);
+            optimized.setEngine(engine);
+            optimized.start();
+            assertEquals(expected, optimized.getOutputLog(), engine.name());
+            assertEquals(plain.getHats().size() - 1, optimized.getHats().size());
+            for(PassStatistics pass : optimizer.getStatistics()){
+                if(pass.getName().equals("loop invariant hoisting")) continue; // Hoisting is tested by testLoopInvariantHoisting.
+                if(pass.getName().equals("common subexpression elimination")) continue; // Sharing is tested by testCommonSubexpressionElimination.
+                assertTrue(pass.getChanges() > 0, pass.getName());
+                assertTrue(pass.getElementsSaved() > 0, pass.getName());
+            }
+        }
+
+        ByteArrayOutputStream statistics = new ByteArrayOutputStream();
+        Optimizer optimizer = Optimizer.standard().setDumpStatistics(true);
+        optimizer.setStatisticsOut(new PrintStream(statistics));
+        Compiler.compile(project, null, optimizer);
+        assertEquals(optimizer.getPasses().size(), statistics.toString().trim().split("\n").length);
+    }
+
+    /**
+     * @return the number of changes the Pass with the given name made in the last run of the Optimizer.
+     */
+    private static int changes(Optimizer optimizer, String name){
+        for(PassStatistics pass : optimizer.getStatistics()){
+            if(pass.getName().equals(name)) return pass.getChanges();
+        }
+        throw new IllegalArgumentException("No pass named " + name);
+    }
+
+    @Test
+    public void testLoopInvariantHoisting() throws VisionException, IOException, FileFormatException{
+        Project project = Project.fromTextFile("res/hoisting.txt", "test");
+        String expected = "a\na\na\na\na\na\n1\n2\n3\n4\n5\n6\n7\n8\n9\n9\nk is 2\nk is 1";
+        Optimizer optimizer = Optimizer.standard();
+        Compiler.compile(project, null, optimizer);
+        assertEquals(3, changes(optimizer, "loop invariant hoisting"));
+        assertSameOutput(project, expected);
+    }
+
+    @Test
+    public void testCommonSubexpressionElimination() throws VisionException, IOException, FileFormatException{
+        Project project = Project.fromTextFile("res/cse.txt", "test");
+        String expected = "c1 | c2 | c1\n18\n1/1\n2/2\n3/3\nnoisy\nnoisy\n!!";
+        Optimizer optimizer = Optimizer.standard();
+        Script optimized = Compiler.compile(project, null, optimizer);
+        assertEquals(5, changes(optimizer, "common subexpression elimination")); // board, item 1, square (n), i, and x in square.
+
+        // In the first print, both (for (board) item (1)) are one SharedValue, and (board) is shared with (for (board) item (2)).
+        Command<?> print = null;
+        for(Command<?> command : optimized.getHats().get(0).getCommands()){
+            if(print == null && command.getValues().size() == 1 && command.getValues().get(0) instanceof SharingValue) print = command;
+        }
+        assertNotNull(print);
+        Reporter join = (Reporter) ((SharingValue) print.getValues().get(0)).getValue();
+        SharedValue item1 = (SharedValue) join.getValues().get(0);
+        assertSame(item1, join.getValues().get(4));
+        Reporter item2 = (Reporter) join.getValues().get(2);
+        SharedValue board = (SharedValue) item2.getValues().get(0);
+        assertSame(board, ((Reporter) item1.getValue()).getValues().get(0));
+        assertNotEquals(item1.getIndex(), board.getIndex());
+
+        assertSameOutput(project, expected);
+    }
+
+    /**
+     * Asserts that the Project prints the expected output on every Engine when it is not optimized, when it is optimized, and when the optimized Script is loaded from a .vis file.
+     */
+    private static void assertSameOutput(Project project, String expected) throws VisionException, IOException, FileFormatException{
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VisWriter.write(Compiler.compile(project, null, Optimizer.standard()), out);
+        for(Engine engine : Engine.values()){
+            Script plain = Compiler.compile(project, null, null);
+            plain.setEngine(engine);
+            plain.start();
+            assertEquals(expected, plain.getOutputLog(), engine.name());
+
+            Script optimized = Compiler.compile(project, null, Optimizer.standard());
+            optimized.setEngine(engine);
+            optimized.start();
+            assertEquals(expected, optimized.getOutputLog(), engine.name());
+
+            Script loaded = VisReader.read(out.toByteArray(), project);
+            loaded.setEngine(engine);
+            loaded.start();
+            assertEquals(expected, loaded.getOutputLog(), engine.name());
+        }
+    }
+
+    @Test
+    public void testReporterEffects(){
+        Project project = Project.blank("test");
+        HashMap<String, Effect> effects = new HashMap<>();
+        for(CustomReporter reporter : project.getReporters()){
+            assertNotNull(reporter.getEffect(), reporter.getCore());
+            effects.put(reporter.getCore(), reporter.getEffect());
+        }
+        assertEquals(Effect.PURE, effects.get("sqrt of []"));
+        assertEquals(Effect.PURE, effects.get("join []>>"));
+        assertEquals(Effect.READS_STATE, effects.get("value of []"));
+        assertEquals(Effect.READS_STATE, effects.get("for () item []"));
+        assertEquals(Effect.READS_STATE, effects.get("for () get []"));
+        assertEquals(Effect.SIDE_EFFECTS, effects.get("random from [] to []"));
+        assertEquals(Effect.SIDE_EFFECTS, effects.get("ask []"));
+        assertEquals(Effect.SIDE_EFFECTS, effects.get("new list"));
+        assertEquals(Effect.SIDE_EFFECTS, effects.get("new []"));
+    }
+
+    @Test
+    public void testConcurrent() throws VisionException, IOException{
+        for(Engine engine : Engine.values()){
+            Script script = Compiler.compile(Project.fromTextFile("res/concurrent.txt", "test"));
+            script.setEngine(engine);
+            script.setConcurrent(true);
+            script.start();
+            script.await();
+            String[] lines = script.getOutputLog().split("\n");
+            Arrays.sort(lines);
+            assertArrayEquals(new String[]{"first 1353400", "second 171700"}, lines, engine.name());
+        }
+    }
+
+    @Test
+    public void testScheduler() throws VisionException, IOException{
+        Script script = Compiler.compile(Project.fromTextFile("res/scheduler.txt", "test"));
+        Scheduler scheduler = new Scheduler(0);
+        script.setScheduler(scheduler);
+        script.start();
+        assertEquals(3, scheduler.getRunQueueLength());
+        scheduler.run();
+        assertEquals("a\nb\na\nb\na\nb\nforever stopped", script.getOutputLog());
+        assertEquals(3, scheduler.getFinishedCount());
+        assertEquals(scheduler.getSliceCount(), scheduler.getYieldCount() + 3);
+    }
+
+    @Test
+    public void testParallelCompile() throws VisionException, IOException{
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try{
+            String[] paths = {"res/helloworld.txt", "res/variable4.txt", "res/operators3.txt", "res/control3.txt",
+                    "res/string_interpolation2.txt", "res/definitions.txt", "res/definitions2.txt", "res/list.txt", "res/custom_objects.txt"};
+            for(String path : paths){
+                Project project = Project.fromTextFile(path, "test");
+                Script serial = Compiler.compile(project);
+                Script parallel = Compiler.compile(project, pool);
+                assertEquals(run(serial), run(parallel), path);
+            }
+
+            Project project = Project.blank("test");
+            for(int i=0;i<8;i++){
+                project.getFiles().add(new VisionFile("file" + i, "when started\n    print (" + i + ")\nend\n"));
+            }
+            Script script = Compiler.compile(project, pool);
+            script.start();
+            assertEquals("0\n1\n2\n3\n4\n5\n6\n7", script.getOutputLog());
+
+            project.getFiles().get(5).setCode("when started\n    not a command\nend\n");
+            project.getFiles().get(7).setCode("when started\n    print (7)\n");
+            project.getFiles().get(2).setCode("when started\n    also not a command\nend\n");
+            String expected = Compiler.compile(project).getCompileLog();
+            assertTrue(expected.startsWith("also not a command"));
+            for(int i=0;i<20;i++){
+                assertEquals(expected, Compiler.compile(project, pool).getCompileLog());
+            }
+            project.getFiles().get(2).setCode("when started\n    print (2)\nend\n");
+            project.getFiles().get(5).setCode("when started\n    print (5)\nend\n");
+            assertTrue(Compiler.compile(project, pool).getCompileLog().startsWith("There are not enough 'end's!"));
+            assertEquals(Compiler.compile(project).getCompileLog(), Compiler.compile(project, pool).getCompileLog());
+        }finally{
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompilerSession() throws VisionException{
+        Project project = Project.blank("test");
+        project.getFiles().add(new VisionFile("main", "when started\n    greet [Jake]\n    print (count)\nend"));
+        project.getFiles().add(new VisionFile("library", "define command greet [name]\n    print [Hello #name]\nend\n\ndefine reporter count\n    return (3)\nend"));
+        project.getFiles().add(new VisionFile("other", "when started\n    set [total] to (1)\nend"));
+        CompilerSession session = new CompilerSession(project);
+
+        Script script = session.compile();
+        script.start();
+        assertEquals("Hello Jake\n3", script.getOutputLog());
+        assertEquals(Arrays.asList("main", "library", "other"), session.getRecompiledFiles());
+        Program first = script.getProgram();
+
+        script = session.edit("other", "when started\n    set [total] to (2)\n    print (total)\nend");
+        script.start();
+        assertEquals("Hello Jake\n3\n2", script.getOutputLog());
+        assertEquals(Arrays.asList("other"), session.getRecompiledFiles());
+
+        // The Program of an earlier compile still runs the code it was compiled from.
+        Script old = new Script(first);
+        old.start();
+        assertEquals("Hello Jake\n3", old.getOutputLog());
+
+        script = session.edit("library", "define command greet [name]\n    print [Hi #name]\nend\n\ndefine reporter count\n    return (4)\nend");
+        script.start();
+        assertEquals("Hi Jake\n4\n2", script.getOutputLog());
+        assertEquals(Arrays.asList("main", "library"), session.getRecompiledFiles());
+        old = new Script(first);
+        old.start();
+        assertEquals("Hello Jake\n3", old.getOutputLog());
+
+        assertFalse(session.edit("main", "when started\n    greet [Jake]\n").succeeded());
+        assertEquals(Arrays.asList("main", "library"), session.getRecompiledFiles());
+
+        script = session.edit("main", "when started\n    greet [Bob]\n    print (double (count))\nend");
+        assertFalse(script.succeeded());
+        script = session.edit("extra", "define reporter double [n]\n    return ((n) * (2))\nend");
+        script.start();
+        assertEquals("Hi Bob\n8\n2", script.getOutputLog());
+        assertEquals(Arrays.asList("main", "library", "other", "extra"), session.getRecompiledFiles());
+
+        Script full = Compiler.compile(project);
+        full.start();
+        assertEquals(full.getOutputLog(), script.getOutputLog());
+
+        assertFalse(session.remove("extra").succeeded());
+        session.edit("main", "when started\n    print (count)\nend").start();
+        assertEquals(Arrays.asList("main", "library", "other"), session.getRecompiledFiles());
+    }
+
+    @Test
+    public void testCompilerSessionOptimizes() throws VisionException{
+        Project project = Project.blank("test");
+        project.getFiles().add(new VisionFile("main", "when started\n    set [n] to (3)\n    repeat ((n) * (2))\n        print (join (square (n))[ ](square (n)))\n    end\nend"));
+        project.getFiles().add(new VisionFile("library", "define reporter square [x]\n    return ((x) * (x))\nend"));
+        project.getFiles().add(new VisionFile("other", "when started\n    print ((1) + (2))\nend"));
+        CompilerSession session = new CompilerSession(project);
+
+        Script script = session.compile();
+        assertSameAsCompiled(project, script);
+        Hat main = script.getHats().get(0);
+        int hoisted = main.getHoistedCount();
+        int shared = main.getSharedCount();
+        assertTrue(hoisted > 0);
+        assertTrue(shared > 0);
+
+        // Kept Hats are not optimized again.
+        script = session.edit("other", "when started\n    print ((2) + (2))\nend");
+        assertEquals(Arrays.asList("other"), session.getRecompiledFiles());
+        assertSame(main, script.getHats().get(0));
+        assertEquals(hoisted, main.getHoistedCount());
+        assertEquals(shared, main.getSharedCount());
+        assertSameAsCompiled(project, script);
+
+        // Every file is compiled again when the global Variables change, since n could be changed by another Hat.
+        script = session.edit("other", "when started\n    set global [n] to (5)\n    print ((2) + (2))\nend");
+        assertEquals(Arrays.asList("main", "library", "other"), session.getRecompiledFiles());
+        assertEquals(0, script.getHats().get(0).getHoistedCount());
+        assertSameAsCompiled(project, script);
+    }
+
+    /**
+     * Asserts that the Script runs and is optimized the same as the Project compiled by the Compiler.
+     */
+    private static void assertSameAsCompiled(Project project, Script script) throws VisionException{
+        Script full = Compiler.compile(project);
+        full.start();
+        script.start();
+        assertEquals(full.getOutputLog(), script.getOutputLog());
+        assertEquals(Optimizer.countElements(full.getProgram()), Optimizer.countElements(script.getProgram()));
+    }
+
+    @Test
+    public void testSharedProgram() throws Exception{
+        Program program = Compiler.compile(Project.fromTextFile("res/definitions2.txt", "test")).getProgram();
+        String expected = "120\n0 done\n0 done\n1 done\n0 done\n0 done\n1 done\n2 done";
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try{
+            ArrayList<Future<String>> runs = new ArrayList<>();
+            for(int i=0;i<200;i++){
+                Engine engine = Engine.values()[i % Engine.values().length];
+                runs.add(executor.submit(() -> {
+                    ExecutionContext context = new ExecutionContext(program, new MemoryOutputSink());
+                    context.setEngine(engine);
+                    context.start();
+                    return context.getOutputLog();
+                }));
+            }
+            for(Future<String> run : runs){
+                assertEquals(expected, run.get());
+            }
+        }finally{
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testOutputSinks() throws VisionException, IOException{
+        Project project = Project.fromTextFile("res/control2.txt", "test");
+        Script script = Compiler.compile(project);
+        RingOutputSink ring = new RingOutputSink(2);
+        script.setOutputSink(ring);
+        script.start();
+        assertEquals("2\n3", script.getOutputLog());
+        assertEquals(1, ring.getDroppedCount());
+
+        script = Compiler.compile(project);
+        StringWriter file = new StringWriter();
+        script.setOutputSink(new TeeOutputSink(new MemoryOutputSink(), new StreamOutputSink(file, 0)));
+        script.start();
+        assertEquals("1\n2\n3", script.getOutputLog());
+        assertEquals(String.join(System.lineSeparator(), "1", "2", "3", ""), file.toString());
+
+        MemoryOutputSink memory = new MemoryOutputSink();
+        StringBuilder expected = new StringBuilder();
+        for(int i=0;i<5000;i++){
+            memory.writeLine("line " + i);
+            expected.append(i == 0 ? "" : "\n").append("line ").append(i);
+        }
+        assertEquals(expected.toString(), memory.getText());
+    }
+
     @Test
     public void testExceptions(){
         assertFalse(compile("res/compiler_exception.txt"));
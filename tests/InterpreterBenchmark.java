@@ -0,0 +1,96 @@
+import com.jlogical.vision.compiler.Compiler;
+import com.jlogical.vision.compiler.script.Engine;
+import com.jlogical.vision.compiler.script.Script;
+import com.jlogical.vision.project.Project;
+import com.jlogical.vision.project.VisionFile;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Compares the speed of running Scripts with the tree walking Engine against the flat and compiled Engines.
+ * Run the main method with the paths of the Vision files to run (defaults to the res programs that do not ask for input, and a loop heavy program).
+ */
+public class InterpreterBenchmark {
+
+    /**
+     * Number of untimed runs before measuring.
+     */
+    private static final int WARMUP = 200;
+
+    /**
+     * Number of timed runs.
+     */
+    private static final int RUNS = 200;
+
+    /**
+     * A program that spends its time in control flow rather than printing.
+     */
+    private static final String LOOPS = "when started\n" +
+            "    set [total] to (0)\n" +
+            "    repeat (200)\n" +
+            "        for every [i] up to (50)\n" +
+            "            if ((i) > (25))\n" +
+            "                change [total] by (i)\n" +
+            "            else\n" +
+            "                change [total] by (1)\n" +
+            "            end\n" +
+            "        end\n" +
+            "    end\n" +
+            "    print (total)\n" +
+            "end";
+
+    public static void main(String[] args) throws Exception {
+        String[] paths = args.length > 0 ? args : new String[]{"res/helloworld.txt", "res/variable3.txt", "res/operators2.txt", "res/control3.txt",
+                "res/string_interpolation2.txt", "res/definitions.txt", "res/definitions2.txt", "res/list.txt", "res/string.txt"};
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (String path : paths) {
+                Project project = Project.fromTextFile(path, "benchmark");
+                report(out, path, time(project, Engine.TREE), time(project, Engine.FLAT), time(project, Engine.COMPILED));
+            }
+            Project loops = Project.blank("benchmark");
+            loops.getFiles().add(new VisionFile("loops", LOOPS));
+            report(out, "loops", time(loops, Engine.TREE), time(loops, Engine.FLAT), time(loops, Engine.COMPILED));
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * Prints the times of each Engine for a program.
+     */
+    private static void report(PrintStream out, String name, double tree, double flat, double compiled) {
+        out.printf("%-32s tree: %8.4f ms/op   flat: %8.4f ms/op (%.2fx)   compiled: %8.4f ms/op (%.2fx)%n", name, tree, flat, tree / flat, compiled, tree / compiled);
+    }
+
+    /**
+     * Compiles the Project and runs it with the given Engine, returning the average number of milliseconds a run took after warming up.
+     * Each run gets a newly compiled Script so the output log does not grow, but compiling is not timed.
+     */
+    private static double time(Project project, Engine engine) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            compile(project, engine).start();
+        }
+        Script[] scripts = new Script[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            scripts[i] = compile(project, engine);
+        }
+        long start = System.nanoTime();
+        for (Script script : scripts) {
+            script.start();
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / RUNS;
+    }
+
+    /**
+     * Compiles the Project into a Script that runs with the given Engine.
+     */
+    private static Script compile(Project project, Engine engine) {
+        Script script = Compiler.compile(project);
+        script.setEngine(engine);
+        return script;
+    }
+}
@@ -0,0 +1,145 @@
+import com.jlogical.vision.compiler.Input;
+import com.jlogical.vision.compiler.Lexer;
+import com.jlogical.vision.compiler.Line;
+import com.jlogical.vision.project.Project;
+import com.jlogical.vision.project.VisionFile;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+/**
+ * Compares the speed of the Lexer against the String concatenating splitter it replaced.
+ * Run the main method with the path of a Vision file and the number of times to repeat it (defaults to res/tictactoe.txt repeated until it is about 5 MB).
+ */
+public class LexerBenchmark {
+
+    /**
+     * Number of untimed runs before measuring.
+     */
+    private static final int WARMUP = 5;
+
+    /**
+     * Number of timed runs.
+     */
+    private static final int RUNS = 10;
+
+    public static void main(String[] args) throws Exception {
+        String path = args.length > 0 ? args[0] : "res/tictactoe.txt";
+        String code = new String(Files.readAllBytes(Paths.get(path)));
+        int repeat = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000 / Math.max(code.length(), 1);
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < repeat; i++) builder.append(code).append('\n');
+        VisionFile vfile = new VisionFile("main", builder.toString());
+        Project project = Project.blank("benchmark");
+
+        // Sanity check that both produce the same cores and inputs.
+        ArrayList<Line> lines = new Lexer(project, vfile).toLines();
+        ArrayList<String[]> legacy = legacyLex(vfile.getCode());
+        if (lines.size() != legacy.size()) throw new IllegalStateException("Different number of lines!");
+        for (int i = 0; i < lines.size(); i++) {
+            StringBuilder inputs = new StringBuilder();
+            for (Input input : lines.get(i).getInputs()) inputs.append(input.getType()).append(input.getText()).append('\0');
+            if (!lines.get(i).getCore().equals(legacy.get(i)[0]) || !inputs.toString().equals(legacy.get(i)[1]))
+                throw new IllegalStateException("Different output at " + lines.get(i));
+        }
+
+        System.out.println("Source: " + vfile.getCode().length() + " chars, " + lines.size() + " lines");
+        System.out.println("Lexer:  " + time(() -> new Lexer(project, vfile).toLines()) + " ms/op");
+        System.out.println("Legacy: " + time(() -> legacyLex(vfile.getCode())) + " ms/op");
+    }
+
+    /**
+     * Runs the given task and returns the average number of milliseconds it took after warming up.
+     */
+    private static double time(Task task) throws Exception {
+        for (int i = 0; i < WARMUP; i++) task.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) task.run();
+        return (System.nanoTime() - start) / 1_000_000.0 / RUNS;
+    }
+
+    /**
+     * A benchmarked task.
+     */
+    private interface Task {
+        Object run() throws Exception;
+    }
+
+    /**
+     * The previous splitter. Splits the code into lines and each line into its core and inputs by concatenating Strings.
+     *
+     * @return for each non blank line, its core and its inputs (type followed by text, separated by '\0').
+     */
+    private static ArrayList<String[]> legacyLex(String code) {
+        ArrayList<String> split = new ArrayList<>();
+        String currLine = "";
+        for (int i = 0; i < code.length(); i++) {
+            char curr = code.charAt(i);
+            char next = i + 1 == code.length() ? '_' : code.charAt(i + 1);
+            if (curr == '\\' && (next == '\n' || next == '\r')) {
+                i += 2;
+            } else if ((curr == '\n' || curr == '\r')) {
+                split.add(currLine);
+                currLine = "";
+            } else {
+                currLine += code.charAt(i);
+            }
+        }
+        split.add(currLine);
+
+        ArrayList<String[]> output = new ArrayList<>();
+        for (String line : split) {
+            if (line.trim().isEmpty() || line.trim().startsWith("#")) continue;
+            output.add(legacySplitElement(line));
+        }
+        return output;
+    }
+
+    /**
+     * The previous element splitter without its error checking.
+     */
+    private static String[] legacySplitElement(String element) {
+        String core = "";
+        String inputs = "";
+        String currInput = null;
+        ArrayList<Character> inputTypes = new ArrayList<>();
+        int index = 0;
+        boolean inString = false;
+        for (int i = 0; i < element.length(); i++) {
+            char c = element.charAt(i);
+            if (inString) {
+                if (c == ']') {
+                    inString = false;
+                } else {
+                    currInput += c;
+                }
+            }
+            if (!inString) {
+                if (c == ']' || c == '}' || c == ')') {
+                    char lastInputType = inputTypes.remove(inputTypes.size() - 1);
+                    index--;
+                    if (index == 0) {
+                        inputs += lastInputType + currInput + '\0';
+                        currInput = null;
+                    }
+                }
+                if (index == 0) {
+                    core += c;
+                } else {
+                    currInput += c;
+                }
+                if (c == '[' || c == '{' || c == '(') {
+                    if (c == '[') inString = true;
+                    inputTypes.add(c);
+                    index++;
+                    if (currInput == null) {
+                        currInput = "";
+                    }
+                }
+            }
+        }
+        return new String[]{core.trim().replaceAll(" +", " "), inputs};
+    }
+}
@@ -0,0 +1,67 @@
+import com.jlogical.vision.compiler.Compiler;
+import com.jlogical.vision.project.Project;
+import com.jlogical.vision.project.VisionFile;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares compiling a large Project one Hat after another against compiling it in parallel in a ForkJoinPool.
+ * Run the main method with the number of VisionFiles and the number of Hats in each to generate (defaults to 200 and 20).
+ */
+public class ParallelCompileBenchmark {
+
+    /**
+     * Number of untimed compiles before measuring.
+     */
+    private static final int WARMUP = 20;
+
+    /**
+     * Number of timed compiles.
+     */
+    private static final int RUNS = 20;
+
+    /**
+     * The code of each generated Hat.
+     */
+    private static final String HAT = "when started\n" +
+            "    set [total] to (0)\n" +
+            "    repeat (20)\n" +
+            "        for every [i] up to (50)\n" +
+            "            if ((i) > (25))\n" +
+            "                change [total] by ((i) * 2 + 1)\n" +
+            "            else\n" +
+            "                change [total] by (1)\n" +
+            "            end\n" +
+            "        end\n" +
+            "    end\n" +
+            "    set global [last] to [total is #total]\n" +
+            "end\n";
+
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int hats = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Project project = Project.blank("benchmark");
+        for (int i = 0; i < files; i++) {
+            project.getFiles().add(new VisionFile("file" + i, HAT.repeat(hats)));
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (int i = 0; i < WARMUP; i++) {
+            Compiler.compile(project);
+            Compiler.compile(project, pool);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            Compiler.compile(project);
+        }
+        double serial = (System.nanoTime() - start) / 1_000_000.0 / RUNS;
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            Compiler.compile(project, pool);
+        }
+        double parallel = (System.nanoTime() - start) / 1_000_000.0 / RUNS;
+
+        System.out.printf("%d files, %d hats, %d threads%n", files, files * hats, pool.getParallelism());
+        System.out.printf("serial: %8.3f ms   parallel: %8.3f ms (%.2fx)%n", serial, parallel, serial / parallel);
+    }
+}
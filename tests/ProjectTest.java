@@ -1,9 +1,21 @@
+import com.jlogical.vision.api.elements.CustomReporter;
+import com.jlogical.vision.api.elements.Effect;
+import com.jlogical.vision.compiler.Compiler;
 import com.jlogical.vision.compiler.exceptions.FileFormatException;
+import com.jlogical.vision.compiler.optimizer.Optimizer;
+import com.jlogical.vision.compiler.script.Script;
+import com.jlogical.vision.compiler.script.vis.VisFormat;
 import com.jlogical.vision.project.Project;
 import com.jlogical.vision.project.VisionFile;
 import org.junit.*;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.jupiter.api.Test;
 
@@ -54,6 +66,103 @@ public class ProjectTest {
         file.delete();
     }
 
+    @Test
+    public void testPrecompiledProject() throws Exception{
+        File file = File.createTempFile("precompiled", ".vproj");
+        try{
+            Project project = Project.blank("testPrecompiled");
+            project.getFiles().add(new VisionFile("main", "when started\n    print [precompiled]\nend"));
+            project.save(file, true);
+
+            Project openProject = Project.fromFile(file);
+            assertTrue(openProject.hasPrecompiled());
+            assertEquals(openProject.getSourceKey(), openProject.getPrecompiledKey());
+            Script script = openProject.loadPrecompiled();
+            assertNotNull(script);
+            script.start();
+            assertEquals("precompiled", script.getOutputLog());
+
+            openProject.getFiles().get(0).setCode("when started\n    print [recompiled]\nend");
+            assertNotEquals(openProject.getSourceKey(), openProject.getPrecompiledKey());
+            assertNull(openProject.loadPrecompiled());
+            script = Compiler.compile(openProject);
+            script.start();
+            assertEquals("recompiled", script.getOutputLog());
+
+            project.save(file);
+            assertFalse(Project.fromFile(file).hasPrecompiled());
+        }finally{
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testPrecompiledProjectStale() throws Exception{
+        File file = File.createTempFile("precompiled", ".vproj");
+        try{
+            Project project = Project.blank("testPrecompiled");
+            project.getFiles().add(new VisionFile("main", "when started\n    print [precompiled]\nend"));
+            project.save(file, true);
+
+            // Changing how an API element is tagged makes the stored Script stale, since the optimizer relies on the tags.
+            Project openProject = Project.fromFile(file);
+            CustomReporter reporter = openProject.getReporters().get(0);
+            Effect effect = reporter.getEffect();
+            reporter.setEffect(effect == Effect.PURE ? Effect.SIDE_EFFECTS : Effect.PURE);
+            assertNotEquals(openProject.getSourceKey(), openProject.getPrecompiledKey());
+            assertNull(openProject.loadPrecompiled());
+            reporter.setEffect(effect);
+            assertEquals(openProject.getSourceKey(), openProject.getPrecompiledKey());
+
+            // A stored Script that cannot be loaded is compiled again, even if its key matches.
+            File corrupt = File.createTempFile("corrupt", ".vproj");
+            try{
+                try(ZipFile in = new ZipFile(file); ZipOutputStream out = new ZipOutputStream(new FileOutputStream(corrupt))){
+                    for(ZipEntry entry : Collections.list(in.entries())){
+                        out.putNextEntry(new ZipEntry(entry.getName()));
+                        if(entry.getName().equals("compiled.vis")){
+                            out.write(ByteBuffer.allocate(12).putInt(VisFormat.MAGIC).putInt(VisFormat.VERSION).putInt(-5).array());
+                        }else{
+                            out.write(in.getInputStream(entry).readAllBytes());
+                        }
+                        out.closeEntry();
+                    }
+                }
+                Project corruptProject = Project.fromFile(corrupt);
+                assertTrue(corruptProject.hasPrecompiled());
+                assertEquals(corruptProject.getSourceKey(), corruptProject.getPrecompiledKey());
+                assertNull(corruptProject.loadPrecompiled());
+                Script script = Compiler.compile(corruptProject);
+                script.start();
+                assertEquals("precompiled", script.getOutputLog());
+            }finally{
+                corrupt.delete();
+            }
+        }finally{
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testPrecompiledProjectNotOptimized() throws Exception{
+        File file = File.createTempFile("precompiled", ".vproj");
+        try{
+            Project project = Project.blank("testPrecompiled");
+            project.getFiles().add(new VisionFile("main", "when started\n    print ((1) + (2))\nend"));
+            project.save(file, true);
+
+            Project openProject = Project.fromFile(file);
+            assertTrue(openProject.hasPrecompiled());
+            Script plain = Compiler.compile(openProject, null, null);
+            Script optimized = Compiler.compile(openProject);
+            assertTrue(Optimizer.countElements(plain.getProgram()) > Optimizer.countElements(optimized.getProgram()));
+            plain.start();
+            assertEquals("3", plain.getOutputLog());
+        }finally{
+            file.delete();
+        }
+    }
+
     @Test
     public void testIncorrectSave(){
         File file = new File("res/fail.txt");
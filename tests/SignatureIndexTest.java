@@ -0,0 +1,65 @@
+import com.jlogical.vision.compiler.SignatureIndex;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SignatureIndexTest {
+
+    /**
+     * Creates a SignatureIndex where each core is its own element.
+     * @param cores the cores to add.
+     * @return the SignatureIndex.
+     */
+    private SignatureIndex<String> index(String... cores) {
+        SignatureIndex<String> index = new SignatureIndex<>();
+        for (String core : cores) {
+            index.add(core, core);
+        }
+        return index;
+    }
+
+    @Test
+    public void testLiterals() {
+        SignatureIndex<String> index = index("pi", "e", "new list", "list");
+        assertEquals(index.find("pi"), "pi");
+        assertEquals(index.find("e"), "e");
+        assertEquals(index.find("list"), "list");
+        assertEquals(index.find("new list"), "new list");
+        assertNull(index.find("new"));
+        assertNull(index.find("lists"));
+    }
+
+    @Test
+    public void testParameters() {
+        SignatureIndex<String> index = index("print []", "for () size", "run {}");
+        assertEquals(index.find("print []"), "print []");
+        assertEquals(index.find("print ()"), "print []");
+        assertEquals(index.find("print {}"), "print []");
+        assertEquals(index.find("for () size"), "for () size");
+        assertNull(index.find("for [] size"));
+        assertEquals(index.find("run {}"), "run {}");
+        assertEquals(index.find("run ()"), "run {}");
+        assertNull(index.find("run []"));
+    }
+
+    @Test
+    public void testMultipleParameters() {
+        SignatureIndex<String> index = index("join []>>", "[]>>", "[] + []");
+        assertEquals(index.find("join []"), "join []>>");
+        assertEquals(index.find("join [](){}[]"), "join []>>");
+        assertEquals(index.find("[][][]"), "[]>>");
+        assertEquals(index.find("() + ()"), "[] + []");
+        assertNull(index.find("join"));
+        assertNull(index.find("join [] x"));
+    }
+
+    @Test
+    public void testPriority() {
+        SignatureIndex<String> index = new SignatureIndex<>();
+        index.add("set [] to []", "first");
+        index.add("set () to []", "second");
+        index.add("set [] to []", "third");
+        assertEquals(index.find("set () to []"), "first");
+        assertEquals(index.find("set [] to []"), "first");
+    }
+}
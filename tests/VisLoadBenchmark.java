@@ -0,0 +1,75 @@
+import com.jlogical.vision.compiler.Compiler;
+import com.jlogical.vision.compiler.script.Script;
+import com.jlogical.vision.compiler.script.vis.VisReader;
+import com.jlogical.vision.compiler.script.vis.VisWriter;
+import com.jlogical.vision.project.Project;
+import com.jlogical.vision.project.VisionFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares compiling a large Project from its code against loading it from a .vis file.
+ * Run the main method with the number of Hats to generate (defaults to 2000).
+ */
+public class VisLoadBenchmark {
+
+    /**
+     * Number of untimed loads before measuring.
+     */
+    private static final int WARMUP = 20;
+
+    /**
+     * Number of timed loads.
+     */
+    private static final int RUNS = 20;
+
+    /**
+     * The code of each generated Hat.
+     */
+    private static final String HAT = "when started\n" +
+            "    set [total] to (0)\n" +
+            "    repeat (20)\n" +
+            "        for every [i] up to (50)\n" +
+            "            if ((i) > (25))\n" +
+            "                change [total] by ((i) * 2 + 1)\n" +
+            "            else\n" +
+            "                change [total] by (1)\n" +
+            "            end\n" +
+            "        end\n" +
+            "    end\n" +
+            "    set global [last] to [total is #total]\n" +
+            "end\n";
+
+    public static void main(String[] args) throws Exception {
+        int hats = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Project project = Project.blank("benchmark");
+        project.getFiles().add(new VisionFile("main", HAT.repeat(hats)));
+
+        Path file = Files.createTempFile("benchmark", ".vis");
+        try {
+            VisWriter.write(Compiler.compile(project), file);
+
+            for (int i = 0; i < WARMUP; i++) {
+                Compiler.compile(project);
+                VisReader.read(file, project);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) {
+                Compiler.compile(project);
+            }
+            double compile = (System.nanoTime() - start) / 1_000_000.0 / RUNS;
+            start = System.nanoTime();
+            Script script = null;
+            for (int i = 0; i < RUNS; i++) {
+                script = VisReader.read(file, project);
+            }
+            double load = (System.nanoTime() - start) / 1_000_000.0 / RUNS;
+
+            System.out.printf("%d hats, %d byte .vis file, %d hats loaded%n", hats, Files.size(file), script.getHats().size());
+            System.out.printf("compile: %8.3f ms   load: %8.3f ms (%.2fx)%n", compile, load, compile / load);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}